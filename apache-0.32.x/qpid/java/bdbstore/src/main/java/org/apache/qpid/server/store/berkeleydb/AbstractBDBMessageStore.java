@@ -22,12 +22,15 @@ import static org.apache.qpid.server.store.berkeleydb.BDBUtils.DEFAULT_DATABASE_
 import static org.apache.qpid.server.store.berkeleydb.BDBUtils.abortTransactionSafely;
 import static org.apache.qpid.server.store.berkeleydb.BDBUtils.closeCursorSafely;
 
-import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
 
 import com.sleepycat.bind.tuple.ByteBinding;
@@ -49,6 +52,8 @@ import org.apache.qpid.server.store.Event;
 import org.apache.qpid.server.store.EventListener;
 import org.apache.qpid.server.store.EventManager;
 import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.OffHeapContent;
+import org.apache.qpid.server.store.OffHeapContentArea;
 import org.apache.qpid.server.store.StorableMessageMetaData;
 import org.apache.qpid.server.store.StoreException;
 import org.apache.qpid.server.store.StoreFuture;
@@ -73,6 +78,8 @@ public abstract class AbstractBDBMessageStore implements MessageStore
 
     private static final int LOCK_RETRY_ATTEMPTS = 5;
 
+    public static final String MESSAGE_DATA_CACHE_MAX_SIZE = "qpid.bdb.messageDataCache.maxSize";
+
     private static final String MESSAGE_META_DATA_DB_NAME = "MESSAGE_METADATA";
     private static final String MESSAGE_META_DATA_SEQ_DB_NAME = "MESSAGE_METADATA.SEQ";
     private static final String MESSAGE_CONTENT_DB_NAME = "MESSAGE_CONTENT";
@@ -96,6 +103,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
 
     private boolean _limitBusted;
     private long _totalStoreSize;
+    private volatile MessageDataCache _messageDataCache = new MessageDataCache(0L);
 
     @Override
     public void upgradeStoreStructure() throws StoreException
@@ -176,6 +184,85 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         return getMessageInternal(messageId, getEnvironmentFacade());
     }
 
+    @Override
+    public void prefetchContent(final Collection<? extends StoredMessage<?>> messages) throws StoreException
+    {
+        SortedMap<Long, StoredBDBMessage<?>> toLoad = new TreeMap<>();
+        for(StoredMessage<?> message : messages)
+        {
+            if(message instanceof StoredBDBMessage && ((StoredBDBMessage<?>) message).isContentEvicted())
+            {
+                toLoad.put(message.getMessageNumber(), (StoredBDBMessage<?>) message);
+            }
+        }
+
+        if(toLoad.isEmpty())
+        {
+            return;
+        }
+
+        checkMessageStoreOpen();
+
+        // visiting the keys in order lets the cursors move forward through the databases
+        Cursor contentCursor = null;
+        Cursor metaDataCursor = null;
+        try
+        {
+            contentCursor = getMessageContentDb().openCursor(null, null);
+            DatabaseEntry key = new DatabaseEntry();
+            DatabaseEntry value = new DatabaseEntry();
+            ContentBinding contentTupleBinding = ContentBinding.getInstance();
+            MessageMetaDataBinding metaDataBinding = MessageMetaDataBinding.getInstance();
+
+            for(Map.Entry<Long, StoredBDBMessage<?>> entry : toLoad.entrySet())
+            {
+                LongBinding.longToEntry(entry.getKey(), key);
+
+                // the cache evicts meta data along with content, so in a deep backlog it is usually gone too
+                StorableMessageMetaData metaData = entry.getValue().getCachedMetaData();
+                if(metaData == null)
+                {
+                    if(metaDataCursor == null)
+                    {
+                        metaDataCursor = getMessageMetaDataDb().openCursor(null, null);
+                    }
+                    if(metaDataCursor.getSearchKey(key, value, LockMode.READ_UNCOMMITTED) != OperationStatus.SUCCESS)
+                    {
+                        continue;
+                    }
+                    metaData = metaDataBinding.entryToObject(value);
+                }
+
+                if(contentCursor.getSearchKey(key, value, LockMode.READ_UNCOMMITTED) == OperationStatus.SUCCESS)
+                {
+                    entry.getValue().contentLoaded(metaData, contentTupleBinding.entryToObject(value));
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            throw getEnvironmentFacade().handleDatabaseException("Error prefetching content for messages "
+                                                                 + toLoad.keySet(), e);
+        }
+        finally
+        {
+            try
+            {
+                closeCursorSafely(contentCursor, getEnvironmentFacade());
+            }
+            finally
+            {
+                closeCursorSafely(metaDataCursor, getEnvironmentFacade());
+            }
+        }
+    }
+
+    @Override
+    public boolean isContentInMemory(final StoredMessage<?> message)
+    {
+        return !(message instanceof StoredBDBMessage) || !((StoredBDBMessage<?>) message).isContentEvicted();
+    }
+
     @Override
     public void visitMessageInstances(final TransactionLogResource queue, final MessageInstanceHandler handler) throws StoreException
     {
@@ -1062,6 +1149,17 @@ public abstract class AbstractBDBMessageStore implements MessageStore
 
     protected abstract void checkMessageStoreOpen();
 
+    protected void createMessageDataCache(final ConfiguredObject<?> parent)
+    {
+        Long maxSize = parent.getContextValue(Long.class, MESSAGE_DATA_CACHE_MAX_SIZE);
+        _messageDataCache = new MessageDataCache(maxSize == null ? 0L : maxSize);
+    }
+
+    public MessageDataCache getMessageDataCache()
+    {
+        return _messageDataCache;
+    }
+
     protected abstract ConfiguredObject<?> getParent();
 
     protected abstract EnvironmentFacade getEnvironmentFacade();
@@ -1077,6 +1175,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         T getMetaData();
         byte[] getData();
         void setData(byte[] data);
+        OffHeapContent getOffHeapContent();
         boolean isHardRef();
     }
 
@@ -1084,6 +1183,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
     {
         private final T _metaData;
         private byte[] _data;
+        private OffHeapContent _offHeapContent;
 
         private MessageDataHardRef(final T metaData)
         {
@@ -1108,6 +1208,17 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             _data = data;
         }
 
+        @Override
+        public OffHeapContent getOffHeapContent()
+        {
+            return _offHeapContent;
+        }
+
+        public void setOffHeapContent(final OffHeapContent offHeapContent)
+        {
+            _offHeapContent = offHeapContent;
+        }
+
         @Override
         public boolean isHardRef()
         {
@@ -1115,69 +1226,74 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         }
     }
 
-    private static final class MessageData<T extends StorableMessageMetaData>
+    /**
+     * Refers to a message which has been written to the store, whose meta data and content are held in the
+     * store's {@link MessageDataCache} for as long as the cache has room for them.
+     */
+    private final class MessageDataCacheRef<T extends StorableMessageMetaData> implements MessageDataRef<T>
     {
-        private T _metaData;
-        private SoftReference<byte[]> _data;
+        private final long _messageId;
+        private volatile T _pinnedMetaData;
+        private volatile byte[] _pinnedData;
 
-        private MessageData(final T metaData, final byte[] data)
+        private MessageDataCacheRef(final long messageId, final T metaData, final byte[] data)
         {
-            _metaData = metaData;
+            _messageId = messageId;
+            _messageDataCache.put(messageId, metaData, data);
+        }
 
-            if(data != null)
+        /**
+         * Keeps the message in memory, regardless of the cache, until the returned action is run.
+         */
+        private Runnable pin(final T metaData, final byte[] data)
+        {
+            _pinnedMetaData = metaData;
+            _pinnedData = data;
+            return new Runnable()
             {
-                _data = new SoftReference<>(data);
-            }
+                @Override
+                public void run()
+                {
+                    _pinnedMetaData = null;
+                    _pinnedData = null;
+                }
+            };
         }
 
+        @Override
         public T getMetaData()
         {
-            return _metaData;
+            T metaData = _pinnedMetaData;
+            return metaData == null ? (T) _messageDataCache.getMetaData(_messageId) : metaData;
         }
 
+        @Override
         public byte[] getData()
         {
-            return _data == null ? null : _data.get();
+            byte[] data = _pinnedData;
+            return data == null ? _messageDataCache.getData(_messageId) : data;
         }
 
+        @Override
         public void setData(final byte[] data)
         {
-            _data = new SoftReference<>(data);
+            _messageDataCache.put(_messageId, getMetaData(), data);
         }
 
-
-    }
-    private static final class MessageDataSoftRef<T extends StorableMessageMetaData> extends SoftReference<MessageData<T>> implements MessageDataRef<T>
-    {
-
-        public MessageDataSoftRef(final T metadata, byte[] data)
+        private boolean hasData()
         {
-            super(new MessageData<T>(metadata, data));
+            return _pinnedData != null || _messageDataCache.containsData(_messageId);
         }
 
-        @Override
-        public T getMetaData()
+        private void dataLoaded(final T metaData, final byte[] data)
         {
-            MessageData<T> ref = get();
-            return ref == null ? null : ref.getMetaData();
+            _messageDataCache.put(_messageId, metaData, data);
         }
 
         @Override
-        public byte[] getData()
+        public OffHeapContent getOffHeapContent()
         {
-            MessageData<T> ref = get();
-
-            return ref == null ? null : ref.getData();
-        }
-
-        @Override
-        public void setData(final byte[] data)
-        {
-            MessageData<T> ref = get();
-            if(ref != null)
-            {
-                ref.setData(data);
-            }
+            return null;
         }
 
         @Override
@@ -1209,7 +1325,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             }
             else
             {
-                _messageDataRef = new MessageDataSoftRef<>(metaData, null);
+                _messageDataRef = new MessageDataCacheRef<>(messageId, metaData, null);
             }
         }
 
@@ -1222,7 +1338,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             {
                 checkMessageStoreOpen();
                 metaData = (T) getMessageMetaData(_messageId);
-                _messageDataRef = new MessageDataSoftRef<>(metaData,null);
+                _messageDataRef = new MessageDataCacheRef<>(_messageId, metaData, null);
             }
             return metaData;
         }
@@ -1236,6 +1352,13 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         @Override
         public void addContent(int offsetInMessage, ByteBuffer src)
         {
+            if(_messageDataRef.isHardRef() && addOffHeapContent((MessageDataHardRef<T>) _messageDataRef,
+                                                                offsetInMessage,
+                                                                src))
+            {
+                return;
+            }
+
             src = src.slice();
             byte[] data = _messageDataRef.getData();
             if(data == null)
@@ -1258,9 +1381,62 @@ public abstract class AbstractBDBMessageStore implements MessageStore
 
         }
 
+        /**
+         * Keeps the content of a message which has not yet been stored in the broker's off-heap content area,
+         * if it has room.  Once the area is full, content is held on the heap and the queues' flow to disk
+         * thresholds take care of freeing memory.
+         *
+         * @return true if the content was added off-heap
+         */
+        private boolean addOffHeapContent(final MessageDataHardRef<T> hardRef, int offsetInMessage, ByteBuffer src)
+        {
+            OffHeapContent offHeapContent = hardRef.getOffHeapContent();
+            if(offHeapContent == null && hardRef.getData() == null && offsetInMessage == 0)
+            {
+                offHeapContent = OffHeapContentArea.getInstance().allocate(hardRef.getMetaData().getContentSize());
+                hardRef.setOffHeapContent(offHeapContent);
+            }
+
+            if(offHeapContent == null)
+            {
+                return false;
+            }
+            else if(offsetInMessage + src.remaining() <= offHeapContent.getSize())
+            {
+                offHeapContent.write(offsetInMessage, src);
+                return true;
+            }
+            else
+            {
+                // more content than the meta data declared, so fall back to holding it on the heap
+                hardRef.setData(copyOffHeapContent(offHeapContent, offsetInMessage));
+                hardRef.setOffHeapContent(null);
+                offHeapContent.release();
+                return false;
+            }
+        }
+
+        private byte[] copyOffHeapContent(final OffHeapContent offHeapContent, final int length)
+        {
+            byte[] data = new byte[length];
+            offHeapContent.read(0, ByteBuffer.wrap(data));
+            return data;
+        }
+
         @Override
         public int getContent(int offsetInMessage, ByteBuffer dst)
         {
+            OffHeapContent offHeapContent = _messageDataRef.getOffHeapContent();
+            if(offHeapContent != null)
+            {
+                int read = offHeapContent.read(offsetInMessage, dst);
+                if(read >= 0)
+                {
+                    return read;
+                }
+                // released by a concurrent store or remove, by which time the ref has been replaced
+            }
+
             byte[] data = _messageDataRef.getData();
             if(data == null)
             {
@@ -1272,7 +1448,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                     if (metaData == null)
                     {
                         metaData = (T) getMessageMetaData(_messageId);
-                        _messageDataRef = new MessageDataSoftRef<>(metaData, data);
+                        _messageDataRef = new MessageDataCacheRef<>(_messageId, metaData, data);
                     }
                     else
                     {
@@ -1293,6 +1469,16 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         @Override
         public ByteBuffer getContent(int offsetInMessage, int size)
         {
+            OffHeapContent offHeapContent = _messageDataRef.getOffHeapContent();
+            if(offHeapContent != null)
+            {
+                ByteBuffer content = offHeapContent.getContent(offsetInMessage, size);
+                if(content != null)
+                {
+                    return content;
+                }
+            }
+
             byte[] data = _messageDataRef.getData();
             if(data == null)
             {
@@ -1304,7 +1490,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                     if (metaData == null)
                     {
                         metaData = (T) getMessageMetaData(_messageId);
-                        _messageDataRef = new MessageDataSoftRef<>(metaData, data);
+                        _messageDataRef = new MessageDataCacheRef<>(_messageId, metaData, data);
                     }
                     else
                     {
@@ -1336,42 +1522,29 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         {
             if (!stored())
             {
+                MessageDataRef<T> hardRef = _messageDataRef;
+                OffHeapContent offHeapContent = hardRef.getOffHeapContent();
+                byte[] data = offHeapContent == null
+                        ? hardRef.getData()
+                        : copyOffHeapContent(offHeapContent, offHeapContent.getSize());
 
-                AbstractBDBMessageStore.this.storeMetaData(txn, _messageId, _messageDataRef.getMetaData());
+                AbstractBDBMessageStore.this.storeMetaData(txn, _messageId, hardRef.getMetaData());
                 AbstractBDBMessageStore.this.addContent(txn, _messageId, 0,
-                                                        _messageDataRef.getData() == null
+                                                        data == null
                                                                 ? ByteBuffer.allocate(0)
-                                                                : ByteBuffer.wrap(_messageDataRef.getData()));
+                                                                : ByteBuffer.wrap(data));
 
 
-                MessageDataRef<T> hardRef = _messageDataRef;
-                MessageDataSoftRef<T> messageDataSoftRef;
-                MessageData<T> ref;
-                do
-                {
-                    messageDataSoftRef = new MessageDataSoftRef<>(hardRef.getMetaData(), hardRef.getData());
-                    ref = messageDataSoftRef.get();
-                }
-                while (ref == null);
+                MessageDataCacheRef<T> cacheRef = new MessageDataCacheRef<>(_messageId, hardRef.getMetaData(), data);
+                // until the transaction commits the message can only be read from memory
+                Runnable unpin = cacheRef.pin(hardRef.getMetaData(), data);
 
-                _messageDataRef = messageDataSoftRef;
-
-                class Pointer implements Runnable
+                _messageDataRef = cacheRef;
+                if (offHeapContent != null)
                 {
-                    private MessageData<T> _ref;
-
-                    Pointer(final MessageData<T> ref)
-                    {
-                        _ref = ref;
-                    }
-
-                    @Override
-                    public void run()
-                    {
-                        _ref = null;
-                    }
+                    offHeapContent.release();
                 }
-                return new Pointer(ref);
+                return unpin;
             }
             else
             {
@@ -1402,8 +1575,9 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                 {
                     throw getEnvironmentFacade().handleDatabaseException("failed to begin transaction", e);
                 }
-                store(txn);
+                Runnable unpin = store(txn);
                 getEnvironmentFacade().commit(txn, true);
+                unpin.run();
 
                 storedSizeChangeOccurred(getMetaData().getContentSize());
             }
@@ -1416,6 +1590,12 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             checkMessageStoreOpen();
 
             int delta = getMetaData().getContentSize();
+            OffHeapContent offHeapContent = _messageDataRef.getOffHeapContent();
+            if(offHeapContent != null)
+            {
+                offHeapContent.release();
+            }
+            _messageDataCache.remove(_messageId);
             removeMessage(_messageId, false);
             storedSizeChangeOccurred(-delta);
         }
@@ -1431,6 +1611,29 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             return !_messageDataRef.isHardRef();
         }
 
+        private boolean isContentEvicted()
+        {
+            MessageDataRef<T> messageDataRef = _messageDataRef;
+            return !messageDataRef.isHardRef() && !((MessageDataCacheRef<T>) messageDataRef).hasData();
+        }
+
+        /**
+         * @return the meta data of the message if it can be had without reading it from the store, else null
+         */
+        private T getCachedMetaData()
+        {
+            return _messageDataRef.getMetaData();
+        }
+
+        private void contentLoaded(final StorableMessageMetaData metaData, final byte[] data)
+        {
+            MessageDataRef<T> messageDataRef = _messageDataRef;
+            if(!messageDataRef.isHardRef())
+            {
+                ((MessageDataCacheRef<T>) messageDataRef).dataLoaded((T) metaData, data);
+            }
+        }
+
         @Override
         public boolean flowToDisk()
         {
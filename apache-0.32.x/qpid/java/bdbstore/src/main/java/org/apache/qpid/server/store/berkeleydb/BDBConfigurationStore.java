@@ -41,6 +41,7 @@ import com.sleepycat.je.Transaction;
 import org.apache.log4j.Logger;
 
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.store.ConfigurationChangeBatch;
 import org.apache.qpid.server.store.ConfiguredObjectRecord;
 import org.apache.qpid.server.store.DurableConfigurationStore;
 import org.apache.qpid.server.store.FileBasedSettings;
@@ -224,6 +225,7 @@ public class BDBConfigurationStore implements MessageStoreProvider, DurableConfi
     @Override
     public void closeConfigurationStore() throws StoreException
     {
+        ConfigurationChangeBatch.flush(this);
         if (_configurationStoreOpen.compareAndSet(true, false))
         {
             if (!_providedMessageStore.isMessageStoreOpen())
@@ -253,6 +255,10 @@ public class BDBConfigurationStore implements MessageStoreProvider, DurableConfi
     public void create(ConfiguredObjectRecord configuredObject) throws StoreException
     {
         checkConfigurationStoreOpen();
+        if (ConfigurationChangeBatch.deferUpdate(this, configuredObject))
+        {
+            return;
+        }
 
         if (LOGGER.isDebugEnabled())
         {
@@ -285,6 +291,11 @@ public class BDBConfigurationStore implements MessageStoreProvider, DurableConfi
     public UUID[] remove(final ConfiguredObjectRecord... objects) throws StoreException
     {
         checkConfigurationStoreOpen();
+        UUID[] deferred = ConfigurationChangeBatch.deferRemove(this, objects);
+        if (deferred != null)
+        {
+            return deferred;
+        }
 
         com.sleepycat.je.Transaction txn = null;
         try
@@ -321,6 +332,10 @@ public class BDBConfigurationStore implements MessageStoreProvider, DurableConfi
     public void update(boolean createIfNecessary, ConfiguredObjectRecord... records) throws StoreException
     {
         checkConfigurationStoreOpen();
+        if (ConfigurationChangeBatch.deferUpdate(this, records))
+        {
+            return;
+        }
 
         com.sleepycat.je.Transaction txn = null;
         try
@@ -346,6 +361,40 @@ public class BDBConfigurationStore implements MessageStoreProvider, DurableConfi
         }
     }
 
+    @Override
+    public void applyChanges(final Collection<ConfiguredObjectRecord> updates,
+                             final Collection<ConfiguredObjectRecord> removals) throws StoreException
+    {
+        checkConfigurationStoreOpen();
+
+        com.sleepycat.je.Transaction txn = null;
+        try
+        {
+            txn = _environmentFacade.getEnvironment().beginTransaction(null, null);
+            for(ConfiguredObjectRecord record : updates)
+            {
+                update(true, record, txn);
+            }
+            for(ConfiguredObjectRecord record : removals)
+            {
+                removeConfiguredObject(txn, record);
+            }
+            txn.commit();
+            txn = null;
+        }
+        catch (RuntimeException e)
+        {
+            throw _environmentFacade.handleDatabaseException("Error applying configuration changes within the store: " + e, e);
+        }
+        finally
+        {
+            if (txn != null)
+            {
+                abortTransactionSafely(txn, _environmentFacade);
+            }
+        }
+    }
+
     private void update(boolean createIfNecessary, ConfiguredObjectRecord record, com.sleepycat.je.Transaction txn) throws StoreException
     {
         if (LOGGER.isDebugEnabled())
@@ -536,6 +585,8 @@ public class BDBConfigurationStore implements MessageStoreProvider, DurableConfi
                 {
                     _persistentSizeLowThreshold = _persistentSizeHighThreshold;
                 }
+
+                createMessageDataCache(parent);
             }
         }
 
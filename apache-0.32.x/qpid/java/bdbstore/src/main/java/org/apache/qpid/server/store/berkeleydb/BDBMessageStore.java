@@ -77,6 +77,7 @@ public class BDBMessageStore extends AbstractBDBMessageStore
             }
 
             _environmentFacade = _environmentFacadeFactory.createEnvironmentFacade(parent);
+            createMessageDataCache(parent);
         }
     }
 
@@ -0,0 +1,264 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.berkeleydb;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.qpid.server.store.StorableMessageMetaData;
+
+/**
+ * Caches the meta data and content of messages which have been written to the store, so that they need
+ * not be read back from the database each time they are delivered.  The cache is bounded by the total
+ * size of what it holds, evicting the least recently used messages first.  Unlike soft references this
+ * gives up memory gradually and predictably, rather than all at once when the garbage collector is
+ * under pressure.
+ * <p>
+ * So that delivery threads working on different messages do not contend for one lock, a cache of any size
+ * is split into up to {@value #MAX_STRIPES} stripes chosen by message id, each with its own lock, its own
+ * share of the budget and its own recency order.  Eviction is therefore least recently used within a
+ * stripe rather than across the whole cache.
+ */
+public class MessageDataCache
+{
+    static final int MAX_STRIPES = 16;
+    /** Caches smaller than this per stripe are not split, so that each stripe can still hold large messages */
+    static final long MIN_STRIPE_SIZE = 1024L * 1024L;
+
+    private final long _maxSize;
+    private final Stripe[] _stripes;
+
+    private final AtomicLong _hits = new AtomicLong();
+    private final AtomicLong _misses = new AtomicLong();
+    private final AtomicLong _evictions = new AtomicLong();
+
+    public MessageDataCache(final long maxSize)
+    {
+        this(maxSize, stripeCountFor(maxSize));
+    }
+
+    MessageDataCache(final long maxSize, final int stripeCount)
+    {
+        if (Integer.bitCount(stripeCount) != 1)
+        {
+            throw new IllegalArgumentException("Stripe count must be a power of two: " + stripeCount);
+        }
+        _maxSize = maxSize;
+        _stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++)
+        {
+            _stripes[i] = new Stripe(maxSize / stripeCount);
+        }
+    }
+
+    private static int stripeCountFor(final long maxSize)
+    {
+        int stripeCount = 1;
+        while (stripeCount < MAX_STRIPES && maxSize / (stripeCount * 2) >= MIN_STRIPE_SIZE)
+        {
+            stripeCount *= 2;
+        }
+        return stripeCount;
+    }
+
+    public StorableMessageMetaData getMetaData(final long messageId)
+    {
+        CachedMessageData entry = stripeFor(messageId).get(messageId);
+        if (entry == null)
+        {
+            _misses.incrementAndGet();
+            return null;
+        }
+        _hits.incrementAndGet();
+        return entry._metaData;
+    }
+
+    public byte[] getData(final long messageId)
+    {
+        CachedMessageData entry = stripeFor(messageId).get(messageId);
+        if (entry == null || entry._data == null)
+        {
+            _misses.incrementAndGet();
+            return null;
+        }
+        _hits.incrementAndGet();
+        return entry._data;
+    }
+
+    /**
+     * Caches the meta data and, if it is not null, the content of a message.  Content already cached for
+     * the message is kept if none is given.
+     */
+    public void put(final long messageId, final StorableMessageMetaData metaData, final byte[] data)
+    {
+        if (metaData == null || _maxSize <= 0L)
+        {
+            return;
+        }
+
+        Stripe stripe = stripeFor(messageId);
+        synchronized (stripe)
+        {
+            CachedMessageData previous = stripe._entries.get(messageId);
+            byte[] cachedData = data == null && previous != null ? previous._data : data;
+            stripe.cache(messageId, new CachedMessageData(metaData, cachedData), previous);
+        }
+    }
+
+    /**
+     * @return true if the content of the message is cached.  Unlike {@link #getData} this is not counted as a
+     * hit or a miss.
+     */
+    public boolean containsData(final long messageId)
+    {
+        CachedMessageData entry = stripeFor(messageId).get(messageId);
+        return entry != null && entry._data != null;
+    }
+
+    public void remove(final long messageId)
+    {
+        stripeFor(messageId).remove(messageId);
+    }
+
+    public long getMaxSize()
+    {
+        return _maxSize;
+    }
+
+    public long getSize()
+    {
+        long size = 0L;
+        for (Stripe stripe : _stripes)
+        {
+            synchronized (stripe)
+            {
+                size += stripe._size;
+            }
+        }
+        return size;
+    }
+
+    public int getCount()
+    {
+        int count = 0;
+        for (Stripe stripe : _stripes)
+        {
+            synchronized (stripe)
+            {
+                count += stripe._entries.size();
+            }
+        }
+        return count;
+    }
+
+    int getStripeCount()
+    {
+        return _stripes.length;
+    }
+
+    public long getHits()
+    {
+        return _hits.get();
+    }
+
+    public long getMisses()
+    {
+        return _misses.get();
+    }
+
+    public long getEvictions()
+    {
+        return _evictions.get();
+    }
+
+    private Stripe stripeFor(final long messageId)
+    {
+        int hash = (int) (messageId ^ (messageId >>> 32));
+        hash ^= hash >>> 16;
+        return _stripes[hash & (_stripes.length - 1)];
+    }
+
+    private final class Stripe
+    {
+        private final long _maxSize;
+        private final LinkedHashMap<Long, CachedMessageData> _entries = new LinkedHashMap<>(256, 0.75f, true);
+        private long _size;
+
+        private Stripe(final long maxSize)
+        {
+            _maxSize = maxSize;
+        }
+
+        private synchronized CachedMessageData get(final long messageId)
+        {
+            return _entries.get(messageId);
+        }
+
+        private synchronized void remove(final long messageId)
+        {
+            CachedMessageData entry = _entries.remove(messageId);
+            if (entry != null)
+            {
+                _size -= entry._size;
+            }
+        }
+
+        private void cache(final long messageId, final CachedMessageData entry, final CachedMessageData previous)
+        {
+            if (entry._size > _maxSize)
+            {
+                // never worth evicting everything else for
+                if (previous != null)
+                {
+                    remove(messageId);
+                }
+                return;
+            }
+
+            _entries.put(messageId, entry);
+            _size += entry._size - (previous == null ? 0L : previous._size);
+
+            Iterator<CachedMessageData> iterator = _entries.values().iterator();
+            while (_size > _maxSize && iterator.hasNext())
+            {
+                CachedMessageData eldest = iterator.next();
+                iterator.remove();
+                _size -= eldest._size;
+                _evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static final class CachedMessageData
+    {
+        private final StorableMessageMetaData _metaData;
+        private final byte[] _data;
+        private final long _size;
+
+        private CachedMessageData(final StorableMessageMetaData metaData, final byte[] data)
+        {
+            _metaData = metaData;
+            _data = data;
+            _size = metaData.getStorableSize() + (data == null ? 0L : data.length);
+        }
+    }
+}
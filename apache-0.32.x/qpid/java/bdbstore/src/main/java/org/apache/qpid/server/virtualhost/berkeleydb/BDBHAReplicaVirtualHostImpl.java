@@ -50,6 +50,7 @@ import org.apache.qpid.server.stats.StatisticsCounter;
 import org.apache.qpid.server.store.DurableConfigurationStore;
 import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.txn.DtxRegistry;
+import org.apache.qpid.server.virtualhost.DeliveryScheduler;
 import org.apache.qpid.server.virtualhost.ExchangeIsAlternateException;
 import org.apache.qpid.server.virtualhost.HouseKeepingTask;
 import org.apache.qpid.server.virtualhost.RequiredExchangeException;
@@ -254,6 +255,48 @@ public class BDBHAReplicaVirtualHostImpl extends AbstractConfiguredObject<BDBHAR
         return 0;
     }
 
+    @Override
+    public long getRecoveredEntryCount()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getRecoveringQueueCount()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getRecoveryRate()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getDeliveryActiveThreadCount()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getDeliveryPendingTaskCount()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getDeliveryAverageQueueingDelay()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getDeliveryMaximumQueueingDelay()
+    {
+        return 0;
+    }
+
     @Override
     public Collection<VirtualHostAlias> getAliases()
     {
@@ -385,6 +428,12 @@ public class BDBHAReplicaVirtualHostImpl extends AbstractConfiguredObject<BDBHAR
         return 0;
     }
 
+    @Override
+    public DeliveryScheduler getDeliveryScheduler()
+    {
+        return null;
+    }
+
     @Override
     public DtxRegistry getDtxRegistry()
     {
@@ -23,6 +23,7 @@ package org.apache.qpid.server.virtualhost.berkeleydb;
 import org.apache.qpid.server.exchange.ExchangeImpl;
 import org.apache.qpid.server.model.DerivedAttribute;
 import org.apache.qpid.server.model.ManagedAttribute;
+import org.apache.qpid.server.model.ManagedStatistic;
 import org.apache.qpid.server.queue.AMQQueue;
 import org.apache.qpid.server.store.SizeMonitoringSettings;
 import org.apache.qpid.server.virtualhost.NonStandardVirtualHost;
@@ -56,4 +57,16 @@ public interface BDBHAVirtualHost<X extends BDBHAVirtualHost<X>>
 
     @ManagedAttribute(mandatory = true, defaultValue = "0")
     Long getStoreOverfullSize();
+
+    @ManagedStatistic
+    long getMessageDataCacheSize();
+
+    @ManagedStatistic
+    long getMessageDataCacheHits();
+
+    @ManagedStatistic
+    long getMessageDataCacheMisses();
+
+    @ManagedStatistic
+    long getMessageDataCacheEvictions();
 }
@@ -29,7 +29,9 @@ import org.apache.qpid.server.model.ManagedObject;
 import org.apache.qpid.server.model.ManagedObjectFactoryConstructor;
 import org.apache.qpid.server.model.VirtualHostNode;
 import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.berkeleydb.AbstractBDBMessageStore;
 import org.apache.qpid.server.store.berkeleydb.BDBConfigurationStore;
+import org.apache.qpid.server.store.berkeleydb.MessageDataCache;
 import org.apache.qpid.server.store.berkeleydb.replication.ReplicatedEnvironmentFacade;
 import org.apache.qpid.server.virtualhost.AbstractVirtualHost;
 
@@ -159,6 +161,42 @@ public class BDBHAVirtualHostImpl extends AbstractVirtualHost<BDBHAVirtualHostIm
         return _storeOverfullSize;
     }
 
+    @Override
+    public long getMessageDataCacheSize()
+    {
+        MessageDataCache cache = getMessageDataCache();
+        return cache == null ? 0L : cache.getSize();
+    }
+
+    @Override
+    public long getMessageDataCacheHits()
+    {
+        MessageDataCache cache = getMessageDataCache();
+        return cache == null ? 0L : cache.getHits();
+    }
+
+    @Override
+    public long getMessageDataCacheMisses()
+    {
+        MessageDataCache cache = getMessageDataCache();
+        return cache == null ? 0L : cache.getMisses();
+    }
+
+    @Override
+    public long getMessageDataCacheEvictions()
+    {
+        MessageDataCache cache = getMessageDataCache();
+        return cache == null ? 0L : cache.getEvictions();
+    }
+
+    private MessageDataCache getMessageDataCache()
+    {
+        MessageStore messageStore = getMessageStore();
+        return messageStore instanceof AbstractBDBMessageStore
+                ? ((AbstractBDBMessageStore) messageStore).getMessageDataCache()
+                : null;
+    }
+
     @Override
     public void onValidate()
     {
@@ -23,8 +23,10 @@ package org.apache.qpid.server.virtualhost.berkeleydb;
 import org.apache.qpid.server.exchange.ExchangeImpl;
 import org.apache.qpid.server.model.ManagedAttribute;
 import org.apache.qpid.server.model.ManagedContextDefault;
+import org.apache.qpid.server.model.ManagedStatistic;
 import org.apache.qpid.server.queue.AMQQueue;
 import org.apache.qpid.server.store.SizeMonitoringSettings;
+import org.apache.qpid.server.store.berkeleydb.AbstractBDBMessageStore;
 import org.apache.qpid.server.virtualhost.VirtualHostImpl;
 
 public interface BDBVirtualHost<X extends BDBVirtualHost<X>> extends VirtualHostImpl<X, AMQQueue<?>, ExchangeImpl<?>>, org.apache.qpid.server.store.FileBasedSettings, SizeMonitoringSettings
@@ -38,6 +40,10 @@ public interface BDBVirtualHost<X extends BDBVirtualHost<X>> extends VirtualHost
                                           Math.min(200l*1024l*1024l,
                                                    Runtime.getRuntime().maxMemory()/20l));
 
+    // Default the cache of stored message data to 5% of total memory
+    @ManagedContextDefault(name=AbstractBDBMessageStore.MESSAGE_DATA_CACHE_MAX_SIZE)
+    long DEFAULT_MESSAGE_DATA_CACHE_MAX_SIZE = Runtime.getRuntime().maxMemory()/20l;
+
     @ManagedAttribute(mandatory = true, defaultValue = "${qpid.work_dir}${file.separator}${this:name}${file.separator}messages")
     String getStorePath();
 
@@ -46,4 +52,16 @@ public interface BDBVirtualHost<X extends BDBVirtualHost<X>> extends VirtualHost
 
     @ManagedAttribute(mandatory = true, defaultValue = "0")
     Long getStoreOverfullSize();
+
+    @ManagedStatistic
+    long getMessageDataCacheSize();
+
+    @ManagedStatistic
+    long getMessageDataCacheHits();
+
+    @ManagedStatistic
+    long getMessageDataCacheMisses();
+
+    @ManagedStatistic
+    long getMessageDataCacheEvictions();
 }
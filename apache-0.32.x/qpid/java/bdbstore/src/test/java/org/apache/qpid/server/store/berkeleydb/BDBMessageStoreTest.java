@@ -26,6 +26,9 @@ import static org.mockito.Mockito.when;
 import java.io.File;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.qpid.framing.AMQShortString;
 import org.apache.qpid.framing.BasicContentHeaderProperties;
@@ -38,6 +41,8 @@ import org.apache.qpid.server.protocol.v0_8.MessageMetaData;
 import org.apache.qpid.server.protocol.v0_8.MessageMetaDataType_0_8;
 import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.MessageStoreTestCase;
+import org.apache.qpid.server.store.OffHeapContent;
+import org.apache.qpid.server.store.OffHeapContentArea;
 import org.apache.qpid.server.store.StorableMessageMetaData;
 import org.apache.qpid.server.store.StoreException;
 import org.apache.qpid.server.store.StoredMessage;
@@ -339,6 +344,105 @@ public class BDBMessageStoreTest extends MessageStoreTestCase
                         0, bdbStore.getContent(messageid_0_8, 0, dst));
     }
 
+    public void testPrefetchRestoresMessageEvictedFromCache() throws Exception
+    {
+        BDBMessageStore bdbStore = (BDBMessageStore) getStore();
+        MessageDataCache cache = bdbStore.getMessageDataCache();
+
+        StoredMessage<MessageMetaData> storedMessage = createAndStoreSingleChunkMessage_0_8(bdbStore);
+        long messageId = storedMessage.getMessageNumber();
+        assertTrue("Content of stored message should be cached", cache.containsData(messageId));
+        assertTrue(bdbStore.isContentInMemory(storedMessage));
+
+        // as the cache would when making room for other messages
+        cache.remove(messageId);
+        assertFalse(bdbStore.isContentInMemory(storedMessage));
+
+        bdbStore.prefetchContent(Collections.singletonList(storedMessage));
+
+        assertTrue("Prefetched content not cached", cache.containsData(messageId));
+        assertNotNull("Prefetched meta data not cached", cache.getMetaData(messageId));
+        assertTrue(bdbStore.isContentInMemory(storedMessage));
+
+        ByteBuffer content = storedMessage.getContent(0, CONTENT_BYTES.length);
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        assertTrue("Unexpected content", Arrays.equals(CONTENT_BYTES, bytes));
+    }
+
+    public void testConcurrentReadWhilstStoringOffHeapContent() throws Exception
+    {
+        OffHeapContentArea.initialise(4 * 1024 * 1024);
+        try
+        {
+            BDBMessageStore bdbStore = (BDBMessageStore) getStore();
+            final byte[] content = new byte[1000];
+            for (int i = 0; i < content.length; i++)
+            {
+                content[i] = (byte) (i % 100);
+            }
+            byte[] garbage = new byte[content.length];
+            Arrays.fill(garbage, (byte) -1);
+
+            for (int i = 0; i < 50; i++)
+            {
+                MessageMetaData metaData = new MessageMetaData(createPublishInfoBody_0_8(),
+                                                               createContentHeaderBody_0_8(
+                                                                       createContentHeaderProperties_0_8(),
+                                                                       content.length));
+                final StoredMessage<MessageMetaData> message = bdbStore.addMessage(metaData);
+                message.addContent(0, ByteBuffer.wrap(content));
+
+                final AtomicBoolean stop = new AtomicBoolean();
+                final AtomicReference<String> failure = new AtomicReference<>();
+                Thread reader = new Thread(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        while (!stop.get() && failure.get() == null)
+                        {
+                            ByteBuffer view = message.getContent(0, content.length);
+                            byte[] read = new byte[content.length];
+                            message.getContent(0, ByteBuffer.wrap(read));
+                            if (!Arrays.equals(content, read))
+                            {
+                                failure.set("Unexpected content read into a buffer");
+                            }
+                            // give the writer the chance to reuse any blocks the view might still point at
+                            Thread.yield();
+                            byte[] viewed = new byte[view.remaining()];
+                            view.get(viewed);
+                            if (!Arrays.equals(content, viewed))
+                            {
+                                failure.set("Unexpected content in view");
+                            }
+                        }
+                    }
+                });
+                reader.start();
+
+                ((AbstractBDBMessageStore.StoredBDBMessage) message).flushToStore();
+
+                // scribble over whatever blocks the stored message gave back
+                OffHeapContent reused = OffHeapContentArea.getInstance().allocate(content.length);
+                reused.write(0, ByteBuffer.wrap(garbage));
+
+                Thread.sleep(5);
+                stop.set(true);
+                reader.join(5000);
+                reused.release();
+                message.remove();
+
+                assertNull(failure.get(), failure.get());
+            }
+        }
+        finally
+        {
+            OffHeapContentArea.initialise(0L);
+        }
+    }
+
     private StoredMessage<MessageMetaData> createAndStoreSingleChunkMessage_0_8(MessageStore store)
     {
         ByteBuffer chunk1 = ByteBuffer.wrap(CONTENT_BYTES);
@@ -388,6 +492,7 @@ public class BDBMessageStoreTest extends MessageStoreTestCase
 
         final BDBVirtualHost parent = mock(BDBVirtualHost.class);
         when(parent.getStorePath()).thenReturn(_storeLocation);
+        when(parent.getContextValue(Long.class, AbstractBDBMessageStore.MESSAGE_DATA_CACHE_MAX_SIZE)).thenReturn(1024L * 1024L);
         return parent;
     }
 
@@ -0,0 +1,195 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.berkeleydb;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.qpid.server.store.StorableMessageMetaData;
+import org.apache.qpid.server.store.TestMessageMetaData;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class MessageDataCacheTest extends QpidTestCase
+{
+    private static final int META_DATA_SIZE = new TestMessageMetaData(0L, 0).getStorableSize();
+
+    public void testGetReturnsCachedValues()
+    {
+        MessageDataCache cache = new MessageDataCache(1000L);
+        StorableMessageMetaData metaData = new TestMessageMetaData(1L, 10);
+        byte[] data = new byte[10];
+
+        cache.put(1L, metaData, data);
+
+        assertSame(metaData, cache.getMetaData(1L));
+        assertSame(data, cache.getData(1L));
+        assertNull(cache.getMetaData(2L));
+        assertEquals(2L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+        assertEquals(META_DATA_SIZE + 10L, cache.getSize());
+    }
+
+    public void testPutWithoutDataKeepsCachedData()
+    {
+        MessageDataCache cache = new MessageDataCache(1000L);
+        StorableMessageMetaData metaData = new TestMessageMetaData(1L, 10);
+        byte[] data = new byte[10];
+
+        cache.put(1L, metaData, data);
+        cache.put(1L, metaData, null);
+
+        assertSame(data, cache.getData(1L));
+        assertEquals(1, cache.getCount());
+        assertEquals(META_DATA_SIZE + 10L, cache.getSize());
+    }
+
+    public void testLeastRecentlyUsedEvicted()
+    {
+        int entrySize = META_DATA_SIZE + 100;
+        MessageDataCache cache = new MessageDataCache(3L * entrySize);
+
+        cache.put(1L, new TestMessageMetaData(1L, 100), new byte[100]);
+        cache.put(2L, new TestMessageMetaData(2L, 100), new byte[100]);
+        cache.put(3L, new TestMessageMetaData(3L, 100), new byte[100]);
+
+        // touching the first message makes the second the least recently used
+        assertNotNull(cache.getData(1L));
+
+        cache.put(4L, new TestMessageMetaData(4L, 100), new byte[100]);
+
+        assertEquals(1L, cache.getEvictions());
+        assertEquals(3, cache.getCount());
+        assertEquals(3L * entrySize, cache.getSize());
+        assertNull(cache.getData(2L));
+        assertNotNull(cache.getData(1L));
+        assertNotNull(cache.getData(3L));
+        assertNotNull(cache.getData(4L));
+    }
+
+    public void testEntryLargerThanCacheNotCached()
+    {
+        MessageDataCache cache = new MessageDataCache(100L);
+
+        cache.put(1L, new TestMessageMetaData(1L, 10), new byte[10]);
+        cache.put(2L, new TestMessageMetaData(2L, 200), new byte[200]);
+
+        assertNull(cache.getMetaData(2L));
+        assertNotNull(cache.getMetaData(1L));
+        assertEquals(0L, cache.getEvictions());
+    }
+
+    public void testRemove()
+    {
+        MessageDataCache cache = new MessageDataCache(1000L);
+        cache.put(1L, new TestMessageMetaData(1L, 10), new byte[10]);
+
+        cache.remove(1L);
+
+        assertNull(cache.getMetaData(1L));
+        assertEquals(0, cache.getCount());
+        assertEquals(0L, cache.getSize());
+    }
+
+    public void testZeroSizedCacheHoldsNothing()
+    {
+        MessageDataCache cache = new MessageDataCache(0L);
+        cache.put(1L, new TestMessageMetaData(1L, 10), new byte[10]);
+
+        assertNull(cache.getMetaData(1L));
+        assertEquals(0, cache.getCount());
+    }
+
+    public void testPutAddsContentToCachedMetaData()
+    {
+        MessageDataCache cache = new MessageDataCache(1000L);
+        cache.put(1L, new TestMessageMetaData(1L, 10), null);
+
+        assertFalse(cache.containsData(1L));
+        cache.put(1L, new TestMessageMetaData(1L, 10), new byte[10]);
+        cache.put(2L, new TestMessageMetaData(2L, 10), new byte[10]);
+
+        assertTrue(cache.containsData(1L));
+        assertTrue(cache.containsData(2L));
+        assertEquals(2, cache.getCount());
+        assertEquals(2 * (META_DATA_SIZE + 10L), cache.getSize());
+    }
+
+    public void testLargeCacheIsStriped()
+    {
+        long maxSize = MessageDataCache.MAX_STRIPES * MessageDataCache.MIN_STRIPE_SIZE;
+        MessageDataCache cache = new MessageDataCache(maxSize);
+        assertEquals(MessageDataCache.MAX_STRIPES, cache.getStripeCount());
+        assertEquals(1, new MessageDataCache(MessageDataCache.MIN_STRIPE_SIZE).getStripeCount());
+
+        int dataSize = 10000;
+        int messageCount = (int) (2 * maxSize / dataSize);
+        for (long id = 0; id < messageCount; id++)
+        {
+            cache.put(id, new TestMessageMetaData(id, dataSize), new byte[dataSize]);
+        }
+
+        assertTrue("Cache exceeded its budget", cache.getSize() <= maxSize);
+        assertTrue("Cache should be mostly full", cache.getSize() > maxSize / 2);
+        assertEquals((long) messageCount - cache.getCount(), cache.getEvictions());
+        assertNotNull("Most recent message should be cached", cache.getData(messageCount - 1));
+        assertNull("Oldest message should have been evicted", cache.getData(0L));
+    }
+
+    public void testConcurrentAccessAcrossStripes() throws Exception
+    {
+        final MessageDataCache cache = new MessageDataCache(100000L * META_DATA_SIZE, 4);
+        Thread[] threads = new Thread[4];
+        final AtomicReference<String> failure = new AtomicReference<>();
+        for (int t = 0; t < threads.length; t++)
+        {
+            final long base = t * 100000L;
+            threads[t] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for (long id = base; id < base + 10000; id++)
+                    {
+                        TestMessageMetaData metaData = new TestMessageMetaData(id, 0);
+                        cache.put(id, metaData, null);
+                        if (cache.getMetaData(id) != metaData)
+                        {
+                            failure.compareAndSet(null, "Message " + id + " not found straight after caching it");
+                        }
+                        if (id % 2 == 0)
+                        {
+                            cache.remove(id);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertNull(failure.get(), failure.get());
+        assertEquals(0L, cache.getEvictions());
+        assertEquals(threads.length * 5000, cache.getCount());
+        assertEquals((long) cache.getCount() * META_DATA_SIZE, cache.getSize());
+    }
+}
@@ -49,6 +49,7 @@ public class BrokerProperties
     public static final String PROPERTY_QPID_WORK = "QPID_WORK";
     public static final String PROPERTY_LOG_RECORDS_BUFFER_SIZE = "qpid.broker_log_records_buffer_size";
     public static final String POSIX_FILE_PERMISSIONS = "qpid.default_posix_file_permissions";
+    public static final String JSON_CONFIG_STORE_COMPACTION_SIZE = "qpid.json_config_store_compaction_size";
 
     private BrokerProperties()
     {
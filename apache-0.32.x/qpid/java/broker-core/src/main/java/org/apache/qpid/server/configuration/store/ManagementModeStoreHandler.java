@@ -228,17 +228,7 @@ public class ManagementModeStoreHandler implements DurableConfigurationStore
 
             for(ConfiguredObjectRecord record : records)
             {
-                if (_cliEntries.containsKey(record.getId()))
-                {
-                    throw new IllegalConfigurationException("Cannot save configuration provided as command line argument:"
-                                                            + record);
-                }
-                else if (_quiescedEntriesOriginalState.containsKey(record.getId()))
-                {
-                    // save entry with the original state
-                    record = createEntryWithState(record, _quiescedEntriesOriginalState.get(record.getId()));
-                }
-                actualUpdates.add(record);
+                actualUpdates.add(getRecordToStore(record));
             }
             _store.update(createIfNecessary, actualUpdates.toArray(new ConfiguredObjectRecord[actualUpdates.size()]));
         }
@@ -248,6 +238,51 @@ public class ManagementModeStoreHandler implements DurableConfigurationStore
         }
     }
 
+    private ConfiguredObjectRecord getRecordToStore(ConfiguredObjectRecord record)
+    {
+        if (_cliEntries.containsKey(record.getId()))
+        {
+            throw new IllegalConfigurationException("Cannot save configuration provided as command line argument:"
+                                                    + record);
+        }
+        else if (_quiescedEntriesOriginalState.containsKey(record.getId()))
+        {
+            // save entry with the original state
+            record = createEntryWithState(record, _quiescedEntriesOriginalState.get(record.getId()));
+        }
+        return record;
+    }
+
+    @Override
+    public synchronized void applyChanges(final Collection<ConfiguredObjectRecord> updates,
+                                          final Collection<ConfiguredObjectRecord> removals) throws StoreException
+    {
+        synchronized (_store)
+        {
+            Collection<ConfiguredObjectRecord> actualUpdates = new ArrayList<ConfiguredObjectRecord>();
+            for(ConfiguredObjectRecord record : updates)
+            {
+                actualUpdates.add(getRecordToStore(record));
+            }
+            for(ConfiguredObjectRecord record : removals)
+            {
+                checkNotCommandLineEntry(record.getId());
+            }
+
+            _store.applyChanges(actualUpdates, removals);
+
+            for(ConfiguredObjectRecord record : removals)
+            {
+                _quiescedEntriesOriginalState.remove(record.getId());
+                _records.remove(record.getId());
+            }
+        }
+        for(ConfiguredObjectRecord record : updates)
+        {
+            _records.put(record.getId(), record);
+        }
+    }
+
     @Override
     public void closeConfigurationStore() throws StoreException
     {
@@ -271,11 +306,7 @@ public class ManagementModeStoreHandler implements DurableConfigurationStore
 
             for (UUID id : idsToRemove)
             {
-                if (_cliEntries.containsKey(id))
-                {
-                    throw new IllegalConfigurationException("Cannot change configuration for command line entry:"
-                                                            + _cliEntries.get(id));
-                }
+                checkNotCommandLineEntry(id);
             }
             UUID[] result = _store.remove(records);
             for (UUID id : idsToRemove)
@@ -293,6 +324,15 @@ public class ManagementModeStoreHandler implements DurableConfigurationStore
         }
     }
 
+    private void checkNotCommandLineEntry(final UUID id)
+    {
+        if (_cliEntries.containsKey(id))
+        {
+            throw new IllegalConfigurationException("Cannot change configuration for command line entry:"
+                                                    + _cliEntries.get(id));
+        }
+    }
+
     private Map<UUID, ConfiguredObjectRecord> createPortsFromCommandLineOptions(SystemConfig<?> options)
     {
         int managementModeRmiPortOverride = options.getManagementModeRmiPortOverride();
@@ -25,8 +25,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.log4j.Logger;
 
@@ -41,6 +44,7 @@ import org.apache.qpid.server.filter.FilterSupport;
 import org.apache.qpid.server.filter.Filterable;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.ManagedContextDefault;
 import org.apache.qpid.server.model.ManagedObject;
 import org.apache.qpid.server.model.ManagedObjectFactoryConstructor;
 import org.apache.qpid.server.queue.AMQQueue;
@@ -53,8 +57,21 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
 {
     private static final Logger _logger = Logger.getLogger(TopicExchange.class);
 
+    public static final String ROUTING_KEY_CACHE_SIZE = "exchange.topic.routingKeyCacheSize";
+    @ManagedContextDefault( name = ROUTING_KEY_CACHE_SIZE )
+    public static final int DEFAULT_ROUTING_KEY_CACHE_SIZE = 4096;
+
     private final TopicParser _parser = new TopicParser();
 
+    private int _routingKeyCacheSize;
+
+    /**
+     * Routes already resolved by the parser.  Rather than tracking which routing keys a change of binding
+     * affects, every change replaces the whole cache; routes resolved against an earlier set of bindings
+     * are only ever stored in a cache that has already been discarded.
+     */
+    private volatile ConcurrentMap<String, CachedRoute> _routingKeyCache = new ConcurrentHashMap<String, CachedRoute>();
+
     private final Map<String, TopicExchangeResult> _topicExchangeResults =
             new ConcurrentHashMap<String, TopicExchangeResult>();
 
@@ -66,6 +83,13 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
         super(attributes, vhost);
     }
 
+    @Override
+    protected void onOpen()
+    {
+        super.onOpen();
+        _routingKeyCacheSize = getContextValue(Integer.class, ROUTING_KEY_CACHE_SIZE);
+    }
+
     @Override
     protected synchronized void onBindingUpdated(final BindingImpl binding, final Map<String, Object> oldArguments)
     {
@@ -126,11 +150,26 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
         {
             throw new ConnectionScopedRuntimeException(e);
         }
-
+        finally
+        {
+            invalidateRoutingKeyCache();
+        }
 
     }
 
     protected synchronized void registerQueue(final BindingImpl binding) throws AMQInvalidArgumentException
+    {
+        try
+        {
+            doRegisterQueue(binding);
+        }
+        finally
+        {
+            invalidateRoutingKeyCache();
+        }
+    }
+
+    private void doRegisterQueue(final BindingImpl binding) throws AMQInvalidArgumentException
     {
         final String bindingKey = binding.getBindingKey();
         AMQQueue queue = binding.getAMQQueue();
@@ -253,6 +292,18 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
     }
 
     private synchronized boolean deregisterQueue(final BindingImpl binding)
+    {
+        try
+        {
+            return doDeregisterQueue(binding);
+        }
+        finally
+        {
+            invalidateRoutingKeyCache();
+        }
+    }
+
+    private boolean doDeregisterQueue(final BindingImpl binding)
     {
         if(_bindings.containsKey(binding))
         {
@@ -284,6 +335,12 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
             {
                 result.removeUnfilteredQueue(binding.getAMQQueue());
             }
+
+            if(result.getBindings().isEmpty())
+            {
+                _topicExchangeResults.remove(bindingKey);
+                _parser.removeBinding(bindingKey);
+            }
             return true;
         }
         else
@@ -292,19 +349,65 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
         }
     }
 
+    private void invalidateRoutingKeyCache()
+    {
+        _routingKeyCache = new ConcurrentHashMap<String, CachedRoute>();
+    }
+
+    private CachedRoute getRoute(String routingKey)
+    {
+        final ConcurrentMap<String, CachedRoute> cache = _routingKeyCache;
+        CachedRoute route = cache.get(routingKey);
+        if(route == null)
+        {
+            route = new CachedRoute(_parser.parse(routingKey));
+            if(_routingKeyCacheSize > 0)
+            {
+                if(cache.size() >= _routingKeyCacheSize)
+                {
+                    // make room by evicting an arbitrary entry, which for a cache of hot routing keys is
+                    // almost as effective as, and much cheaper than, least recently used
+                    Iterator<String> keys = cache.keySet().iterator();
+                    if(keys.hasNext())
+                    {
+                        cache.remove(keys.next());
+                    }
+                }
+                cache.put(routingKey, route);
+            }
+        }
+        return route;
+    }
+
+    int getRoutingKeyCacheCount()
+    {
+        return _routingKeyCache.size();
+    }
+
     private Collection<AMQQueue> getMatchedQueues(Filterable message, String routingKey)
     {
 
-        Collection<TopicMatcherResult> results = _parser.parse(routingKey);
-        switch(results.size())
+        final CachedRoute route = getRoute(routingKey);
+        final TopicMatcherResult[] results = route._results;
+        switch(results.length)
         {
             case 0:
                 return Collections.EMPTY_SET;
             case 1:
-                TopicMatcherResult[] resultQueues = new TopicMatcherResult[1];
-                results.toArray(resultQueues);
-                return ((TopicExchangeResult)resultQueues[0]).processMessage(message, null);
+                return ((TopicExchangeResult)results[0]).processMessage(message, null);
             default:
+                if(route._unfilteredQueues != null)
+                {
+                    for(TopicMatcherResult result : results)
+                    {
+                        for(BindingImpl b : ((TopicExchangeResult)result).getBindings())
+                        {
+                            b.incrementMatches();
+                        }
+                    }
+                    return route._unfilteredQueues;
+                }
+
                 Collection<AMQQueue> queues = new HashSet<AMQQueue>();
                 for(TopicMatcherResult result : results)
                 {
@@ -323,6 +426,43 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
 
     }
 
+    /**
+     * The results the parser matched for a routing key, together with the queues they route to when none
+     * of those queues is bound with a filter, as the queues a message is routed to then don't depend on
+     * the message.
+     */
+    private static final class CachedRoute
+    {
+        private final TopicMatcherResult[] _results;
+        private final ArrayList<AMQQueue> _unfilteredQueues;
+
+        private CachedRoute(final Collection<TopicMatcherResult> results)
+        {
+            _results = results.toArray(new TopicMatcherResult[results.size()]);
+
+            ArrayList<AMQQueue> unfilteredQueues = null;
+            if(_results.length > 1)
+            {
+                Collection<AMQQueue> queues = new LinkedHashSet<AMQQueue>();
+                for(TopicMatcherResult result : _results)
+                {
+                    TopicExchangeResult res = (TopicExchangeResult) result;
+                    if(res.hasFilteredQueues())
+                    {
+                        queues = null;
+                        break;
+                    }
+                    queues.addAll(res.getUnfilteredQueues());
+                }
+                if(queues != null)
+                {
+                    unfilteredQueues = new ArrayList<AMQQueue>(queues);
+                }
+            }
+            _unfilteredQueues = unfilteredQueues;
+        }
+    }
+
     protected void onBind(final BindingImpl binding)
     {
         try
@@ -169,6 +169,11 @@ public final class TopicExchangeResult implements TopicMatcherResult
         _filteredQueues.put(queue,newFilters);
     }
 
+    public boolean hasFilteredQueues()
+    {
+        return !_filteredQueues.isEmpty();
+    }
+
     public Collection<AMQQueue> processMessage(Filterable msg, Collection<AMQQueue> queues)
     {
         if(queues == null)
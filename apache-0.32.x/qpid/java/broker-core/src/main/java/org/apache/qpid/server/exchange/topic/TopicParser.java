@@ -34,8 +34,33 @@ public class TopicParser
 {
     private static final String TOPIC_DELIMITER = "\\.";
 
-    private final TopicWordDictionary _dictionary = new TopicWordDictionary();
-    private final AtomicReference<TopicMatcherDFAState> _stateMachine = new AtomicReference<TopicMatcherDFAState>();
+    /**
+     * The state machine is not rebuilt until it holds at least this many removed bindings, and at least as
+     * many removed bindings as live ones.
+     */
+    static final int MINIMUM_COMPACTION_THRESHOLD = 64;
+
+    private final AtomicReference<Matcher> _matcher =
+            new AtomicReference<Matcher>(new Matcher(new TopicWordDictionary(), null));
+
+    private final Map<String, TopicMatcherResult> _liveBindings = new HashMap<String, TopicMatcherResult>();
+    private int _removedBindingCount;
+
+    /**
+     * The words a state machine was built from must always be looked up in the dictionary that was used
+     * to build it, so the two are only ever replaced together.
+     */
+    private static final class Matcher
+    {
+        private final TopicWordDictionary _dictionary;
+        private final TopicMatcherDFAState _stateMachine;
+
+        private Matcher(final TopicWordDictionary dictionary, final TopicMatcherDFAState stateMachine)
+        {
+            _dictionary = dictionary;
+            _stateMachine = stateMachine;
+        }
+    }
 
     private static class Position
     {
@@ -95,46 +120,81 @@ public class TopicParser
     }
 
 
-    public void addBinding(String bindingKey, TopicMatcherResult result)
+    public synchronized void addBinding(String bindingKey, TopicMatcherResult result)
     {
+        Matcher matcher = _matcher.get();
+        TopicMatcherDFAState newStateMachine = createStateMachine(bindingKey, result, matcher._dictionary);
+        if(matcher._stateMachine != null)
+        {
+            newStateMachine = matcher._stateMachine.mergeStateMachines(newStateMachine);
+        }
 
-        TopicMatcherDFAState startingStateMachine;
-        TopicMatcherDFAState newStateMachine;
+        if(_liveBindings.put(bindingKey, result) != null)
+        {
+            // the result previously added for the key is still in the state machine
+            _removedBindingCount++;
+        }
+        _matcher.set(new Matcher(matcher._dictionary, newStateMachine));
+    }
 
-        do
+    /**
+     * Stops the result added for the given binding key from being matched.  As states cannot be taken out of
+     * the state machine, the result stays in it until enough bindings have been removed for it to be worth
+     * rebuilding the state machine from those that remain; until then it is up to the caller to ensure the
+     * result no longer matches anything.
+     */
+    public synchronized void removeBinding(String bindingKey)
+    {
+        if(_liveBindings.remove(bindingKey) != null)
         {
-            startingStateMachine = _stateMachine.get();
-            if(startingStateMachine == null)
+            _removedBindingCount++;
+            if(_removedBindingCount >= Math.max(MINIMUM_COMPACTION_THRESHOLD, _liveBindings.size()))
             {
-                newStateMachine = createStateMachine(bindingKey, result);
-            }
-            else
-            {
-                newStateMachine = startingStateMachine.mergeStateMachines(createStateMachine(bindingKey, result));
+                compact();
             }
+        }
+    }
 
+    /**
+     * Rebuilds the state machine, and the dictionary of words it uses, from the live bindings alone.
+     */
+    public synchronized void compact()
+    {
+        TopicWordDictionary dictionary = new TopicWordDictionary();
+        TopicMatcherDFAState stateMachine = null;
+        for(Map.Entry<String, TopicMatcherResult> binding : _liveBindings.entrySet())
+        {
+            TopicMatcherDFAState bindingStateMachine = createStateMachine(binding.getKey(), binding.getValue(), dictionary);
+            stateMachine = stateMachine == null
+                    ? bindingStateMachine
+                    : stateMachine.mergeStateMachines(bindingStateMachine);
         }
-        while(!_stateMachine.compareAndSet(startingStateMachine,newStateMachine));
+        _matcher.set(new Matcher(dictionary, stateMachine));
+        _removedBindingCount = 0;
+    }
 
+    synchronized int getRemovedBindingCount()
+    {
+        return _removedBindingCount;
     }
 
     public Collection<TopicMatcherResult> parse(String routingKey)
     {
-        TopicMatcherDFAState stateMachine = _stateMachine.get();
-        if(stateMachine == null)
+        Matcher matcher = _matcher.get();
+        if(matcher._stateMachine == null)
         {
             return Collections.EMPTY_SET;
         }
         else
         {
-            return stateMachine.parse(_dictionary,routingKey);
+            return matcher._stateMachine.parse(matcher._dictionary, routingKey);
         }
     }
 
 
-    TopicMatcherDFAState createStateMachine(String bindingKey, TopicMatcherResult result)
+    TopicMatcherDFAState createStateMachine(String bindingKey, TopicMatcherResult result, TopicWordDictionary dictionary)
     {
-        List<TopicWord> wordList = createTopicWordList(bindingKey);
+        List<TopicWord> wordList = createTopicWordList(bindingKey, dictionary);
         int wildCards = 0;
         for(TopicWord word : wordList)
         {
@@ -419,7 +479,7 @@ public class TopicParser
 
     }
 
-    private List<TopicWord> createTopicWordList(final String bindingKey)
+    private List<TopicWord> createTopicWordList(final String bindingKey, final TopicWordDictionary dictionary)
     {
         String[] tokens = bindingKey.split(TOPIC_DELIMITER);
         TopicWord previousWord = null;
@@ -428,7 +488,7 @@ public class TopicParser
 
         for(String token : tokens)
         {
-            TopicWord nextWord = _dictionary.getOrCreateWord(token);
+            TopicWord nextWord = dictionary.getOrCreateWord(token);
             if(previousWord == TopicWord.WILDCARD_WORD)
             {
 
@@ -65,6 +65,23 @@ public class FilterManager
         return _filters.containsKey(name);
     }
 
+    /**
+     * @return a manager holding all of the filters of this one except the given filter, or null if there are
+     * no others
+     */
+    public FilterManager copyWithout(final MessageFilter excluded)
+    {
+        FilterManager copy = new FilterManager();
+        for (Map.Entry<String, MessageFilter> entry : _filters.entrySet())
+        {
+            if (entry.getValue() != excluded)
+            {
+                copy.add(entry.getKey(), entry.getValue());
+            }
+        }
+        return copy.hasFilters() ? copy : null;
+    }
+
     @Override
     public String toString()
     {
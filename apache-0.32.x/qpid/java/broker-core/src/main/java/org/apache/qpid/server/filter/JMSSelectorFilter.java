@@ -20,6 +20,10 @@
  */
 package org.apache.qpid.server.filter;
 
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.commons.lang.builder.ToStringBuilder;
@@ -29,6 +33,8 @@ import org.apache.log4j.Logger;
 import org.apache.qpid.common.AMQPFilterTypes;
 import org.apache.qpid.filter.BooleanExpression;
 import org.apache.qpid.filter.FilterableMessage;
+import org.apache.qpid.filter.PropertyExpression;
+import org.apache.qpid.filter.PropertyValueTest;
 import org.apache.qpid.filter.SelectorParsingException;
 import org.apache.qpid.filter.selector.ParseException;
 import org.apache.qpid.filter.selector.SelectorParser;
@@ -41,13 +47,52 @@ public class JMSSelectorFilter implements MessageFilter
 {
     private final static Logger _logger = org.apache.log4j.Logger.getLogger(JMSSelectorFilter.class);
 
+    /**
+     * Parsed selectors hold no per message state, so consumers using the same selector share a single parsed
+     * expression rather than each parsing and holding their own.
+     */
+    private static final int MAX_CACHED_SELECTORS = 1024;
+    private static final ConcurrentMap<String, BooleanExpression> SELECTOR_CACHE =
+            new ConcurrentHashMap<String, BooleanExpression>();
+
     private String _selector;
     private BooleanExpression _matcher;
+    private final PropertyValueTest _propertyValueTest;
 
     public JMSSelectorFilter(String selector) throws ParseException, TokenMgrError, SelectorParsingException
     {
         _selector = selector;
-        _matcher = new SelectorParser().parse(selector);
+        _matcher = getMatcher(selector);
+        _propertyValueTest = PropertyValueTest.create(_matcher);
+    }
+
+    private static BooleanExpression getMatcher(final String selector)
+            throws ParseException, TokenMgrError, SelectorParsingException
+    {
+        BooleanExpression matcher = SELECTOR_CACHE.get(selector);
+        if (matcher == null)
+        {
+            matcher = new SelectorParser().parse(selector);
+            if (SELECTOR_CACHE.size() >= MAX_CACHED_SELECTORS)
+            {
+                Iterator<String> selectors = SELECTOR_CACHE.keySet().iterator();
+                if (selectors.hasNext())
+                {
+                    SELECTOR_CACHE.remove(selectors.next());
+                }
+            }
+            BooleanExpression existing = SELECTOR_CACHE.putIfAbsent(selector, matcher);
+            if (existing != null)
+            {
+                matcher = existing;
+            }
+        }
+        return matcher;
+    }
+
+    BooleanExpression getMatcher()
+    {
+        return _matcher;
     }
 
     @Override
@@ -67,7 +112,21 @@ public class JMSSelectorFilter implements MessageFilter
         return match;
     }
 
-    private FilterableMessage wrap(final Filterable message)
+    /**
+     * @return a description of the selector if it only tests whether a single property has one of a set of
+     * values, otherwise null
+     */
+    public PropertyValueTest getPropertyValueTest()
+    {
+        return _propertyValueTest;
+    }
+
+    public static Object evaluate(final PropertyExpression property, final Filterable message)
+    {
+        return property.evaluate(wrap(message));
+    }
+
+    private static FilterableMessage wrap(final Filterable message)
     {
         return new FilterableMessage()
         {
@@ -43,11 +43,15 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
     private static final AtomicReferenceFieldUpdater<AbstractServerMessageImpl, Collection> _resourcesUpdater =
             AtomicReferenceFieldUpdater.newUpdater(AbstractServerMessageImpl.class, Collection.class,"_resources");
 
+    private static final AtomicReferenceFieldUpdater<AbstractServerMessageImpl, ConvertedForm> _convertedFormsUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractServerMessageImpl.class, ConvertedForm.class, "_convertedForms");
+
 
     private volatile int _referenceCount = 0;
     private final StoredMessage<T> _handle;
     private final Object _connectionReference;
     private volatile Collection<UUID> _resources;
+    private volatile ConvertedForm _convertedForms;
 
 
     public AbstractServerMessageImpl(StoredMessage<T> handle, Object connectionReference)
@@ -94,6 +98,8 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
             // by copying from other queues at the same time as it is being removed.
             _refCountUpdater.set(this,Integer.MIN_VALUE/2);
 
+            releaseConvertedForms();
+
             // must check if the handle is null since there may be cases where we decide to throw away a message
             // and the handle has not yet been constructed
             if (_handle != null)
@@ -111,6 +117,70 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
         }
     }
 
+    /**
+     * @return the form of this message converted to the given class held by the {@link MessageConversionCache},
+     * or null if there is none
+     */
+    ServerMessage getConvertedForm(final Class<? extends ServerMessage> type)
+    {
+        for(ConvertedForm form = _convertedForms; form != null; form = form._next)
+        {
+            if(form._type == type)
+            {
+                return form._message;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Holds a converted form of this message until the message is deleted, at which point its size is released
+     * back to the given cache.
+     *
+     * @return false if the form was not kept, either because a form of the same class is already held or because
+     * the message has been deleted
+     */
+    boolean addConvertedForm(final Class<? extends ServerMessage> type,
+                             final ServerMessage message,
+                             final MessageConversionCache cache,
+                             final long size)
+    {
+        ConvertedForm head;
+        do
+        {
+            if(_referenceCount <= 0)
+            {
+                return false;
+            }
+            head = _convertedForms;
+            for(ConvertedForm form = head; form != null; form = form._next)
+            {
+                if(form._type == type)
+                {
+                    return false;
+                }
+            }
+        }
+        while(!_convertedFormsUpdater.compareAndSet(this, head, new ConvertedForm(type, message, cache, size, head)));
+
+        // the message may have been deleted while the form was being added
+        if(_referenceCount <= 0)
+        {
+            releaseConvertedForms();
+        }
+        return true;
+    }
+
+    private void releaseConvertedForms()
+    {
+        ConvertedForm form = _convertedFormsUpdater.getAndSet(this, null);
+        while(form != null)
+        {
+            form._cache.release(form._size);
+            form = form._next;
+        }
+    }
+
     public String debugIdentity()
     {
         return "(HC:" + System.identityHashCode(this) + " ID:" + getMessageNumber() + " Ref:" + getReferenceCount() + ")";
@@ -179,6 +249,28 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
         return "Message[" + debugIdentity() + "]";
     }
 
+    private static final class ConvertedForm
+    {
+        private final Class<? extends ServerMessage> _type;
+        private final ServerMessage _message;
+        private final MessageConversionCache _cache;
+        private final long _size;
+        private final ConvertedForm _next;
+
+        private ConvertedForm(final Class<? extends ServerMessage> type,
+                              final ServerMessage message,
+                              final MessageConversionCache cache,
+                              final long size,
+                              final ConvertedForm next)
+        {
+            _type = type;
+            _message = message;
+            _cache = cache;
+            _size = size;
+            _next = next;
+        }
+    }
+
     private static class Reference<X extends AbstractServerMessageImpl<X,T>, T extends StorableMessageMetaData>
             implements MessageReference<X>
     {
@@ -0,0 +1,152 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.message;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import org.apache.qpid.server.plugin.MessageConverter;
+import org.apache.qpid.server.virtualhost.VirtualHostImpl;
+
+/**
+ * A broker-wide budget for the converted forms of messages.
+ * <p>
+ * When a message is delivered over a protocol other than the one it arrived on, the converted form is kept with
+ * the source message so that further deliveries to consumers of the same protocol need not convert it again.  A
+ * converted form lives exactly as long as its source message: it is dropped, and its bytes returned to the
+ * budget, when the last reference to the source message is released.  Once the budget is used up further
+ * conversions are simply not kept.  A cache with a budget of zero is disabled.
+ */
+public class MessageConversionCache
+{
+    private static final Logger LOGGER = Logger.getLogger(MessageConversionCache.class);
+
+    private static volatile MessageConversionCache _instance = new MessageConversionCache(0L);
+
+    private final long _maxSize;
+    private final AtomicLong _usedSize = new AtomicLong();
+    private final AtomicLong _hits = new AtomicLong();
+    private final AtomicLong _misses = new AtomicLong();
+
+    MessageConversionCache(final long maxSize)
+    {
+        _maxSize = maxSize;
+    }
+
+    public static MessageConversionCache getInstance()
+    {
+        return _instance;
+    }
+
+    /**
+     * Sets the budget for the broker-wide cache.  Converted forms held against a previous budget remain until
+     * their source messages are deleted.
+     */
+    public static void initialise(final long maxSize)
+    {
+        if (maxSize != _instance.getMaxSize())
+        {
+            LOGGER.info("Message conversion cache budget set to " + maxSize + " bytes");
+            _instance = new MessageConversionCache(maxSize);
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return _maxSize > 0L;
+    }
+
+    public long getMaxSize()
+    {
+        return _maxSize;
+    }
+
+    /**
+     * @return the content size of the converted forms currently held
+     */
+    public long getUsedSize()
+    {
+        return _usedSize.get();
+    }
+
+    public long getHitCount()
+    {
+        return _hits.get();
+    }
+
+    public long getMissCount()
+    {
+        return _misses.get();
+    }
+
+    /**
+     * Returns the form of the message converted to the given class, converting it only if no earlier conversion
+     * of the same message to the same class is being held.
+     */
+    public <M extends ServerMessage, N extends ServerMessage> N convert(final M message,
+                                                                       final Class<N> to,
+                                                                       final MessageConverter<M, N> converter,
+                                                                       final VirtualHostImpl vhost)
+    {
+        if (!isEnabled() || !(message instanceof AbstractServerMessageImpl))
+        {
+            return converter.convert(message, vhost);
+        }
+
+        AbstractServerMessageImpl<?, ?> source = (AbstractServerMessageImpl<?, ?>) message;
+        ServerMessage cached = source.getConvertedForm(to);
+        if (cached != null)
+        {
+            _hits.incrementAndGet();
+            return to.cast(cached);
+        }
+
+        _misses.incrementAndGet();
+        N converted = converter.convert(message, vhost);
+        long size = converted.getSize();
+        if (reserve(size) && !source.addConvertedForm(to, converted, this, size))
+        {
+            release(size);
+        }
+        return converted;
+    }
+
+    private boolean reserve(final long size)
+    {
+        long used;
+        do
+        {
+            used = _usedSize.get();
+            if (used + size > _maxSize)
+            {
+                return false;
+            }
+        }
+        while (!_usedSize.compareAndSet(used, used + size));
+        return true;
+    }
+
+    void release(final long size)
+    {
+        _usedSize.addAndGet(-size);
+    }
+}
@@ -54,6 +54,8 @@ public interface Broker<X extends Broker<X>> extends ConfiguredObject<X>, EventL
     String CONNECTION_CLOSE_WHEN_NO_ROUTE = "connection.closeWhenNoRoute";
 
     String BROKER_FLOW_TO_DISK_THRESHOLD = "broker.flowToDiskThreshold";
+    String BROKER_OFF_HEAP_CONTENT_MAX_SIZE = "broker.offHeapContentMaxSize";
+    String BROKER_MESSAGE_CONVERSION_CACHE_MAX_SIZE = "broker.messageConversionCacheMaxSize";
     String BROKER_FAIL_STARTUP_WITH_ERRORED_CHILD = "broker.failStartupWithErroredChild";
 
     String STORE_FILESYSTEM_MAX_USAGE_PERCENT = "store.filesystem.maxUsagePercent";
@@ -78,6 +80,12 @@ public interface Broker<X extends Broker<X>> extends ConfiguredObject<X>, EventL
     @ManagedContextDefault(name = BROKER_FLOW_TO_DISK_THRESHOLD)
     long DEFAULT_FLOW_TO_DISK_THRESHOLD = (long)(0.4 * (double)Runtime.getRuntime().maxMemory());
 
+    @ManagedContextDefault(name = BROKER_OFF_HEAP_CONTENT_MAX_SIZE)
+    long DEFAULT_OFF_HEAP_CONTENT_MAX_SIZE = 0l;
+
+    @ManagedContextDefault(name = BROKER_MESSAGE_CONVERSION_CACHE_MAX_SIZE)
+    long DEFAULT_MESSAGE_CONVERSION_CACHE_MAX_SIZE = (long)(0.05 * (double)Runtime.getRuntime().maxMemory());
+
     @ManagedContextDefault(name = CHANNEL_FLOW_CONTROL_ENFORCEMENT_TIMEOUT)
     long DEFAULT_CHANNEL_FLOW_CONTROL_ENFORCEMENT_TIMEOUT = 5000l;
 
@@ -65,6 +65,14 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>
     @ManagedContextDefault(name = MAX_ASYNCHRONOUS_DELIVERIES )
     int DEFAULT_MAX_ASYNCHRONOUS_DELIVERIES = 80;
 
+    String DELIVERY_RUNNERS = "queue.deliveryRunners";
+    @ManagedContextDefault(name = DELIVERY_RUNNERS)
+    int DEFAULT_DELIVERY_RUNNERS = 1;
+
+    String CONTENT_PREFETCH_SIZE = "queue.contentPrefetchSize";
+    @ManagedContextDefault(name = CONTENT_PREFETCH_SIZE)
+    int DEFAULT_CONTENT_PREFETCH_SIZE = 64;
+
     @ManagedAttribute
     Exchange getAlternateExchange();
 
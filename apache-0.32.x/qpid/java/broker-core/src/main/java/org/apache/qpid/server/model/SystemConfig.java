@@ -41,6 +41,13 @@ public interface SystemConfig<X extends SystemConfig<X>> extends ConfiguredObjec
     @ManagedContextDefault(name = BrokerProperties.POSIX_FILE_PERMISSIONS)
     String DEFAULT_POSIX_FILE_PERMISSIONS = "rw-r-----";
 
+    /**
+     * The size in bytes the journal of a JSON configuration store must reach (and also exceed the size of the
+     * configuration file itself) before it is compacted into the configuration file
+     */
+    @ManagedContextDefault(name = BrokerProperties.JSON_CONFIG_STORE_COMPACTION_SIZE)
+    long DEFAULT_JSON_CONFIG_STORE_COMPACTION_SIZE = 1024l * 1024l;
+
     @ManagedAttribute(defaultValue = "false")
     boolean isManagementMode();
 
@@ -88,6 +88,13 @@ public interface VirtualHost<X extends VirtualHost<X, Q, E>, Q extends Queue<?>,
     @ManagedAttribute( defaultValue = "${virtualhost.housekeepingThreadCount}")
     int getHousekeepingThreadCount();
 
+    @ManagedContextDefault( name = "virtualhost.recoveryThreadCount")
+    public static final int DEFAULT_RECOVERY_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
+    /** The number of threads on which the queues deliver messages, or 0 to share the broker wide pool */
+    @ManagedContextDefault( name = "virtualhost.deliveryThreadCount")
+    public static final int DEFAULT_DELIVERY_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
     @DerivedAttribute( persist = true )
     String getModelVersion();
 
@@ -124,6 +131,27 @@ public interface VirtualHost<X extends VirtualHost<X, Q, E>, Q extends Queue<?>,
     @ManagedStatistic
     long getMessagesOut();
 
+    @ManagedStatistic
+    long getRecoveredEntryCount();
+
+    @ManagedStatistic
+    long getRecoveringQueueCount();
+
+    @ManagedStatistic
+    long getRecoveryRate();
+
+    @ManagedStatistic
+    long getDeliveryActiveThreadCount();
+
+    @ManagedStatistic
+    long getDeliveryPendingTaskCount();
+
+    @ManagedStatistic
+    long getDeliveryAverageQueueingDelay();
+
+    @ManagedStatistic
+    long getDeliveryMaximumQueueingDelay();
+
     //children
     Collection<VirtualHostAlias> getAliases();
     Collection<Connection> getConnections();
@@ -45,6 +45,7 @@ import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.logging.LogRecorder;
 import org.apache.qpid.server.logging.messages.BrokerMessages;
 import org.apache.qpid.server.logging.messages.VirtualHostMessages;
+import org.apache.qpid.server.message.MessageConversionCache;
 import org.apache.qpid.server.model.*;
 import org.apache.qpid.server.model.port.AbstractPortWithAuthProvider;
 import org.apache.qpid.server.plugin.ConfigurationSecretEncrypterFactory;
@@ -55,6 +56,7 @@ import org.apache.qpid.server.security.access.Operation;
 import org.apache.qpid.server.security.auth.manager.SimpleAuthenticationManager;
 import org.apache.qpid.server.stats.StatisticsCounter;
 import org.apache.qpid.server.stats.StatisticsGatherer;
+import org.apache.qpid.server.store.OffHeapContentArea;
 import org.apache.qpid.server.virtualhost.VirtualHostImpl;
 import org.apache.qpid.util.SystemUtils;
 
@@ -402,7 +404,11 @@ public class BrokerAdapter extends AbstractConfiguredObject<BrokerAdapter> imple
     @Override
     public synchronized void assignTargetSizes()
     {
-        long totalTarget  = getContextValue(Long.class,BROKER_FLOW_TO_DISK_THRESHOLD);
+        // when message content is held off-heap it is the off-heap budget, not the heap, which fills up
+        OffHeapContentArea offHeapContentArea = OffHeapContentArea.getInstance();
+        long totalTarget  = offHeapContentArea.isEnabled()
+                ? offHeapContentArea.getMaxSize()
+                : getContextValue(Long.class,BROKER_FLOW_TO_DISK_THRESHOLD);
         long totalSize = 0l;
         Collection<VirtualHostNode<?>> vhns = getVirtualHostNodes();
         Map<VirtualHost<?,?,?>,Long> vhs = new HashMap<>();
@@ -442,6 +448,8 @@ public class BrokerAdapter extends AbstractConfiguredObject<BrokerAdapter> imple
     protected void onOpen()
     {
         super.onOpen();
+        OffHeapContentArea.initialise(getContextValue(Long.class, BROKER_OFF_HEAP_CONTENT_MAX_SIZE));
+        MessageConversionCache.initialise(getContextValue(Long.class, BROKER_MESSAGE_CONVERSION_CACHE_MAX_SIZE));
         assignTargetSizes();
     }
 
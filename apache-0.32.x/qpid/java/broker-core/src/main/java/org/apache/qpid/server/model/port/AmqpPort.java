@@ -71,6 +71,22 @@ public interface AmqpPort<X extends AmqpPort<X>> extends ClientAuthCapablePort<X
     int DEFAULT_OPEN_CONNECTIONS_WARN_PERCENT = 80;
 
 
+    String PORT_AMQP_THREAD_POOL_SIZE = "qpid.port.amqp.threadPool.size";
+
+    @ManagedContextDefault(name = PORT_AMQP_THREAD_POOL_SIZE)
+    int DEFAULT_PORT_AMQP_THREAD_POOL_SIZE = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    String PORT_AMQP_TLS_TASK_THREAD_POOL_SIZE = "qpid.port.amqp.tlsTaskThreadPool.size";
+
+    @ManagedContextDefault(name = PORT_AMQP_TLS_TASK_THREAD_POOL_SIZE)
+    int DEFAULT_PORT_AMQP_TLS_TASK_THREAD_POOL_SIZE = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    String PORT_AMQP_TLS_BUFFER_POOL_SIZE = "qpid.port.amqp.tlsBufferPool.size";
+
+    @ManagedContextDefault(name = PORT_AMQP_TLS_BUFFER_POOL_SIZE)
+    int DEFAULT_PORT_AMQP_TLS_BUFFER_POOL_SIZE = 1024;
+
+
     @ManagedAttribute(defaultValue = "*")
     String getBindingAddress();
 
@@ -23,9 +23,12 @@ package org.apache.qpid.server.protocol;
 
 import java.util.HashMap;
 import java.util.Map;
+
+import org.apache.qpid.server.message.MessageConversionCache;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.plugin.QpidServiceLoader;
+import org.apache.qpid.server.virtualhost.VirtualHostImpl;
 
 public class MessageConverterRegistry
 {
@@ -56,4 +59,14 @@ public class MessageConverterRegistry
         }
         return map == null ? null : map.get(to);
     }
+
+    /**
+     * Converts the message to the given class, reusing an earlier conversion of the same message where the
+     * {@link MessageConversionCache} is holding one.
+     */
+    public static <M extends ServerMessage, N extends ServerMessage> N convert(M message, Class<N> to, VirtualHostImpl vhost)
+    {
+        MessageConverter<M, N> converter = getConverter((Class<M>) message.getClass(), to);
+        return MessageConversionCache.getInstance().convert(message, to, converter, vhost);
+    }
 }
@@ -83,6 +83,8 @@ import org.apache.qpid.server.protocol.AMQSessionModel;
 import org.apache.qpid.server.security.SecurityManager;
 import org.apache.qpid.server.security.auth.AuthenticatedPrincipal;
 import org.apache.qpid.server.store.MessageDurability;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.OffHeapContentArea;
 import org.apache.qpid.server.store.StorableMessageMetaData;
 import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.txn.AutoCommitTransaction;
@@ -94,6 +96,7 @@ import org.apache.qpid.server.util.Deletable;
 import org.apache.qpid.server.util.MapValueConverter;
 import org.apache.qpid.server.util.ServerScopedRuntimeException;
 import org.apache.qpid.server.util.StateChangeListener;
+import org.apache.qpid.server.virtualhost.DeliveryScheduler;
 import org.apache.qpid.server.virtualhost.VirtualHostImpl;
 import org.apache.qpid.transport.TransportException;
 
@@ -140,6 +143,24 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     private final AtomicLong _targetQueueSize = new AtomicLong(INITIAL_TARGET_QUEUE_SIZE);
 
+    /**
+     * The resident window is the run of entries from the front of the queue whose estimated footprint fits within
+     * the target size.  Entries are counted into it as housekeeping moves its boundary forward and counted out as
+     * they are dequeued, so each pass only has to look at the entries around the boundary and those enqueued since
+     * the last pass, rather than at the whole queue.  Entries which a priority or sorted queue inserts ahead of
+     * the boundary are counted in as they are enqueued, and those inserted amongst the entries already flowed to
+     * disk, or whose content is read back on delivery, are remembered so that the next pass flows them.
+     */
+    private final AtomicLong _residentFootprint = new AtomicLong();
+    private final Object _messageStatusLock = new Object();
+    private volatile QueueEntry _residentBoundary;
+    private volatile QueueEntry _flowedToDiskTo;
+    private final ConcurrentLinkedQueue<QueueEntry> _entriesToFlowToDisk = new ConcurrentLinkedQueue<>();
+    private long _residentTargetSize = Long.MAX_VALUE;
+    private final AtomicLong _earliestExpiration = new AtomicLong(Long.MAX_VALUE);
+    private long _estimatedMessageMemoryOverhead;
+    private long _minimumEstimatedMemoryFootprint;
+
     private final AtomicInteger _activeSubscriberCount = new AtomicInteger();
 
     private final AtomicLong _totalMessagesReceived = new AtomicLong();
@@ -199,11 +220,32 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
 
     private int _maxAsyncDeliveries;
+    private MessageContentPrefetcher _contentPrefetcher;
+    private final SelectorIndex _selectorIndex = new SelectorIndex();
+    private final SelectorIndex.CandidateVisitor _straightThroughDelivery = new SelectorIndex.CandidateVisitor()
+    {
+        @Override
+        public boolean visit(final QueueConsumer<?> consumer, final QueueEntry entry)
+        {
+            if (!entry.isAvailable())
+            {
+                return true;
+            }
+            deliverToConsumer(consumer, entry);
+            return false;
+        }
+    };
 
 
     private final AtomicLong _stateChangeCount = new AtomicLong(Long.MIN_VALUE);
 
-    private final Executor _asyncDelivery;
+    /**
+     * Resolved on first use rather than on construction, as queues recovered from the store are created before the
+     * virtual host has created its delivery scheduler.
+     */
+    private volatile Executor _asyncDelivery;
+    private boolean _sharedAsyncDelivery;
+    private final Object _asyncDeliveryLock = new Object();
     private AtomicInteger _deliveredMessages = new AtomicInteger();
     private AtomicBoolean _stopped = new AtomicBoolean(false);
 
@@ -253,7 +295,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     private final AtomicBoolean _recovering = new AtomicBoolean(true);
     private final ConcurrentLinkedQueue<EnqueueRequest> _postRecoveryQueue = new ConcurrentLinkedQueue<>();
 
-    private final QueueRunner _queueRunner = new QueueRunner(this);
+    private volatile QueueRunner[] _queueRunners = new QueueRunner[] { new QueueRunner(this) };
     private boolean _closing;
     private final ConcurrentHashMap<String,MessageFilter> _defaultFiltersMap = new ConcurrentHashMap<>();
 
@@ -262,8 +304,6 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         super(parentsMap(virtualHost), attributes);
 
         _virtualHost = virtualHost;
-        _asyncDelivery = ReferenceCountingExecutorService.getInstance().acquireExecutorService();
-
     }
 
     @Override
@@ -459,6 +499,25 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         }
 
         _maxAsyncDeliveries = getContextValue(Integer.class, Queue.MAX_ASYNCHRONOUS_DELIVERIES);
+        _estimatedMessageMemoryOverhead = getContextValue(Long.class, QUEUE_ESTIMATED_MESSAGE_MEMORY_OVERHEAD);
+        _minimumEstimatedMemoryFootprint = getContextValue(Long.class, QUEUE_MINIMUM_ESTIMATED_MEMORY_FOOTPRINT);
+
+        int deliveryRunners = getContextValue(Integer.class, Queue.DELIVERY_RUNNERS);
+        if(deliveryRunners > 1 && _messageGroupManager == null)
+        {
+            QueueRunner[] queueRunners = new QueueRunner[deliveryRunners];
+            for(int i = 0; i < deliveryRunners; i++)
+            {
+                queueRunners[i] = new QueueRunner(this, i);
+            }
+            _queueRunners = queueRunners;
+        }
+
+        int contentPrefetchSize = getContextValue(Integer.class, Queue.CONTENT_PREFETCH_SIZE);
+        if(contentPrefetchSize > 0)
+        {
+            _contentPrefetcher = new MessageContentPrefetcher(this, _virtualHost, contentPrefetchSize);
+        }
 
         if(_defaultFilters != null)
         {
@@ -543,6 +602,32 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     // ------ Getters and Setters
 
+    /**
+     * @return the virtual host's delivery scheduler, or the pool shared by all virtual hosts if it has none, or
+     * null if the queue has been stopped
+     */
+    Executor getAsyncDelivery()
+    {
+        Executor asyncDelivery = _asyncDelivery;
+        if (asyncDelivery == null)
+        {
+            synchronized (_asyncDeliveryLock)
+            {
+                asyncDelivery = _asyncDelivery;
+                if (asyncDelivery == null && !_stopped.get())
+                {
+                    DeliveryScheduler deliveryScheduler = _virtualHost.getDeliveryScheduler();
+                    _sharedAsyncDelivery = deliveryScheduler == null;
+                    asyncDelivery = _sharedAsyncDelivery
+                            ? ReferenceCountingExecutorService.getInstance().acquireExecutorService()
+                            : deliveryScheduler;
+                    _asyncDelivery = asyncDelivery;
+                }
+            }
+        }
+        return asyncDelivery;
+    }
+
     public void execute(Runnable runnable)
     {
         try
@@ -550,7 +635,11 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
             if (_virtualHost.getState() != State.UNAVAILABLE)
             {
-                _asyncDelivery.execute(runnable);
+                Executor asyncDelivery = getAsyncDelivery();
+                if (asyncDelivery != null)
+                {
+                    asyncDelivery.execute(runnable);
+                }
             }
         }
         catch (RejectedExecutionException ree)
@@ -811,6 +900,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                 }
             }
 
+            _selectorIndex.addConsumer(consumer, consumer.getIndexedSelector(), consumer.getIndexedSelectorSlot());
             _consumerList.add(consumer);
 
             if (isDeleted())
@@ -820,7 +910,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         }
         else
         {
-            // TODO
+            _selectorIndex.releaseSlot(consumer.getIndexedSelectorSlot());
         }
 
         childAdded(consumer);
@@ -852,6 +942,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
         if (removed)
         {
+            _selectorIndex.removeConsumer(consumer, consumer.getIndexedSelector(), consumer.getIndexedSelectorSlot());
             consumer.close();
             // No longer can the queue have an exclusive consumer
             setExclusiveSubscriber(null);
@@ -867,6 +958,11 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
             {
                 resetSubPointersForGroups(consumer, true);
             }
+            else if(_queueRunners.length > 1)
+            {
+                // the remaining consumers may now be shared differently between the runners
+                deliverAsync();
+            }
 
             synchronized (_consumerListeners)
             {
@@ -1009,7 +1105,11 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         incrementQueueCount();
         incrementQueueSize(message);
 
-        if((_atomicQueueSize.get() + _atomicQueueCount.get()*1024l) > _targetQueueSize.get() && message.getStoredMessage().isInMemory())
+        // The off-heap content area is shared by the whole broker, and once it is exhausted new content is held on
+        // the heap whichever queue it is bound for, so every queue flows such messages to disk until space is freed
+        if(((_atomicQueueSize.get() + _atomicQueueCount.get()*1024l) > _targetQueueSize.get()
+            || OffHeapContentArea.getInstance().isExhausted())
+           && message.getStoredMessage().isInMemory())
         {
             message.getStoredMessage().flowToDisk();
         }
@@ -1074,11 +1174,13 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     {
         final QueueConsumer<?> exclusiveSub = _exclusiveSubscriber;
         final QueueEntry entry = getEntries().add(message);
+        checkResidentWindow(entry);
         updateExpiration(entry);
+        updateEarliestExpiration(entry.getExpiration());
 
         try
         {
-            if (action != null || (exclusiveSub == null  && _queueRunner.isIdle()))
+            if (action != null || (exclusiveSub == null  && allQueueRunnersIdle()))
             {
                 Subject.doAs(SecurityManager.getSystemTaskSubject("Immediate Delivery"),
                              new PrivilegedAction<Void>()
@@ -1154,6 +1256,14 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     {
         try
         {
+            if (_selectorIndex.hasIndexedConsumers())
+            {
+                // only offer the entry to consumers whose selectors it might match; any consumer added whilst
+                // doing so will be given the entry by the queue runner
+                _selectorIndex.visitCandidateConsumers(entry, _straightThroughDelivery);
+                return;
+            }
+
             QueueConsumerList.ConsumerNode node = _consumerList.getMarkedNode();
             QueueConsumerList.ConsumerNode nextNode = node.findNext();
             if (nextNode == null)
@@ -1321,6 +1431,37 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         _deliveredMessages.incrementAndGet();
 
         sub.send(entry, batch);
+
+        QueueEntry flowedTo = _flowedToDiskTo;
+        if (flowedTo != null && !entry.isResident() && entry.compareTo(flowedTo) <= 0)
+        {
+            // sending may have read the content back from disk
+            _entriesToFlowToDisk.add(entry);
+        }
+    }
+
+    /**
+     * Counts a newly enqueued entry in the resident window if it has been inserted ahead of its boundary, or
+     * remembers it to be flowed to disk if it has been inserted amongst the entries already flowed.
+     */
+    private void checkResidentWindow(final QueueEntry entry)
+    {
+        QueueEntry boundary = _residentBoundary;
+        if (boundary != null && entry.compareTo(boundary) < 0)
+        {
+            if (entry.markResident())
+            {
+                _residentFootprint.addAndGet(getEstimatedFootprint(entry.getMessage()));
+            }
+        }
+        else
+        {
+            QueueEntry flowedTo = _flowedToDiskTo;
+            if (flowedTo != null && entry.compareTo(flowedTo) < 0)
+            {
+                _entriesToFlowToDisk.add(entry);
+            }
+        }
     }
 
     private boolean consumerReadyAndHasInterest(final QueueConsumer<?> sub, final QueueEntry entry)
@@ -1386,6 +1527,10 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     {
         decrementQueueCount();
         decrementQueueSize(entry);
+        if (entry.markResidentDequeued())
+        {
+            _residentFootprint.addAndGet(-getEstimatedFootprint(entry.getMessage()));
+        }
         if (entry.acquiredByConsumer())
         {
             _deliveredMessages.decrementAndGet();
@@ -1882,9 +2027,12 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     protected void onClose()
     {
         super.onClose();
-        if (!_stopped.getAndSet(true))
+        synchronized (_asyncDeliveryLock)
         {
-            ReferenceCountingExecutorService.getInstance().releaseExecutorService();
+            if (!_stopped.getAndSet(true) && _asyncDelivery != null && _sharedAsyncDelivery)
+            {
+                ReferenceCountingExecutorService.getInstance().releaseExecutorService();
+            }
         }
         _closing = false;
     }
@@ -1947,8 +2095,51 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     {
         _stateChangeCount.incrementAndGet();
 
-        _queueRunner.execute();
+        final QueueRunner[] queueRunners = _queueRunners;
+        final int partitions = getDeliveryPartitions();
+        for(int i = 0; i < partitions; i++)
+        {
+            queueRunners[i].execute();
+        }
+
+    }
+
+    private boolean allQueueRunnersIdle()
+    {
+        for(QueueRunner queueRunner : _queueRunners)
+        {
+            if(!queueRunner.isIdle())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Consumers are shared between the queue runners only while they are independent of one another: with an
+     * exclusive consumer there is only one, and message groups (which disable parallel runners altogether) tie the
+     * assignment of each message to the consumers that came before.  Otherwise each consumer is serviced by
+     * a single runner chosen round-robin by its position among the queue's consumers, so that they are shared
+     * evenly between the runners, while entries are claimed by atomic acquisition as they would be for
+     * straight-through delivery.  There are never more partitions than consumers; as adding or
+     * removing a consumer reschedules the runners, a consumer whose runner changes is picked up by its new one.
+     *
+     * @return the number of runners across which the consumers are currently shared
+     */
+    private int getDeliveryPartitions()
+    {
+        final int queueRunners = _queueRunners.length;
+        if(queueRunners == 1 || hasExclusiveConsumer())
+        {
+            return 1;
+        }
+        return Math.max(1, Math.min(queueRunners, _consumerList.size()));
+    }
 
+    SelectorIndex getSelectorIndex()
+    {
+        return _selectorIndex;
     }
 
     void flushConsumer(QueueConsumer<?> sub)
@@ -2052,6 +2243,11 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                                                            "virtualhost state " + _virtualHost.getState());
             }
 
+            if (node != null && _contentPrefetcher != null)
+            {
+                _contentPrefetcher.consumerAt(sub.getQueueContext(), node);
+            }
+
             if (node != null && node.isAvailable())
             {
                 if (sub.hasInterest(node) && mightAssign(sub, node))
@@ -2187,6 +2383,14 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
      */
     public long processQueue(QueueRunner runner)
     {
+        final int partitions = getDeliveryPartitions();
+        final int partition = runner.getIndex();
+        if(partition >= partitions)
+        {
+            // the consumers are not currently shared, the first runner is servicing all of them
+            return _stateChangeCount.get();
+        }
+
         long stateChangeCount;
         long previousStateChangeCount = Long.MIN_VALUE;
         long rVal = Long.MIN_VALUE;
@@ -2195,7 +2399,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         boolean lastLoop = false;
         int iterations = getMaxAsyncDeliveries();
 
-        final int numSubs = _consumerList.size();
+        final int numSubs = (_consumerList.size() + partitions - 1) / partitions;
 
         final int perSub = Math.max(iterations / Math.max(numSubs,1), 1);
 
@@ -2223,10 +2427,15 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
             boolean consumerDone;
 
             QueueConsumerList.ConsumerNodeIterator consumerNodeIterator = _consumerList.iterator();
+            int position = 0;
             //iterate over the subscribers and try to advance their pointer
             while (consumerNodeIterator.advance())
             {
                 QueueConsumer<?> sub = consumerNodeIterator.getNode().getConsumer();
+                if(position++ % partitions != partition)
+                {
+                    continue;
+                }
                 sub.getSendLock();
 
                     try
@@ -2308,11 +2517,26 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     public void checkMessageStatus()
     {
-        QueueEntryIterator queueListIterator = getEntries().iterator();
+        synchronized (_messageStatusLock)
+        {
+            if (System.currentTimeMillis() > _earliestExpiration.get())
+            {
+                dequeueExpiredEntries();
+            }
+
+            updateResidentWindow();
+
+            // only the queue wide checks can fire here, each message having been checked as it was enqueued
+            checkForNotification(null);
+        }
+    }
 
-        long totalSize = getContextValue(Long.class, QUEUE_ESTIMATED_MESSAGE_MEMORY_OVERHEAD) * getQueueDepthMessages();
-        long targetSize = _targetQueueSize.get();
+    private void dequeueExpiredEntries()
+    {
+        // entries enqueued while the queue is being walked record their own expiration
+        _earliestExpiration.set(Long.MAX_VALUE);
 
+        QueueEntryIterator queueListIterator = getEntries().iterator();
         while (queueListIterator.advance())
         {
             QueueEntry node = queueListIterator.getNode();
@@ -2342,35 +2566,215 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                         // Then dequeue it.
                         dequeueEntry(node);
                     }
+                    else
+                    {
+                        // still held by a consumer, it will need to be looked at again
+                        updateEarliestExpiration(node.getExpiration());
+                    }
                 }
                 else
                 {
-                    // There is a chance that the node could be deleted by
-                    // the time the check actually occurs. So verify we
-                    // can actually get the message to perform the check.
-                    ServerMessage msg = node.getMessage();
+                    updateEarliestExpiration(node.getExpiration());
+                }
+            }
+        }
+    }
+
+    private void updateEarliestExpiration(final long expiration)
+    {
+        if (expiration != 0L)
+        {
+            long earliest;
+            while (expiration < (earliest = _earliestExpiration.get())
+                   && !_earliestExpiration.compareAndSet(earliest, expiration))
+            {
+                // retry
+            }
+        }
+    }
+
+    /**
+     * Moves the boundary of the resident window forward over any entries that now fit within the target size,
+     * reading back the content of those that had been flowed to disk, and flows to disk the content of entries
+     * beyond the boundary which have not been looked at before or which have been remembered since the last
+     * pass.  The window is only rebuilt from the front of the queue when the target size has been reduced or
+     * entries inserted ahead of the boundary have taken the window beyond it.
+     */
+    private void updateResidentWindow()
+    {
+        final long targetSize = _targetQueueSize.get();
+        if (targetSize < _residentTargetSize || _residentFootprint.get() > targetSize)
+        {
+            shrinkResidentWindow(targetSize);
+        }
+        _residentTargetSize = targetSize;
 
-                    if (msg != null)
+        final QueueEntryList entries = getEntries();
+        MessageStore messageStore = null;
+        final List<StoredMessage<?>> toReload = new ArrayList<>();
+        QueueEntry boundary = _residentBoundary;
+        long footprint = _residentFootprint.get();
+        QueueEntry node = entries.next(boundary == null ? entries.getHead() : boundary);
+        while (node != null)
+        {
+            ServerMessage<?> message = node.isDeleted() ? null : node.getMessage();
+            if (message != null)
+            {
+                long entryFootprint = getEstimatedFootprint(message);
+                if (footprint + entryFootprint > targetSize)
+                {
+                    break;
+                }
+                if (node.markResident())
+                {
+                    footprint = _residentFootprint.addAndGet(entryFootprint);
+                    StoredMessage<?> storedMessage = message.getStoredMessage();
+                    if (storedMessage != null && !storedMessage.isInMemory())
                     {
-                        totalSize += msg.getSize();
-                        StoredMessage storedMessage = msg.getStoredMessage();
-                        if(totalSize > targetSize && storedMessage.isInMemory())
+                        if (messageStore == null)
                         {
-                            storedMessage.flowToDisk();
+                            messageStore = _virtualHost.getMessageStore();
+                        }
+                        if (!messageStore.isContentInMemory(storedMessage))
+                        {
+                            toReload.add(storedMessage);
                         }
-                        checkForNotification(msg);
                     }
                 }
             }
+            boundary = node;
+            node = entries.next(node);
+        }
+        _residentBoundary = boundary;
+
+        if (!toReload.isEmpty())
+        {
+            try
+            {
+                messageStore.prefetchContent(toReload);
+            }
+            catch (RuntimeException e)
+            {
+                // the content will be read when the messages are delivered instead
+                _logger.debug("Failed to read back content of " + toReload.size() + " messages for queue "
+                              + getName(), e);
+            }
         }
 
+        if (node != null)
+        {
+            QueueEntry flowedTo = _flowedToDiskTo;
+            if (flowedTo == null || (boundary != null && flowedTo.compareTo(boundary) < 0))
+            {
+                flowedTo = boundary;
+            }
+
+            node = entries.next(flowedTo == null ? entries.getHead() : flowedTo);
+            while (node != null)
+            {
+                flowToDisk(node);
+                flowedTo = node;
+                node = entries.next(node);
+            }
+            _flowedToDiskTo = flowedTo;
+        }
+
+        QueueEntry entry;
+        while ((entry = _entriesToFlowToDisk.poll()) != null)
+        {
+            if (!entry.isResident())
+            {
+                flowToDisk(entry);
+            }
+        }
+    }
+
+    /**
+     * Walks the current window from the front of the queue, keeping the entries which fit within the new target
+     * size and flowing the rest to disk.
+     */
+    private void shrinkResidentWindow(final long targetSize)
+    {
+        final QueueEntry oldBoundary = _residentBoundary;
+        if (oldBoundary == null)
+        {
+            return;
+        }
+
+        final QueueEntryList entries = getEntries();
+        QueueEntry boundary = null;
+        long footprint = 0L;
+        boolean full = false;
+        QueueEntry node = entries.next(entries.getHead());
+        while (node != null && node.compareTo(oldBoundary) <= 0)
+        {
+            ServerMessage<?> message = node.isDeleted() ? null : node.getMessage();
+            if (!full && message != null)
+            {
+                long entryFootprint = getEstimatedFootprint(message);
+                if (footprint + entryFootprint <= targetSize)
+                {
+                    footprint += entryFootprint;
+                    if (node.markResident())
+                    {
+                        _residentFootprint.addAndGet(entryFootprint);
+                    }
+                }
+                else
+                {
+                    full = true;
+                }
+            }
+
+            if (full)
+            {
+                if (message != null && node.unmarkResident())
+                {
+                    _residentFootprint.addAndGet(-getEstimatedFootprint(message));
+                }
+                flowToDisk(node);
+            }
+            else
+            {
+                boundary = node;
+            }
+            node = entries.next(node);
+        }
+        _residentBoundary = boundary;
+
+        // the entries up to the old boundary have now all been looked at
+        if (_flowedToDiskTo == null || _flowedToDiskTo.compareTo(oldBoundary) < 0)
+        {
+            _flowedToDiskTo = oldBoundary;
+        }
+    }
+
+    private void flowToDisk(final QueueEntry node)
+    {
+        // There is a chance that the node could be deleted by
+        // the time the check actually occurs. So verify we
+        // can actually get the message to perform the check.
+        ServerMessage<?> message = node.isDeleted() ? null : node.getMessage();
+        if (message != null)
+        {
+            StoredMessage<?> storedMessage = message.getStoredMessage();
+            if (storedMessage != null && storedMessage.isInMemory())
+            {
+                storedMessage.flowToDisk();
+            }
+        }
+    }
+
+    private long getEstimatedFootprint(final ServerMessage<?> message)
+    {
+        return _estimatedMessageMemoryOverhead + message.getSize();
     }
 
     @Override
     public long getPotentialMemoryFootprint()
     {
-        return Math.max(getContextValue(Long.class,QUEUE_MINIMUM_ESTIMATED_MEMORY_FOOTPRINT),
-                        getQueueDepthBytes() + getContextValue(Long.class, QUEUE_ESTIMATED_MESSAGE_MEMORY_OVERHEAD) * getQueueDepthMessages());
+        return Math.max(_minimumEstimatedMemoryFootprint,
+                        getQueueDepthBytes() + _estimatedMessageMemoryOverhead * getQueueDepthMessages());
     }
 
     public long getAlertRepeatGap()
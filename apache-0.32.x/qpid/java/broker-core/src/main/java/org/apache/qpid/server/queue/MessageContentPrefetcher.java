@@ -0,0 +1,145 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.log4j.Logger;
+
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.StoredMessage;
+import org.apache.qpid.server.virtualhost.VirtualHostImpl;
+
+/**
+ * Reads the content of messages which have been flowed to disk back from the message store ahead of the
+ * consumers which are about to be sent them.  Each time a consumer gets half way through the entries
+ * prefetched for it, the content of the next batch of entries is read in a single pass on a housekeeping
+ * thread, so that the thread delivering the messages rarely has to wait for the store.
+ */
+final class MessageContentPrefetcher
+{
+    private static final Logger LOGGER = Logger.getLogger(MessageContentPrefetcher.class);
+
+    private final AbstractQueue<?> _queue;
+    private final VirtualHostImpl<?, ?, ?> _virtualHost;
+    private final int _batchSize;
+
+    MessageContentPrefetcher(final AbstractQueue<?> queue, final VirtualHostImpl<?, ?, ?> virtualHost, final int batchSize)
+    {
+        _queue = queue;
+        _virtualHost = virtualHost;
+        _batchSize = batchSize;
+    }
+
+    /**
+     * Called as the consumer owning the given context is about to be sent the given entry.  Must only be
+     * called while holding the consumer's send lock.
+     */
+    void consumerAt(final QueueContext context, final QueueEntry entry)
+    {
+        QueueEntry trigger = context.getPrefetchTrigger();
+        if (trigger != null && entry.compareTo(trigger) < 0)
+        {
+            return;
+        }
+
+        final MessageStore messageStore;
+        try
+        {
+            messageStore = _virtualHost.getMessageStore();
+        }
+        catch (RuntimeException e)
+        {
+            LOGGER.debug("Message store unavailable, not prefetching content for queue " + _queue.getName(), e);
+            return;
+        }
+
+        QueueEntryList entries = _queue.getEntries();
+        QueueEntry prefetchedTo = context.getPrefetchedTo();
+        QueueEntry next = prefetchedTo != null && prefetchedTo.compareTo(entry) >= 0
+                ? entries.next(prefetchedTo)
+                : entry;
+
+        final List<StoredMessage<?>> toLoad = new ArrayList<>();
+        QueueEntry last = null;
+        QueueEntry nextTrigger = null;
+        for (int i = 0; next != null && i < _batchSize; i++)
+        {
+            if (i == _batchSize / 2)
+            {
+                nextTrigger = next;
+            }
+            ServerMessage<?> message = next.isDeleted() ? null : next.getMessage();
+            StoredMessage<?> storedMessage = message == null ? null : message.getStoredMessage();
+            if (storedMessage != null
+                && !storedMessage.isInMemory()
+                && !messageStore.isContentInMemory(storedMessage))
+            {
+                toLoad.add(storedMessage);
+            }
+            last = next;
+            next = entries.next(next);
+        }
+
+        if (last != null)
+        {
+            context.setPrefetchedTo(last);
+            context.setPrefetchTrigger(nextTrigger == null ? last : nextTrigger);
+        }
+
+        if (!toLoad.isEmpty())
+        {
+            try
+            {
+                _virtualHost.scheduleTask(0L, new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        prefetch(messageStore, toLoad);
+                    }
+                });
+            }
+            catch (RejectedExecutionException e)
+            {
+                LOGGER.debug("Virtual host no longer accepting tasks, not prefetching content for queue "
+                             + _queue.getName());
+            }
+        }
+    }
+
+    private void prefetch(final MessageStore messageStore, final List<StoredMessage<?>> messages)
+    {
+        try
+        {
+            messageStore.prefetchContent(messages);
+        }
+        catch (RuntimeException e)
+        {
+            // the content will be read when the messages are delivered instead
+            LOGGER.debug("Failed to prefetch content of " + messages.size() + " messages for queue "
+                         + _queue.getName(), e);
+        }
+    }
+}
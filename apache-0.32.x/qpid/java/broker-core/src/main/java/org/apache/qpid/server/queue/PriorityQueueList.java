@@ -20,6 +20,9 @@
 */
 package org.apache.qpid.server.queue;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
 import org.apache.qpid.server.message.ServerMessage;
 
 abstract public class PriorityQueueList extends OrderedQueueEntryList
@@ -53,6 +56,12 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
         private final int _priorities;
         private final int _priorityOffset;
 
+        /**
+         * One bit per priority level, set whenever the sub list for that level may hold entries which have not
+         * been deleted.  Levels without such entries can then be stepped over without being looked at.
+         */
+        private final AtomicLongArray _occupiedLevels;
+
         public PriorityQueueMasterList(PriorityQueueImpl queue, int priorities)
         {
             super(queue, DUMMY_HEAD_CREATOR);
@@ -60,9 +69,10 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
             _priorityLists = new PriorityQueueEntrySubList[priorities];
             _priorities = priorities;
             _priorityOffset = 5-((priorities + 1)/2);
+            _occupiedLevels = new AtomicLongArray((priorities + 63) >>> 6);
             for(int i = 0; i < priorities; i++)
             {
-                _priorityLists[i] = new PriorityQueueEntrySubList(queue, i);
+                _priorityLists[i] = new PriorityQueueEntrySubList(queue, i, this);
             }
         }
 
@@ -106,16 +116,10 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
 
             if(next == null)
             {
-                final PriorityQueueList nodeEntryList = (PriorityQueueList) ((PriorityQueueEntry)node).getQueueEntryList();
-                int index;
-                for(index = _priorityLists.length-1; _priorityLists[index] != nodeEntryList; index--)
-                {
-                    // do nothing loop is just to find the index
-                }
+                int index = ((PriorityQueueEntrySubList) ((PriorityQueueEntry)node).getQueueEntryList()).getListPriority();
 
-                while(next == null && index != 0)
+                while(next == null && (index = highestOccupiedLevelBelow(index)) >= 0)
                 {
-                    index--;
                     next = (PriorityQueueEntry) _priorityLists[index].getHead().getNextValidEntry();
                 }
 
@@ -123,6 +127,61 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
             return next;
         }
 
+        /**
+         * @return the depth of the given priority level, that is the number of entries added to its sub list which
+         * have not yet been deleted
+         */
+        public int getLevelDepth(int level)
+        {
+            return _priorityLists[level].getDepth();
+        }
+
+        int highestOccupiedLevelBelow(final int level)
+        {
+            int index = level - 1;
+            while(index >= 0)
+            {
+                final int word = index >>> 6;
+                final long bits = _occupiedLevels.get(word) & (-1L >>> (63 - (index & 63)));
+                if(bits != 0L)
+                {
+                    return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+                }
+                index = (word << 6) - 1;
+            }
+            return -1;
+        }
+
+        void levelOccupied(final int level)
+        {
+            final int word = level >>> 6;
+            final long bit = 1L << (level & 63);
+            long bits;
+            while(((bits = _occupiedLevels.get(word)) & bit) == 0L
+                  && !_occupiedLevels.compareAndSet(word, bits, bits | bit))
+            {
+                // retry
+            }
+        }
+
+        void levelEmptied(final int level)
+        {
+            final int word = level >>> 6;
+            final long bit = 1L << (level & 63);
+            long bits;
+            while(((bits = _occupiedLevels.get(word)) & bit) != 0L
+                  && !_occupiedLevels.compareAndSet(word, bits, bits & ~bit))
+            {
+                // retry
+            }
+
+            // an entry may have been added between the level emptying and its bit being cleared
+            if(_priorityLists[level].getDepth() > 0)
+            {
+                levelOccupied(level);
+            }
+        }
+
         private final class PriorityQueueEntryListIterator implements QueueEntryIterator
         {
             private final QueueEntryIterator[] _iterators = new QueueEntryIterator[ _priorityLists.length ];
@@ -140,9 +199,10 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
             @Override
             public boolean atTail()
             {
-                for(int i = 0; i < _iterators.length; i++)
+                int level = _iterators.length;
+                while((level = highestOccupiedLevelBelow(level)) >= 0)
                 {
-                    if(!_iterators[i].atTail())
+                    if(!_iterators[level].atTail())
                     {
                         return false;
                     }
@@ -159,11 +219,12 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
             @Override
             public boolean advance()
             {
-                for(int i = _iterators.length-1; i >= 0; i--)
+                int level = _iterators.length;
+                while((level = highestOccupiedLevelBelow(level)) >= 0)
                 {
-                    if(_iterators[i].advance())
+                    if(_iterators[level].advance())
                     {
-                        _lastNode = (PriorityQueueEntry) _iterators[i].getNode();
+                        _lastNode = (PriorityQueueEntry) _iterators[level].getNode();
                         return true;
                     }
                 }
@@ -216,12 +277,15 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
                 return new PriorityQueueEntry((PriorityQueueList) list);
             }
         };
-        private int _listPriority;
+        private final int _listPriority;
+        private final PriorityQueueMasterList _masterList;
+        private final AtomicInteger _depth = new AtomicInteger();
 
-        public PriorityQueueEntrySubList(PriorityQueueImpl queue, int listPriority)
+        public PriorityQueueEntrySubList(PriorityQueueImpl queue, int listPriority, PriorityQueueMasterList masterList)
         {
             super(queue, HEAD_CREATOR);
             _listPriority = listPriority;
+            _masterList = masterList;
         }
 
         @Override
@@ -230,6 +294,32 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
             return new PriorityQueueEntry(this, message);
         }
 
+        @Override
+        public QueueEntry add(final ServerMessage message)
+        {
+            final QueueEntry entry = super.add(message);
+            if(_depth.getAndIncrement() == 0)
+            {
+                _masterList.levelOccupied(_listPriority);
+            }
+            return entry;
+        }
+
+        @Override
+        public void entryDeleted(final QueueEntry queueEntry)
+        {
+            super.entryDeleted(queueEntry);
+            if(_depth.decrementAndGet() == 0)
+            {
+                _masterList.levelEmptied(_listPriority);
+            }
+        }
+
+        public int getDepth()
+        {
+            return _depth.get();
+        }
+
         public int getListPriority()
         {
             return _listPriority;
@@ -34,6 +34,7 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
+import org.apache.qpid.filter.PropertyValueTest;
 import org.apache.qpid.server.consumer.ConsumerTarget;
 import org.apache.qpid.server.filter.FilterManager;
 import org.apache.qpid.server.filter.JMSSelectorFilter;
@@ -71,6 +72,10 @@ class QueueConsumerImpl
     private final AtomicLong _deliveredCount = new AtomicLong(0);
     private final AtomicLong _deliveredBytes = new AtomicLong(0);
     private final FilterManager _filters;
+    private final SelectorIndex _selectorIndex;
+    private final PropertyValueTest _indexedSelector;
+    private final int _indexedSelectorSlot;
+    private final FilterManager _unindexedFilters;
     private final Class<? extends ServerMessage> _messageClass;
     private final Object _sessionReference;
     private final AbstractQueue _queue;
@@ -119,6 +124,34 @@ class QueueConsumerImpl
         _sessionReference = target.getSessionModel().getConnectionReference();
         _consumerNumber = CONSUMER_NUMBER_GENERATOR.getAndIncrement();
         _filters = filters;
+        _selectorIndex = queue.getSelectorIndex();
+
+        PropertyValueTest indexedSelector = null;
+        int indexedSelectorSlot = -1;
+        FilterManager unindexedFilters = filters;
+        if(filters != null)
+        {
+            Iterator<MessageFilter> iter = filters.filters();
+            while(iter.hasNext())
+            {
+                MessageFilter filter = iter.next();
+                if(filter instanceof JMSSelectorFilter && ((JMSSelectorFilter)filter).getPropertyValueTest() != null)
+                {
+                    PropertyValueTest test = ((JMSSelectorFilter) filter).getPropertyValueTest();
+                    indexedSelectorSlot = _selectorIndex.getSlot(test.getProperty());
+                    if(indexedSelectorSlot != -1)
+                    {
+                        indexedSelector = test;
+                        unindexedFilters = filters.copyWithout(filter);
+                    }
+                    break;
+                }
+            }
+        }
+        _indexedSelector = indexedSelector;
+        _indexedSelectorSlot = indexedSelectorSlot;
+        _unindexedFilters = unindexedFilters;
+
         _acquires = optionSet.contains(Option.ACQUIRES);
         _seesRequeues = optionSet.contains(Option.SEES_REQUEUES);
         _isTransient = optionSet.contains(Option.TRANSIENT);
@@ -387,7 +420,26 @@ class QueueConsumerImpl
                 return false;
             }
         }
-        return (_filters == null) || _filters.allAllow(entry.asFilterable());
+
+        if(_indexedSelector != null
+           && !_indexedSelector.matches(entry.getIndexedPropertyValue(_selectorIndex, _indexedSelectorSlot)))
+        {
+            return false;
+        }
+        return (_unindexedFilters == null) || _unindexedFilters.allAllow(entry.asFilterable());
+    }
+
+    /**
+     * @return the selector of this consumer which is held in the queue's selector index, or null if it has none
+     */
+    PropertyValueTest getIndexedSelector()
+    {
+        return _indexedSelector;
+    }
+
+    int getIndexedSelectorSlot()
+    {
+        return _indexedSelectorSlot;
     }
 
     protected String getFilterLogString()
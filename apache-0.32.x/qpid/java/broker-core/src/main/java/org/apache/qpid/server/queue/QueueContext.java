@@ -27,6 +27,8 @@ final class QueueContext
 {
     private volatile QueueEntry _lastSeenEntry;
     private volatile QueueEntry _releasedEntry;
+    private volatile QueueEntry _prefetchedTo;
+    private volatile QueueEntry _prefetchTrigger;
 
     static final AtomicReferenceFieldUpdater<QueueContext, QueueEntry>
             _lastSeenUpdater =
@@ -53,6 +55,26 @@ final class QueueContext
         return _releasedEntry;
     }
 
+    QueueEntry getPrefetchedTo()
+    {
+        return _prefetchedTo;
+    }
+
+    void setPrefetchedTo(final QueueEntry prefetchedTo)
+    {
+        _prefetchedTo = prefetchedTo;
+    }
+
+    QueueEntry getPrefetchTrigger()
+    {
+        return _prefetchTrigger;
+    }
+
+    void setPrefetchTrigger(final QueueEntry prefetchTrigger)
+    {
+        _prefetchTrigger = prefetchTrigger;
+    }
+
     @Override
     public String toString()
     {
@@ -37,4 +37,40 @@ public interface QueueEntry extends MessageInstance, Comparable<QueueEntry>
 
 
     void setExpiration(long calculatedExpiration);
+
+    /**
+     * @return the time at which the entry expires, or 0 if it does not
+     */
+    long getExpiration();
+
+    /**
+     * Counts the entry in its queue's resident window.
+     *
+     * @return false if the entry was already counted or has been dequeued
+     */
+    boolean markResident();
+
+    /**
+     * Removes the entry from its queue's resident window.
+     *
+     * @return false if the entry was not counted in the window
+     */
+    boolean unmarkResident();
+
+    /**
+     * @return true if the entry is counted in its queue's resident window
+     */
+    boolean isResident();
+
+    /**
+     * Records that the entry has been dequeued, after which it can no longer be counted in the resident window.
+     *
+     * @return true if the entry had been counted in the window
+     */
+    boolean markResidentDequeued();
+
+    /**
+     * @return the value the entry's message has for the property in the given slot of the queue's selector index
+     */
+    Object getIndexedPropertyValue(SelectorIndex index, int slot);
 }
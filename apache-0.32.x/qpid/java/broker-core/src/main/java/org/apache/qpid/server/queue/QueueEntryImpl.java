@@ -86,6 +86,17 @@ public abstract class QueueEntryImpl implements QueueEntry
     private int _flags;
     private long _expiration;
 
+    /** Values of the properties tested by the indexed selectors of the queue's consumers, by slot */
+    private volatile Object[] _indexedPropertyValues;
+
+    private static final int NOT_RESIDENT = 0;
+    private static final int RESIDENT = 1;
+    private static final int RESIDENT_DEQUEUED = 2;
+
+    private volatile int _resident = NOT_RESIDENT;
+    private static final AtomicIntegerFieldUpdater<QueueEntryImpl> _residentUpdater = AtomicIntegerFieldUpdater
+                    .newUpdater(QueueEntryImpl.class, "_resident");
+
     /** Number of times this message has been delivered */
     private volatile int _deliveryCount = -1;
     private static final AtomicIntegerFieldUpdater<QueueEntryImpl> _deliveryCountUpdater = AtomicIntegerFieldUpdater
@@ -133,6 +144,36 @@ public abstract class QueueEntryImpl implements QueueEntry
         _expiration = expiration;
     }
 
+    @Override
+    public long getExpiration()
+    {
+        return _expiration;
+    }
+
+    @Override
+    public boolean markResident()
+    {
+        return _residentUpdater.compareAndSet(this, NOT_RESIDENT, RESIDENT);
+    }
+
+    @Override
+    public boolean unmarkResident()
+    {
+        return _residentUpdater.compareAndSet(this, RESIDENT, NOT_RESIDENT);
+    }
+
+    @Override
+    public boolean isResident()
+    {
+        return _resident == RESIDENT;
+    }
+
+    @Override
+    public boolean markResidentDequeued()
+    {
+        return _residentUpdater.getAndSet(this, RESIDENT_DEQUEUED) == RESIDENT;
+    }
+
     public InstanceProperties getInstanceProperties()
     {
         return new EntryInstanceProperties();
@@ -558,6 +599,18 @@ public abstract class QueueEntryImpl implements QueueEntry
         return Filterable.Factory.newInstance(getMessage(), getInstanceProperties());
     }
 
+    @Override
+    public Object getIndexedPropertyValue(final SelectorIndex index, final int slot)
+    {
+        Object[] values = _indexedPropertyValues;
+        Object[] newValues = index.ensureCapacity(values);
+        if(newValues != values)
+        {
+            _indexedPropertyValues = newValues;
+        }
+        return index.getValue(newValues, slot, this);
+    }
+
     public String toString()
     {
         return "QueueEntryImpl{" +
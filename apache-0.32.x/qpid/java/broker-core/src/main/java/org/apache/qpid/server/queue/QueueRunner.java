@@ -38,12 +38,16 @@ import org.apache.qpid.transport.TransportException;
  * asynchronous message delivery to consumers, which is necessary
  * when straight-through delivery of a message to a consumer isn't
  * possible during the enqueue operation.
+ *
+ * A queue may have several runners, each servicing its own share of the
+ * queue's consumers, in which case they run in parallel on the pool.
  */
 public class QueueRunner implements Runnable
 {
     private static final Logger _logger = Logger.getLogger(QueueRunner.class);
 
     private final AbstractQueue _queue;
+    private final int _index;
 
     private static int IDLE = 0;
     private static int SCHEDULED = 1;
@@ -57,8 +61,19 @@ public class QueueRunner implements Runnable
     private final AtomicLong _lastRunTime = new AtomicLong();
 
     public QueueRunner(AbstractQueue queue)
+    {
+        this(queue, 0);
+    }
+
+    public QueueRunner(AbstractQueue queue, int index)
     {
         _queue = queue;
+        _index = index;
+    }
+
+    int getIndex()
+    {
+        return _index;
     }
 
     public void run()
@@ -111,7 +126,7 @@ public class QueueRunner implements Runnable
 
     public String toString()
     {
-        return "QueueRunner-" + _queue.getLogSubject().toLogString();
+        return "QueueRunner-" + (_index == 0 ? "" : _index + "-") + _queue.getLogSubject().toLogString();
     }
 
     public void execute()
@@ -0,0 +1,322 @@
+/*
+*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*
+*/
+package org.apache.qpid.server.queue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.qpid.filter.PropertyExpression;
+import org.apache.qpid.filter.PropertyValueTest;
+import org.apache.qpid.server.filter.JMSSelectorFilter;
+
+/**
+ * The properties tested by the selectors of a queue's consumers which only check whether a single property has
+ * one of a set of values.  Each queue entry remembers the values it has for these properties, so that however
+ * many consumers test a property it is only read from the message once, and each consumer then decides whether
+ * it is interested in the entry with a set lookup.
+ * <p>
+ * The index also records which consumers test each value of each property, so that a new entry need only be
+ * offered to the consumers whose selectors it can match, together with those consumers whose selectors cannot be
+ * indexed.
+ * <p>
+ * A property keeps its slot for as long as any consumer's selector tests it, after which the slot may be given to
+ * another property.  The values remembered by an entry record the property they were read for, so that a value
+ * left over from a previous holder of the slot is read again.
+ */
+public final class SelectorIndex
+{
+    /** Only a few properties are indexed, as each adds to the values remembered by every entry */
+    static final int MAX_INDEXED_PROPERTIES = 8;
+
+    private static final QueueConsumer<?>[] NO_CONSUMERS = new QueueConsumer<?>[0];
+
+    /** The property held by each slot, or null if the slot is free */
+    private final List<PropertyExpression> _properties = new CopyOnWriteArrayList<PropertyExpression>();
+
+    /** The number of consumers using each slot */
+    private final int[] _slotReferences = new int[MAX_INDEXED_PROPERTIES];
+
+    /** For each slot, the consumers testing for each value of its property */
+    private final List<Map<String, QueueConsumer<?>[]>> _consumersByValue =
+            new CopyOnWriteArrayList<Map<String, QueueConsumer<?>[]>>();
+
+    private volatile QueueConsumer<?>[] _unindexedConsumers = NO_CONSUMERS;
+
+    private final AtomicInteger _indexedConsumerCount = new AtomicInteger();
+
+    /** Rotates the order in which consumers testing the same value are offered entries */
+    private final AtomicInteger _rotation = new AtomicInteger();
+
+    /**
+     * Visits the consumers which might be interested in an entry.
+     */
+    interface CandidateVisitor
+    {
+        /**
+         * @return true if no further consumers need be visited
+         */
+        boolean visit(QueueConsumer<?> consumer, QueueEntry entry);
+    }
+
+    /**
+     * Takes a reference on the slot of the given property on behalf of a consumer, which must give it back with
+     * {@link #removeConsumer(QueueConsumer, PropertyValueTest, int)} or {@link #releaseSlot(int)}.
+     *
+     * @return the index of the given property in the values remembered by each entry, or -1 if no more
+     * properties can be indexed
+     */
+    synchronized int getSlot(PropertyExpression property)
+    {
+        int slot = _properties.indexOf(property);
+        if (slot == -1)
+        {
+            slot = _properties.indexOf(null);
+            if (slot != -1)
+            {
+                _properties.set(slot, property);
+            }
+            else if (_properties.size() < MAX_INDEXED_PROPERTIES)
+            {
+                // the property is added first so that any slot with consumers has room in the values of each entry
+                _properties.add(property);
+                _consumersByValue.add(new ConcurrentHashMap<String, QueueConsumer<?>[]>());
+                slot = _properties.size() - 1;
+            }
+        }
+        if (slot != -1)
+        {
+            _slotReferences[slot]++;
+        }
+        return slot;
+    }
+
+    /**
+     * Gives back a reference taken by {@link #getSlot(PropertyExpression)}, freeing the slot if it was the last.
+     */
+    synchronized void releaseSlot(int slot)
+    {
+        if (slot != -1 && --_slotReferences[slot] == 0)
+        {
+            _properties.set(slot, null);
+        }
+    }
+
+    /**
+     * @return the number of properties currently indexed
+     */
+    int getPropertyCount()
+    {
+        int count = 0;
+        for (PropertyExpression property : _properties)
+        {
+            if (property != null)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param values the values previously remembered by an entry, which may be null
+     * @return an array holding the given values in which the value for every indexed property can be stored
+     */
+    Object[] ensureCapacity(Object[] values)
+    {
+        int slotCount = _properties.size();
+        if (values != null && values.length >= slotCount)
+        {
+            return values;
+        }
+        return values == null ? new Object[slotCount] : Arrays.copyOf(values, slotCount);
+    }
+
+    /**
+     * @return the value of the indexed property in the given slot, reading it from the message only if it is
+     * not already held in the values
+     */
+    Object getValue(Object[] values, int slot, QueueEntry entry)
+    {
+        PropertyExpression property = _properties.get(slot);
+        if (property == null)
+        {
+            // the last consumer testing the property has just gone
+            return null;
+        }
+        Object held = values[slot];
+        if (held instanceof PropertyValue && ((PropertyValue) held)._property == property)
+        {
+            return ((PropertyValue) held)._value;
+        }
+        Object value = JMSSelectorFilter.evaluate(property, entry.asFilterable());
+        values[slot] = new PropertyValue(property, value);
+        return value;
+    }
+
+    /**
+     * Records a consumer of the queue.
+     *
+     * @param test the selector of the consumer which is indexed, or null if its selectors cannot be indexed
+     * @param slot the slot of the property tested by the indexed selector
+     */
+    synchronized void addConsumer(QueueConsumer<?> consumer, PropertyValueTest test, int slot)
+    {
+        if (test == null)
+        {
+            _unindexedConsumers = add(_unindexedConsumers, consumer);
+        }
+        else
+        {
+            Map<String, QueueConsumer<?>[]> consumersByValue = _consumersByValue.get(slot);
+            for (String value : test.getValues())
+            {
+                QueueConsumer<?>[] consumers = consumersByValue.get(value);
+                consumersByValue.put(value, add(consumers == null ? NO_CONSUMERS : consumers, consumer));
+            }
+            _indexedConsumerCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes a consumer of the queue, giving back its reference on the slot of any indexed selector.
+     */
+    synchronized void removeConsumer(QueueConsumer<?> consumer, PropertyValueTest test, int slot)
+    {
+        if (test == null)
+        {
+            _unindexedConsumers = remove(_unindexedConsumers, consumer);
+        }
+        else
+        {
+            Map<String, QueueConsumer<?>[]> consumersByValue = _consumersByValue.get(slot);
+            for (String value : test.getValues())
+            {
+                QueueConsumer<?>[] consumers = consumersByValue.get(value);
+                if (consumers != null)
+                {
+                    consumers = remove(consumers, consumer);
+                    if (consumers.length == 0)
+                    {
+                        consumersByValue.remove(value);
+                    }
+                    else
+                    {
+                        consumersByValue.put(value, consumers);
+                    }
+                }
+            }
+            _indexedConsumerCount.decrementAndGet();
+            releaseSlot(slot);
+        }
+    }
+
+    /**
+     * @return true if any consumer of the queue has a selector which is indexed
+     */
+    boolean hasIndexedConsumers()
+    {
+        return _indexedConsumerCount.get() != 0;
+    }
+
+    /**
+     * Visits the consumers whose indexed selectors match the value the entry has for the property they test,
+     * followed by the consumers whose selectors cannot be indexed.  Other consumers cannot be interested in the
+     * entry.
+     */
+    void visitCandidateConsumers(QueueEntry entry, CandidateVisitor visitor)
+    {
+        int start = _rotation.getAndIncrement() & Integer.MAX_VALUE;
+        int slot = 0;
+        for (Map<String, QueueConsumer<?>[]> consumersByValue : _consumersByValue)
+        {
+            if (!consumersByValue.isEmpty())
+            {
+                Object value = entry.getIndexedPropertyValue(this, slot);
+                if (value instanceof String)
+                {
+                    QueueConsumer<?>[] consumers = consumersByValue.get(value);
+                    if (consumers != null && visitRotated(consumers, start, entry, visitor))
+                    {
+                        return;
+                    }
+                }
+            }
+            slot++;
+        }
+        visitRotated(_unindexedConsumers, start, entry, visitor);
+    }
+
+    private static boolean visitRotated(QueueConsumer<?>[] consumers,
+                                        int start,
+                                        QueueEntry entry,
+                                        CandidateVisitor visitor)
+    {
+        for (int i = 0; i < consumers.length; i++)
+        {
+            if (visitor.visit(consumers[(start + i) % consumers.length], entry))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static QueueConsumer<?>[] add(QueueConsumer<?>[] consumers, QueueConsumer<?> consumer)
+    {
+        QueueConsumer<?>[] added = Arrays.copyOf(consumers, consumers.length + 1);
+        added[consumers.length] = consumer;
+        return added;
+    }
+
+    private static QueueConsumer<?>[] remove(QueueConsumer<?>[] consumers, QueueConsumer<?> consumer)
+    {
+        for (int i = 0; i < consumers.length; i++)
+        {
+            if (consumers[i] == consumer)
+            {
+                QueueConsumer<?>[] removed = new QueueConsumer<?>[consumers.length - 1];
+                System.arraycopy(consumers, 0, removed, 0, i);
+                System.arraycopy(consumers, i + 1, removed, i, removed.length - i);
+                return removed;
+            }
+        }
+        return consumers;
+    }
+
+    /**
+     * The value an entry has for an indexed property, remembered together with the property it was read for.
+     */
+    private static final class PropertyValue
+    {
+        private final PropertyExpression _property;
+        private final Object _value;
+
+        private PropertyValue(final PropertyExpression property, final Object value)
+        {
+            _property = property;
+            _value = value;
+        }
+    }
+}
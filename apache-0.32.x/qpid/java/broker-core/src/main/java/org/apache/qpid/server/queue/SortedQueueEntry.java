@@ -1,4 +1,5 @@
 /*
+ *
  * Licensed to the Apache Software Foundation (ASF) under one
  * or more contributor license agreements.  See the NOTICE file
  * distributed with this work for additional information
@@ -26,29 +27,20 @@ import org.apache.qpid.server.message.ServerMessage;
  */
 public class SortedQueueEntry extends QueueEntryImpl
 {
-    public static enum Colour
-    {
-        RED, BLACK
-    };
-
-    private volatile SortedQueueEntry _next;
-    private SortedQueueEntry _prev;
+    private final SortedQueueEntryList _queueEntryList;
     private String _key;
 
-    private Colour _colour = Colour.BLACK;
-    private SortedQueueEntry _parent;
-    private SortedQueueEntry _left;
-    private SortedQueueEntry _right;
-
     public SortedQueueEntry(final SortedQueueEntryList queueEntryList)
     {
         super(queueEntryList);
+        _queueEntryList = queueEntryList;
     }
 
     public SortedQueueEntry(final SortedQueueEntryList queueEntryList,
                             final ServerMessage message, final long entryId)
     {
         super(queueEntryList, message, entryId);
+        _queueEntryList = queueEntryList;
     }
 
     @Override
@@ -60,24 +52,15 @@ public class SortedQueueEntry extends QueueEntryImpl
         return compare == 0 ? super.compareTo(o) : compare;
     }
 
-    public Colour getColour()
-    {
-        return _colour;
-    }
-
     public String getKey()
     {
         return _key;
     }
 
-    public SortedQueueEntry getLeft()
-    {
-        return _left;
-    }
-
+    @Override
     public SortedQueueEntry getNextNode()
     {
-        return _next;
+        return _queueEntryList.next(this);
     }
 
     @Override
@@ -86,59 +69,14 @@ public class SortedQueueEntry extends QueueEntryImpl
         return getNextNode();
     }
 
-    public SortedQueueEntry getParent()
-    {
-        return _parent;
-    }
-
-    public SortedQueueEntry getPrev()
-    {
-        return _prev;
-    }
-
-    public SortedQueueEntry getRight()
-    {
-        return _right;
-    }
-
-    public void setColour(final Colour colour)
-    {
-        _colour = colour;
-    }
-
     public void setKey(final String key)
     {
         _key = key;
     }
 
-    public void setLeft(final SortedQueueEntry left)
-    {
-        _left = left;
-    }
-
-    public void setNext(final SortedQueueEntry next)
-    {
-        _next = next;
-    }
-
-    public void setParent(final SortedQueueEntry parent)
-    {
-        _parent = parent;
-    }
-
-    public void setPrev(final SortedQueueEntry prev)
-    {
-        _prev = prev;
-    }
-
-    public void setRight(final SortedQueueEntry right)
-    {
-        _right = right;
-    }
-
     @Override
     public String toString()
     {
-        return "(" + (_colour == Colour.RED ? "Red," : "Black,") + _key + ")";
+        return "(" + _key + ")";
     }
 }
@@ -23,10 +23,16 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Date;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class collects statistics and counts the total, rate per second and
  * peak rate per second values for the events that are registered with it. 
+ * <p>
+ * Counters for a virtual host or the broker are shared by every connection, so
+ * registering an event takes no lock: values are added to striped cells which
+ * are only summed when the total, rate or peak is read.
  */
 public class StatisticsCounter
 {
@@ -36,14 +42,11 @@ public class StatisticsCounter
 
     private static final String COUNTER = "counter";
     private static final AtomicLong _counterIds = new AtomicLong(0L);
-    
-    private long _peak = 0L;
-    private long _total = 0L;
-    private long _temp = 0L;
-    private long _last = 0L;
-    private long _rate = 0L;
 
-    private long _start;
+    private final AtomicLong _peak = new AtomicLong();
+    private final AtomicReference<Sample> _sample = new AtomicReference<>();
+    private volatile Cells _total;
+    private volatile long _start;
     
     private final long _period;
     private final String _name;
@@ -77,32 +80,56 @@ public class StatisticsCounter
 
     public void registerEvent(long value, long timestamp)
     {
-        long thisSample = (timestamp / _period);
-        synchronized (this)
+        Sample sample = currentSample(timestamp / _period);
+        if (value != 0L)
+        {
+            sample._current.add(value);
+            _total.add(value);
+        }
+    }
+
+    /**
+     * Returns the sample for the current period, starting a new one if the given
+     * sample number is later. Events timestamped in an earlier period than the
+     * current one are counted in the current period.
+     */
+    private Sample currentSample(long sampleNumber)
+    {
+        Sample sample = _sample.get();
+        while (sampleNumber > sample._number)
         {
-            if (thisSample > _last)
+            Sample next = new Sample(sampleNumber, new Cells(), sample._current);
+            if (_sample.compareAndSet(sample, next))
             {
-                _last = thisSample;
-                _rate = _temp;
-                _temp = 0L;
-                if (_rate > _peak)
-                {
-                    _peak = _rate;
-                }
+                updatePeak(sample._current.sum());
+                return next;
             }
-            
-            _total += value;
-            _temp += value;
+            sample = _sample.get();
         }
+        return sample;
     }
-    
+
+    private void updatePeak(long rate)
+    {
+        long peak;
+        while (rate > (peak = _peak.get()) && !_peak.compareAndSet(peak, rate))
+        {
+            // retry
+        }
+    }
+
     /**
      * Update the current rate and peak - may reset rate to zero if a new
      * sample period has started.
+     *
+     * @return the number of events in the last complete sample period
      */
-    private void update()
+    private long update()
     {
-        registerEvent(0L, System.currentTimeMillis());
+        long rate = currentSample(System.currentTimeMillis() / _period)._previous.sum();
+        // events racing with the start of the new period may have been added since it began
+        updatePeak(rate);
+        return rate;
     }
 
     /**
@@ -111,28 +138,26 @@ public class StatisticsCounter
     public void reset()
     {
         _log.info("Resetting statistics for counter: " + _name);
-        _peak = 0L;
-        _rate = 0L;
-        _total = 0L;
         _start = System.currentTimeMillis();
-        _last = _start / _period;
+        _total = new Cells();
+        _sample.set(new Sample(_start / _period, new Cells(), new Cells()));
+        _peak.set(0L);
     }
 
     public double getPeak()
     {
         update();
-        return (double) _peak / ((double) _period / 1000.0d);
+        return (double) _peak.get() / ((double) _period / 1000.0d);
     }
 
     public double getRate()
     {
-        update();
-        return (double) _rate / ((double) _period / 1000.0d);
+        return (double) update() / ((double) _period / 1000.0d);
     }
 
     public long getTotal()
     {
-        return _total;
+        return _total.sum();
     }
 
     public long getStart()
@@ -154,4 +179,73 @@ public class StatisticsCounter
     {
         return _period;
     }
+
+    private static final class Sample
+    {
+        private final long _number;
+        private final Cells _current;
+        private final Cells _previous;
+
+        private Sample(long number, Cells current, Cells previous)
+        {
+            _number = number;
+            _current = current;
+            _previous = previous;
+        }
+    }
+
+    /**
+     * A sum which starts out as a single atomic value and spreads its updates
+     * over cells, each on its own cache line, once threads are seen to contend
+     * for it.
+     */
+    private static final class Cells
+    {
+        private static final int PADDING = 8;
+        private static final int STRIPES =
+                Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1) << 1);
+
+        private final AtomicLong _base = new AtomicLong();
+        private final AtomicReference<AtomicLongArray> _cells = new AtomicReference<>();
+
+        void add(long value)
+        {
+            AtomicLongArray cells = _cells.get();
+            if (cells == null)
+            {
+                long base = _base.get();
+                if (_base.compareAndSet(base, base + value))
+                {
+                    return;
+                }
+                _cells.compareAndSet(null, new AtomicLongArray(STRIPES * PADDING));
+                cells = _cells.get();
+            }
+            cells.addAndGet(stripe() * PADDING, value);
+        }
+
+        long sum()
+        {
+            long sum = _base.get();
+            AtomicLongArray cells = _cells.get();
+            if (cells != null)
+            {
+                for (int i = 0; i < cells.length(); i += PADDING)
+                {
+                    sum += cells.get(i);
+                }
+            }
+            return sum;
+        }
+
+        private static int stripe()
+        {
+            long id = Thread.currentThread().getId();
+            int hash = (int) (id ^ (id >>> 32));
+            hash ^= (hash >>> 16);
+            hash *= 0x85ebca6b;
+            hash ^= (hash >>> 13);
+            return hash & (STRIPES - 1);
+        }
+    }
 }
@@ -557,6 +557,11 @@ public abstract class AbstractJDBCConfigurationStore implements MessageStoreProv
     public void create(ConfiguredObjectRecord object) throws StoreException
     {
         checkConfigurationStoreOpen();
+        if (ConfigurationChangeBatch.deferUpdate(this, object))
+        {
+            return;
+        }
+
         try
         {
             Connection conn = newConnection();
@@ -719,6 +724,11 @@ public abstract class AbstractJDBCConfigurationStore implements MessageStoreProv
     public UUID[] remove(ConfiguredObjectRecord... objects) throws StoreException
     {
         checkConfigurationStoreOpen();
+        UUID[] deferred = ConfigurationChangeBatch.deferRemove(this, objects);
+        if (deferred != null)
+        {
+            return deferred;
+        }
 
         Collection<UUID> removed = new ArrayList<UUID>(objects.length);
         try
@@ -778,6 +788,11 @@ public abstract class AbstractJDBCConfigurationStore implements MessageStoreProv
     public void update(boolean createIfNecessary, ConfiguredObjectRecord... records) throws StoreException
     {
         checkConfigurationStoreOpen();
+        if (ConfigurationChangeBatch.deferUpdate(this, records))
+        {
+            return;
+        }
+
         try
         {
             Connection conn = newConnection();
@@ -800,6 +815,37 @@ public abstract class AbstractJDBCConfigurationStore implements MessageStoreProv
         }
     }
 
+    @Override
+    public void applyChanges(final Collection<ConfiguredObjectRecord> updates,
+                             final Collection<ConfiguredObjectRecord> removals) throws StoreException
+    {
+        checkConfigurationStoreOpen();
+        try
+        {
+            Connection conn = newConnection();
+            try
+            {
+                for(ConfiguredObjectRecord record : updates)
+                {
+                    updateConfiguredObject(record, true, conn);
+                }
+                for(ConfiguredObjectRecord record : removals)
+                {
+                    removeConfiguredObject(record.getId(), conn);
+                }
+                conn.commit();
+            }
+            finally
+            {
+                conn.close();
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new StoreException("Error applying changes to configured objects in database: " + e.getMessage(), e);
+        }
+    }
+
     private void updateConfiguredObject(ConfiguredObjectRecord configuredObject,
                                         boolean createIfNecessary,
                                         Connection conn)
@@ -28,13 +28,22 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
@@ -66,8 +75,15 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     private static final int DB_VERSION = 8;
 
+    private static final int MAX_TRANSACTIONS_PER_COMMIT = 1000;
+
     private final AtomicLong _messageId = new AtomicLong(0);
 
+    private volatile CommitThread _commitThread;
+
+    /** Set once the commit thread has lost the database, after which every transaction it is given fails */
+    private volatile StoreException _commitFailure;
+
     private static final String CREATE_DB_VERSION_TABLE = "CREATE TABLE "+ DB_VERSION_TABLE_NAME + " ( version int not null )";
     private static final String INSERT_INTO_DB_VERSION = "INSERT INTO "+ DB_VERSION_TABLE_NAME + " ( version ) VALUES ( ? )";
     private static final String SELECT_FROM_DB_VERSION = "SELECT version FROM " + DB_VERSION_TABLE_NAME;
@@ -834,10 +850,214 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         }
     }
 
-    private StoreFuture commitTranAsync(ConnectionWrapper connWrapper) throws StoreException
+    /**
+     * Starts the thread which gathers transactions committed concurrently and writes them to the database together,
+     * as a single database transaction.  Until the thread is started, each transaction is committed on its own
+     * connection by the committing thread.
+     */
+    protected void startCommitThread(String name)
+    {
+        _commitFailure = null;
+        CommitThread commitThread = new CommitThread("Commit-Thread-" + name);
+        commitThread.start();
+        _commitThread = commitThread;
+    }
+
+    /**
+     * Stops the commit thread once it has committed any transactions already handed to it.
+     */
+    protected void stopCommitThread()
+    {
+        CommitThread commitThread = _commitThread;
+        if (commitThread != null)
+        {
+            _commitThread = null;
+            commitThread.close();
+        }
+    }
+
+    /**
+     * Commits the given transactions together.  Should that fail, they are retried one at a time so that one bad
+     * transaction cannot fail those it happened to be grouped with; a transaction which still fails on its own is
+     * aborted.  If the database could not be reached at all the store is failed: the parent is told, and this and
+     * every transaction committed after it are aborted without going to the database again.
+     */
+    private void commitGroup(final List<JDBCCommitFuture> commits)
+    {
+        StoreException failure = _commitFailure;
+        if (failure == null)
+        {
+            try
+            {
+                writeGroup(commits);
+                for (JDBCCommitFuture commit : commits)
+                {
+                    commit.complete();
+                }
+                return;
+            }
+            catch (DatabaseUnavailableException e)
+            {
+                getLogger().error("Failed to commit " + commits.size() + " transaction(s), failing the message store", e);
+                _commitFailure = e;
+                failure = e;
+                _eventManager.notifyEvent(Event.PERSISTENT_MESSAGE_STORE_FAILED);
+            }
+            catch (StoreException e)
+            {
+                if (commits.size() > 1)
+                {
+                    getLogger().warn("Failed to commit " + commits.size()
+                                     + " transactions together, committing them individually: " + e.getMessage());
+                    for (JDBCCommitFuture commit : commits)
+                    {
+                        commitGroup(Collections.singletonList(commit));
+                    }
+                    return;
+                }
+                getLogger().error("Failed to commit transaction", e);
+                failure = e;
+            }
+        }
+
+        for (JDBCCommitFuture commit : commits)
+        {
+            commit.abort(failure);
+        }
+    }
+
+    private void writeGroup(final List<JDBCCommitFuture> commits) throws StoreException
+    {
+        final Set<StoredJDBCMessage<?>> storedMessages = new HashSet<>();
+        int storeSizeIncrease = 0;
+        Connection conn = null;
+        try
+        {
+            conn = newConnection();
+
+            for (JDBCCommitFuture commit : commits)
+            {
+                for (StoredJDBCMessage<?> message : commit.getTransaction().getMessagesToStore())
+                {
+                    if (!message.isStored() && storedMessages.add(message))
+                    {
+                        message.write(conn);
+                        storeSizeIncrease += message.getMetaData().getContentSize();
+                    }
+                }
+            }
+
+            List<RecordImpl> enqueues = new ArrayList<>();
+            List<RecordImpl> dequeues = new ArrayList<>();
+            for (JDBCCommitFuture commit : commits)
+            {
+                enqueues.addAll(commit.getTransaction().getEnqueues());
+                dequeues.addAll(commit.getTransaction().getDequeues());
+            }
+
+            if (!enqueues.isEmpty())
+            {
+                executeQueueEntryBatch(conn, INSERT_INTO_QUEUE_ENTRY, enqueues);
+            }
+
+            if (!dequeues.isEmpty())
+            {
+                int[] results = executeQueueEntryBatch(conn, DELETE_FROM_QUEUE_ENTRY, dequeues);
+                for (int i = 0; i < results.length; i++)
+                {
+                    if (results[i] != 1 && results[i] != Statement.SUCCESS_NO_INFO)
+                    {
+                        RecordImpl dequeue = dequeues.get(i);
+                        throw new StoreException("Unable to find message with id " + dequeue.getMessageNumber()
+                                                 + " on queue with id " + dequeue.getId());
+                    }
+                }
+            }
+
+            conn.commit();
+
+            if (getLogger().isDebugEnabled())
+            {
+                getLogger().debug("commit of " + commits.size() + " transactions completed");
+            }
+        }
+        catch (SQLException e)
+        {
+            rollbackQuietly(conn);
+            String message = "Error committing " + commits.size() + " transactions: " + e.getMessage();
+            if (conn == null || isConnectionFailure(e))
+            {
+                throw new DatabaseUnavailableException(message, e);
+            }
+            throw new StoreException(message, e);
+        }
+        catch (RuntimeException e)
+        {
+            rollbackQuietly(conn);
+            throw e;
+        }
+        finally
+        {
+            JdbcUtils.closeConnection(conn, getLogger());
+        }
+
+        for (StoredJDBCMessage<?> message : storedMessages)
+        {
+            message.markStored();
+        }
+
+        try
+        {
+            storedSizeChange(storeSizeIncrease);
+        }
+        catch (RuntimeException e)
+        {
+            // the transactions are committed regardless, so must not be reported as failed
+            getLogger().error("Failed to process store size change", e);
+        }
+    }
+
+    private static boolean isConnectionFailure(final SQLException e)
     {
-        commitTran(connWrapper);
-        return StoreFuture.IMMEDIATE_FUTURE;
+        // SQL states of class 08 are connection exceptions
+        return e instanceof SQLTransientConnectionException
+               || e instanceof SQLNonTransientConnectionException
+               || (e.getSQLState() != null && e.getSQLState().startsWith("08"));
+    }
+
+    private int[] executeQueueEntryBatch(final Connection conn, final String sql, final List<RecordImpl> records)
+            throws SQLException
+    {
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        try
+        {
+            for (RecordImpl record : records)
+            {
+                stmt.setString(1, record.getId().toString());
+                stmt.setLong(2, record.getMessageNumber());
+                stmt.addBatch();
+            }
+            return stmt.executeBatch();
+        }
+        finally
+        {
+            stmt.close();
+        }
+    }
+
+    private void rollbackQuietly(final Connection conn)
+    {
+        if (conn != null)
+        {
+            try
+            {
+                conn.rollback();
+            }
+            catch (SQLException e)
+            {
+                getLogger().debug("Failed to roll back transaction", e);
+            }
+        }
     }
 
     private void abortTran(ConnectionWrapper connWrapper) throws StoreException
@@ -1165,21 +1385,15 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     protected class JDBCTransaction implements Transaction
     {
-        private final ConnectionWrapper _connWrapper;
+        private ConnectionWrapper _connWrapper;
         private int _storeSizeIncrease;
-        private final List<Runnable> _preCommitActions = new ArrayList<>();
+        private final List<StoredJDBCMessage<?>> _messagesToStore = new ArrayList<>();
+        private final List<RecordImpl> _enqueues = new ArrayList<>();
+        private final List<RecordImpl> _dequeues = new ArrayList<>();
         private final List<Runnable> _postCommitActions = new ArrayList<>();
 
         protected JDBCTransaction()
         {
-            try
-            {
-                _connWrapper = new ConnectionWrapper(newConnection());
-            }
-            catch (SQLException e)
-            {
-                throw new StoreException(e);
-            }
         }
 
         @Override
@@ -1190,26 +1404,17 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             final StoredMessage storedMessage = message.getStoredMessage();
             if(storedMessage instanceof StoredJDBCMessage)
             {
-                _preCommitActions.add(new Runnable()
-                {
-                    @Override
-                    public void run()
-                    {
-                        try
-                        {
-                            _postCommitActions.add(((StoredJDBCMessage) storedMessage).store(_connWrapper.getConnection()));
-                            _storeSizeIncrease += storedMessage.getMetaData().getContentSize();
-                        }
-                        catch (SQLException e)
-                        {
-                            throw new StoreException("Exception on enqueuing message into message store" + _messageId,
-                                                     e);
-                        }
-                    }
-                });
+                _messagesToStore.add((StoredJDBCMessage<?>) storedMessage);
             }
-            AbstractJDBCMessageStore.this.enqueueMessage(_connWrapper, queue, message.getMessageNumber());
 
+            if(_connWrapper == null)
+            {
+                _enqueues.add(new RecordImpl(queue.getId(), message.getMessageNumber()));
+            }
+            else
+            {
+                AbstractJDBCMessageStore.this.enqueueMessage(_connWrapper, queue, message.getMessageNumber());
+            }
         }
 
         @Override
@@ -1217,37 +1422,120 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             checkMessageStoreOpen();
 
-            AbstractJDBCMessageStore.this.dequeueMessage(_connWrapper, queue, message.getMessageNumber());
+            if(_connWrapper == null)
+            {
+                _dequeues.add(new RecordImpl(queue.getId(), message.getMessageNumber()));
+            }
+            else
+            {
+                AbstractJDBCMessageStore.this.dequeueMessage(_connWrapper, queue, message.getMessageNumber());
+            }
         }
 
         @Override
         public void commitTran()
         {
             checkMessageStoreOpen();
-            doPreCommitActions();
-            AbstractJDBCMessageStore.this.commitTran(_connWrapper);
-            storedSizeChange(_storeSizeIncrease);
-            doPostCommitActions();
+            final CommitThread commitThread = _commitThread;
+            if(_connWrapper == null && commitThread != null)
+            {
+                if(!isEmpty())
+                {
+                    commitThread.commit(this, true);
+                }
+            }
+            else
+            {
+                commitOnConnection();
+            }
         }
 
         @Override
         public StoreFuture commitTranAsync()
         {
             checkMessageStoreOpen();
-            doPreCommitActions();
-            StoreFuture storeFuture = AbstractJDBCMessageStore.this.commitTranAsync(_connWrapper);
+            final CommitThread commitThread = _commitThread;
+            if(_connWrapper == null && commitThread != null)
+            {
+                return isEmpty() ? StoreFuture.IMMEDIATE_FUTURE : commitThread.commit(this, false);
+            }
+            else
+            {
+                commitOnConnection();
+                return StoreFuture.IMMEDIATE_FUTURE;
+            }
+        }
+
+        private boolean isEmpty()
+        {
+            return _messagesToStore.isEmpty() && _enqueues.isEmpty() && _dequeues.isEmpty();
+        }
+
+        List<StoredJDBCMessage<?>> getMessagesToStore()
+        {
+            return _messagesToStore;
+        }
+
+        List<RecordImpl> getEnqueues()
+        {
+            return _enqueues;
+        }
+
+        List<RecordImpl> getDequeues()
+        {
+            return _dequeues;
+        }
+
+        /**
+         * Writes the transaction to, and commits it on, a connection of its own.  Used for transactions which have
+         * recorded xids, and whenever there is no commit thread.
+         */
+        private void commitOnConnection()
+        {
+            final ConnectionWrapper connWrapper = getConnectionWrapper();
+            try
+            {
+                for(StoredJDBCMessage<?> message : _messagesToStore)
+                {
+                    _postCommitActions.add(message.store(connWrapper.getConnection()));
+                    _storeSizeIncrease += message.getMetaData().getContentSize();
+                }
+            }
+            catch (SQLException e)
+            {
+                throw new StoreException("Exception on enqueuing message into message store" + _messageId, e);
+            }
+            _messagesToStore.clear();
+            AbstractJDBCMessageStore.this.commitTran(connWrapper);
             storedSizeChange(_storeSizeIncrease);
             doPostCommitActions();
-            return storeFuture;
         }
 
-        private void doPreCommitActions()
+        private ConnectionWrapper getConnectionWrapper()
         {
-            for(Runnable action : _preCommitActions)
+            if(_connWrapper == null)
             {
-                action.run();
+                try
+                {
+                    _connWrapper = new ConnectionWrapper(newConnection());
+                }
+                catch (SQLException e)
+                {
+                    throw new StoreException(e);
+                }
+
+                for(RecordImpl enqueue : _enqueues)
+                {
+                    AbstractJDBCMessageStore.this.enqueueMessage(_connWrapper, enqueue, enqueue.getMessageNumber());
+                }
+                _enqueues.clear();
+                for(RecordImpl dequeue : _dequeues)
+                {
+                    AbstractJDBCMessageStore.this.dequeueMessage(_connWrapper, dequeue, dequeue.getMessageNumber());
+                }
+                _dequeues.clear();
             }
-            _preCommitActions.clear();
+            return _connWrapper;
         }
 
         private void doPostCommitActions()
@@ -1263,8 +1551,13 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         public void abortTran()
         {
             checkMessageStoreOpen();
-            _preCommitActions.clear();
-            AbstractJDBCMessageStore.this.abortTran(_connWrapper);
+            _messagesToStore.clear();
+            _enqueues.clear();
+            _dequeues.clear();
+            if(_connWrapper != null)
+            {
+                AbstractJDBCMessageStore.this.abortTran(_connWrapper);
+            }
         }
 
         @Override
@@ -1272,7 +1565,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             checkMessageStoreOpen();
 
-            AbstractJDBCMessageStore.this.removeXid(_connWrapper, format, globalId, branchId);
+            AbstractJDBCMessageStore.this.removeXid(getConnectionWrapper(), format, globalId, branchId);
         }
 
         @Override
@@ -1280,7 +1573,183 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             checkMessageStoreOpen();
 
-            _postCommitActions.addAll(AbstractJDBCMessageStore.this.recordXid(_connWrapper, format, globalId, branchId, enqueues, dequeues));
+            _postCommitActions.addAll(AbstractJDBCMessageStore.this.recordXid(getConnectionWrapper(), format, globalId, branchId, enqueues, dequeues));
+        }
+    }
+
+    private static final class JDBCCommitFuture implements StoreFuture
+    {
+        private final JDBCTransaction _transaction;
+        private boolean _complete;
+        private RuntimeException _exception;
+
+        private JDBCCommitFuture(final JDBCTransaction transaction)
+        {
+            _transaction = transaction;
+        }
+
+        JDBCTransaction getTransaction()
+        {
+            return _transaction;
+        }
+
+        synchronized void complete()
+        {
+            _complete = true;
+            notifyAll();
+        }
+
+        synchronized void abort(RuntimeException exception)
+        {
+            _exception = exception;
+            _complete = true;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized boolean isComplete()
+        {
+            return _complete;
+        }
+
+        /**
+         * @throws RuntimeException the exception with which the commit failed
+         */
+        @Override
+        public synchronized void waitForCompletion()
+        {
+            while (!_complete)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new StoreException(e);
+                }
+            }
+            if (_exception != null)
+            {
+                throw _exception;
+            }
+        }
+    }
+
+    /**
+     * Thrown when a group of transactions could not be committed because the database could not be reached, in
+     * which case there is no point retrying them one at a time.
+     */
+    private static final class DatabaseUnavailableException extends StoreException
+    {
+        private DatabaseUnavailableException(final String message, final Throwable cause)
+        {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Commits the transactions handed to it in groups: all those waiting when it becomes free are written to a single
+     * connection, with their queue entries inserted and deleted in batches, and committed together.
+     */
+    private final class CommitThread extends Thread
+    {
+        private final AtomicBoolean _stopped = new AtomicBoolean(false);
+        private final ConcurrentLinkedQueue<JDBCCommitFuture> _jobQueue = new ConcurrentLinkedQueue<>();
+        private final Object _lock = new Object();
+
+        private CommitThread(final String name)
+        {
+            super(name);
+        }
+
+        StoreFuture commit(final JDBCTransaction transaction, final boolean sync)
+        {
+            if (_stopped.get())
+            {
+                throw new IllegalStateException("Commit thread is stopped");
+            }
+            StoreException failure = _commitFailure;
+            if (failure != null)
+            {
+                throw new StoreException("Message store has failed to commit: " + failure.getMessage(), failure);
+            }
+
+            final JDBCCommitFuture commitFuture = new JDBCCommitFuture(transaction);
+            _jobQueue.add(commitFuture);
+            synchronized (_lock)
+            {
+                _lock.notify();
+            }
+
+            if (sync)
+            {
+                commitFuture.waitForCompletion();
+            }
+            return commitFuture;
+        }
+
+        @Override
+        public void run()
+        {
+            while (!_stopped.get() || !_jobQueue.isEmpty())
+            {
+                synchronized (_lock)
+                {
+                    while (!_stopped.get() && _jobQueue.isEmpty())
+                    {
+                        try
+                        {
+                            _lock.wait(1000);
+                        }
+                        catch (InterruptedException e)
+                        {
+                            // check again
+                        }
+                    }
+                }
+                processJobs();
+            }
+        }
+
+        private void processJobs()
+        {
+            final List<JDBCCommitFuture> commits = new ArrayList<>();
+            JDBCCommitFuture commit;
+            while (commits.size() < MAX_TRANSACTIONS_PER_COMMIT && (commit = _jobQueue.poll()) != null)
+            {
+                commits.add(commit);
+            }
+            if (!commits.isEmpty())
+            {
+                commitGroup(commits);
+            }
+        }
+
+        void close()
+        {
+            synchronized (_lock)
+            {
+                _stopped.set(true);
+                _lock.notifyAll();
+            }
+            if (Thread.currentThread() != this)
+            {
+                try
+                {
+                    join();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            // anything added as the thread was stopping
+            while (!_jobQueue.isEmpty())
+            {
+                processJobs();
+            }
         }
     }
 
@@ -1602,46 +2071,8 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             if (!stored())
             {
-                storeMetaData(conn, _messageId, _messageDataRef.getMetaData());
-                AbstractJDBCMessageStore.this.addContent(conn, _messageId,
-                                                               _messageDataRef.getData() == null
-                                                                       ? ByteBuffer.allocate(0)
-                                                                       : ByteBuffer.wrap(_messageDataRef.getData()));
-
-
-                if(getLogger().isDebugEnabled())
-                {
-                    getLogger().debug("Storing message " + _messageId + " to store");
-                }
-
-                MessageDataRef<T> hardRef = _messageDataRef;
-                MessageDataSoftRef<T> messageDataSoftRef;
-                MessageData<T> ref;
-                do
-                {
-                    messageDataSoftRef = new MessageDataSoftRef<>(hardRef.getMetaData(), hardRef.getData());
-                    ref = messageDataSoftRef.get();
-                }
-                while (ref == null);
-
-                _messageDataRef = messageDataSoftRef;
-
-                class Pointer implements Runnable
-                {
-                    private MessageData<T> _ref;
-
-                    Pointer(final MessageData<T> ref)
-                    {
-                        _ref = ref;
-                    }
-
-                    @Override
-                    public void run()
-                    {
-                        _ref = null;
-                    }
-                }
-                return new Pointer(ref);
+                write(conn);
+                return markStored();
             }
             else
             {
@@ -1656,10 +2087,83 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             }
         }
 
+        /**
+         * Writes the meta data and content to the database without yet treating the message as stored, so the write
+         * can be repeated should the transaction it is part of be rolled back.
+         */
+        private synchronized void write(final Connection conn) throws SQLException
+        {
+            storeMetaData(conn, _messageId, _messageDataRef.getMetaData());
+            AbstractJDBCMessageStore.this.addContent(conn, _messageId,
+                                                           _messageDataRef.getData() == null
+                                                                   ? ByteBuffer.allocate(0)
+                                                                   : ByteBuffer.wrap(_messageDataRef.getData()));
+
+
+            if(getLogger().isDebugEnabled())
+            {
+                getLogger().debug("Storing message " + _messageId + " to store");
+            }
+        }
+
+        /**
+         * Lets the message data be garbage collected once the returned action has been run, now that it can be read
+         * back from the database.
+         */
+        private synchronized Runnable markStored()
+        {
+            MessageDataRef<T> hardRef = _messageDataRef;
+            MessageDataSoftRef<T> messageDataSoftRef;
+            MessageData<T> ref;
+            do
+            {
+                messageDataSoftRef = new MessageDataSoftRef<>(hardRef.getMetaData(), hardRef.getData());
+                ref = messageDataSoftRef.get();
+            }
+            while (ref == null);
+
+            _messageDataRef = messageDataSoftRef;
+
+            class Pointer implements Runnable
+            {
+                private MessageData<T> _ref;
+
+                Pointer(final MessageData<T> ref)
+                {
+                    _ref = ref;
+                }
+
+                @Override
+                public void run()
+                {
+                    _ref = null;
+                }
+            }
+            return new Pointer(ref);
+        }
+
+        private synchronized boolean isStored()
+        {
+            return stored();
+        }
+
         private boolean stored()
         {
             return !_messageDataRef.isHardRef();
         }
+
+        private boolean isContentEvicted()
+        {
+            return stored() && _messageDataRef.getData() == null;
+        }
+
+        private void contentLoaded(final byte[] data)
+        {
+            if(_messageDataRef.getData() == null)
+            {
+                _messageDataRef.setData(data);
+            }
+        }
     }
 
     @Override
@@ -1713,6 +2217,61 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
     }
 
 
+    @Override
+    public boolean isContentInMemory(final StoredMessage<?> message)
+    {
+        return !(message instanceof StoredJDBCMessage) || !((StoredJDBCMessage<?>) message).isContentEvicted();
+    }
+
+    @Override
+    public void prefetchContent(final Collection<? extends StoredMessage<?>> messages) throws StoreException
+    {
+        SortedMap<Long, StoredJDBCMessage<?>> toLoad = new TreeMap<>();
+        for(StoredMessage<?> message : messages)
+        {
+            if(message instanceof StoredJDBCMessage && ((StoredJDBCMessage<?>) message).isContentEvicted())
+            {
+                toLoad.put(message.getMessageNumber(), (StoredJDBCMessage<?>) message);
+            }
+        }
+
+        if(toLoad.isEmpty())
+        {
+            return;
+        }
+
+        checkMessageStoreOpen();
+
+        Connection conn = null;
+        try
+        {
+            conn = newAutoCommitConnection();
+            try (PreparedStatement stmt = conn.prepareStatement(SELECT_FROM_MESSAGE_CONTENT))
+            {
+                for(Map.Entry<Long, StoredJDBCMessage<?>> entry : toLoad.entrySet())
+                {
+                    stmt.setLong(1, entry.getKey());
+                    try (ResultSet rs = stmt.executeQuery())
+                    {
+                        if (rs.next())
+                        {
+                            entry.getValue().contentLoaded(getBlobAsBytes(rs, 1));
+                        }
+                    }
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new StoreException("Error prefetching content for messages " + toLoad.keySet() + ": " + e.getMessage(), e);
+        }
+        finally
+        {
+            JdbcUtils.closeConnection(conn, getLogger());
+        }
+    }
+
+
     @Override
     public void visitMessages(MessageHandler handler) throws StoreException
     {
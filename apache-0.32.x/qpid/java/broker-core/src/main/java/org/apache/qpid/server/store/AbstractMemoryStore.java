@@ -21,6 +21,7 @@
 package org.apache.qpid.server.store;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -45,6 +46,10 @@ public abstract class AbstractMemoryStore implements DurableConfigurationStore,
     @Override
     public void create(ConfiguredObjectRecord record)
     {
+        if (ConfigurationChangeBatch.deferUpdate(this, record))
+        {
+            return;
+        }
         if (_configuredObjectRecords.putIfAbsent(record.getId(), record) != null)
         {
             throw new StoreException("Record with id " + record.getId() + " is already present");
@@ -54,6 +59,10 @@ public abstract class AbstractMemoryStore implements DurableConfigurationStore,
     @Override
     public void update(boolean createIfNecessary, ConfiguredObjectRecord... records)
     {
+        if (ConfigurationChangeBatch.deferUpdate(this, records))
+        {
+            return;
+        }
         for (ConfiguredObjectRecord record : records)
         {
             if(createIfNecessary)
@@ -74,6 +83,12 @@ public abstract class AbstractMemoryStore implements DurableConfigurationStore,
     @Override
     public UUID[] remove(final ConfiguredObjectRecord... objects)
     {
+        UUID[] deferred = ConfigurationChangeBatch.deferRemove(this, objects);
+        if (deferred != null)
+        {
+            return deferred;
+        }
+
         List<UUID> removed = new ArrayList<UUID>();
         for (ConfiguredObjectRecord record : objects)
         {
@@ -85,6 +100,14 @@ public abstract class AbstractMemoryStore implements DurableConfigurationStore,
         return removed.toArray(new UUID[removed.size()]);
     }
 
+    @Override
+    public void applyChanges(final Collection<ConfiguredObjectRecord> updates,
+                             final Collection<ConfiguredObjectRecord> removals)
+    {
+        update(true, updates.toArray(new ConfiguredObjectRecord[updates.size()]));
+        remove(removals.toArray(new ConfiguredObjectRecord[removals.size()]));
+    }
+
     @Override
     public void openConfigurationStore(ConfiguredObject<?> parent,
                                        final boolean overwrite,
@@ -105,6 +128,7 @@ public abstract class AbstractMemoryStore implements DurableConfigurationStore,
     @Override
     public void closeConfigurationStore()
     {
+        ConfigurationChangeBatch.flush(this);
         _configuredObjectRecords.clear();
     }
 
@@ -0,0 +1,209 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Defers the changes the current thread makes to durable configuration stores, so that when the outermost batch
+ * is finished the changes to each store are written with a single
+ * {@link DurableConfigurationStore#applyChanges(java.util.Collection, java.util.Collection)}, and so in a single
+ * store transaction.
+ * <p>
+ * Changes to the same record are coalesced, so only the last state of each record is written.  As deferred changes
+ * are only written once the batch is finished, the checks a store would otherwise make against its existing content
+ * at the time of the change (such as a record being created twice) are not made.  A store must {@link #flush} the
+ * changes deferred for it before it is closed.
+ * <pre>
+ * ConfigurationChangeBatch batch = ConfigurationChangeBatch.start();
+ * try
+ * {
+ *     ...
+ * }
+ * finally
+ * {
+ *     batch.finish();
+ * }
+ * </pre>
+ */
+public final class ConfigurationChangeBatch
+{
+    private static final ThreadLocal<ConfigurationChangeBatch> CURRENT = new ThreadLocal<>();
+
+    private final Map<DurableConfigurationStore, StoreChanges> _changes = new IdentityHashMap<>();
+    private int _depth;
+
+    private ConfigurationChangeBatch()
+    {
+    }
+
+    /**
+     * Starts a batch on the current thread, or joins the batch the thread has already started.
+     */
+    public static ConfigurationChangeBatch start()
+    {
+        ConfigurationChangeBatch batch = CURRENT.get();
+        if (batch == null)
+        {
+            batch = new ConfigurationChangeBatch();
+            CURRENT.set(batch);
+        }
+        batch._depth++;
+        return batch;
+    }
+
+    /**
+     * Finishes the batch, writing the deferred changes if this is the outermost batch on the thread.  The changes
+     * to every store are attempted, even if writing those to another store fails.
+     *
+     * @throws StoreException if the changes to any of the stores could not be written
+     */
+    public void finish() throws StoreException
+    {
+        if (--_depth > 0)
+        {
+            return;
+        }
+
+        CURRENT.remove();
+        RuntimeException failure = null;
+        for (Map.Entry<DurableConfigurationStore, StoreChanges> entry : _changes.entrySet())
+        {
+            try
+            {
+                entry.getValue().applyTo(entry.getKey());
+            }
+            catch (RuntimeException e)
+            {
+                if (failure == null)
+                {
+                    failure = e;
+                }
+            }
+        }
+        _changes.clear();
+
+        if (failure != null)
+        {
+            throw failure;
+        }
+    }
+
+    /**
+     * Writes the changes to the given store deferred by the batch on the current thread, if there is one, rather than
+     * when the batch is finished.  A store calls this as it is closed, as it can no longer be written once closed.
+     *
+     * @throws StoreException if the changes could not be written
+     */
+    public static void flush(final DurableConfigurationStore store) throws StoreException
+    {
+        ConfigurationChangeBatch batch = CURRENT.get();
+        if (batch != null)
+        {
+            StoreChanges changes = batch._changes.remove(store);
+            if (changes != null)
+            {
+                // the store's writes must not be deferred again whilst the changes are applied
+                CURRENT.remove();
+                try
+                {
+                    changes.applyTo(store);
+                }
+                finally
+                {
+                    CURRENT.set(batch);
+                }
+            }
+        }
+    }
+
+    /**
+     * Defers the creation or update of the given records if there is a batch on the current thread.
+     *
+     * @return true if the records were deferred, false if the store must update them now
+     */
+    public static boolean deferUpdate(final DurableConfigurationStore store, final ConfiguredObjectRecord... records)
+    {
+        ConfigurationChangeBatch batch = CURRENT.get();
+        if (batch == null)
+        {
+            return false;
+        }
+
+        StoreChanges changes = batch.getChanges(store);
+        for (ConfiguredObjectRecord record : records)
+        {
+            changes._removals.remove(record.getId());
+            changes._updates.put(record.getId(), record);
+        }
+        return true;
+    }
+
+    /**
+     * Defers the removal of the given records if there is a batch on the current thread.
+     *
+     * @return the ids of the records if they were deferred, or null if the store must remove them now
+     */
+    public static UUID[] deferRemove(final DurableConfigurationStore store, final ConfiguredObjectRecord... records)
+    {
+        ConfigurationChangeBatch batch = CURRENT.get();
+        if (batch == null)
+        {
+            return null;
+        }
+
+        StoreChanges changes = batch.getChanges(store);
+        UUID[] ids = new UUID[records.length];
+        for (int i = 0; i < records.length; i++)
+        {
+            ids[i] = records[i].getId();
+            changes._updates.remove(ids[i]);
+            changes._removals.put(ids[i], records[i]);
+        }
+        return ids;
+    }
+
+    private StoreChanges getChanges(final DurableConfigurationStore store)
+    {
+        StoreChanges changes = _changes.get(store);
+        if (changes == null)
+        {
+            changes = new StoreChanges();
+            _changes.put(store, changes);
+        }
+        return changes;
+    }
+
+    private static final class StoreChanges
+    {
+        private final Map<UUID, ConfiguredObjectRecord> _updates = new LinkedHashMap<>();
+        private final Map<UUID, ConfiguredObjectRecord> _removals = new LinkedHashMap<>();
+
+        private void applyTo(final DurableConfigurationStore store)
+        {
+            store.applyChanges(new ArrayList<>(_updates.values()), new ArrayList<>(_removals.values()));
+        }
+    }
+}
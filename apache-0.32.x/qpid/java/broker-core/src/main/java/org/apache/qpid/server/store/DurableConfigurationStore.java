@@ -20,6 +20,7 @@
  */
 package org.apache.qpid.server.store;
 
+import java.util.Collection;
 import java.util.UUID;
 
 import org.apache.qpid.server.model.ConfiguredObject;
@@ -86,6 +87,19 @@ public interface DurableConfigurationStore
      */
     public UUID[] remove(ConfiguredObjectRecord... objects) throws StoreException;
 
+    /**
+     * Creates or updates the given records, creating those not already present, and removes the given records, all
+     * within a single store transaction.
+     *
+     * @param updates the records to create or update
+     * @param removals the records to remove
+     *
+     * @throws StoreException If the operation fails for any reason.
+     * @see ConfigurationChangeBatch
+     */
+    void applyChanges(Collection<ConfiguredObjectRecord> updates,
+                      Collection<ConfiguredObjectRecord> removals) throws StoreException;
+
     void closeConfigurationStore() throws StoreException;
 
     /**
@@ -22,5 +22,6 @@ package org.apache.qpid.server.store;
 public enum Event
 {
     PERSISTENT_MESSAGE_SIZE_OVERFULL,
-    PERSISTENT_MESSAGE_SIZE_UNDERFULL
+    PERSISTENT_MESSAGE_SIZE_UNDERFULL,
+    PERSISTENT_MESSAGE_STORE_FAILED
 }
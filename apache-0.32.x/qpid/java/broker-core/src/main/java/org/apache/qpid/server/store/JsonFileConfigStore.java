@@ -20,10 +20,14 @@
  */
 package org.apache.qpid.server.store;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
@@ -40,8 +44,13 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
+import org.apache.qpid.pool.SuppressingInheritedAccessControlContextThreadFactory;
 import org.apache.qpid.server.configuration.BrokerProperties;
 import org.apache.qpid.server.util.BaseAction;
 import org.apache.qpid.server.util.FileHelper;
@@ -57,13 +66,34 @@ import org.codehaus.jackson.map.module.SimpleModule;
 
 import org.apache.qpid.server.model.ConfiguredObject;
 import org.apache.qpid.server.model.Model;
+import org.apache.qpid.server.model.SystemConfig;
 import org.apache.qpid.server.store.handler.ConfiguredObjectRecordHandler;
 import org.apache.qpid.util.FileUtils;
 
+/**
+ * A configuration store holding the configuration as a single JSON document.
+ * <p>
+ * Rather than rewriting the whole document for every change, each change is appended as a single line to a
+ * journal alongside it.  Once the journal has grown larger than the document, it is compacted into the document in
+ * the background: the journal is first rolled over, so changes made while the document is being written go to a
+ * fresh journal, and the rolled over journal is deleted once the new document is in place.  On recovery the
+ * document is read and then any rolled over and current journals are replayed on top of it.  Each journal entry
+ * carries the complete state of the records it changes, so replaying entries already reflected in the document is
+ * harmless.  The updates and removals applied together by {@link #applyChanges(Collection, Collection)} are
+ * written as one entry, so they are recovered all or not at all.
+ */
 public class JsonFileConfigStore implements DurableConfigurationStore
 {
     private static final Logger _logger = Logger.getLogger(JsonFileConfigStore.class);
 
+    private static final String JOURNAL_OPERATION = "operation";
+    private static final String JOURNAL_UPDATE = "update";
+    private static final String JOURNAL_REMOVE = "remove";
+    private static final String JOURNAL_APPLY = "apply";
+    private static final String JOURNAL_RECORDS = "records";
+    private static final String JOURNAL_IDS = "ids";
+    private static final int COMPACTION_SHUTDOWN_TIMEOUT = 60;
+
     private static final Comparator<Class<? extends ConfiguredObject>> CATEGORY_CLASS_COMPARATOR =
             new Comparator<Class<? extends ConfiguredObject>>()
             {
@@ -89,6 +119,8 @@ public class JsonFileConfigStore implements DurableConfigurationStore
     private final Map<UUID, ConfiguredObjectRecord> _objectsById = new HashMap<UUID, ConfiguredObjectRecord>();
     private final Map<String, List<UUID>> _idsByType = new HashMap<String, List<UUID>>();
     private final ObjectMapper _objectMapper = new ObjectMapper();
+    private final ObjectMapper _journalObjectMapper = new ObjectMapper();
+    private final Object _snapshotLock = new Object();
     private final Class<? extends ConfiguredObject> _rootClass;
     private final FileHelper _fileHelper;
 
@@ -100,6 +132,16 @@ public class JsonFileConfigStore implements DurableConfigurationStore
     private String _backupFileName;
     private String _tempFileName;
     private String _lockFileName;
+    private String _journalFileName;
+    private String _previousJournalFileName;
+    private FileOutputStream _journal;
+    private long _journalSize;
+    /** Whether a failed append may have left part of a line beyond the end of the last complete entry */
+    private boolean _journalDamaged;
+    private volatile long _snapshotSize;
+    private long _compactionSize;
+    private boolean _compactionScheduled;
+    private ExecutorService _compactionExecutor;
 
     private static final Module _module;
     static
@@ -128,6 +170,7 @@ public class JsonFileConfigStore implements DurableConfigurationStore
     {
         _objectMapper.registerModule(_module);
         _objectMapper.enable(SerializationConfig.Feature.INDENT_OUTPUT);
+        _journalObjectMapper.registerModule(_module);
         _rootClass = rootClass;
         _fileHelper = new FileHelper();
     }
@@ -146,9 +189,12 @@ public class JsonFileConfigStore implements DurableConfigurationStore
         _parent = parent;
         _name = parent.getName();
         _classNameMapping = generateClassNameMap(_parent.getModel(), _rootClass);
+        Long compactionSize = _parent.getContextValue(Long.class, BrokerProperties.JSON_CONFIG_STORE_COMPACTION_SIZE);
+        _compactionSize = compactionSize == null ? SystemConfig.DEFAULT_JSON_CONFIG_STORE_COMPACTION_SIZE : compactionSize;
         FileBasedSettings fileBasedSettings = (FileBasedSettings)_parent;
         setup(fileBasedSettings);
         load(overwrite, initialRecords);
+        startCompactor();
     }
 
     @Override
@@ -181,6 +227,8 @@ public class JsonFileConfigStore implements DurableConfigurationStore
             _configFileName = fileFromSettings.getName();
             _backupFileName = fileFromSettings.getName() + ".bak";
             _tempFileName = fileFromSettings.getName() + ".tmp";
+            _journalFileName = fileFromSettings.getName() + ".journal";
+            _previousJournalFileName = fileFromSettings.getName() + ".journal.old";
 
             _lockFileName = fileFromSettings.getName() + ".lck";
         }
@@ -190,6 +238,8 @@ public class JsonFileConfigStore implements DurableConfigurationStore
             _configFileName = _name + ".json";
             _backupFileName = _name + ".bak";
             _tempFileName = _name + ".tmp";
+            _journalFileName = _name + ".journal";
+            _previousJournalFileName = _name + ".journal.old";
 
             _lockFileName = _name + ".lck";
         }
@@ -294,39 +344,44 @@ public class JsonFileConfigStore implements DurableConfigurationStore
     protected void load(final boolean overwrite, final ConfiguredObjectRecord[] initialRecords)
     {
         final File configFile = new File(_directoryName, _configFileName);
+        final File previousJournalFile = new File(_directoryName, _previousJournalFileName);
+        final File journalFile = new File(_directoryName, _journalFileName);
         try
         {
             boolean updated = false;
-            Collection<ConfiguredObjectRecord> records = Collections.emptyList();
             if(!overwrite)
             {
                 ConfiguredObjectRecordConverter configuredObjectRecordConverter =
                         new ConfiguredObjectRecordConverter(_parent.getModel());
 
-                records = configuredObjectRecordConverter.readFromJson(_rootClass, _parent, new FileReader(configFile));
-            }
+                Collection<ConfiguredObjectRecord> records =
+                        configuredObjectRecordConverter.readFromJson(_rootClass, _parent, new FileReader(configFile));
+                for(ConfiguredObjectRecord record : records)
+                {
+                    putRecord(record);
+                }
 
-            if(records.isEmpty())
-            {
-                records = Arrays.asList(initialRecords);
-                updated = true;
+                updated = replayJournal(previousJournalFile);
+                updated = replayJournal(journalFile) || updated;
             }
 
-            for(ConfiguredObjectRecord record : records)
+            if(_objectsById.isEmpty())
             {
-                _objectsById.put(record.getId(), record);
-                List<UUID> idsForType = _idsByType.get(record.getType());
-                if (idsForType == null)
+                for(ConfiguredObjectRecord record : initialRecords)
                 {
-                    idsForType = new ArrayList<>();
-                    _idsByType.put(record.getType(), idsForType);
+                    putRecord(record);
                 }
-                idsForType.add(record.getId());
+                updated = true;
             }
+
             if(updated)
             {
                 save();
             }
+            Files.deleteIfExists(previousJournalFile.toPath());
+            Files.deleteIfExists(journalFile.toPath());
+            _snapshotSize = configFile.length();
+            openJournal();
         }
         catch (IOException e)
         {
@@ -337,6 +392,11 @@ public class JsonFileConfigStore implements DurableConfigurationStore
     @Override
     public synchronized void create(ConfiguredObjectRecord record) throws StoreException
     {
+        if(ConfigurationChangeBatch.deferUpdate(this, record))
+        {
+            return;
+        }
+
         if(_objectsById.containsKey(record.getId()))
         {
             throw new StoreException("Object with id " + record.getId() + " already exists");
@@ -371,7 +431,7 @@ public class JsonFileConfigStore implements DurableConfigurationStore
 
             idsForType.add(record.getId());
 
-            save();
+            journalUpdate(record);
         }
     }
 
@@ -391,22 +451,36 @@ public class JsonFileConfigStore implements DurableConfigurationStore
 
     private void save()
     {
-        UUID rootId = getRootId();
-        final Map<String, Object> data;
+        try
+        {
+            writeSnapshot(buildSnapshot());
+        }
+        catch (IOException e)
+        {
+            throw new StoreException("Cannot save to store", e);
+        }
+    }
 
+    private Map<String, Object> buildSnapshot()
+    {
+        UUID rootId = getRootId();
         if (rootId == null)
         {
-            data = Collections.emptyMap();
+            return Collections.emptyMap();
         }
         else
         {
-            data = build(_rootClass, rootId);
+            return build(_rootClass, rootId);
         }
+    }
 
-        try
+    private void writeSnapshot(final Map<String, Object> data) throws IOException
+    {
+        synchronized (_snapshotLock)
         {
             Path tmpFile = new File(_directoryName, _tempFileName).toPath();
-            _fileHelper.writeFileSafely( new File(_directoryName, _configFileName).toPath(),
+            Path configFile = new File(_directoryName, _configFileName).toPath();
+            _fileHelper.writeFileSafely(configFile,
                     new File(_directoryName, _backupFileName).toPath(),
                     tmpFile,
                     new BaseAction<File, IOException>()
@@ -417,10 +491,320 @@ public class JsonFileConfigStore implements DurableConfigurationStore
                             _objectMapper.writeValue(file, data);
                         }
                     });
+            _snapshotSize = Files.size(configFile);
+        }
+    }
+
+    private void putRecord(final ConfiguredObjectRecord record)
+    {
+        if(_objectsById.put(record.getId(), record) == null)
+        {
+            List<UUID> idsForType = _idsByType.get(record.getType());
+            if(idsForType == null)
+            {
+                idsForType = new ArrayList<UUID>();
+                _idsByType.put(record.getType(), idsForType);
+            }
+            idsForType.add(record.getId());
+        }
+    }
+
+    private ConfiguredObjectRecord removeRecord(final UUID id)
+    {
+        ConfiguredObjectRecord record = _objectsById.remove(id);
+        if(record != null)
+        {
+            _idsByType.get(record.getType()).remove(id);
+        }
+        return record;
+    }
+
+    private void openJournal() throws IOException
+    {
+        String posixFileAttributes = _parent.getContextValue(String.class, BrokerProperties.POSIX_FILE_PERMISSIONS);
+        Path journalFile = _fileHelper.createNewFile(new File(_directoryName, _journalFileName), posixFileAttributes);
+        _journal = new FileOutputStream(journalFile.toFile(), true);
+        // a journal kept after a failed roll over is reopened, and still holds the entries written to it
+        FileChannel channel = _journal.getChannel();
+        if(_journalDamaged && channel.size() > _journalSize)
+        {
+            channel.truncate(_journalSize);
+        }
+        _journalDamaged = false;
+        _journalSize = channel.size();
+    }
+
+    private void closeJournal() throws IOException
+    {
+        if(_journal != null)
+        {
+            try
+            {
+                _journal.close();
+            }
+            finally
+            {
+                _journal = null;
+            }
+        }
+    }
+
+    private void journalUpdate(final ConfiguredObjectRecord... records)
+    {
+        Map<String, Object> entry = new LinkedHashMap<String, Object>();
+        entry.put(JOURNAL_OPERATION, JOURNAL_UPDATE);
+        entry.put(JOURNAL_RECORDS, toJournalRecords(records));
+        appendToJournal(entry);
+    }
+
+    private void journalRemove(final Collection<UUID> ids)
+    {
+        Map<String, Object> entry = new LinkedHashMap<String, Object>();
+        entry.put(JOURNAL_OPERATION, JOURNAL_REMOVE);
+        entry.put(JOURNAL_IDS, ids);
+        appendToJournal(entry);
+    }
+
+    private void journalApply(final ConfiguredObjectRecord[] records, final Collection<UUID> ids)
+    {
+        Map<String, Object> entry = new LinkedHashMap<String, Object>();
+        entry.put(JOURNAL_OPERATION, JOURNAL_APPLY);
+        entry.put(JOURNAL_RECORDS, toJournalRecords(records));
+        entry.put(JOURNAL_IDS, ids);
+        appendToJournal(entry);
+    }
+
+    private List<Map<String, Object>> toJournalRecords(final ConfiguredObjectRecord... records)
+    {
+        List<Map<String, Object>> recordMaps = new ArrayList<Map<String, Object>>(records.length);
+        for(ConfiguredObjectRecord record : records)
+        {
+            Map<String, Object> recordMap = new LinkedHashMap<String, Object>();
+            recordMap.put("id", record.getId());
+            recordMap.put("type", record.getType());
+            recordMap.put("parents", record.getParents());
+            recordMap.put("attributes", record.getAttributes());
+            recordMaps.add(recordMap);
+        }
+        return recordMaps;
+    }
+
+    private void appendToJournal(final Map<String, Object> entry)
+    {
+        try
+        {
+            byte[] bytes = (_journalObjectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+            if(_journalDamaged)
+            {
+                // the entry would otherwise follow part of a line and could not be read back
+                _journal.getChannel().truncate(_journalSize);
+            }
+            // until the write completes part of the line may have reached the file
+            _journalDamaged = true;
+            _journal.write(bytes);
+            _journalDamaged = false;
+            _journalSize += bytes.length;
         }
         catch (IOException e)
         {
-            throw new StoreException("Cannot save to store", e);
+            throw new StoreException("Cannot append to configuration journal "
+                                     + new File(_directoryName, _journalFileName), e);
+        }
+
+        if(!_compactionScheduled && _journalSize > Math.max(_compactionSize, _snapshotSize))
+        {
+            _compactionScheduled = true;
+            _compactionExecutor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    compact();
+                }
+            });
+        }
+    }
+
+    private boolean replayJournal(final File journalFile) throws IOException
+    {
+        if(!journalFile.exists())
+        {
+            return false;
+        }
+
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile),
+                                                                             StandardCharsets.UTF_8)))
+        {
+            int lineNumber = 0;
+            String line;
+            while((line = reader.readLine()) != null)
+            {
+                lineNumber++;
+                if(line.isEmpty())
+                {
+                    continue;
+                }
+
+                Map<String, Object> entry;
+                try
+                {
+                    entry = _journalObjectMapper.readValue(line, Map.class);
+                }
+                catch (JsonProcessingException e)
+                {
+                    if(reader.readLine() == null)
+                    {
+                        // the broker stopped part way through appending the last entry, which was never applied
+                        _logger.warn("Ignoring incomplete last entry of configuration journal " + journalFile);
+                        break;
+                    }
+                    throw new StoreException("Cannot read entry at line " + lineNumber
+                                             + " of configuration journal " + journalFile, e);
+                }
+                replayJournalEntry(entry);
+            }
+        }
+        return true;
+    }
+
+    private void replayJournalEntry(final Map<String, Object> entry)
+    {
+        Object operation = entry.get(JOURNAL_OPERATION);
+        if(JOURNAL_UPDATE.equals(operation))
+        {
+            replayUpdates(entry);
+        }
+        else if(JOURNAL_REMOVE.equals(operation))
+        {
+            replayRemovals(entry);
+        }
+        else if(JOURNAL_APPLY.equals(operation))
+        {
+            replayUpdates(entry);
+            replayRemovals(entry);
+        }
+        else
+        {
+            throw new StoreException("Unknown operation '" + operation + "' in configuration journal");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void replayUpdates(final Map<String, Object> entry)
+    {
+        for(Map<String, Object> recordMap : (List<Map<String, Object>>) entry.get(JOURNAL_RECORDS))
+        {
+            Map<String, UUID> parents = new HashMap<String, UUID>();
+            for(Map.Entry<String, String> parent : ((Map<String, String>) recordMap.get("parents")).entrySet())
+            {
+                parents.put(parent.getKey(), UUID.fromString(parent.getValue()));
+            }
+            putRecord(new ConfiguredObjectRecordImpl(UUID.fromString((String) recordMap.get("id")),
+                                                     (String) recordMap.get("type"),
+                                                     (Map<String, Object>) recordMap.get("attributes"),
+                                                     parents));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void replayRemovals(final Map<String, Object> entry)
+    {
+        for(String id : (List<String>) entry.get(JOURNAL_IDS))
+        {
+            removeRecord(UUID.fromString(id));
+        }
+    }
+
+    private void startCompactor()
+    {
+        final ThreadFactory threadFactory = new SuppressingInheritedAccessControlContextThreadFactory();
+        _compactionExecutor = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(final Runnable runnable)
+            {
+                Thread thread = threadFactory.newThread(runnable);
+                thread.setName("Configuration Compactor : " + _name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private void stopCompactor()
+    {
+        if(_compactionExecutor != null)
+        {
+            _compactionExecutor.shutdown();
+            try
+            {
+                if(!_compactionExecutor.awaitTermination(COMPACTION_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS))
+                {
+                    _logger.warn("Configuration compaction of " + _name + " did not complete in time");
+                }
+            }
+            catch (InterruptedException e)
+            {
+                _logger.warn("Interrupted waiting for configuration compaction of " + _name + " to complete");
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                _compactionExecutor = null;
+            }
+        }
+    }
+
+    private void compact()
+    {
+        final Map<String, Object> data;
+        final Path previousJournalFile = new File(_directoryName, _previousJournalFileName).toPath();
+        synchronized (this)
+        {
+            _compactionScheduled = false;
+            if(_journal == null)
+            {
+                return;
+            }
+            data = buildSnapshot();
+
+            // If an earlier compaction failed the previous journal is still needed, so the current journal is kept
+            // as well and is simply replayed over the new snapshot should the broker stop before it is compacted
+            if(!Files.exists(previousJournalFile))
+            {
+                Path journalFile = new File(_directoryName, _journalFileName).toPath();
+                try
+                {
+                    closeJournal();
+                    _fileHelper.atomicFileMoveOrReplace(journalFile, previousJournalFile);
+                }
+                catch (IOException e)
+                {
+                    // carry on appending to the journal, it is safe to replay over the new snapshot
+                    _logger.error("Cannot roll over configuration journal " + journalFile, e);
+                }
+                finally
+                {
+                    try
+                    {
+                        openJournal();
+                    }
+                    catch (IOException e)
+                    {
+                        throw new StoreException("Cannot open configuration journal " + journalFile, e);
+                    }
+                }
+            }
+        }
+
+        try
+        {
+            writeSnapshot(data);
+            Files.deleteIfExists(previousJournalFile);
+        }
+        catch (IOException e)
+        {
+            _logger.error("Failed to compact configuration journal into " + new File(_directoryName, _configFileName), e);
         }
     }
 
@@ -502,18 +886,32 @@ public class JsonFileConfigStore implements DurableConfigurationStore
             return new UUID[0];
         }
 
+        UUID[] deferred = ConfigurationChangeBatch.deferRemove(this, objects);
+        if (deferred != null)
+        {
+            return deferred;
+        }
+
+        List<UUID> removedIds = removeRecords(Arrays.asList(objects));
+        if(!removedIds.isEmpty())
+        {
+            journalRemove(removedIds);
+        }
+        return removedIds.toArray(new UUID[removedIds.size()]);
+    }
+
+    private List<UUID> removeRecords(final Collection<ConfiguredObjectRecord> objects)
+    {
         List<UUID> removedIds = new ArrayList<UUID>();
         for(ConfiguredObjectRecord requestedRecord : objects)
         {
-            ConfiguredObjectRecord record = _objectsById.remove(requestedRecord.getId());
+            ConfiguredObjectRecord record = removeRecord(requestedRecord.getId());
             if(record != null)
             {
                 removedIds.add(record.getId());
-                _idsByType.get(record.getType()).remove(record.getId());
             }
         }
-        save();
-        return removedIds.toArray(new UUID[removedIds.size()]);
+        return removedIds;
     }
 
 
@@ -521,11 +919,22 @@ public class JsonFileConfigStore implements DurableConfigurationStore
     public synchronized void update(final boolean createIfNecessary, final ConfiguredObjectRecord... records)
             throws StoreException
     {
-        if (records.length == 0)
+        if (records.length == 0 || ConfigurationChangeBatch.deferUpdate(this, records))
         {
             return;
         }
 
+        journalUpdate(updateRecords(createIfNecessary, records));
+    }
+
+    /**
+     * Checks that all of the records may be updated before updating any of them.
+     *
+     * @return the records as held by the store
+     */
+    private ConfiguredObjectRecord[] updateRecords(final boolean createIfNecessary,
+                                                   final ConfiguredObjectRecord... records)
+    {
         for(ConfiguredObjectRecord record : records)
         {
             final UUID id = record.getId();
@@ -557,37 +966,71 @@ public class JsonFileConfigStore implements DurableConfigurationStore
                 throw new StoreException("Cannot update record of unknown type " + type);
             }
         }
-        for(ConfiguredObjectRecord record : records)
+        ConfiguredObjectRecord[] updatedRecords = new ConfiguredObjectRecord[records.length];
+        for(int i = 0; i < records.length; i++)
         {
-            record = new ConfiguredObjectRecordImpl(record);
-            final UUID id = record.getId();
-            final String type = record.getType();
-            if(_objectsById.put(id, record) == null)
-            {
-                List<UUID> idsForType = _idsByType.get(type);
-                if(idsForType == null)
-                {
-                    idsForType = new ArrayList<UUID>();
-                    _idsByType.put(type, idsForType);
-                }
-                idsForType.add(id);
-            }
+            updatedRecords[i] = new ConfiguredObjectRecordImpl(records[i]);
+            putRecord(updatedRecords[i]);
         }
+        return updatedRecords;
+    }
 
-        save();
+    @Override
+    public synchronized void applyChanges(final Collection<ConfiguredObjectRecord> updates,
+                                          final Collection<ConfiguredObjectRecord> removals)
+    {
+        ConfiguredObjectRecord[] updatedRecords =
+                updateRecords(true, updates.toArray(new ConfiguredObjectRecord[updates.size()]));
+        List<UUID> removedIds = removeRecords(removals);
+        if(updatedRecords.length != 0 || !removedIds.isEmpty())
+        {
+            journalApply(updatedRecords, removedIds);
+        }
     }
 
     @Override
     public void closeConfigurationStore()
     {
+        ConfigurationChangeBatch.flush(this);
         try
         {
-            releaseFileLock();
+            stopCompactor();
+            closeJournalAndCompact();
         }
         finally
         {
-            _idsByType.clear();
-            _objectsById.clear();
+            try
+            {
+                releaseFileLock();
+            }
+            finally
+            {
+                _idsByType.clear();
+                _objectsById.clear();
+            }
+        }
+    }
+
+    private synchronized void closeJournalAndCompact()
+    {
+        if(_journal != null)
+        {
+            Path previousJournalFile = new File(_directoryName, _previousJournalFileName).toPath();
+            Path journalFile = new File(_directoryName, _journalFileName).toPath();
+            try
+            {
+                closeJournal();
+                if(_journalSize > 0l || Files.exists(previousJournalFile))
+                {
+                    save();
+                }
+                Files.deleteIfExists(previousJournalFile);
+                Files.deleteIfExists(journalFile);
+            }
+            catch (IOException e)
+            {
+                throw new StoreException("Cannot remove configuration journal " + journalFile, e);
+            }
         }
     }
 
@@ -611,6 +1054,13 @@ public class JsonFileConfigStore implements DurableConfigurationStore
             }
         }
 
+        if (_directoryName != null && _journalFileName != null)
+        {
+            // the journals only live outside the store path when it names the configuration file itself
+            FileUtils.delete(new File(_directoryName, _journalFileName), false);
+            FileUtils.delete(new File(_directoryName, _previousJournalFileName), false);
+        }
+
         _configFileName = null;
         _directoryName = null;
     }
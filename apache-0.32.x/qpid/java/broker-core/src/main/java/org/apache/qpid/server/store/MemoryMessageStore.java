@@ -21,6 +21,7 @@
 package org.apache.qpid.server.store;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -289,6 +290,18 @@ public class MemoryMessageStore implements MessageStore
         return _messages.get(messageId);
     }
 
+    @Override
+    public void prefetchContent(final Collection<? extends StoredMessage<?>> messages)
+    {
+        // content is never anywhere but memory
+    }
+
+    @Override
+    public boolean isContentInMemory(final StoredMessage<?> message)
+    {
+        return true;
+    }
+
     @Override
     public void visitMessageInstances(final MessageInstanceHandler handler) throws StoreException
     {
@@ -22,6 +22,7 @@ package org.apache.qpid.server.store;
 
 
 import java.io.File;
+import java.util.Collection;
 
 import org.apache.qpid.server.model.ConfiguredObject;
 import org.apache.qpid.server.store.handler.DistributedTransactionHandler;
@@ -69,6 +70,21 @@ public interface MessageStore
     <T extends StorableMessageMetaData> StoredMessage<T> addMessage(T metaData);
     StoredMessage<?> getMessage(long messageId);
 
+    /**
+     * Reads back, as a single batch, the content of those of the given messages which is no longer held in
+     * memory, so that it is to hand when the messages come to be delivered.  Stores which always hold
+     * content in memory need do nothing.
+     *
+     * @param messages messages which are expected to be delivered soon
+     */
+    void prefetchContent(Collection<? extends StoredMessage<?>> messages) throws StoreException;
+
+    /**
+     * @return true if the content of the given message can be read without going back to the store's underlying
+     * storage, either because it has not yet been flowed to disk or because the store still has it cached.
+     */
+    boolean isContentInMemory(StoredMessage<?> message);
+
     /**
      * Is this store capable of persisting the data
      *
@@ -20,6 +20,7 @@
 package org.apache.qpid.server.store;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.UUID;
 
 import org.apache.qpid.server.model.ConfiguredObject;
@@ -67,6 +68,12 @@ public abstract class NullMessageStore implements MessageStore, DurableConfigura
     {
     }
 
+    @Override
+    public void applyChanges(final Collection<ConfiguredObjectRecord> updates,
+                             final Collection<ConfiguredObjectRecord> removals)
+    {
+    }
+
     @Override
     public void openMessageStore(ConfiguredObject<?> parent)
     {
@@ -176,4 +183,15 @@ public abstract class NullMessageStore implements MessageStore, DurableConfigura
     {
         return null;
     }
+
+    @Override
+    public void prefetchContent(final Collection<? extends StoredMessage<?>> messages)
+    {
+    }
+
+    @Override
+    public boolean isContentInMemory(final StoredMessage<?> message)
+    {
+        return true;
+    }
 }
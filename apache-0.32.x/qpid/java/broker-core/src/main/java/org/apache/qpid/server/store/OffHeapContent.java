@@ -0,0 +1,214 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Message content held in blocks of an {@link OffHeapContentArea}.  The content must be written before it
+ * is read by other threads, and must be released once it is no longer needed.
+ * <p>
+ * The blocks are reference counted: the owner holds one reference, which {@link #release()} gives up, every
+ * read holds another for its duration, and every view handed out by {@link #getContent(int, int)} holds one
+ * until the view becomes unreachable, so blocks only go back to the area once nothing can still see them.
+ * Reads attempted after the content has been released report that nothing is available, and the caller
+ * should look for the content wherever the owner has moved it.
+ */
+public final class OffHeapContent
+{
+    private final OffHeapContentArea _area;
+    private final OffHeapContentArea.Block[] _blocks;
+    private final int _size;
+    private final AtomicBoolean _released = new AtomicBoolean();
+    private final AtomicInteger _references = new AtomicInteger(1);
+
+    OffHeapContent(final OffHeapContentArea area, final OffHeapContentArea.Block[] blocks, final int size)
+    {
+        _area = area;
+        _blocks = blocks;
+        _size = size;
+    }
+
+    public int getSize()
+    {
+        return _size;
+    }
+
+    /**
+     * Copies the remaining bytes of the source into the content at the given offset, as far as they fit.
+     */
+    public void write(final int offsetInContent, final ByteBuffer src)
+    {
+        ByteBuffer source = src.duplicate();
+        int offset = offsetInContent;
+        while (source.hasRemaining() && offset < _size)
+        {
+            ByteBuffer block = blockAt(offset);
+            int length = Math.min(source.remaining(), block.remaining());
+            ByteBuffer chunk = source.duplicate();
+            chunk.limit(chunk.position() + length);
+            block.put(chunk);
+            source.position(source.position() + length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Copies content starting at the given offset into the destination, as far as it has room.
+     *
+     * @return the number of bytes copied, or -1 if the content has already been released
+     */
+    public int read(final int offsetInContent, final ByteBuffer dst)
+    {
+        if (!acquire())
+        {
+            return -1;
+        }
+        try
+        {
+            return copyTo(offsetInContent, dst);
+        }
+        finally
+        {
+            releaseReference();
+        }
+    }
+
+    /**
+     * @return a read-only buffer holding the requested part of the content, or null if the content has already
+     * been released.  A part lying within a single block is returned as a view of the block's direct memory,
+     * which keeps the blocks from being reused until the view is no longer reachable; a part spanning blocks is
+     * not contiguous in memory, so is copied to the heap.
+     */
+    public ByteBuffer getContent(final int offsetInContent, final int size)
+    {
+        if (!acquire())
+        {
+            return null;
+        }
+        boolean viewReturned = false;
+        try
+        {
+            int length = Math.max(0, Math.min(size, _size - offsetInContent));
+            ByteBuffer block = blockAt(offsetInContent);
+            if (block.remaining() >= length)
+            {
+                block.limit(block.position() + length);
+                ByteBuffer view = block.slice().asReadOnlyBuffer();
+                _area.releaseWhenUnreachable(view, this);
+                viewReturned = true;
+                return view;
+            }
+
+            ByteBuffer copy = ByteBuffer.allocate(length);
+            copyTo(offsetInContent, copy);
+            copy.flip();
+            return copy.asReadOnlyBuffer();
+        }
+        finally
+        {
+            if (!viewReturned)
+            {
+                releaseReference();
+            }
+        }
+    }
+
+    /**
+     * Gives up the owner's reference.  Calling this more than once has no further effect.
+     */
+    public void release()
+    {
+        if (_released.compareAndSet(false, true))
+        {
+            releaseReference();
+        }
+    }
+
+    private boolean acquire()
+    {
+        int references;
+        do
+        {
+            references = _references.get();
+            if (references == 0)
+            {
+                return false;
+            }
+        }
+        while (!_references.compareAndSet(references, references + 1));
+
+        // views handed out earlier may keep the blocks alive after the owner has released the content
+        if (_released.get())
+        {
+            releaseReference();
+            return false;
+        }
+        return true;
+    }
+
+    void releaseReference()
+    {
+        if (_references.decrementAndGet() == 0)
+        {
+            for (OffHeapContentArea.Block block : _blocks)
+            {
+                _area.release(block);
+            }
+        }
+    }
+
+    private int copyTo(final int offsetInContent, final ByteBuffer dst)
+    {
+        int offset = offsetInContent;
+        while (dst.hasRemaining() && offset < _size)
+        {
+            ByteBuffer block = blockAt(offset);
+            if (block.remaining() > dst.remaining())
+            {
+                block.limit(block.position() + dst.remaining());
+            }
+            offset += block.remaining();
+            dst.put(block);
+        }
+        return Math.max(0, offset - offsetInContent);
+    }
+
+    /**
+     * @return an independent view of the block holding the given offset, positioned at it and limited to the
+     * end of the content
+     */
+    private ByteBuffer blockAt(final int offset)
+    {
+        if (_blocks.length == 0)
+        {
+            return ByteBuffer.allocate(0);
+        }
+        int index = Math.min(offset / OffHeapContentArea.MAX_BLOCK_SIZE, _blocks.length - 1);
+        int blockStart = index * OffHeapContentArea.MAX_BLOCK_SIZE;
+        ByteBuffer block = _blocks[index].getBuffer();
+        block.limit(Math.min(block.capacity(), _size - blockStart));
+        block.position(Math.min(offset - blockStart, block.limit()));
+        return block;
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A broker-wide area of direct memory in which message stores may keep message content, so that a large
+ * backlog of messages does not live on the Java heap.
+ * <p>
+ * Memory is taken from the JVM in fixed size slabs, each of which is carved into equally sized blocks of
+ * one of a small number of size classes.  A message's content occupies as many of the largest blocks as it
+ * fills, followed by one block of the smallest class able to hold the remainder.  Released blocks go back
+ * to the free list of their slab.  Once every block of a slab is free the slab leaves its class, which keeps
+ * at most one such slab in reserve, and may then be carved afresh by whichever class next runs short, so
+ * memory freed by one size of message is available to the others.  Slabs are never given back to the JVM,
+ * so the total direct memory used never exceeds the configured budget.  An area with a budget of zero is
+ * disabled and refuses every allocation.
+ */
+public class OffHeapContentArea
+{
+    private static final Logger LOGGER = Logger.getLogger(OffHeapContentArea.class);
+
+    static final int SLAB_SIZE = 1024 * 1024;
+    static final int MIN_BLOCK_SIZE = 256;
+    static final int MAX_BLOCK_SIZE = 64 * 1024;
+
+    private static volatile OffHeapContentArea _instance = new OffHeapContentArea(0L);
+
+    private final long _maxSize;
+    private final AtomicLong _allocatedSize = new AtomicLong();
+    private final AtomicLong _usedSize = new AtomicLong();
+    private final SizeClass[] _sizeClasses;
+    private final Queue<Slab> _emptySlabs = new ConcurrentLinkedQueue<>();
+    private final ReferenceQueue<ByteBuffer> _unreachableViews = new ReferenceQueue<>();
+    private final Set<ViewReference> _views =
+            Collections.newSetFromMap(new ConcurrentHashMap<ViewReference, Boolean>());
+    private volatile boolean _exhausted;
+
+    OffHeapContentArea(final long maxSize)
+    {
+        _maxSize = maxSize;
+        int classCount = Integer.numberOfTrailingZeros(MAX_BLOCK_SIZE / MIN_BLOCK_SIZE) + 1;
+        _sizeClasses = new SizeClass[classCount];
+        for (int i = 0; i < classCount; i++)
+        {
+            _sizeClasses[i] = new SizeClass(MIN_BLOCK_SIZE << i);
+        }
+    }
+
+    public static OffHeapContentArea getInstance()
+    {
+        return _instance;
+    }
+
+    /**
+     * Sets the budget for the broker-wide area.  Content already held in a previous area remains there until
+     * it is released.
+     */
+    public static void initialise(final long maxSize)
+    {
+        if (maxSize != _instance.getMaxSize())
+        {
+            LOGGER.info("Off-heap message content area budget set to " + maxSize + " bytes");
+            _instance = new OffHeapContentArea(maxSize);
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return _maxSize > 0L;
+    }
+
+    /**
+     * @return true if an allocation has been refused for lack of space since content was last released
+     */
+    public boolean isExhausted()
+    {
+        return _exhausted;
+    }
+
+    public long getMaxSize()
+    {
+        return _maxSize;
+    }
+
+    /**
+     * @return the direct memory taken from the JVM so far
+     */
+    public long getAllocatedSize()
+    {
+        return _allocatedSize.get();
+    }
+
+    /**
+     * @return the capacity of the blocks currently holding content
+     */
+    public long getUsedSize()
+    {
+        return _usedSize.get();
+    }
+
+    /**
+     * Allocates space for content of the given size.
+     *
+     * @return the content, or null if the area is disabled or has insufficient space within its budget
+     */
+    public OffHeapContent allocate(final int size)
+    {
+        if (!isEnabled() || size < 0)
+        {
+            return null;
+        }
+
+        releaseUnreachableViews();
+
+        int fullBlocks = size / MAX_BLOCK_SIZE;
+        int remainder = size % MAX_BLOCK_SIZE;
+        Block[] blocks = new Block[fullBlocks + (remainder == 0 ? 0 : 1)];
+        for (int i = 0; i < blocks.length; i++)
+        {
+            SizeClass sizeClass = i < fullBlocks ? _sizeClasses[_sizeClasses.length - 1] : sizeClassFor(remainder);
+            Block block = sizeClass.take();
+            if (block == null)
+            {
+                _exhausted = true;
+                for (int j = 0; j < i; j++)
+                {
+                    release(blocks[j]);
+                }
+                return null;
+            }
+            _usedSize.addAndGet(block.getCapacity());
+            blocks[i] = block;
+        }
+        return new OffHeapContent(this, blocks, size);
+    }
+
+    void release(final Block block)
+    {
+        _usedSize.addAndGet(-block.getCapacity());
+        sizeClassFor(block.getCapacity()).give(block);
+        _exhausted = false;
+    }
+
+    /**
+     * Arranges for a reference on the content, which the caller must already hold, to be released once the view
+     * can no longer be reached.  On the Java 7 and 8 runtimes the broker targets, buffers derived from the view by
+     * slicing or duplication refer back to it, so they too keep the content's blocks from being reused.
+     */
+    void releaseWhenUnreachable(final ByteBuffer view, final OffHeapContent content)
+    {
+        _views.add(new ViewReference(view, content, _unreachableViews));
+    }
+
+    private void releaseUnreachableViews()
+    {
+        Reference<? extends ByteBuffer> reference;
+        while ((reference = _unreachableViews.poll()) != null)
+        {
+            ViewReference view = (ViewReference) reference;
+            if (_views.remove(view))
+            {
+                view._content.releaseReference();
+            }
+        }
+    }
+
+    private SizeClass sizeClassFor(final int size)
+    {
+        int index = 0;
+        while ((MIN_BLOCK_SIZE << index) < size)
+        {
+            index++;
+        }
+        return _sizeClasses[index];
+    }
+
+    private boolean reserveSlab()
+    {
+        long allocated;
+        do
+        {
+            allocated = _allocatedSize.get();
+            if (allocated + SLAB_SIZE > _maxSize)
+            {
+                return false;
+            }
+        }
+        while (!_allocatedSize.compareAndSet(allocated, allocated + SLAB_SIZE));
+        return true;
+    }
+
+    /**
+     * @return a slab belonging to no size class, taken from those given up by the classes if possible, otherwise
+     * from the JVM if the budget allows, or null if neither has one
+     */
+    private Slab obtainSlab()
+    {
+        Slab slab = _emptySlabs.poll();
+        if (slab == null)
+        {
+            for (SizeClass sizeClass : _sizeClasses)
+            {
+                slab = sizeClass.giveUpReserve();
+                if (slab != null)
+                {
+                    return slab;
+                }
+            }
+            if (reserveSlab())
+            {
+                try
+                {
+                    slab = new Slab(ByteBuffer.allocateDirect(SLAB_SIZE));
+                }
+                catch (OutOfMemoryError e)
+                {
+                    // the JVM's direct memory limit is lower than the configured budget
+                    _allocatedSize.addAndGet(-SLAB_SIZE);
+                    LOGGER.warn("Unable to allocate off-heap message content slab: " + e.getMessage());
+                }
+            }
+        }
+        return slab;
+    }
+
+    /**
+     * A block of a slab, in which content is held.
+     */
+    static final class Block
+    {
+        private final Slab _slab;
+        private final ByteBuffer _buffer;
+
+        private Block(final Slab slab, final ByteBuffer buffer)
+        {
+            _slab = slab;
+            _buffer = buffer;
+        }
+
+        int getCapacity()
+        {
+            return _buffer.capacity();
+        }
+
+        /**
+         * @return an independent view of the whole block
+         */
+        ByteBuffer getBuffer()
+        {
+            return _buffer.duplicate();
+        }
+    }
+
+    /**
+     * A slab of direct memory and, while it belongs to a size class, the blocks into which the class has carved it
+     * that are currently free.  Guarded by the lock of the owning class.
+     */
+    private static final class Slab
+    {
+        private final ByteBuffer _memory;
+        private final Deque<Block> _freeBlocks = new ArrayDeque<>();
+        private int _blockCount;
+
+        private Slab(final ByteBuffer memory)
+        {
+            _memory = memory;
+        }
+
+        private void carve(final int blockSize)
+        {
+            _blockCount = SLAB_SIZE / blockSize;
+            _freeBlocks.clear();
+            for (int offset = 0; offset < SLAB_SIZE; offset += blockSize)
+            {
+                ByteBuffer memory = _memory.duplicate();
+                memory.limit(offset + blockSize);
+                memory.position(offset);
+                _freeBlocks.add(new Block(this, memory.slice()));
+            }
+        }
+
+        private boolean isUnused()
+        {
+            return _freeBlocks.size() == _blockCount;
+        }
+    }
+
+    private final class SizeClass
+    {
+        private final int _blockSize;
+        private final Deque<Slab> _slabsWithFreeBlocks = new ArrayDeque<>();
+        private Slab _reserve;
+
+        private SizeClass(final int blockSize)
+        {
+            _blockSize = blockSize;
+        }
+
+        private Block take()
+        {
+            Block block = takeFromOwnSlabs();
+            if (block == null)
+            {
+                // find a slab without holding this class's lock, as doing so may take the reserve of another class
+                Slab slab = obtainSlab();
+                if (slab != null)
+                {
+                    slab.carve(_blockSize);
+                    block = addSlabAndTake(slab);
+                }
+            }
+            return block;
+        }
+
+        private synchronized Block takeFromOwnSlabs()
+        {
+            Slab slab = _slabsWithFreeBlocks.peekFirst();
+            if (slab == null && _reserve != null)
+            {
+                slab = _reserve;
+                _reserve = null;
+                _slabsWithFreeBlocks.addFirst(slab);
+            }
+            return slab == null ? null : takeFrom(slab);
+        }
+
+        private synchronized Block addSlabAndTake(final Slab slab)
+        {
+            _slabsWithFreeBlocks.addFirst(slab);
+            return takeFrom(slab);
+        }
+
+        private Block takeFrom(final Slab slab)
+        {
+            Block block = slab._freeBlocks.poll();
+            if (slab._freeBlocks.isEmpty())
+            {
+                _slabsWithFreeBlocks.remove(slab);
+            }
+            return block;
+        }
+
+        private synchronized void give(final Block block)
+        {
+            Slab slab = block._slab;
+            boolean hadFreeBlocks = !slab._freeBlocks.isEmpty();
+            slab._freeBlocks.push(block);
+            if (slab.isUnused())
+            {
+                _slabsWithFreeBlocks.remove(slab);
+                if (_reserve == null)
+                {
+                    _reserve = slab;
+                }
+                else
+                {
+                    _emptySlabs.add(slab);
+                }
+            }
+            else if (!hadFreeBlocks)
+            {
+                _slabsWithFreeBlocks.addLast(slab);
+            }
+        }
+
+        private synchronized Slab giveUpReserve()
+        {
+            Slab slab = _reserve;
+            _reserve = null;
+            return slab;
+        }
+    }
+
+    private static final class ViewReference extends PhantomReference<ByteBuffer>
+    {
+        private final OffHeapContent _content;
+
+        private ViewReference(final ByteBuffer view,
+                              final OffHeapContent content,
+                              final ReferenceQueue<ByteBuffer> queue)
+        {
+            super(view, queue);
+            _content = content;
+        }
+    }
+}
@@ -27,6 +27,7 @@ public class StoredMemoryMessage<T extends StorableMessageMetaData> implements S
 {
     private final long _messageNumber;
     private ByteBuffer _content;
+    private volatile OffHeapContent _offHeapContent;
     private final T _metaData;
 
     public StoredMemoryMessage(long messageNumber, T metaData)
@@ -42,6 +43,26 @@ public class StoredMemoryMessage<T extends StorableMessageMetaData> implements S
 
     public void addContent(int offsetInMessage, ByteBuffer src)
     {
+        if(_content == null && _offHeapContent == null && offsetInMessage == 0)
+        {
+            _offHeapContent = OffHeapContentArea.getInstance().allocate(_metaData.getContentSize());
+        }
+
+        if(_offHeapContent != null)
+        {
+            if(offsetInMessage + src.remaining() <= _offHeapContent.getSize())
+            {
+                _offHeapContent.write(offsetInMessage, src);
+                return;
+            }
+            // more content than the meta data declared, so fall back to holding it on the heap
+            _content = ByteBuffer.allocate(_offHeapContent.getSize());
+            _offHeapContent.read(0, _content);
+            _content.flip();
+            _offHeapContent.release();
+            _offHeapContent = null;
+        }
+
         if(_content == null)
         {
             if(offsetInMessage == 0)
@@ -84,6 +105,12 @@ public class StoredMemoryMessage<T extends StorableMessageMetaData> implements S
 
     public int getContent(int offset, ByteBuffer dst)
     {
+        OffHeapContent offHeapContent = _offHeapContent;
+        if(offHeapContent != null)
+        {
+            // the content has gone if the message was removed whilst we were reading it
+            return Math.max(0, offHeapContent.read(offset, dst));
+        }
         if(_content == null)
         {
             return 0;
@@ -106,6 +133,11 @@ public class StoredMemoryMessage<T extends StorableMessageMetaData> implements S
 
     public ByteBuffer getContent(int offsetInMessage, int size)
     {
+        OffHeapContent offHeapContent = _offHeapContent;
+        if(offHeapContent != null)
+        {
+            return offHeapContent.getContent(offsetInMessage, size);
+        }
         if(_content == null)
         {
             return null;
@@ -129,6 +161,10 @@ public class StoredMemoryMessage<T extends StorableMessageMetaData> implements S
 
     public void remove()
     {
+        if(_offHeapContent != null)
+        {
+            _offHeapContent.release();
+        }
     }
 
     @Override
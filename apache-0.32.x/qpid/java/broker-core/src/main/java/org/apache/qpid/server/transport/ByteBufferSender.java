@@ -0,0 +1,38 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.nio.ByteBuffer;
+
+import org.apache.qpid.transport.Sender;
+
+/**
+ * A sender able to queue a buffer for writing without first taking a copy of it.
+ */
+public interface ByteBufferSender extends Sender<ByteBuffer>
+{
+    /**
+     * Queues the remaining bytes of the buffer for writing.  Unlike {@link #send(Object)} the bytes are not
+     * copied, so the caller must guarantee that they do not change until they have been written; the buffer's
+     * position and limit may be reused as soon as this method returns.
+     */
+    void sendShared(ByteBuffer msg);
+}
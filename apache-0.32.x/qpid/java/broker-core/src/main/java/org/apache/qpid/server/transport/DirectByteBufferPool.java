@@ -0,0 +1,88 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of equally sized direct buffers.  Connections borrow buffers only for as long as they hold
+ * data, so idle connections do not pin any direct memory.
+ */
+class DirectByteBufferPool
+{
+    private final int _bufferSize;
+    private final int _maxPoolSize;
+    private final Queue<ByteBuffer> _pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger _pooledCount = new AtomicInteger();
+
+    DirectByteBufferPool(final int bufferSize, final int maxPoolSize)
+    {
+        _bufferSize = bufferSize;
+        _maxPoolSize = maxPoolSize;
+    }
+
+    ByteBuffer getBuffer()
+    {
+        ByteBuffer buffer = _pool.poll();
+        if (buffer == null)
+        {
+            buffer = ByteBuffer.allocateDirect(_bufferSize);
+        }
+        else
+        {
+            _pooledCount.decrementAndGet();
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool.  Buffers which were not allocated by the pool, or which would take the
+     * pool beyond its maximum size, are simply dropped.
+     */
+    void returnBuffer(final ByteBuffer buffer)
+    {
+        if (buffer.isDirect() && buffer.capacity() == _bufferSize)
+        {
+            if (_pooledCount.incrementAndGet() <= _maxPoolSize)
+            {
+                _pool.add(buffer);
+            }
+            else
+            {
+                _pooledCount.decrementAndGet();
+            }
+        }
+    }
+
+    int getBufferSize()
+    {
+        return _bufferSize;
+    }
+
+    int getPooledCount()
+    {
+        return _pooledCount.get();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed size pool of {@link SelectorThread}s over which the connections accepted on a port are
+ * distributed round robin.
+ */
+class NetworkConnectionScheduler
+{
+    private final SelectorThread[] _selectorThreads;
+    private final AtomicInteger _nextSelectorThread = new AtomicInteger();
+
+    NetworkConnectionScheduler(final String name, final int threadPoolSize) throws IOException
+    {
+        if (threadPoolSize < 1)
+        {
+            throw new IllegalArgumentException("Thread pool size must be at least 1, not " + threadPoolSize);
+        }
+
+        _selectorThreads = new SelectorThread[threadPoolSize];
+        for (int i = 0; i < threadPoolSize; i++)
+        {
+            _selectorThreads[i] = new SelectorThread(String.format("Selector-%s-%d", name, i));
+        }
+    }
+
+    void start()
+    {
+        for (SelectorThread selectorThread : _selectorThreads)
+        {
+            selectorThread.start();
+        }
+    }
+
+    SelectorThread nextSelectorThread()
+    {
+        int index = (_nextSelectorThread.getAndIncrement() & Integer.MAX_VALUE) % _selectorThreads.length;
+        return _selectorThreads[index];
+    }
+
+    int getThreadPoolSize()
+    {
+        return _selectorThreads.length;
+    }
+
+    void close()
+    {
+        for (SelectorThread selectorThread : _selectorThreads)
+        {
+            selectorThread.close();
+        }
+    }
+}
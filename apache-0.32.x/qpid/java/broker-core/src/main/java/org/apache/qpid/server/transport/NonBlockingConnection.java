@@ -0,0 +1,450 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.security.Principal;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import org.apache.qpid.protocol.ProtocolEngine;
+import org.apache.qpid.server.model.Transport;
+import org.apache.qpid.transport.SenderClosedException;
+import org.apache.qpid.transport.network.NetworkConnection;
+import org.apache.qpid.transport.network.Ticker;
+
+/**
+ * A network connection whose socket is multiplexed, together with many others, onto a
+ * {@link SelectorThread}.  All reads, writes and ticks happen on the selector thread; other
+ * threads only ever queue outbound data and ask for the connection to be serviced.  Whether the bytes on
+ * the wire are plain or TLS encrypted is left to a {@link NonBlockingConnectionDelegate}.
+ * <p>
+ * Inbound data is handed to the {@link ProtocolEngine} on the selector thread, so anything the engine does
+ * there holds up every other connection sharing the selector.  To bound that, each pass reads at most one
+ * receive buffer's worth of data from the socket, and reading is suspended altogether whilst the outbound
+ * data queued for the peer exceeds a high-water mark (4MB unless overridden by the
+ * {@value #OUTBOUND_HIGH_WATER_MARK_PROPERTY} system property), resuming only once the queue has drained
+ * below half of it.  A peer which does not read its responses therefore cannot make the
+ * broker buffer an unbounded amount of data on its behalf.
+ */
+public class NonBlockingConnection implements NetworkConnection, ByteBufferSender
+{
+    private static final Logger LOGGER = Logger.getLogger(NonBlockingConnection.class);
+
+    static final String OUTBOUND_HIGH_WATER_MARK_PROPERTY = "qpid.transport.outboundHighWaterMark";
+    static final long OUTBOUND_HIGH_WATER_MARK = Long.getLong(OUTBOUND_HIGH_WATER_MARK_PROPERTY, 4 * 1024 * 1024);
+
+    private final SocketChannel _socketChannel;
+    private final ProtocolEngine _protocolEngine;
+    private final Ticker _ticker;
+    private final NonBlockingNetworkTransport _transport;
+    private final SelectorThread _selector;
+    private final int _receiveBufSize;
+    private final long _timeout;
+    private final String _remoteSocketAddress;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> _buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean _closed = new AtomicBoolean(false);
+    private final AtomicBoolean _scheduled = new AtomicBoolean(false);
+    private final AtomicLong _queuedBytes = new AtomicLong();
+    private final long _highWaterMark;
+    private final long _lowWaterMark;
+
+    private volatile NonBlockingConnectionDelegate _delegate;
+    private volatile long _closeRequestedTime;
+    private volatile int _maxReadIdle;
+    private volatile int _maxWriteIdle;
+    private boolean _peerClosed;
+    private boolean _fullyClosed;
+    private boolean _outboundClosed;
+    private boolean _writeBlocked;
+    private boolean _readSuspended;
+
+    public NonBlockingConnection(SocketChannel socketChannel,
+                                 ProtocolEngine delegate,
+                                 int receiveBufferSize,
+                                 long timeout,
+                                 Ticker ticker,
+                                 Set<Transport> transports,
+                                 NonBlockingNetworkTransport transport,
+                                 SelectorThread selectorThread)
+    {
+        this(socketChannel, delegate, receiveBufferSize, timeout, ticker, transports, transport, selectorThread,
+             OUTBOUND_HIGH_WATER_MARK);
+    }
+
+    NonBlockingConnection(SocketChannel socketChannel,
+                          ProtocolEngine delegate,
+                          int receiveBufferSize,
+                          long timeout,
+                          Ticker ticker,
+                          Set<Transport> transports,
+                          NonBlockingNetworkTransport transport,
+                          SelectorThread selectorThread,
+                          long outboundHighWaterMark)
+    {
+        _socketChannel = socketChannel;
+        _protocolEngine = delegate;
+        _receiveBufSize = receiveBufferSize;
+        _timeout = timeout;
+        _ticker = ticker;
+        _transport = transport;
+        _selector = selectorThread;
+        _remoteSocketAddress = socketChannel.socket().getRemoteSocketAddress().toString();
+        _highWaterMark = outboundHighWaterMark;
+        _lowWaterMark = outboundHighWaterMark / 2;
+
+        if (transports.contains(Transport.TCP) && transports.contains(Transport.SSL))
+        {
+            _delegate = new NonBlockingConnectionUndecidedDelegate(this);
+        }
+        else if (transports.contains(Transport.SSL))
+        {
+            _delegate = createTLSDelegate();
+        }
+        else
+        {
+            _delegate = createPlainDelegate();
+        }
+    }
+
+    @Override
+    public void start()
+    {
+        _selector.addConnection(this);
+    }
+
+    @Override
+    public ByteBufferSender getSender()
+    {
+        return this;
+    }
+
+    @Override
+    public void setIdleTimeout(int i)
+    {
+        // Idleness is detected by the ticker on the selector thread, there is no socket timeout to set
+    }
+
+    @Override
+    public void send(ByteBuffer msg)
+    {
+        checkNotClosed();
+
+        // The caller is free to reuse the buffer once we return, so take a copy of the bytes
+        ByteBuffer copy = ByteBuffer.allocate(msg.remaining());
+        copy.put(msg);
+        copy.flip();
+        _queuedBytes.addAndGet(copy.remaining());
+        _buffers.add(copy);
+    }
+
+    @Override
+    public void sendShared(ByteBuffer msg)
+    {
+        checkNotClosed();
+
+        _queuedBytes.addAndGet(msg.remaining());
+        _buffers.add(msg.duplicate());
+    }
+
+    private void checkNotClosed()
+    {
+        if (_closed.get())
+        {
+            throw new SenderClosedException(String.format("sender for socket %s is closed", _remoteSocketAddress));
+        }
+    }
+
+    @Override
+    public void flush()
+    {
+        if (!_buffers.isEmpty())
+        {
+            schedule();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (!_closed.getAndSet(true))
+        {
+            LOGGER.debug("Closing " + _remoteSocketAddress);
+            _closeRequestedTime = System.currentTimeMillis();
+            schedule();
+        }
+    }
+
+    /**
+     * Closes the socket without waiting for queued data to be written.  Must only be called by the owning
+     * selector thread.
+     */
+    void closeImmediately()
+    {
+        _closed.set(true);
+        if (!_fullyClosed)
+        {
+            shutdown();
+        }
+    }
+
+    void schedule()
+    {
+        if (_scheduled.compareAndSet(false, true))
+        {
+            _selector.wakeup(this);
+        }
+    }
+
+    SocketChannel getSocketChannel()
+    {
+        return _socketChannel;
+    }
+
+    ProtocolEngine getProtocolEngine()
+    {
+        return _protocolEngine;
+    }
+
+    boolean isClosed()
+    {
+        return _closed.get();
+    }
+
+    /**
+     * Called by the delegate as queued application data is taken off the queue, either by writing it
+     * directly to the socket or by encrypting it.
+     */
+    void applicationDataConsumed(final long bytes)
+    {
+        _queuedBytes.addAndGet(-bytes);
+    }
+
+    long getQueuedBytes()
+    {
+        return _queuedBytes.get();
+    }
+
+    boolean isReadSuspended()
+    {
+        return _readSuspended;
+    }
+
+    void setDelegate(final NonBlockingConnectionDelegate delegate)
+    {
+        _delegate = delegate;
+    }
+
+    NonBlockingConnectionDelegate createPlainDelegate()
+    {
+        return new NonBlockingConnectionPlainDelegate(this, _receiveBufSize);
+    }
+
+    NonBlockingConnectionDelegate createTLSDelegate()
+    {
+        return new NonBlockingConnectionTLSDelegate(this,
+                                                    _transport.createSSLEngine(),
+                                                    _transport.getBufferPool(),
+                                                    _transport.getTaskExecutor(),
+                                                    _receiveBufSize);
+    }
+
+    /**
+     * @return the number of milliseconds until the connection next needs to be serviced even if there is no
+     * I/O readiness, either for a tick or to give up waiting to flush a closing connection
+     */
+    int getTimeToNextEvent(long currentTime)
+    {
+        int timeToNextEvent = _ticker.getTimeToNextTick(currentTime);
+        if (_closed.get())
+        {
+            int timeToCloseDeadline = (int) (_closeRequestedTime + _timeout - currentTime);
+            timeToNextEvent = Math.min(timeToNextEvent, timeToCloseDeadline);
+        }
+        return timeToNextEvent;
+    }
+
+    /**
+     * Services the connection: runs any due tick, reads whatever the socket has available and writes as
+     * much queued data as the socket will take.  Must only be called by the owning selector thread.
+     *
+     * @return true if the connection remains open
+     */
+    boolean doWork()
+    {
+        _scheduled.set(false);
+
+        if (_fullyClosed)
+        {
+            return false;
+        }
+
+        try
+        {
+            long currentTime = System.currentTimeMillis();
+            if (_ticker.getTimeToNextTick(currentTime) <= 0)
+            {
+                _ticker.tick(currentTime);
+            }
+
+            updateReadSuspended();
+            if (!_closed.get() && !_readSuspended && _delegate.readyForRead() && !_delegate.doRead())
+            {
+                _peerClosed = true;
+                _closed.set(true);
+            }
+
+            _writeBlocked = !_delegate.doWrite(_buffers);
+
+            // only once everything queued has been sent can the delegate close its outbound side
+            if (_closed.get() && !_outboundClosed && _buffers.isEmpty())
+            {
+                _outboundClosed = true;
+                _delegate.closeOutbound();
+                _writeBlocked = !_delegate.doWrite(_buffers);
+            }
+            boolean allWritten = !_writeBlocked && _buffers.isEmpty();
+            updateReadSuspended();
+
+            if (_peerClosed
+                || (_closed.get() && (allWritten || System.currentTimeMillis() - _closeRequestedTime > _timeout)))
+            {
+                shutdown();
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            if (!_closed.getAndSet(true))
+            {
+                LOGGER.info("Exception performing I/O for connection '" + _remoteSocketAddress + "': " + e);
+                _protocolEngine.exception(e);
+            }
+            shutdown();
+        }
+
+        return !_fullyClosed;
+    }
+
+    private void updateReadSuspended()
+    {
+        long queuedBytes = _queuedBytes.get();
+        if (_readSuspended)
+        {
+            if (queuedBytes <= _lowWaterMark)
+            {
+                _readSuspended = false;
+                LOGGER.debug("Resuming reads from " + _remoteSocketAddress);
+            }
+        }
+        else if (queuedBytes > _highWaterMark)
+        {
+            _readSuspended = true;
+            LOGGER.debug("Suspending reads from " + _remoteSocketAddress + " whilst " + queuedBytes
+                         + " bytes are waiting to be written");
+        }
+    }
+
+    boolean wantsRead()
+    {
+        return !_closed.get() && !_readSuspended && _delegate.readyForRead();
+    }
+
+    boolean wantsWrite()
+    {
+        return _writeBlocked;
+    }
+
+    private void shutdown()
+    {
+        _fullyClosed = true;
+        _buffers.clear();
+        _queuedBytes.set(0);
+        try
+        {
+            _delegate.release();
+            _socketChannel.close();
+        }
+        catch (IOException e)
+        {
+            LOGGER.info("Exception closing socket '" + _remoteSocketAddress + "': " + e);
+        }
+        finally
+        {
+            _protocolEngine.closed();
+        }
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress()
+    {
+        return _socketChannel.socket().getRemoteSocketAddress();
+    }
+
+    @Override
+    public SocketAddress getLocalAddress()
+    {
+        return _socketChannel.socket().getLocalSocketAddress();
+    }
+
+    @Override
+    public void setMaxWriteIdle(int sec)
+    {
+        _maxWriteIdle = sec;
+    }
+
+    @Override
+    public void setMaxReadIdle(int sec)
+    {
+        _maxReadIdle = sec;
+    }
+
+    @Override
+    public Principal getPeerPrincipal()
+    {
+        return _delegate.getPeerPrincipal();
+    }
+
+    @Override
+    public int getMaxReadIdle()
+    {
+        return _maxReadIdle;
+    }
+
+    @Override
+    public int getMaxWriteIdle()
+    {
+        return _maxWriteIdle;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[NonBlockingConnection " + _remoteSocketAddress + "]";
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.util.Queue;
+
+/**
+ * Encodes and decodes the bytes moving between a {@link NonBlockingConnection}'s socket and its protocol
+ * engine.  All methods are called only by the selector thread that owns the connection.
+ */
+interface NonBlockingConnectionDelegate
+{
+    /**
+     * Reads whatever is available from the socket and passes any resulting application data to the
+     * protocol engine.
+     *
+     * @return false if the peer has closed its end of the connection
+     */
+    boolean doRead() throws IOException;
+
+    /**
+     * Processes bytes which have already been read from the socket.
+     */
+    void processData(ByteBuffer data) throws IOException;
+
+    /**
+     * Writes as much of the queued application data as the socket will accept, removing the buffers which
+     * have been completely consumed.
+     *
+     * @return false if data is waiting for the socket to become writable again
+     */
+    boolean doWrite(Queue<ByteBuffer> buffers) throws IOException;
+
+    /**
+     * @return false whilst the delegate cannot make use of any more data from the socket
+     */
+    boolean readyForRead();
+
+    /**
+     * Starts an orderly close of the outbound side, for instance by queuing a TLS close_notify.
+     */
+    void closeOutbound();
+
+    /**
+     * Releases any resources held by the delegate once the connection is closed.
+     */
+    void release();
+
+    Principal getPeerPrincipal();
+}
@@ -0,0 +1,118 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.util.Queue;
+
+class NonBlockingConnectionPlainDelegate implements NonBlockingConnectionDelegate
+{
+    private final NonBlockingConnection _parent;
+    private final int _receiveBufSize;
+    private ByteBuffer _currentBuffer;
+
+    NonBlockingConnectionPlainDelegate(final NonBlockingConnection parent, final int receiveBufferSize)
+    {
+        _parent = parent;
+        _receiveBufSize = receiveBufferSize;
+        _currentBuffer = ByteBuffer.allocate(receiveBufferSize);
+    }
+
+    @Override
+    public boolean doRead() throws IOException
+    {
+        int totalRead = 0;
+        int read;
+        do
+        {
+            read = _parent.getSocketChannel().read(_currentBuffer);
+            if (read > 0)
+            {
+                totalRead += read;
+
+                ByteBuffer data = _currentBuffer.duplicate();
+                data.limit(_currentBuffer.position());
+                data.position(_currentBuffer.position() - read);
+
+                _parent.getProtocolEngine().received(data);
+
+                // The protocol layer may hold on to the bytes it has been handed, so rather than compacting
+                // we move on to a fresh buffer once the current one is half consumed
+                if (_currentBuffer.position() > _receiveBufSize / 2)
+                {
+                    _currentBuffer = ByteBuffer.allocate(_receiveBufSize);
+                }
+            }
+        }
+        while (read > 0 && totalRead < _receiveBufSize && !_parent.isClosed());
+
+        return read != -1;
+    }
+
+    @Override
+    public void processData(final ByteBuffer data)
+    {
+        _parent.getProtocolEngine().received(data);
+    }
+
+    @Override
+    public boolean doWrite(final Queue<ByteBuffer> buffers) throws IOException
+    {
+        if (buffers.isEmpty())
+        {
+            return true;
+        }
+
+        ByteBuffer[] bufArray = buffers.toArray(new ByteBuffer[buffers.size()]);
+        _parent.applicationDataConsumed(_parent.getSocketChannel().write(bufArray));
+
+        ByteBuffer buf;
+        while ((buf = buffers.peek()) != null && !buf.hasRemaining())
+        {
+            buffers.poll();
+        }
+        return buffers.isEmpty();
+    }
+
+    @Override
+    public boolean readyForRead()
+    {
+        return true;
+    }
+
+    @Override
+    public void closeOutbound()
+    {
+    }
+
+    @Override
+    public void release()
+    {
+    }
+
+    @Override
+    public Principal getPeerPrincipal()
+    {
+        return null;
+    }
+}
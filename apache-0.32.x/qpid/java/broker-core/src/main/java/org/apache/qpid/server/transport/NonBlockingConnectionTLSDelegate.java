@@ -0,0 +1,451 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs TLS over a {@link NonBlockingConnection} using an {@link SSLEngine}.  Encrypted data is staged in
+ * direct buffers borrowed from a shared pool for only as long as they hold data, and the engine's
+ * delegated tasks (which are where the expensive handshake work happens) are run on a separate bounded
+ * executor so they do not hold up the selector thread's other connections.
+ */
+class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDelegate
+{
+    private static final Logger LOGGER = Logger.getLogger(NonBlockingConnectionTLSDelegate.class);
+
+    private final NonBlockingConnection _parent;
+    private final SSLEngine _sslEngine;
+    private final DirectByteBufferPool _bufferPool;
+    private final Executor _taskExecutor;
+    private final int _receiveBufSize;
+
+    /** Encrypted bytes read from the socket but not yet unwrapped, held in write mode */
+    private ByteBuffer _netInputBuffer;
+    /** Encrypted bytes produced by the engine but not yet written to the socket, held in write mode */
+    private ByteBuffer _netOutputBuffer;
+    private ByteBuffer _applicationBuffer;
+    private volatile boolean _tasksRunning;
+
+    NonBlockingConnectionTLSDelegate(final NonBlockingConnection parent,
+                                     final SSLEngine sslEngine,
+                                     final DirectByteBufferPool bufferPool,
+                                     final Executor taskExecutor,
+                                     final int receiveBufferSize)
+    {
+        _parent = parent;
+        _sslEngine = sslEngine;
+        _bufferPool = bufferPool;
+        _taskExecutor = taskExecutor;
+        _receiveBufSize = Math.max(receiveBufferSize, 2 * sslEngine.getSession().getApplicationBufferSize());
+        _applicationBuffer = ByteBuffer.allocate(_receiveBufSize);
+    }
+
+    @Override
+    public boolean doRead() throws IOException
+    {
+        if (_tasksRunning)
+        {
+            return true;
+        }
+
+        if (_netInputBuffer == null)
+        {
+            _netInputBuffer = _bufferPool.getBuffer();
+        }
+
+        int totalRead = 0;
+        int read;
+        try
+        {
+            do
+            {
+                read = _parent.getSocketChannel().read(_netInputBuffer);
+                if (read > 0)
+                {
+                    totalRead += read;
+                }
+                unwrapBufferedData();
+            }
+            while (read > 0 && totalRead < _receiveBufSize && !_tasksRunning && !_parent.isClosed());
+        }
+        catch (SSLException e)
+        {
+            sendAlert();
+            throw e;
+        }
+        finally
+        {
+            releaseInputBufferIfEmpty();
+        }
+
+        if (read == -1)
+        {
+            try
+            {
+                _sslEngine.closeInbound();
+            }
+            catch (SSLException e)
+            {
+                LOGGER.debug("Peer closed the connection without sending a TLS close_notify: " + e.getMessage());
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void processData(final ByteBuffer data) throws IOException
+    {
+        if (_netInputBuffer == null)
+        {
+            _netInputBuffer = _bufferPool.getBuffer();
+        }
+        ensureInputCapacity(data.remaining());
+        _netInputBuffer.put(data);
+
+        try
+        {
+            unwrapBufferedData();
+        }
+        catch (SSLException e)
+        {
+            sendAlert();
+            throw e;
+        }
+        finally
+        {
+            releaseInputBufferIfEmpty();
+        }
+    }
+
+    @Override
+    public boolean doWrite(final Queue<ByteBuffer> buffers) throws IOException
+    {
+        while (true)
+        {
+            boolean outputFull = !_tasksRunning && wrap(buffers);
+
+            if (!flushNetOutput())
+            {
+                return false;
+            }
+
+            // Having written our side of the handshake we may already hold the peer's next records
+            boolean unwrapped = !_tasksRunning
+                                && _sslEngine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_UNWRAP
+                                && _netInputBuffer != null
+                                && unwrapBufferedData();
+            releaseInputBufferIfEmpty();
+
+            if (!outputFull && !unwrapped)
+            {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean readyForRead()
+    {
+        return !_tasksRunning;
+    }
+
+    @Override
+    public void closeOutbound()
+    {
+        _sslEngine.closeOutbound();
+    }
+
+    @Override
+    public void release()
+    {
+        if (_netInputBuffer != null)
+        {
+            _bufferPool.returnBuffer(_netInputBuffer);
+            _netInputBuffer = null;
+        }
+        if (_netOutputBuffer != null)
+        {
+            _bufferPool.returnBuffer(_netOutputBuffer);
+            _netOutputBuffer = null;
+        }
+    }
+
+    @Override
+    public Principal getPeerPrincipal()
+    {
+        try
+        {
+            return _sslEngine.getSession().getPeerPrincipal();
+        }
+        catch (SSLPeerUnverifiedException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Unwraps as many complete TLS records from the input buffer as possible, passing any application data
+     * to the protocol engine.
+     *
+     * @return true if any input was consumed
+     */
+    private boolean unwrapBufferedData() throws SSLException
+    {
+        if (_netInputBuffer == null || _netInputBuffer.position() == 0 || _tasksRunning)
+        {
+            return false;
+        }
+
+        boolean consumedInput = false;
+        boolean underflow = false;
+        _netInputBuffer.flip();
+        try
+        {
+            boolean progress = true;
+            while (progress && _netInputBuffer.hasRemaining() && !_tasksRunning)
+            {
+                SSLEngineResult result = _sslEngine.unwrap(_netInputBuffer, _applicationBuffer);
+                consumedInput |= result.bytesConsumed() > 0;
+                deliverApplicationData(result.bytesProduced());
+
+                switch (result.getStatus())
+                {
+                    case BUFFER_OVERFLOW:
+                        _applicationBuffer = ByteBuffer.allocate(_receiveBufSize);
+                        break;
+                    case BUFFER_UNDERFLOW:
+                        underflow = true;
+                        progress = false;
+                        break;
+                    case CLOSED:
+                        progress = false;
+                        break;
+                    default:
+                        progress = result.bytesConsumed() > 0 || result.bytesProduced() > 0;
+                        break;
+                }
+
+                switch (result.getHandshakeStatus())
+                {
+                    case NEED_TASK:
+                        runDelegatedTasks();
+                        break;
+                    case NEED_WRAP:
+                        // our response must be wrapped before any more of the peer's records can be unwrapped
+                        progress = false;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        finally
+        {
+            _netInputBuffer.compact();
+        }
+
+        if (underflow && !_netInputBuffer.hasRemaining())
+        {
+            ensureInputCapacity(_sslEngine.getSession().getPacketBufferSize());
+        }
+        return consumedInput;
+    }
+
+    private void deliverApplicationData(final int bytesProduced)
+    {
+        if (bytesProduced > 0)
+        {
+            ByteBuffer data = _applicationBuffer.duplicate();
+            data.limit(_applicationBuffer.position());
+            data.position(_applicationBuffer.position() - bytesProduced);
+
+            _parent.getProtocolEngine().received(data);
+
+            // As for plain connections the protocol layer may retain what it has been given, so never reuse it
+            if (_applicationBuffer.remaining() < _sslEngine.getSession().getApplicationBufferSize())
+            {
+                _applicationBuffer = ByteBuffer.allocate(_receiveBufSize);
+            }
+        }
+    }
+
+    /**
+     * @return true if wrapping stopped because the output buffer has to be flushed before it can continue
+     */
+    private boolean wrap(final Queue<ByteBuffer> buffers) throws SSLException
+    {
+        while (!buffers.isEmpty()
+               || _sslEngine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP)
+        {
+            if (_netOutputBuffer == null)
+            {
+                _netOutputBuffer = _bufferPool.getBuffer();
+            }
+
+            ByteBuffer[] appData = buffers.toArray(new ByteBuffer[buffers.size()]);
+            SSLEngineResult result = _sslEngine.wrap(appData, _netOutputBuffer);
+            _parent.applicationDataConsumed(result.bytesConsumed());
+
+            ByteBuffer buf;
+            while ((buf = buffers.peek()) != null && !buf.hasRemaining())
+            {
+                buffers.poll();
+            }
+
+            if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW)
+            {
+                if (_netOutputBuffer.position() == 0)
+                {
+                    // the session now needs larger packets than the pool's buffers can hold
+                    _bufferPool.returnBuffer(_netOutputBuffer);
+                    _netOutputBuffer = ByteBuffer.allocateDirect(_sslEngine.getSession().getPacketBufferSize());
+                }
+                else
+                {
+                    return true;
+                }
+            }
+            else if (result.getStatus() == SSLEngineResult.Status.CLOSED)
+            {
+                // nothing more can be sent once the close_notify has gone
+                buffers.clear();
+                break;
+            }
+            else if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK)
+            {
+                runDelegatedTasks();
+                break;
+            }
+            else if (result.bytesConsumed() == 0 && result.bytesProduced() == 0)
+            {
+                // application data has to wait for the handshake to complete
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if there is no encrypted data left waiting to be written
+     */
+    private boolean flushNetOutput() throws IOException
+    {
+        if (_netOutputBuffer == null)
+        {
+            return true;
+        }
+
+        _netOutputBuffer.flip();
+        try
+        {
+            _parent.getSocketChannel().write(_netOutputBuffer);
+        }
+        finally
+        {
+            _netOutputBuffer.compact();
+        }
+
+        if (_netOutputBuffer.position() == 0)
+        {
+            _bufferPool.returnBuffer(_netOutputBuffer);
+            _netOutputBuffer = null;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Best effort attempt to tell the peer why the connection is being dropped.
+     */
+    private void sendAlert()
+    {
+        try
+        {
+            _sslEngine.closeOutbound();
+            wrap(new LinkedList<ByteBuffer>());
+            flushNetOutput();
+        }
+        catch (IOException | RuntimeException e)
+        {
+            LOGGER.debug("Failed to send TLS alert: " + e.getMessage());
+        }
+    }
+
+    private void runDelegatedTasks()
+    {
+        _tasksRunning = true;
+        _taskExecutor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Runnable task;
+                    while ((task = _sslEngine.getDelegatedTask()) != null)
+                    {
+                        task.run();
+                    }
+                }
+                finally
+                {
+                    _tasksRunning = false;
+                    _parent.schedule();
+                }
+            }
+        });
+    }
+
+    private void ensureInputCapacity(final int required)
+    {
+        if (_netInputBuffer.remaining() < required)
+        {
+            ByteBuffer larger = ByteBuffer.allocateDirect(_netInputBuffer.position() + required);
+            _netInputBuffer.flip();
+            larger.put(_netInputBuffer);
+            _bufferPool.returnBuffer(_netInputBuffer);
+            _netInputBuffer = larger;
+        }
+    }
+
+    private void releaseInputBufferIfEmpty()
+    {
+        if (_netInputBuffer != null && _netInputBuffer.position() == 0)
+        {
+            _bufferPool.returnBuffer(_netInputBuffer);
+            _netInputBuffer = null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.util.Queue;
+
+import org.apache.qpid.protocol.ProtocolEngine;
+import org.apache.qpid.protocol.ServerProtocolEngine;
+import org.apache.qpid.transport.network.security.ssl.SSLUtil;
+
+/**
+ * Used on ports offering both TCP and SSL: looks at the first bytes sent by the peer to decide whether the
+ * connection is using TLS, then hands over to the appropriate delegate.
+ */
+class NonBlockingConnectionUndecidedDelegate implements NonBlockingConnectionDelegate
+{
+    private final NonBlockingConnection _parent;
+    private final ByteBuffer _preview = ByteBuffer.allocate(SSLUtil.MINIMUM_SSL_DETECTION_BYTES);
+
+    NonBlockingConnectionUndecidedDelegate(final NonBlockingConnection parent)
+    {
+        _parent = parent;
+    }
+
+    @Override
+    public boolean doRead() throws IOException
+    {
+        if (_parent.getSocketChannel().read(_preview) == -1)
+        {
+            return false;
+        }
+        else if (_preview.hasRemaining())
+        {
+            return true;
+        }
+
+        _preview.flip();
+        byte[] headerBytes = new byte[_preview.remaining()];
+        _preview.duplicate().get(headerBytes);
+
+        final NonBlockingConnectionDelegate delegate;
+        if (SSLUtil.looksLikeSSL(headerBytes))
+        {
+            ProtocolEngine engine = _parent.getProtocolEngine();
+            if (engine instanceof ServerProtocolEngine)
+            {
+                ((ServerProtocolEngine) engine).encryptedTransport();
+            }
+            delegate = _parent.createTLSDelegate();
+        }
+        else
+        {
+            delegate = _parent.createPlainDelegate();
+        }
+        _parent.setDelegate(delegate);
+
+        delegate.processData(_preview);
+        return delegate.doRead();
+    }
+
+    @Override
+    public void processData(final ByteBuffer data)
+    {
+        throw new IllegalStateException("No data can be processed until the transport has been decided");
+    }
+
+    @Override
+    public boolean doWrite(final Queue<ByteBuffer> buffers)
+    {
+        // nothing can be written until we know whether it needs to be encrypted
+        return true;
+    }
+
+    @Override
+    public boolean readyForRead()
+    {
+        return true;
+    }
+
+    @Override
+    public void closeOutbound()
+    {
+    }
+
+    @Override
+    public void release()
+    {
+    }
+
+    @Override
+    public Principal getPeerPrincipal()
+    {
+        return null;
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import org.apache.log4j.Logger;
+
+import org.apache.qpid.configuration.CommonProperties;
+import org.apache.qpid.protocol.ProtocolEngine;
+import org.apache.qpid.protocol.ProtocolEngineFactory;
+import org.apache.qpid.server.model.Transport;
+import org.apache.qpid.transport.NetworkTransportConfiguration;
+import org.apache.qpid.transport.TransportException;
+import org.apache.qpid.transport.network.io.IdleTimeoutTicker;
+import org.apache.qpid.transport.network.security.ssl.SSLUtil;
+
+/**
+ * Accepts connections on a server socket and hands each of them to a small pool of selector threads,
+ * rather than dedicating a reader and a writer thread to every connection.  TLS is handled on the selector
+ * threads too, with only the engine's delegated handshake tasks being run on a separate bounded pool.
+ */
+class NonBlockingNetworkTransport
+{
+    private static final Logger LOGGER = Logger.getLogger(NonBlockingNetworkTransport.class);
+    private static final int TIMEOUT = Integer.getInteger(CommonProperties.IO_NETWORK_TRANSPORT_TIMEOUT_PROP_NAME,
+                                                          CommonProperties.IO_NETWORK_TRANSPORT_TIMEOUT_DEFAULT);
+    private static final int HANDSHAKE_TIMEOUT = Integer.getInteger(CommonProperties.HANDSHAKE_TIMEOUT_PROP_NAME,
+                                                                    CommonProperties.HANDSHAKE_TIMEOUT_DEFAULT);
+
+    private final NetworkTransportConfiguration _config;
+    private final ProtocolEngineFactory _factory;
+    private final Set<Transport> _transports;
+    private final SSLContext _sslContext;
+    private final NetworkConnectionScheduler _scheduler;
+    private final AcceptingThread _acceptor;
+    private final DirectByteBufferPool _bufferPool;
+    private final ExecutorService _taskExecutor;
+
+    NonBlockingNetworkTransport(final NetworkTransportConfiguration config,
+                                final ProtocolEngineFactory factory,
+                                final int threadPoolSize,
+                                final Set<Transport> transports,
+                                final SSLContext sslContext,
+                                final int tlsTaskThreadPoolSize,
+                                final int bufferPoolSize)
+    {
+        _config = config;
+        _factory = factory;
+        _transports = transports;
+        _sslContext = sslContext;
+
+        if (transports.contains(Transport.SSL))
+        {
+            int packetBufferSize = sslContext.createSSLEngine().getSession().getPacketBufferSize();
+            _bufferPool = new DirectByteBufferPool(packetBufferSize, bufferPoolSize);
+            _taskExecutor = createTaskExecutor(String.valueOf(config.getAddress()), tlsTaskThreadPoolSize);
+        }
+        else
+        {
+            _bufferPool = null;
+            _taskExecutor = null;
+        }
+
+        try
+        {
+            _scheduler = new NetworkConnectionScheduler(String.valueOf(config.getAddress()), threadPoolSize);
+            _acceptor = new AcceptingThread();
+        }
+        catch (IOException e)
+        {
+            throw new TransportException("Failed to start AMQP on port : " + config, e);
+        }
+        _acceptor.setName(String.format("NonBlockingNetworkAcceptor - %s", config.getAddress()));
+        _acceptor.setDaemon(false);
+    }
+
+    void start()
+    {
+        _scheduler.start();
+        _acceptor.start();
+    }
+
+    void close()
+    {
+        try
+        {
+            _acceptor.close();
+        }
+        finally
+        {
+            _scheduler.close();
+            if (_taskExecutor != null)
+            {
+                _taskExecutor.shutdown();
+            }
+        }
+    }
+
+    SSLEngine createSSLEngine()
+    {
+        SSLEngine sslEngine = _sslContext.createSSLEngine();
+        sslEngine.setUseClientMode(false);
+        SSLUtil.removeSSLv3Support(sslEngine);
+        SSLUtil.updateEnabledCipherSuites(sslEngine,
+                                          _config.getEnabledCipherSuites(),
+                                          _config.getDisabledCipherSuites());
+
+        if (_config.needClientAuth())
+        {
+            sslEngine.setNeedClientAuth(true);
+        }
+        else if (_config.wantClientAuth())
+        {
+            sslEngine.setWantClientAuth(true);
+        }
+        return sslEngine;
+    }
+
+    DirectByteBufferPool getBufferPool()
+    {
+        return _bufferPool;
+    }
+
+    ExecutorService getTaskExecutor()
+    {
+        return _taskExecutor;
+    }
+
+    /**
+     * The queue is bounded so that a flood of handshakes cannot queue up unbounded work; once it is full the
+     * selector thread runs the tasks itself, which naturally throttles the rate at which it accepts more.
+     */
+    private static ExecutorService createTaskExecutor(final String name, final int threadPoolSize)
+    {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(threadPoolSize,
+                                      threadPoolSize,
+                                      0L,
+                                      TimeUnit.MILLISECONDS,
+                                      new LinkedBlockingQueue<Runnable>(threadPoolSize * 64),
+                                      new ThreadFactory()
+                                      {
+                                          @Override
+                                          public Thread newThread(final Runnable r)
+                                          {
+                                              Thread thread = new Thread(r, String.format("TLS-%s-%d",
+                                                                                          name,
+                                                                                          threadCount.getAndIncrement()));
+                                              thread.setDaemon(true);
+                                              return thread;
+                                          }
+                                      },
+                                      new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    int getAcceptingPort()
+    {
+        return _acceptor.getPort();
+    }
+
+    private class AcceptingThread extends Thread
+    {
+        private final ServerSocketChannel _serverSocket;
+        private volatile boolean _closed = false;
+
+        private AcceptingThread() throws IOException
+        {
+            _serverSocket = ServerSocketChannel.open();
+            _serverSocket.socket().setReuseAddress(true);
+            _serverSocket.socket().bind(_config.getAddress());
+        }
+
+        private void close()
+        {
+            LOGGER.debug("Shutting down the Acceptor");
+            _closed = true;
+
+            if (_serverSocket.isOpen())
+            {
+                try
+                {
+                    _serverSocket.close();
+                }
+                catch (IOException e)
+                {
+                    throw new TransportException(e);
+                }
+            }
+        }
+
+        private int getPort()
+        {
+            return _serverSocket.socket().getLocalPort();
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                while (!_closed)
+                {
+                    SocketChannel socketChannel = null;
+                    try
+                    {
+                        socketChannel = _serverSocket.accept();
+                        accepted(socketChannel);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        LOGGER.error("Error in Acceptor thread on address " + _config.getAddress(), e);
+                        closeSocketIfNecessary(socketChannel);
+                    }
+                    catch (IOException e)
+                    {
+                        if (!_closed)
+                        {
+                            LOGGER.error("Error in Acceptor thread on address " + _config.getAddress(), e);
+                            closeSocketIfNecessary(socketChannel);
+                            try
+                            {
+                                //Delay to avoid tight spinning the loop during issues such as too many open files
+                                Thread.sleep(1000);
+                            }
+                            catch (InterruptedException ie)
+                            {
+                                LOGGER.debug("Stopping acceptor due to interrupt request");
+                                _closed = true;
+                            }
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                if (LOGGER.isDebugEnabled())
+                {
+                    LOGGER.debug("Acceptor exiting, no new connections will be accepted on address "
+                                  + _config.getAddress());
+                }
+            }
+        }
+
+        private void accepted(final SocketChannel socketChannel) throws IOException
+        {
+            final Socket socket = socketChannel.socket();
+            ProtocolEngine engine = _factory.newProtocolEngine(socket.getRemoteSocketAddress());
+
+            if (engine != null)
+            {
+                socket.setTcpNoDelay(_config.getTcpNoDelay());
+                socket.setSendBufferSize(_config.getSendBufferSize());
+                socket.setReceiveBufferSize(_config.getReceiveBufferSize());
+                socketChannel.configureBlocking(false);
+
+                final IdleTimeoutTicker ticker = new IdleTimeoutTicker(engine, TIMEOUT);
+                NonBlockingConnection connection =
+                        new NonBlockingConnection(socketChannel,
+                                                  engine,
+                                                  _config.getReceiveBufferSize(),
+                                                  TIMEOUT,
+                                                  ticker,
+                                                  _transports,
+                                                  NonBlockingNetworkTransport.this,
+                                                  _scheduler.nextSelectorThread());
+
+                connection.setMaxReadIdle(HANDSHAKE_TIMEOUT);
+
+                ticker.setConnection(connection);
+
+                engine.setNetworkConnection(connection, connection.getSender());
+
+                connection.start();
+            }
+            else
+            {
+                socketChannel.close();
+            }
+        }
+
+        private void closeSocketIfNecessary(final SocketChannel socketChannel)
+        {
+            if (socketChannel != null)
+            {
+                try
+                {
+                    socketChannel.close();
+                }
+                catch (IOException e)
+                {
+                    LOGGER.debug("Exception while closing socket", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Multiplexes the I/O of many {@link NonBlockingConnection}s onto a single thread.
+ */
+class SelectorThread extends Thread
+{
+    private static final Logger LOGGER = Logger.getLogger(SelectorThread.class);
+
+    private final Queue<NonBlockingConnection> _newConnections = new ConcurrentLinkedQueue<>();
+    private final Queue<NonBlockingConnection> _workQueue = new ConcurrentLinkedQueue<>();
+    private final Set<NonBlockingConnection> _connections = new HashSet<>();
+    private final Selector _selector;
+    private volatile boolean _closed;
+
+    SelectorThread(final String name) throws IOException
+    {
+        super(name);
+        setDaemon(true);
+        _selector = Selector.open();
+    }
+
+    void addConnection(final NonBlockingConnection connection)
+    {
+        _newConnections.add(connection);
+        _selector.wakeup();
+    }
+
+    void wakeup(final NonBlockingConnection connection)
+    {
+        _workQueue.add(connection);
+        _selector.wakeup();
+    }
+
+    int getConnectionCount()
+    {
+        return _connections.size();
+    }
+
+    void close()
+    {
+        _closed = true;
+        _selector.wakeup();
+    }
+
+    @Override
+    public void run()
+    {
+        final Set<NonBlockingConnection> toProcess = new LinkedHashSet<>();
+        try
+        {
+            while (!_closed)
+            {
+                registerNewConnections(toProcess);
+
+                long currentTime = System.currentTimeMillis();
+                int timeout = Integer.MAX_VALUE;
+                for (NonBlockingConnection connection : _connections)
+                {
+                    int timeToNextEvent = connection.getTimeToNextEvent(currentTime);
+                    if (timeToNextEvent <= 0)
+                    {
+                        toProcess.add(connection);
+                    }
+                    else if (timeToNextEvent < timeout)
+                    {
+                        timeout = timeToNextEvent;
+                    }
+                }
+
+                if (toProcess.isEmpty() && _workQueue.isEmpty())
+                {
+                    _selector.select(timeout);
+                }
+                else
+                {
+                    _selector.selectNow();
+                }
+
+                Iterator<SelectionKey> selectedKeys = _selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext())
+                {
+                    toProcess.add((NonBlockingConnection) selectedKeys.next().attachment());
+                    selectedKeys.remove();
+                }
+
+                NonBlockingConnection connection;
+                while ((connection = _workQueue.poll()) != null)
+                {
+                    if (_connections.contains(connection))
+                    {
+                        toProcess.add(connection);
+                    }
+                }
+
+                for (NonBlockingConnection processing : toProcess)
+                {
+                    process(processing);
+                }
+                toProcess.clear();
+            }
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Failed to select for " + getName(), e);
+        }
+        finally
+        {
+            closeAllConnections();
+        }
+    }
+
+    private void registerNewConnections(final Set<NonBlockingConnection> toProcess)
+    {
+        NonBlockingConnection connection;
+        while ((connection = _newConnections.poll()) != null)
+        {
+            try
+            {
+                connection.getSocketChannel().register(_selector, SelectionKey.OP_READ, connection);
+                _connections.add(connection);
+                // anything queued before registration still needs to be written
+                toProcess.add(connection);
+            }
+            catch (ClosedChannelException e)
+            {
+                LOGGER.debug("Channel closed before it could be registered: " + connection);
+                connection.closeImmediately();
+            }
+        }
+    }
+
+    private void process(final NonBlockingConnection connection)
+    {
+        SelectionKey key = connection.getSocketChannel().keyFor(_selector);
+        if (connection.doWork())
+        {
+            if (key != null && key.isValid())
+            {
+                int interestOps = 0;
+                if (connection.wantsRead())
+                {
+                    interestOps |= SelectionKey.OP_READ;
+                }
+                if (connection.wantsWrite())
+                {
+                    interestOps |= SelectionKey.OP_WRITE;
+                }
+                key.interestOps(interestOps);
+            }
+        }
+        else
+        {
+            if (key != null)
+            {
+                key.cancel();
+            }
+            _connections.remove(connection);
+        }
+    }
+
+    private void closeAllConnections()
+    {
+        List<NonBlockingConnection> connections = new ArrayList<>(_connections);
+        connections.addAll(_newConnections);
+        _newConnections.clear();
+        for (NonBlockingConnection connection : connections)
+        {
+            connection.closeImmediately();
+        }
+        _connections.clear();
+        try
+        {
+            _selector.close();
+        }
+        catch (IOException e)
+        {
+            LOGGER.debug("Failed to close selector for " + getName(), e);
+        }
+    }
+}
@@ -34,11 +34,10 @@ import org.apache.qpid.server.model.Transport;
 import org.apache.qpid.server.model.port.AmqpPort;
 import org.apache.qpid.server.protocol.MultiVersionProtocolEngineFactory;
 import org.apache.qpid.transport.NetworkTransportConfiguration;
-import org.apache.qpid.transport.network.IncomingNetworkTransport;
 
 class TCPandSSLTransport implements AcceptingTransport
 {
-    private IncomingNetworkTransport _networkTransport;
+    private NonBlockingNetworkTransport _networkTransport;
     private Set<Transport> _transports;
     private SSLContext _sslContext;
     private InetSocketAddress _bindingSocketAddress;
@@ -78,17 +77,32 @@ class TCPandSSLTransport implements AcceptingTransport
         }
 
         final NetworkTransportConfiguration settings = new ServerNetworkTransportConfiguration();
-        _networkTransport = org.apache.qpid.transport.network.Transport.getIncomingTransportInstance();
         final MultiVersionProtocolEngineFactory protocolEngineFactory =
                 new MultiVersionProtocolEngineFactory(
-                _port.getParent(Broker.class), _transports.contains(Transport.TCP) ? _sslContext : null,
-                settings.wantClientAuth(), settings.needClientAuth(),
+                _port.getParent(Broker.class),
                 _supported,
                 _defaultSupportedProtocolReply,
                 _port,
                 _transports.contains(Transport.TCP) ? Transport.TCP : Transport.SSL);
 
-        _networkTransport.accept(settings, protocolEngineFactory, _transports.contains(Transport.TCP) ? null : _sslContext);
+        // TLS is handled by the network transport, detecting it first on ports which offer both TCP and SSL
+        _networkTransport = new NonBlockingNetworkTransport(settings,
+                                                            protocolEngineFactory,
+                                                            getContextValue(AmqpPort.PORT_AMQP_THREAD_POOL_SIZE,
+                                                                            AmqpPort.DEFAULT_PORT_AMQP_THREAD_POOL_SIZE),
+                                                            _transports,
+                                                            _sslContext,
+                                                            getContextValue(AmqpPort.PORT_AMQP_TLS_TASK_THREAD_POOL_SIZE,
+                                                                            AmqpPort.DEFAULT_PORT_AMQP_TLS_TASK_THREAD_POOL_SIZE),
+                                                            getContextValue(AmqpPort.PORT_AMQP_TLS_BUFFER_POOL_SIZE,
+                                                                            AmqpPort.DEFAULT_PORT_AMQP_TLS_BUFFER_POOL_SIZE));
+        _networkTransport.start();
+    }
+
+    private int getContextValue(final String name, final int defaultValue)
+    {
+        Integer value = _port.getContextValue(Integer.class, name);
+        return value == null ? defaultValue : value;
     }
 
     public int getAcceptingPort()
@@ -0,0 +1,460 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Holds values in a ring indexed by sequence number, such as the messages awaiting acknowledgement on a 0-8
+ * channel by delivery tag or the unsettled transfers of a 0-10 session by command id.
+ * <p>
+ * Values are added with increasing sequence numbers, so those held at any time occupy a window running from the
+ * oldest still held to the most recently added.  The ring is sized to cover that window, giving constant time adds,
+ * lookups and removals and letting a range be handled by walking straight through its slots rather than by
+ * searching for each number.  Values are added by one thread at a time and may be removed concurrently by any
+ * thread without locking; only when the window outgrows the ring must removers wait for the adding thread to move
+ * the entries to a larger one.
+ * <p>
+ * The ring only grows while at least half of it is occupied.  Should a few values be held whilst many later ones
+ * are removed, the window instead moves on without them and they are kept in a sorted map, so that the memory used
+ * and the time taken to walk a range follow the number of values held rather than the range of their sequence
+ * numbers.  A value is removed by marking its entry, after which it is cleared from the ring or map.
+ */
+public final class SequenceRing<V>
+{
+    public interface Visitor<V>
+    {
+        /**
+         * @return true to stop visiting, false to continue
+         */
+        boolean visit(long sequenceNumber, V value);
+    }
+
+    private static final int MIN_CAPACITY = 16;
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private final Entry<V> _moved = new Entry<>(0L, null);
+
+    /** no value with a sequence number below this is held in the ring */
+    private final AtomicLong _head = new AtomicLong();
+    /** no value with a sequence number at or above this is held */
+    private volatile long _tail;
+    private final AtomicInteger _size = new AtomicInteger();
+    private volatile AtomicReferenceArray<Entry<V>> _entries;
+    /** values with sequence numbers below the head which were left behind when the window moved on */
+    private final ConcurrentNavigableMap<Long, Entry<V>> _overflow = new ConcurrentSkipListMap<>();
+
+    public SequenceRing(int initialCapacity)
+    {
+        _entries = new AtomicReferenceArray<>(capacityFor(initialCapacity));
+    }
+
+    /**
+     * Must not be called by more than one thread at a time, and should be called with increasing sequence numbers.
+     */
+    public void put(long sequenceNumber, V value)
+    {
+        if(_size.get() == 0)
+        {
+            // nothing is held, so the window can start afresh wherever the sequence has got to
+            _head.set(sequenceNumber);
+            _tail = sequenceNumber;
+            _overflow.clear();
+        }
+
+        Entry<V> entry = new Entry<>(sequenceNumber, value);
+        long upper = Math.max(_tail, sequenceNumber + 1);
+        AtomicReferenceArray<Entry<V>> entries = _entries;
+        if(upper - Math.min(_head.get(), sequenceNumber) > entries.length())
+        {
+            advanceHead();
+            long span = upper - Math.min(_head.get(), sequenceNumber);
+            if(span > entries.length() && entries.length() < MAX_CAPACITY && 2L * _size.get() >= entries.length())
+            {
+                entries = resize(span);
+            }
+            if(span > entries.length())
+            {
+                moveHeadTo(upper - entries.length());
+            }
+        }
+        _tail = upper;
+
+        if(sequenceNumber < upper - entries.length())
+        {
+            // far older than the most recent value, so it cannot be held in the ring
+            Entry<V> previous = _overflow.put(sequenceNumber, entry);
+            if(previous == null || previous.isRemoved())
+            {
+                _size.incrementAndGet();
+            }
+            return;
+        }
+
+        Entry<V> previous = entries.getAndSet(indexOf(entries, sequenceNumber), entry);
+        if(previous == null || previous.isRemoved())
+        {
+            _size.incrementAndGet();
+        }
+
+        // a remover may have moved the head past the slot before it was filled
+        long head;
+        while((head = _head.get()) > sequenceNumber && !_head.compareAndSet(head, sequenceNumber))
+        {
+        }
+    }
+
+    public V get(long sequenceNumber)
+    {
+        Entry<V> entry = getEntry(sequenceNumber);
+        return entry == null ? null : entry._value;
+    }
+
+    public V remove(long sequenceNumber)
+    {
+        Entry<V> entry = getEntry(sequenceNumber);
+        return entry != null && removeEntry(entry) ? entry._value : null;
+    }
+
+    /**
+     * Removes the values with sequence numbers from the given lower bound up to the given upper bound, inclusive.
+     *
+     * @return the removed values, in sequence number order
+     */
+    public List<V> removeRange(long lower, long upper)
+    {
+        List<V> removed = new ArrayList<>();
+        for(Entry<V> entry : entriesIn(lower, upper))
+        {
+            if(removeEntry(entry))
+            {
+                removed.add(entry._value);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every value.
+     *
+     * @return the removed values, in sequence number order
+     */
+    public List<V> removeAll()
+    {
+        return removeRange(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Visits, in sequence number order and without removing them, the values with sequence numbers from the given
+     * lower bound up to the given upper bound, inclusive.
+     */
+    public void visit(long lower, long upper, Visitor<? super V> visitor)
+    {
+        for(Entry<V> entry : entriesIn(lower, upper))
+        {
+            if(visitor.visit(entry._sequenceNumber, entry._value))
+            {
+                break;
+            }
+        }
+    }
+
+    public int size()
+    {
+        return _size.get();
+    }
+
+    public boolean isEmpty()
+    {
+        return _size.get() == 0;
+    }
+
+    public int getCapacity()
+    {
+        return _entries.length();
+    }
+
+    private List<Entry<V>> entriesIn(long lower, long upper)
+    {
+        List<Entry<V>> ringEntries = new ArrayList<>();
+        long head = _head.get();
+        long last = Math.min(_tail - 1, upper);
+        for(long sequenceNumber = Math.max(head, lower); sequenceNumber <= last; sequenceNumber++)
+        {
+            Entry<V> entry = getRingEntry(sequenceNumber);
+            if(entry != null)
+            {
+                ringEntries.add(entry);
+            }
+        }
+        if(_overflow.isEmpty() || upper < lower)
+        {
+            return ringEntries;
+        }
+
+        // the ring is walked first, as entries only move from it to the map
+        List<Entry<V>> entries = new ArrayList<>();
+        Set<Entry<V>> seen = null;
+        for(Entry<V> entry : _overflow.subMap(lower, true, upper, true).values())
+        {
+            if(entry.isRemoved())
+            {
+                continue;
+            }
+            if(entry._sequenceNumber >= head)
+            {
+                // moved out of the ring whilst it was being walked, so may already have been seen
+                if(seen == null)
+                {
+                    seen = Collections.newSetFromMap(new IdentityHashMap<Entry<V>, Boolean>());
+                    seen.addAll(ringEntries);
+                }
+                if(seen.contains(entry))
+                {
+                    continue;
+                }
+            }
+            entries.add(entry);
+        }
+        entries.addAll(ringEntries);
+        return entries;
+    }
+
+    private Entry<V> getEntry(long sequenceNumber)
+    {
+        Entry<V> entry = getRingEntry(sequenceNumber);
+        if(entry == null && !_overflow.isEmpty())
+        {
+            entry = _overflow.get(sequenceNumber);
+            if(entry != null && entry.isRemoved())
+            {
+                entry = null;
+            }
+        }
+        return entry;
+    }
+
+    private Entry<V> getRingEntry(long sequenceNumber)
+    {
+        while(true)
+        {
+            AtomicReferenceArray<Entry<V>> entries = _entries;
+            Entry<V> entry = entries.get(indexOf(entries, sequenceNumber));
+            if(entry == _moved)
+            {
+                awaitResize(entries);
+            }
+            else
+            {
+                return entry != null && entry._sequenceNumber == sequenceNumber && !entry.isRemoved() ? entry : null;
+            }
+        }
+    }
+
+    private boolean removeEntry(Entry<V> entry)
+    {
+        if(!entry.markRemoved())
+        {
+            return false;
+        }
+        _size.decrementAndGet();
+
+        while(true)
+        {
+            AtomicReferenceArray<Entry<V>> entries = _entries;
+            int index = indexOf(entries, entry._sequenceNumber);
+            Entry<V> current = entries.get(index);
+            if(current == _moved)
+            {
+                awaitResize(entries);
+            }
+            else if(current != entry || entries.compareAndSet(index, entry, null))
+            {
+                break;
+            }
+        }
+        if(!_overflow.isEmpty())
+        {
+            _overflow.remove(entry._sequenceNumber, entry);
+        }
+
+        if(entry._sequenceNumber == _head.get())
+        {
+            advanceHead();
+        }
+        return true;
+    }
+
+    /**
+     * Moves the values with sequence numbers below the given one from the ring to the map, so that the window can
+     * move on.  Each is put in the map before it is cleared from the ring, so that those looking in the ring and
+     * then the map always find it.
+     */
+    private void moveHeadTo(long newHead)
+    {
+        AtomicReferenceArray<Entry<V>> entries = _entries;
+        long head = _head.get();
+        if(newHead - head >= entries.length())
+        {
+            for(int index = 0; index < entries.length(); index++)
+            {
+                Entry<V> entry = entries.get(index);
+                if(entry != null && entry != _moved && entry._sequenceNumber < newHead)
+                {
+                    moveToOverflow(entries, index, entry);
+                }
+            }
+        }
+        else
+        {
+            for(long sequenceNumber = head; sequenceNumber < newHead; sequenceNumber++)
+            {
+                int index = indexOf(entries, sequenceNumber);
+                Entry<V> entry = entries.get(index);
+                if(entry != null && entry._sequenceNumber == sequenceNumber)
+                {
+                    moveToOverflow(entries, index, entry);
+                }
+            }
+        }
+        while((head = _head.get()) < newHead && !_head.compareAndSet(head, newHead))
+        {
+        }
+    }
+
+    private void moveToOverflow(AtomicReferenceArray<Entry<V>> entries, int index, Entry<V> entry)
+    {
+        if(!entry.isRemoved())
+        {
+            _overflow.put(entry._sequenceNumber, entry);
+            entries.compareAndSet(index, entry, null);
+            if(entry.isRemoved())
+            {
+                // removed whilst being moved, and the remover may have missed it in the map
+                _overflow.remove(entry._sequenceNumber, entry);
+            }
+        }
+    }
+
+    /**
+     * Moves the head past any slots at the start of the window which no longer hold a value.
+     */
+    private void advanceHead()
+    {
+        long head = _head.get();
+        long tail = _tail;
+        long newHead = head;
+        AtomicReferenceArray<Entry<V>> entries = _entries;
+        while(newHead < tail)
+        {
+            Entry<V> entry = entries.get(indexOf(entries, newHead));
+            if(entry != null && (entry == _moved || (entry._sequenceNumber == newHead && !entry.isRemoved())))
+            {
+                break;
+            }
+            newHead++;
+        }
+        if(newHead != head)
+        {
+            _head.compareAndSet(head, newHead);
+        }
+    }
+
+    /**
+     * Moves every entry to a ring able to cover the given span of sequence numbers.  Each slot of the old ring is
+     * marked as it is emptied so that concurrent removers know to wait for the new one.
+     */
+    private AtomicReferenceArray<Entry<V>> resize(long span)
+    {
+        AtomicReferenceArray<Entry<V>> oldEntries = _entries;
+        AtomicReferenceArray<Entry<V>> newEntries = new AtomicReferenceArray<>(capacityFor(span));
+        for(int i = 0; i < oldEntries.length(); i++)
+        {
+            Entry<V> entry = oldEntries.getAndSet(i, _moved);
+            if(entry != null && !entry.isRemoved())
+            {
+                newEntries.set(indexOf(newEntries, entry._sequenceNumber), entry);
+            }
+        }
+        _entries = newEntries;
+        return newEntries;
+    }
+
+    private void awaitResize(AtomicReferenceArray<Entry<V>> entries)
+    {
+        while(_entries == entries)
+        {
+            Thread.yield();
+        }
+    }
+
+    private static int indexOf(AtomicReferenceArray<?> entries, long sequenceNumber)
+    {
+        return (int) sequenceNumber & (entries.length() - 1);
+    }
+
+    private static int capacityFor(long span)
+    {
+        int capacity = MIN_CAPACITY;
+        while(capacity < span && capacity < MAX_CAPACITY)
+        {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static final class Entry<V>
+    {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Entry> _removedUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(Entry.class, "_removed");
+
+        private final long _sequenceNumber;
+        private final V _value;
+        private volatile int _removed;
+
+        private Entry(final long sequenceNumber, final V value)
+        {
+            _sequenceNumber = sequenceNumber;
+            _value = value;
+        }
+
+        private boolean markRemoved()
+        {
+            return _removedUpdater.compareAndSet(this, 0, 1);
+        }
+
+        private boolean isRemoved()
+        {
+            return _removed != 0;
+        }
+    }
+}
@@ -48,6 +48,7 @@ import org.apache.qpid.exchange.ExchangeDefaults;
 import org.apache.qpid.pool.SuppressingInheritedAccessControlContextThreadFactory;
 import org.apache.qpid.server.configuration.BrokerProperties;
 import org.apache.qpid.server.configuration.IllegalConfigurationException;
+import org.apache.qpid.server.configuration.updater.Task;
 import org.apache.qpid.server.connection.ConnectionRegistry;
 import org.apache.qpid.server.connection.IConnectionRegistry;
 import org.apache.qpid.server.exchange.DefaultDestination;
@@ -100,6 +101,8 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     private static enum BlockingType { STORE, FILESYSTEM };
 
     private static final String USE_ASYNC_RECOVERY = "use_async_message_store_recovery";
+    private static final String RECOVERY_THREAD_COUNT = "virtualhost.recoveryThreadCount";
+    private static final String DELIVERY_THREAD_COUNT = "virtualhost.deliveryThreadCount";
 
     public static final String DEFAULT_DLQ_NAME_SUFFIX = "_DLQ";
     public static final String DLQ_ROUTING_KEY = "dlq";
@@ -112,6 +115,8 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
 
     private ScheduledThreadPoolExecutor _houseKeepingTasks;
 
+    private volatile DeliveryScheduler _deliveryScheduler;
+
     private final Broker<?> _broker;
 
     private final ConnectionRegistry _connectionRegistry;
@@ -177,7 +182,7 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     private MessageDestination _defaultDestination;
 
     private MessageStore _messageStore;
-    private MessageStoreRecoverer _messageStoreRecoverer;
+    private volatile MessageStoreRecoverer _messageStoreRecoverer;
     private final FileSystemSpaceChecker _fileSystemSpaceChecker = new FileSystemSpaceChecker();
     private int _fileSystemMaxUsagePercent;
 
@@ -301,6 +306,7 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
 
         _messageStore.addEventListener(this, Event.PERSISTENT_MESSAGE_SIZE_OVERFULL);
         _messageStore.addEventListener(this, Event.PERSISTENT_MESSAGE_SIZE_UNDERFULL);
+        _messageStore.addEventListener(this, Event.PERSISTENT_MESSAGE_STORE_FAILED);
 
         addChangeListener(new StoreUpdatingChangeListener());
 
@@ -561,6 +567,22 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         return _houseKeepingTasks.getActiveCount();
     }
 
+    @Override
+    public DeliveryScheduler getDeliveryScheduler()
+    {
+        return _deliveryScheduler;
+    }
+
+    private void shutdownDeliveryScheduler()
+    {
+        DeliveryScheduler deliveryScheduler = _deliveryScheduler;
+        if (deliveryScheduler != null)
+        {
+            _deliveryScheduler = null;
+            deliveryScheduler.shutdown();
+        }
+    }
+
     @Override
     public List<String> getEnabledConnectionValidators()
     {
@@ -739,6 +761,7 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         _dtxRegistry.close();
         closeMessageStore();
         shutdownHouseKeeping();
+        shutdownDeliveryScheduler();
 
         _eventLogger.message(VirtualHostMessages.CLOSED(getName()));
     }
@@ -894,6 +917,22 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
                 unblock(BlockingType.STORE);
                 _eventLogger.message(getMessageStoreLogSubject(), MessageStoreMessages.UNDERFULL());
                 break;
+            case PERSISTENT_MESSAGE_STORE_FAILED:
+                // the store can no longer persist messages, so the virtual host is of no further use until restarted
+                getTaskExecutor().submit(new Task<Void>()
+                {
+                    @Override
+                    public Void execute()
+                    {
+                        if (getState() == State.ACTIVE)
+                        {
+                            setState(State.ERRORED);
+                            reportIfError(getState());
+                        }
+                        return null;
+                    }
+                });
+                break;
         }
     }
 
@@ -1213,6 +1252,55 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         return getMessageDeliveryStatistics().getTotal();
     }
 
+    @Override
+    public long getRecoveredEntryCount()
+    {
+        MessageStoreRecoverer messageStoreRecoverer = _messageStoreRecoverer;
+        return messageStoreRecoverer == null ? 0L : messageStoreRecoverer.getRecoveredEntryCount();
+    }
+
+    @Override
+    public long getRecoveringQueueCount()
+    {
+        MessageStoreRecoverer messageStoreRecoverer = _messageStoreRecoverer;
+        return messageStoreRecoverer == null ? 0L : messageStoreRecoverer.getRecoveringQueueCount();
+    }
+
+    @Override
+    public long getRecoveryRate()
+    {
+        MessageStoreRecoverer messageStoreRecoverer = _messageStoreRecoverer;
+        return messageStoreRecoverer == null ? 0L : messageStoreRecoverer.getRecoveryRate();
+    }
+
+    @Override
+    public long getDeliveryActiveThreadCount()
+    {
+        DeliveryScheduler deliveryScheduler = _deliveryScheduler;
+        return deliveryScheduler == null ? 0L : deliveryScheduler.getActiveCount();
+    }
+
+    @Override
+    public long getDeliveryPendingTaskCount()
+    {
+        DeliveryScheduler deliveryScheduler = _deliveryScheduler;
+        return deliveryScheduler == null ? 0L : deliveryScheduler.getPendingCount();
+    }
+
+    @Override
+    public long getDeliveryAverageQueueingDelay()
+    {
+        DeliveryScheduler deliveryScheduler = _deliveryScheduler;
+        return deliveryScheduler == null ? 0L : deliveryScheduler.getAverageQueueingDelay();
+    }
+
+    @Override
+    public long getDeliveryMaximumQueueingDelay()
+    {
+        DeliveryScheduler deliveryScheduler = _deliveryScheduler;
+        return deliveryScheduler == null ? 0L : deliveryScheduler.getMaximumQueueingDelay();
+    }
+
     @Override
     public int getHousekeepingThreadCount()
     {
@@ -1224,6 +1312,7 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     {
         closeChildren();
         shutdownHouseKeeping();
+        shutdownDeliveryScheduler();
         closeMessageStore();
         setState(State.STOPPED);
     }
@@ -1451,6 +1540,12 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     {
         _houseKeepingTasks = new ScheduledThreadPoolExecutor(getHousekeepingThreadCount(), new SuppressingInheritedAccessControlContextThreadFactory());
 
+        int deliveryThreadCount = getContextValue(Integer.class, DELIVERY_THREAD_COUNT);
+        if (deliveryThreadCount > 0)
+        {
+            _deliveryScheduler = new DeliveryScheduler(getName(), deliveryThreadCount);
+        }
+
         MessageStore messageStore = getMessageStore();
         messageStore.openMessageStore(this);
 
@@ -1472,7 +1567,8 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
 
         if(getContextValue(Boolean.class, USE_ASYNC_RECOVERY))
         {
-            _messageStoreRecoverer = new AsynchronousMessageStoreRecoverer();
+            _messageStoreRecoverer =
+                    new AsynchronousMessageStoreRecoverer(getContextValue(Integer.class, RECOVERY_THREAD_COUNT));
         }
         else
         {
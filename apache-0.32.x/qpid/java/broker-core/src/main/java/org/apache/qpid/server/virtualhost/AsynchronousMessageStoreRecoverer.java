@@ -21,14 +21,14 @@
 package org.apache.qpid.server.virtualhost;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -56,15 +56,29 @@ import org.apache.qpid.server.txn.ServerTransaction;
 import org.apache.qpid.transport.Xid;
 import org.apache.qpid.transport.util.Functions;
 
+/**
+ * Recovers the entries of each queue as a separate task, so that queues are rebuilt in parallel and the
+ * virtual host can become active before recovery is complete.  The message store is walked a queue at a time,
+ * and only the messages found on queues are read from it, as each is first met.
+ */
 public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
 {
     private static final Logger _logger = Logger.getLogger(AsynchronousMessageStoreRecoverer.class);
+    private static final int MESSAGE_LOCK_STRIPES = 64;
+
+    private final int _threadCount;
+    private final RecoveryProgress _progress = new RecoveryProgress();
     private AsynchronousRecoverer _asynchronousRecoverer;
 
+    public AsynchronousMessageStoreRecoverer(final int threadCount)
+    {
+        _threadCount = threadCount;
+    }
+
     @Override
     public void recover(final VirtualHostImpl virtualHost)
     {
-        _asynchronousRecoverer = new AsynchronousRecoverer(virtualHost);
+        _asynchronousRecoverer = new AsynchronousRecoverer(virtualHost, _threadCount, _progress);
 
         _asynchronousRecoverer.recover();
     }
@@ -78,6 +92,24 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         }
     }
 
+    @Override
+    public long getRecoveredEntryCount()
+    {
+        return _progress.getRecoveredEntryCount();
+    }
+
+    @Override
+    public int getRecoveringQueueCount()
+    {
+        return _progress.getRecoveringQueueCount();
+    }
+
+    @Override
+    public long getRecoveryRate()
+    {
+        return _progress.getRecoveryRate();
+    }
+
     private static class AsynchronousRecoverer
     {
         public static final int THREAD_POOL_SHUTDOWN_TIMEOUT = 5000;
@@ -88,13 +120,24 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         private final long _maxMessageId;
         private final Set<AMQQueue<?>> _recoveringQueues = new CopyOnWriteArraySet<>();
         private final AtomicBoolean _recoveryComplete = new AtomicBoolean();
-        private final Map<Long, MessageReference<? extends ServerMessage<?>>> _recoveredMessages = new HashMap<>();
-        private final ExecutorService _queueRecoveryExecutor = Executors.newCachedThreadPool();
+        private final ConcurrentMap<Long, MessageReference<? extends ServerMessage<?>>> _recoveredMessages =
+                new ConcurrentHashMap<>();
+        private final Object[] _messageLocks = new Object[MESSAGE_LOCK_STRIPES];
+        private final ExecutorService _queueRecoveryExecutor;
+        private final RecoveryProgress _progress;
         private AtomicBoolean _continueRecovery = new AtomicBoolean(true);
 
-        private AsynchronousRecoverer(final VirtualHostImpl<?, ?, ?> virtualHost)
+        private AsynchronousRecoverer(final VirtualHostImpl<?, ?, ?> virtualHost,
+                                      final int threadCount,
+                                      final RecoveryProgress progress)
         {
             _virtualHost = virtualHost;
+            _progress = progress;
+            _queueRecoveryExecutor = new ForkJoinPool(Math.max(threadCount, 1));
+            for (int i = 0; i < _messageLocks.length; i++)
+            {
+                _messageLocks[i] = new Object();
+            }
             _eventLogger = virtualHost.getEventLogger();
             _store = virtualHost.getMessageStore();
             _logSubject = new MessageStoreLogSubject(virtualHost.getName(), _store.getClass().getSimpleName());
@@ -106,6 +149,7 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
 
         public void recover()
         {
+            _progress.start(_recoveringQueues.size());
             getStore().visitDistributedTransactions(new DistributedTransactionVisitor());
 
             for(AMQQueue<?> queue : _recoveringQueues)
@@ -149,6 +193,7 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
             queue.completeRecovery();
 
             _recoveringQueues.remove(queue);
+            _progress.queueRecovered();
             if (_recoveringQueues.isEmpty() && _recoveryComplete.compareAndSet(false, true))
             {
                 completeRecovery();
@@ -157,12 +202,13 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
 
         private synchronized void completeRecovery()
         {
-            // at this point nothing should be writing to the map of recovered messages
-            for (Map.Entry<Long,MessageReference<? extends ServerMessage<?>>> entry : _recoveredMessages.entrySet())
+            // at this point nothing should be writing to the map of recovered messages, so its keys can be
+            // consulted directly rather than copied; the references themselves are no longer needed
+            for (MessageReference<? extends ServerMessage<?>> ref : _recoveredMessages.values())
             {
-                entry.getValue().release();
-                entry.setValue(null); // free up any memory associated with the reference object
+                ref.release();
             }
+
             final List<StoredMessage<?>> messagesToDelete = new ArrayList<>();
             getStore().visitMessages(new MessageHandler()
             {
@@ -178,6 +224,8 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
                     return _continueRecovery.get() && messageNumber <_maxMessageId-1;
                 }
             });
+            _recoveredMessages.clear(); // free up any memory associated with the reference objects
+
             for(StoredMessage<?> storedMessage : messagesToDelete)
             {
                 if (_continueRecovery.get())
@@ -190,27 +238,36 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
             }
 
             messagesToDelete.clear();
-            _recoveredMessages.clear();
+            _progress.complete();
         }
 
-        private synchronized ServerMessage<?> getRecoveredMessage(final long messageId)
+        private ServerMessage<?> getRecoveredMessage(final long messageId)
         {
             MessageReference<? extends ServerMessage<?>> ref = _recoveredMessages.get(messageId);
             if (ref == null)
             {
-                StoredMessage<?> message = _store.getMessage(messageId);
-                if(message != null)
+                // a message on several queues must only ever be recovered once, but queues recovering
+                // different messages need not wait for one another
+                synchronized (_messageLocks[(int) (messageId & (MESSAGE_LOCK_STRIPES - 1))])
                 {
-                    StorableMessageMetaData metaData = message.getMetaData();
+                    ref = _recoveredMessages.get(messageId);
+                    if (ref == null)
+                    {
+                        StoredMessage<?> message = _store.getMessage(messageId);
+                        if(message != null)
+                        {
+                            StorableMessageMetaData metaData = message.getMetaData();
 
-                    @SuppressWarnings("rawtypes")
-                    MessageMetaDataType type = metaData.getType();
+                            @SuppressWarnings("rawtypes")
+                            MessageMetaDataType type = metaData.getType();
 
-                    @SuppressWarnings("unchecked")
-                    ServerMessage<?> serverMessage = type.createMessage(message);
+                            @SuppressWarnings("unchecked")
+                            ServerMessage<?> serverMessage = type.createMessage(message);
 
-                    ref = serverMessage.newReference();
-                    _recoveredMessages.put(messageId, ref);
+                            ref = serverMessage.newReference();
+                            _recoveredMessages.put(messageId, ref);
+                        }
+                    }
                 }
             }
             return ref == null ? null : ref.getMessage();
@@ -443,6 +500,7 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
 
                         _queue.recover(message);
                         _recoveredCount++;
+                        _progress.entryRecovered();
                     }
                     else
                     {
@@ -0,0 +1,165 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.virtualhost;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import org.apache.qpid.pool.SuppressingInheritedAccessControlContextThreadFactory;
+
+/**
+ * The pool of threads on which the queues of one virtual host deliver messages asynchronously, so that a
+ * virtual host whose deliveries are slow (for instance because its store is) cannot hold up the deliveries of
+ * the others.
+ * <p>
+ * Tasks are run in the order they are submitted.  Each queue has at most one pending task per queue runner,
+ * and a runner gives up its thread after a bounded number of deliveries and resubmits itself, so busy queues
+ * are serviced round-robin.
+ */
+public class DeliveryScheduler implements Executor
+{
+    private static final Logger LOGGER = Logger.getLogger(DeliveryScheduler.class);
+
+    private static final int SHUTDOWN_TIMEOUT = 5;
+
+    /** Weight given to each new sample of the queueing delay in its moving average, as a power of two */
+    private static final int DELAY_AVERAGE_SHIFT = 4;
+
+    private final ThreadPoolExecutor _executor;
+    private final AtomicLong _averageQueueingDelay = new AtomicLong();
+    private final AtomicLong _maximumQueueingDelay = new AtomicLong();
+
+    public DeliveryScheduler(final String virtualHostName, final int threadCount)
+    {
+        final ThreadFactory threadFactory = new SuppressingInheritedAccessControlContextThreadFactory();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        _executor = new ThreadPoolExecutor(threadCount,
+                                           threadCount,
+                                           0L,
+                                           TimeUnit.MILLISECONDS,
+                                           new LinkedBlockingQueue<Runnable>(),
+                                           new ThreadFactory()
+                                           {
+                                               @Override
+                                               public Thread newThread(final Runnable runnable)
+                                               {
+                                                   Thread thread = threadFactory.newThread(runnable);
+                                                   thread.setName("Delivery : " + virtualHostName + " - "
+                                                                  + threadNumber.incrementAndGet());
+                                                   return thread;
+                                               }
+                                           });
+    }
+
+    @Override
+    public void execute(final Runnable task)
+    {
+        final long submitted = System.nanoTime();
+        _executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                recordQueueingDelay(System.nanoTime() - submitted);
+                task.run();
+            }
+        });
+    }
+
+    private void recordQueueingDelay(final long delay)
+    {
+        long average;
+        do
+        {
+            average = _averageQueueingDelay.get();
+        }
+        while (!_averageQueueingDelay.compareAndSet(average,
+                                                    average + ((delay - average) >> DELAY_AVERAGE_SHIFT)));
+
+        long maximum;
+        while (delay > (maximum = _maximumQueueingDelay.get())
+               && !_maximumQueueingDelay.compareAndSet(maximum, delay))
+        {
+            // retry
+        }
+    }
+
+    public void shutdown()
+    {
+        _executor.shutdown();
+        try
+        {
+            if (!_executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS))
+            {
+                _executor.shutdownNow();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            LOGGER.warn("Interrupted during delivery scheduler shutdown:", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getThreadCount()
+    {
+        return _executor.getCorePoolSize();
+    }
+
+    /**
+     * @return the number of threads currently running deliveries
+     */
+    public int getActiveCount()
+    {
+        return _executor.getActiveCount();
+    }
+
+    /**
+     * @return the number of tasks waiting for a thread
+     */
+    public int getPendingCount()
+    {
+        return _executor.getQueue().size();
+    }
+
+    /**
+     * @return a moving average, in microseconds, of the time tasks wait for a thread
+     */
+    public long getAverageQueueingDelay()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(_averageQueueingDelay.get());
+    }
+
+    /**
+     * @return the longest time, in microseconds, that any task has waited for a thread
+     */
+    public long getMaximumQueueingDelay()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(_maximumQueueingDelay.get());
+    }
+}
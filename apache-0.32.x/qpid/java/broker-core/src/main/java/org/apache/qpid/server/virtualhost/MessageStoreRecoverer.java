@@ -29,4 +29,19 @@ public interface MessageStoreRecoverer
      * completed, this method call has no effect.
      */
     void cancel();
+
+    /**
+     * @return the number of queue entries recovered so far
+     */
+    long getRecoveredEntryCount();
+
+    /**
+     * @return the number of queues whose entries have yet to be fully recovered
+     */
+    int getRecoveringQueueCount();
+
+    /**
+     * @return the number of queue entries recovered per second
+     */
+    long getRecoveryRate();
 }
@@ -0,0 +1,83 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.virtualhost;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps count of how far a {@link MessageStoreRecoverer} has got, so that recovery of a large store can be
+ * watched while it is under way.
+ */
+final class RecoveryProgress
+{
+    private final AtomicLong _recoveredEntryCount = new AtomicLong();
+    private final AtomicInteger _recoveringQueueCount = new AtomicInteger();
+    private volatile long _startTime;
+    private volatile long _endTime;
+
+    void start(final int queueCount)
+    {
+        _recoveringQueueCount.set(queueCount);
+        _startTime = System.currentTimeMillis();
+    }
+
+    void entryRecovered()
+    {
+        _recoveredEntryCount.incrementAndGet();
+    }
+
+    void queueRecovered()
+    {
+        _recoveringQueueCount.decrementAndGet();
+    }
+
+    void complete()
+    {
+        _recoveringQueueCount.set(0);
+        _endTime = System.currentTimeMillis();
+    }
+
+    long getRecoveredEntryCount()
+    {
+        return _recoveredEntryCount.get();
+    }
+
+    int getRecoveringQueueCount()
+    {
+        return _recoveringQueueCount.get();
+    }
+
+    /**
+     * @return the average number of queue entries recovered per second, over the whole of the recovery once
+     * it has completed
+     */
+    long getRecoveryRate()
+    {
+        long startTime = _startTime;
+        if (startTime == 0L)
+        {
+            return 0L;
+        }
+        long endTime = _endTime == 0L ? System.currentTimeMillis() : _endTime;
+        return _recoveredEntryCount.get() * 1000L / Math.max(endTime - startTime, 1L);
+    }
+}
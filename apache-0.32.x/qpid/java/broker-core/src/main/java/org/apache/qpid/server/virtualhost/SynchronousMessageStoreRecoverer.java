@@ -58,6 +58,8 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
 {
     private static final Logger _logger = Logger.getLogger(SynchronousMessageStoreRecoverer.class);
 
+    private final RecoveryProgress _progress = new RecoveryProgress();
+
     @Override
     public void recover(VirtualHostImpl virtualHost)
     {
@@ -71,17 +73,19 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
 
 
         eventLogger.message(logSubject, MessageStoreMessages.RECOVERY_START());
+        _progress.start(virtualHost.getQueues().size());
 
         store.visitMessages(new MessageVisitor(recoveredMessages, unusedMessages));
 
         eventLogger.message(logSubject, TransactionLogMessages.RECOVERY_START(null, false));
         store.visitMessageInstances(new MessageInstanceVisitor(virtualHost, store, queueRecoveries,
-                                                               recoveredMessages, unusedMessages));
+                                                               recoveredMessages, unusedMessages, _progress));
         for(Map.Entry<String,Integer> entry : queueRecoveries.entrySet())
         {
             eventLogger.message(logSubject, TransactionLogMessages.RECOVERED(entry.getValue(), entry.getKey()));
             eventLogger.message(logSubject, TransactionLogMessages.RECOVERY_COMPLETE(entry.getKey(), true));
             virtualHost.getQueue(entry.getKey()).completeRecovery();
+            _progress.queueRecovered();
         }
 
         Collection<AMQQueue> allQueues = virtualHost.getQueues();
@@ -91,6 +95,7 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
             if(!queueRecoveries.containsKey(q.getName()))
             {
                 q.completeRecovery();
+                _progress.queueRecovered();
             }
         }
 
@@ -109,7 +114,7 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         eventLogger.message(logSubject,
                              MessageStoreMessages.RECOVERED(recoveredMessages.size() - unusedMessages.size()));
         eventLogger.message(logSubject, MessageStoreMessages.RECOVERY_COMPLETE());
-
+        _progress.complete();
 
     }
 
@@ -119,6 +124,24 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         // No-op
     }
 
+    @Override
+    public long getRecoveredEntryCount()
+    {
+        return _progress.getRecoveredEntryCount();
+    }
+
+    @Override
+    public int getRecoveringQueueCount()
+    {
+        return _progress.getRecoveringQueueCount();
+    }
+
+    @Override
+    public long getRecoveryRate()
+    {
+        return _progress.getRecoveryRate();
+    }
+
     private static class MessageVisitor implements MessageHandler
     {
 
@@ -158,18 +181,21 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         private final Map<String, Integer> _queueRecoveries;
         private final Map<Long, ServerMessage<?>> _recoveredMessages;
         private final Map<Long, StoredMessage<?>> _unusedMessages;
+        private final RecoveryProgress _progress;
 
         private MessageInstanceVisitor(final VirtualHostImpl virtualHost,
                                        final MessageStore store,
                                        final Map<String, Integer> queueRecoveries,
                                        final Map<Long, ServerMessage<?>> recoveredMessages,
-                                       final Map<Long, StoredMessage<?>> unusedMessages)
+                                       final Map<Long, StoredMessage<?>> unusedMessages,
+                                       final RecoveryProgress progress)
         {
             _virtualHost = virtualHost;
             _store = store;
             _queueRecoveries = queueRecoveries;
             _recoveredMessages = recoveredMessages;
             _unusedMessages = unusedMessages;
+            _progress = progress;
         }
 
         @Override
@@ -196,6 +222,7 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
                     }
 
                     queue.recover(message);
+                    _progress.entryRecovered();
 
                     _queueRecoveries.put(queueName, ++count);
                 }
@@ -99,6 +99,12 @@ public interface VirtualHostImpl< X extends VirtualHostImpl<X,Q,E>, Q extends AM
 
     int getHouseKeepingActiveCount();
 
+    /**
+     * @return the scheduler for the asynchronous deliveries of this virtual host's queues, or null if they
+     * share the broker wide pool
+     */
+    DeliveryScheduler getDeliveryScheduler();
+
     DtxRegistry getDtxRegistry();
 
     LinkRegistry getLinkRegistry(String remoteContainerId);
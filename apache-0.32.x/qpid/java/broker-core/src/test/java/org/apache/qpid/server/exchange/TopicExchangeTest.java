@@ -467,6 +467,33 @@ public class TopicExchangeTest extends QpidTestCase
         _exchange.delete();
     }
 
+    public void testRouteFollowsBindingChangesAfterCaching() throws Exception
+    {
+        AMQQueue<?> queue1 = createQueue("queue1");
+        AMQQueue<?> queue2 = createQueue("queue2");
+        createBinding(UUID.randomUUID(), "a.*", queue1, _exchange, null);
+
+        Assert.assertEquals(1, routeMessage("a.b", 0l));
+        Assert.assertEquals("Route should have been cached", 1, _exchange.getRoutingKeyCacheCount());
+
+        createBinding(UUID.randomUUID(), "a.#", queue2, _exchange, null);
+        Assert.assertEquals("Binding should have invalidated the cache", 0, _exchange.getRoutingKeyCacheCount());
+        Assert.assertEquals(2, routeMessage("a.b", 1l));
+        Assert.assertEquals(2, routeMessage("a.b", 2l));
+
+        _exchange.deleteBinding("a.*", queue1);
+        Assert.assertEquals(1, routeMessage("a.b", 3l));
+        Assert.assertEquals(3, queue1.getQueueDepthMessages());
+        Assert.assertEquals(3, queue2.getQueueDepthMessages());
+
+        _exchange.deleteBinding("a.#", queue2);
+        Assert.assertEquals(0, routeMessage("a.b", 4l));
+
+        createBinding(UUID.randomUUID(), "a.*", queue1, _exchange, null);
+        Assert.assertEquals(1, routeMessage("a.b", 5l));
+        Assert.assertEquals(4, queue1.getQueueDepthMessages());
+    }
+
     private BindingImpl createBinding(UUID id,
                                       String bindingKey,
                                       AMQQueue queue,
@@ -0,0 +1,115 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ *
+ */
+package org.apache.qpid.server.exchange.topic;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class TopicParserTest extends QpidTestCase
+{
+    private TopicParser _parser;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _parser = new TopicParser();
+    }
+
+    public void testParseWithNoBindings()
+    {
+        assertTrue(_parser.parse("a.b").isEmpty());
+    }
+
+    public void testRemovedBindingNoLongerMatchesAfterCompaction()
+    {
+        TopicMatcherResult ab = new TopicMatcherResult() {};
+        TopicMatcherResult star = new TopicMatcherResult() {};
+        _parser.addBinding("a.b", ab);
+        _parser.addBinding("a.*", star);
+
+        _parser.removeBinding("a.b");
+        assertEquals("Removed binding should only be counted", 1, _parser.getRemovedBindingCount());
+
+        _parser.compact();
+        assertEquals(0, _parser.getRemovedBindingCount());
+
+        Collection<TopicMatcherResult> results = _parser.parse("a.b");
+        assertEquals(1, results.size());
+        assertTrue(results.contains(star));
+        assertTrue(_parser.parse("b.c").isEmpty());
+    }
+
+    public void testRemovingUnknownBindingIsIgnored()
+    {
+        _parser.addBinding("a.b", new TopicMatcherResult() {});
+        _parser.removeBinding("x.y");
+        assertEquals(0, _parser.getRemovedBindingCount());
+    }
+
+    public void testChurnTriggersCompaction()
+    {
+        Map<String, TopicMatcherResult> live = new HashMap<String, TopicMatcherResult>();
+        for(int i = 0; i < 10; i++)
+        {
+            TopicMatcherResult result = new TopicMatcherResult() {};
+            _parser.addBinding("live." + i + ".#", result);
+            live.put("live." + i + ".x", result);
+        }
+
+        for(int i = 0; i < TopicParser.MINIMUM_COMPACTION_THRESHOLD - 1; i++)
+        {
+            _parser.addBinding("churn." + i, new TopicMatcherResult() {});
+            _parser.removeBinding("churn." + i);
+        }
+        assertEquals(TopicParser.MINIMUM_COMPACTION_THRESHOLD - 1, _parser.getRemovedBindingCount());
+
+        _parser.addBinding("churn.last", new TopicMatcherResult() {});
+        _parser.removeBinding("churn.last");
+        assertEquals("Threshold should have triggered compaction", 0, _parser.getRemovedBindingCount());
+
+        for(Map.Entry<String, TopicMatcherResult> entry : live.entrySet())
+        {
+            Collection<TopicMatcherResult> results = _parser.parse(entry.getKey());
+            assertEquals(1, results.size());
+            assertTrue(results.contains(entry.getValue()));
+        }
+        assertTrue(_parser.parse("churn.1").isEmpty());
+    }
+
+    public void testReaddingBindingKeyReplacesResult()
+    {
+        TopicMatcherResult first = new TopicMatcherResult() {};
+        TopicMatcherResult second = new TopicMatcherResult() {};
+        _parser.addBinding("a.#", first);
+        _parser.addBinding("a.#", second);
+        assertEquals(1, _parser.getRemovedBindingCount());
+
+        _parser.compact();
+
+        Collection<TopicMatcherResult> results = _parser.parse("a.b.c");
+        assertEquals(1, results.size());
+        assertTrue(results.contains(second));
+    }
+}
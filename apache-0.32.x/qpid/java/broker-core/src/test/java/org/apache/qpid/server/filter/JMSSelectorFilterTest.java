@@ -18,8 +18,17 @@
  */
 package org.apache.qpid.server.filter;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
 import junit.framework.TestCase;
 
+import org.apache.qpid.server.message.AMQMessageHeader;
+
 public class JMSSelectorFilterTest extends TestCase
 {
     public void testEqualsAndHashCodeUsingSelectorString() throws Exception
@@ -37,6 +46,99 @@ public class JMSSelectorFilterTest extends TestCase
         assertNotEqual(filter1, differentFilter);
     }
 
+    public void testFiltersWithSameSelectorShareParsedSelector() throws Exception
+    {
+        JMSSelectorFilter filter1 = new JMSSelectorFilter(new String("colour = 'red' AND size > 3"));
+        JMSSelectorFilter filter2 = new JMSSelectorFilter(new String("colour = 'red' AND size > 3"));
+
+        assertSame(filter1.getMatcher(), filter2.getMatcher());
+    }
+
+    public void testLikeMatching() throws Exception
+    {
+        Filterable message = createMessage("name", "hello world");
+
+        assertTrue(new JMSSelectorFilter("name LIKE 'hello world'").matches(message));
+        assertTrue(new JMSSelectorFilter("name LIKE 'hello%'").matches(message));
+        assertTrue(new JMSSelectorFilter("name LIKE '%world'").matches(message));
+        assertTrue(new JMSSelectorFilter("name LIKE '%o w%'").matches(message));
+        assertTrue(new JMSSelectorFilter("name LIKE 'h%d'").matches(message));
+        assertTrue(new JMSSelectorFilter("name LIKE 'h_llo%'").matches(message));
+        assertFalse(new JMSSelectorFilter("name LIKE 'hello'").matches(message));
+        assertFalse(new JMSSelectorFilter("name LIKE 'world%'").matches(message));
+        assertFalse(new JMSSelectorFilter("name LIKE 'hello!%' ESCAPE '!'").matches(message));
+    }
+
+    public void testNumericComparisonAcrossTypes() throws Exception
+    {
+        Filterable intMessage = createMessage("size", 5);
+        assertTrue(new JMSSelectorFilter("size > 4").matches(intMessage));
+        assertTrue(new JMSSelectorFilter("size = 5.0").matches(intMessage));
+        assertTrue(new JMSSelectorFilter("size < 9223372036854775807").matches(intMessage));
+        assertTrue(new JMSSelectorFilter("size > -3").matches(intMessage));
+        assertTrue(new JMSSelectorFilter("size = 2 + 3").matches(intMessage));
+
+        Filterable doubleMessage = createMessage("size", 2.5d);
+        assertTrue(new JMSSelectorFilter("size > 2").matches(doubleMessage));
+        assertFalse(new JMSSelectorFilter("size >= 3").matches(doubleMessage));
+    }
+
+    public void testUnknownOperandsOfLogicalOperators() throws Exception
+    {
+        Filterable message = createMessage("size", 5);
+
+        assertTrue(new JMSSelectorFilter("missing > 1 OR size = 5").matches(message));
+        assertTrue(new JMSSelectorFilter("size = 5 OR missing > 1").matches(message));
+        assertFalse(new JMSSelectorFilter("missing > 1 OR size = 6").matches(message));
+        assertFalse(new JMSSelectorFilter("NOT (missing > 1 OR size = 6)").matches(message));
+        assertTrue(new JMSSelectorFilter("NOT (missing > 1 AND size = 6)").matches(message));
+        assertTrue(new JMSSelectorFilter("NOT (size = 6 AND missing > 1)").matches(message));
+    }
+
+    public void testConstantSelectors() throws Exception
+    {
+        Filterable message = createMessage("size", 5);
+
+        assertTrue(new JMSSelectorFilter("1 = 1").matches(message));
+        assertFalse(new JMSSelectorFilter("1 = 2").matches(message));
+        assertTrue(new JMSSelectorFilter("1 = 2 OR size = 5").matches(message));
+        assertFalse(new JMSSelectorFilter("1 = 2 AND size = 5").matches(message));
+    }
+
+    public void testConstantDivisionByZero() throws Exception
+    {
+        Filterable message = createMessage("size", 5);
+
+        assertTrue(new JMSSelectorFilter("size = 5 OR size = 1 / 0").matches(message));
+        assertFalse(new JMSSelectorFilter("size = 1 / 0").matches(message));
+        assertFalse(new JMSSelectorFilter("size = 5 % 0").matches(message));
+    }
+
+    public void testPropertyValueTest() throws Exception
+    {
+        assertEquals(Collections.singleton("EU"),
+                     new JMSSelectorFilter("region = 'EU'").getPropertyValueTest().getValues());
+        assertEquals(new HashSet<String>(Arrays.asList("EU", "US")),
+                     new JMSSelectorFilter("region IN ('EU', 'US')").getPropertyValueTest().getValues());
+        assertEquals(new HashSet<String>(Arrays.asList("EU", "US")),
+                     new JMSSelectorFilter("region = 'EU' OR region = 'US'").getPropertyValueTest().getValues());
+
+        assertNull(new JMSSelectorFilter("region = 'EU' OR zone = 'US'").getPropertyValueTest());
+        assertNull(new JMSSelectorFilter("region = 'EU' AND zone = 'US'").getPropertyValueTest());
+        assertNull(new JMSSelectorFilter("region NOT IN ('EU')").getPropertyValueTest());
+        assertNull(new JMSSelectorFilter("size = 5").getPropertyValueTest());
+    }
+
+    private Filterable createMessage(String name, Object value)
+    {
+        AMQMessageHeader header = mock(AMQMessageHeader.class);
+        when(header.getHeader(name)).thenReturn(value);
+        when(header.containsHeader(name)).thenReturn(true);
+        Filterable message = mock(Filterable.class);
+        when(message.getMessageHeader()).thenReturn(header);
+        return message;
+    }
+
     private void assertEqualsAndHashCodeMatch(JMSSelectorFilter filter1, JMSSelectorFilter filter2)
     {
         String message = filter1 + " and " + filter2 + " should be equal";
@@ -0,0 +1,203 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.message;
+
+import static org.mockito.Mockito.mock;
+
+import org.apache.qpid.server.plugin.MessageConverter;
+import org.apache.qpid.server.store.StorableMessageMetaData;
+import org.apache.qpid.server.store.StoredMessage;
+import org.apache.qpid.server.virtualhost.VirtualHostImpl;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class MessageConversionCacheTest extends QpidTestCase
+{
+    private VirtualHostImpl _virtualHost;
+    private TestConverter _converter;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _virtualHost = mock(VirtualHostImpl.class);
+        _converter = new TestConverter();
+    }
+
+    public void testConversionReusedWhileMessageReferenced()
+    {
+        MessageConversionCache cache = new MessageConversionCache(1000L);
+        SourceMessage message = new SourceMessage(100L);
+        MessageReference reference = message.newReference();
+
+        ConvertedMessage first = cache.convert(message, ConvertedMessage.class, _converter, _virtualHost);
+        ConvertedMessage second = cache.convert(message, ConvertedMessage.class, _converter, _virtualHost);
+
+        assertSame("Converted form should be reused", first, second);
+        assertEquals("Unexpected number of conversions", 1, _converter.getConversionCount());
+        assertEquals("Unexpected used size", 100L, cache.getUsedSize());
+        assertEquals("Unexpected hit count", 1L, cache.getHitCount());
+        assertEquals("Unexpected miss count", 1L, cache.getMissCount());
+
+        reference.release();
+
+        assertEquals("Size should be released when the message is deleted", 0L, cache.getUsedSize());
+    }
+
+    public void testConversionNotKeptBeyondBudget()
+    {
+        MessageConversionCache cache = new MessageConversionCache(150L);
+        SourceMessage message1 = new SourceMessage(100L);
+        SourceMessage message2 = new SourceMessage(100L);
+        MessageReference reference1 = message1.newReference();
+        MessageReference reference2 = message2.newReference();
+
+        cache.convert(message1, ConvertedMessage.class, _converter, _virtualHost);
+        ConvertedMessage first = cache.convert(message2, ConvertedMessage.class, _converter, _virtualHost);
+        ConvertedMessage second = cache.convert(message2, ConvertedMessage.class, _converter, _virtualHost);
+
+        assertNotSame("Conversion over budget should not be kept", first, second);
+        assertEquals("Unexpected number of conversions", 3, _converter.getConversionCount());
+        assertEquals("Unexpected used size", 100L, cache.getUsedSize());
+
+        reference1.release();
+        cache.convert(message2, ConvertedMessage.class, _converter, _virtualHost);
+        assertEquals("Budget freed by deleted message should be reused", 100L, cache.getUsedSize());
+
+        reference2.release();
+        assertEquals("Unexpected used size", 0L, cache.getUsedSize());
+    }
+
+    public void testDisabledCacheAlwaysConverts()
+    {
+        MessageConversionCache cache = new MessageConversionCache(0L);
+        SourceMessage message = new SourceMessage(100L);
+        message.newReference();
+
+        ConvertedMessage first = cache.convert(message, ConvertedMessage.class, _converter, _virtualHost);
+        ConvertedMessage second = cache.convert(message, ConvertedMessage.class, _converter, _virtualHost);
+
+        assertNotSame("Disabled cache should not keep conversions", first, second);
+        assertEquals("Unexpected used size", 0L, cache.getUsedSize());
+    }
+
+    public void testConversionOfDeletedMessageNotKept()
+    {
+        MessageConversionCache cache = new MessageConversionCache(1000L);
+        SourceMessage message = new SourceMessage(100L);
+        message.newReference().release();
+
+        cache.convert(message, ConvertedMessage.class, _converter, _virtualHost);
+
+        assertEquals("Conversion of a deleted message should not be kept", 0L, cache.getUsedSize());
+    }
+
+    private static class TestMessage<X extends TestMessage<X>> extends AbstractServerMessageImpl<X, StorableMessageMetaData>
+    {
+        private final long _size;
+
+        TestMessage(final long size)
+        {
+            super(mock(StoredMessage.class), null);
+            _size = size;
+        }
+
+        @Override
+        public String getInitialRoutingAddress()
+        {
+            return null;
+        }
+
+        @Override
+        public AMQMessageHeader getMessageHeader()
+        {
+            return null;
+        }
+
+        @Override
+        public long getSize()
+        {
+            return _size;
+        }
+
+        @Override
+        public long getExpiration()
+        {
+            return 0;
+        }
+
+        @Override
+        public long getArrivalTime()
+        {
+            return 0;
+        }
+    }
+
+    private static class SourceMessage extends TestMessage<SourceMessage>
+    {
+        SourceMessage(final long size)
+        {
+            super(size);
+        }
+    }
+
+    private static class ConvertedMessage extends TestMessage<ConvertedMessage>
+    {
+        ConvertedMessage(final long size)
+        {
+            super(size);
+        }
+    }
+
+    private static class TestConverter implements MessageConverter<SourceMessage, ConvertedMessage>
+    {
+        private int _conversionCount;
+
+        @Override
+        public Class<SourceMessage> getInputClass()
+        {
+            return SourceMessage.class;
+        }
+
+        @Override
+        public Class<ConvertedMessage> getOutputClass()
+        {
+            return ConvertedMessage.class;
+        }
+
+        @Override
+        public ConvertedMessage convert(final SourceMessage message, final VirtualHostImpl vhost)
+        {
+            _conversionCount++;
+            return new ConvertedMessage(message.getSize());
+        }
+
+        @Override
+        public String getType()
+        {
+            return "Test";
+        }
+
+        int getConversionCount()
+        {
+            return _conversionCount;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import static org.mockito.Matchers.contains;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -35,6 +36,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -50,6 +52,8 @@ import org.apache.qpid.server.binding.BindingImpl;
 import org.apache.qpid.server.consumer.ConsumerImpl;
 import org.apache.qpid.server.consumer.MockConsumer;
 import org.apache.qpid.server.exchange.DirectExchange;
+import org.apache.qpid.server.filter.FilterManager;
+import org.apache.qpid.server.filter.JMSSelectorFilter;
 import org.apache.qpid.server.message.AMQMessageHeader;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.MessageInstance;
@@ -61,6 +65,9 @@ import org.apache.qpid.server.model.Queue;
 import org.apache.qpid.server.model.QueueNotificationListener;
 import org.apache.qpid.server.model.UUIDGenerator;
 import org.apache.qpid.server.queue.AbstractQueue.QueueEntryFilter;
+import org.apache.qpid.server.store.OffHeapContent;
+import org.apache.qpid.server.store.OffHeapContentArea;
+import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.store.TransactionLogResource;
 import org.apache.qpid.server.util.Action;
 import org.apache.qpid.server.util.BrokerTestHelper;
@@ -437,6 +444,143 @@ abstract class AbstractQueueTestBase extends QpidTestCase
                    consumer2.getQueueContext().getReleasedEntry());
     }
 
+    public void testConsumersWithSelectorsOnSameProperty() throws Exception
+    {
+        ServerMessage messageEU = createMessage(24l, (byte) 4, Collections.<String,Object>singletonMap("region", "EU"), 0l);
+        ServerMessage messageUS = createMessage(25l, (byte) 4, Collections.<String,Object>singletonMap("region", "US"), 0l);
+        ServerMessage messageAsia = createMessage(26l, (byte) 4, Collections.<String,Object>singletonMap("region", "ASIA"), 0l);
+
+        MockConsumer targetEU = new MockConsumer();
+        MockConsumer targetAmericasOrEU = new MockConsumer();
+        MockConsumer targetAsia = new MockConsumer();
+
+        _queue.addConsumer(targetEU, createSelectorFilterManager("region = 'EU'"), messageEU.getClass(), "eu",
+                           EnumSet.noneOf(ConsumerImpl.Option.class));
+        _queue.addConsumer(targetAmericasOrEU, createSelectorFilterManager("region IN ('US', 'EU')"),
+                           messageEU.getClass(), "americasOrEU", EnumSet.noneOf(ConsumerImpl.Option.class));
+        _queue.addConsumer(targetAsia, createSelectorFilterManager("region = 'ASIA'"), messageEU.getClass(), "asia",
+                           EnumSet.noneOf(ConsumerImpl.Option.class));
+
+        assertEquals("Selectors should share one indexed property",
+                     1, ((AbstractQueue<?>) _queue).getSelectorIndex().getPropertyCount());
+
+        _queue.enqueue(messageEU, null);
+        _queue.enqueue(messageUS, null);
+        _queue.enqueue(messageAsia, null);
+
+        Thread.sleep(150);  // Work done by QueueRunner Thread
+
+        assertEquals(Collections.singleton(messageEU), getMessages(targetEU));
+        assertEquals(new HashSet<ServerMessage>(Arrays.asList(messageEU, messageUS)), getMessages(targetAmericasOrEU));
+        assertEquals(Collections.singleton(messageAsia), getMessages(targetAsia));
+    }
+
+    public void testEntriesOnlyOfferedToConsumersWhoseIndexedSelectorsMatch() throws Exception
+    {
+        ServerMessage messageEU = createMessage(24l, (byte) 4, Collections.<String,Object>singletonMap("region", "EU"), 0l);
+
+        QueueConsumer<?> consumerEU = (QueueConsumer<?>) _queue.addConsumer(new MockConsumer(),
+                                                                   createSelectorFilterManager("region = 'EU'"),
+                                                                   messageEU.getClass(), "eu",
+                                                                   EnumSet.noneOf(ConsumerImpl.Option.class));
+        QueueConsumer<?> consumerUS = (QueueConsumer<?>) _queue.addConsumer(new MockConsumer(),
+                                                                   createSelectorFilterManager("region = 'US'"),
+                                                                   messageEU.getClass(), "us",
+                                                                   EnumSet.noneOf(ConsumerImpl.Option.class));
+        QueueConsumer<?> consumerAll = (QueueConsumer<?>) _queue.addConsumer(new MockConsumer(), null,
+                                                                    messageEU.getClass(), "all",
+                                                                    EnumSet.noneOf(ConsumerImpl.Option.class));
+
+        final ArrayList<QueueEntry> queueEntries = new ArrayList<QueueEntry>();
+        _queue.enqueue(messageEU, new EntryListAddingAction(queueEntries));
+
+        SelectorIndex index = ((AbstractQueue<?>) _queue).getSelectorIndex();
+        assertTrue("Index should hold the consumers with selectors", index.hasIndexedConsumers());
+        assertEquals("Entry should only be offered to the matching and the unindexed consumers",
+                     new HashSet<QueueConsumer<?>>(Arrays.asList(consumerEU, consumerAll)),
+                     new HashSet<QueueConsumer<?>>(getCandidateConsumers(index, queueEntries.get(0))));
+        assertFalse("Consumer testing another value should not be offered the entry",
+                    getCandidateConsumers(index, queueEntries.get(0)).contains(consumerUS));
+
+        consumerEU.close();
+        consumerUS.close();
+
+        assertFalse("Closed consumers should be removed from the index", index.hasIndexedConsumers());
+        assertEquals("Entry should only be offered to the remaining consumer",
+                     Collections.<QueueConsumer<?>>singletonList(consumerAll),
+                     getCandidateConsumers(index, queueEntries.get(0)));
+    }
+
+    public void testIndexedPropertySlotFreedWhenLastConsumerTestingItCloses() throws Exception
+    {
+        Map<String,Object> properties = new HashMap<String, Object>();
+        properties.put("region", "EU");
+        properties.put("colour", "red");
+        ServerMessage message = createMessage(24l, (byte) 4, properties, 0l);
+
+        SelectorIndex index = ((AbstractQueue<?>) _queue).getSelectorIndex();
+        QueueConsumer<?> consumerEU = (QueueConsumer<?>) _queue.addConsumer(new MockConsumer(),
+                                                                   createSelectorFilterManager("region = 'EU'"),
+                                                                   message.getClass(), "eu",
+                                                                   EnumSet.noneOf(ConsumerImpl.Option.class));
+        QueueConsumer<?> consumerUS = (QueueConsumer<?>) _queue.addConsumer(new MockConsumer(),
+                                                                   createSelectorFilterManager("region = 'US'"),
+                                                                   message.getClass(), "us",
+                                                                   EnumSet.noneOf(ConsumerImpl.Option.class));
+
+        final ArrayList<QueueEntry> queueEntries = new ArrayList<QueueEntry>();
+        _queue.enqueue(message, new EntryListAddingAction(queueEntries));
+        QueueEntry entry = queueEntries.get(0);
+        assertEquals("Unexpected value of indexed property", "EU", entry.getIndexedPropertyValue(index, 0));
+
+        consumerEU.close();
+        assertEquals("Slot should be kept whilst a consumer still tests the property", 1, index.getPropertyCount());
+        consumerUS.close();
+        assertEquals("Slot should be freed once no consumer tests the property", 0, index.getPropertyCount());
+
+        QueueConsumer<?> consumerRed = (QueueConsumer<?>) _queue.addConsumer(new MockConsumer(),
+                                                                    createSelectorFilterManager("colour = 'red'"),
+                                                                    message.getClass(), "red",
+                                                                    EnumSet.noneOf(ConsumerImpl.Option.class));
+        assertEquals("Freed slot should be reused", 1, index.getPropertyCount());
+        assertEquals("Value remembered for the previous property should not be used",
+                     "red", entry.getIndexedPropertyValue(index, 0));
+        assertEquals(Collections.<QueueConsumer<?>>singletonList(consumerRed), getCandidateConsumers(index, entry));
+    }
+
+    private List<QueueConsumer<?>> getCandidateConsumers(SelectorIndex index, QueueEntry entry)
+    {
+        final List<QueueConsumer<?>> candidates = new ArrayList<QueueConsumer<?>>();
+        index.visitCandidateConsumers(entry, new SelectorIndex.CandidateVisitor()
+        {
+            @Override
+            public boolean visit(final QueueConsumer<?> consumer, final QueueEntry entry)
+            {
+                candidates.add(consumer);
+                return false;
+            }
+        });
+        return candidates;
+    }
+
+    private FilterManager createSelectorFilterManager(String selector) throws Exception
+    {
+        FilterManager filters = new FilterManager();
+        JMSSelectorFilter filter = new JMSSelectorFilter(selector);
+        filters.add(filter.getName(), filter);
+        return filters;
+    }
+
+    private Set<ServerMessage> getMessages(MockConsumer target)
+    {
+        Set<ServerMessage> messages = new HashSet<ServerMessage>();
+        for(MessageInstance instance : target.getMessages())
+        {
+            assertTrue("Message delivered more than once", messages.add(instance.getMessage()));
+        }
+        return messages;
+    }
+
     public void testExclusiveConsumer() throws Exception
     {
         ServerMessage messageA = createMessage(new Long(24));
@@ -792,6 +936,68 @@ abstract class AbstractQueueTestBase extends QpidTestCase
         verify(listener, atLeastOnce()).notifyClients(eq(NotificationCheck.MESSAGE_COUNT_ALERT), eq(_queue), contains("Maximum count on queue threshold"));
     }
 
+    public void testMessagesBeyondTargetSizeFlowedToDisk() throws Exception
+    {
+        long footprint = Queue.DEFAULT_ESTIMATED_MESSAGE_MEMORY_OVERHEAD + 100l;
+        StoredMessage[] storedMessages = new StoredMessage[4];
+        for (int i = 0; i < storedMessages.length; i++)
+        {
+            ServerMessage message = createMessage((long) i);
+            when(message.getSize()).thenReturn(100l);
+            storedMessages[i] = mock(StoredMessage.class);
+            when(storedMessages[i].isInMemory()).thenReturn(true);
+            when(message.getStoredMessage()).thenReturn(storedMessages[i]);
+            _queue.enqueue(message, null);
+        }
+
+        _queue.setTargetSize(2 * footprint);
+        _queue.checkMessageStatus();
+
+        verify(storedMessages[0], never()).flowToDisk();
+        verify(storedMessages[1], never()).flowToDisk();
+        verify(storedMessages[2]).flowToDisk();
+        verify(storedMessages[3]).flowToDisk();
+
+        _queue.setTargetSize(footprint);
+        _queue.checkMessageStatus();
+
+        verify(storedMessages[0], never()).flowToDisk();
+        verify(storedMessages[1]).flowToDisk();
+    }
+
+    public void testMessagesFlowedToDiskWhilstOffHeapContentAreaExhausted() throws Exception
+    {
+        OffHeapContentArea.initialise(1024 * 1024);
+        OffHeapContent filling = OffHeapContentArea.getInstance().allocate(1024 * 1024);
+        try
+        {
+            StoredMessage storedMessage = enqueueInMemoryMessage(1l);
+            verify(storedMessage, never()).flowToDisk();
+
+            assertNull("Area should have no space left", OffHeapContentArea.getInstance().allocate(1));
+            storedMessage = enqueueInMemoryMessage(2l);
+            verify(storedMessage).flowToDisk();
+
+            filling.release();
+            storedMessage = enqueueInMemoryMessage(3l);
+            verify(storedMessage, never()).flowToDisk();
+        }
+        finally
+        {
+            filling.release();
+            OffHeapContentArea.initialise(0L);
+        }
+    }
+
+    private StoredMessage enqueueInMemoryMessage(final long id)
+    {
+        ServerMessage message = createMessage(id);
+        StoredMessage storedMessage = mock(StoredMessage.class);
+        when(storedMessage.isInMemory()).thenReturn(true);
+        when(message.getStoredMessage()).thenReturn(storedMessage);
+        _queue.enqueue(message, null);
+        return storedMessage;
+    }
 
     public void testMaximumMessageTtl() throws Exception
     {
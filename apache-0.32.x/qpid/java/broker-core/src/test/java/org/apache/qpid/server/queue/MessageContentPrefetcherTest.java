@@ -0,0 +1,163 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
+import org.apache.qpid.server.logging.EventLogger;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.BrokerModel;
+import org.apache.qpid.server.model.ConfiguredObjectFactoryImpl;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.security.SecurityManager;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.StoredMessage;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.virtualhost.VirtualHostImpl;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class MessageContentPrefetcherTest extends QpidTestCase
+{
+    private static final int BATCH_SIZE = 4;
+
+    private MessageStore _messageStore;
+    private VirtualHostImpl _virtualHost;
+    private StandardQueueImpl _queue;
+    private List<QueueEntry> _entries = new ArrayList<>();
+    private List<StoredMessage> _storedMessages = new ArrayList<>();
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        _messageStore = mock(MessageStore.class);
+        _virtualHost = mock(VirtualHostImpl.class);
+        when(_virtualHost.getSecurityManager()).thenReturn(mock(SecurityManager.class));
+        when(_virtualHost.getEventLogger()).thenReturn(new EventLogger());
+        ConfiguredObjectFactoryImpl factory = new ConfiguredObjectFactoryImpl(BrokerModel.getInstance());
+        when(_virtualHost.getObjectFactory()).thenReturn(factory);
+        when(_virtualHost.getModel()).thenReturn(factory.getModel());
+        when(_virtualHost.getTaskExecutor()).thenReturn(CurrentThreadTaskExecutor.newStartedInstance());
+        when(_virtualHost.getMessageStore()).thenReturn(_messageStore);
+        when(_virtualHost.scheduleTask(anyLong(), any(Runnable.class))).then(new Answer<Object>()
+        {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable
+            {
+                ((Runnable) invocation.getArguments()[1]).run();
+                return null;
+            }
+        });
+
+        Map<String,Object> queueAttributes = new HashMap<>();
+        queueAttributes.put(Queue.ID, UUID.randomUUID());
+        queueAttributes.put(Queue.NAME, getName());
+        _queue = new StandardQueueImpl(queueAttributes, _virtualHost);
+        _queue.open();
+
+        for(int i = 0; i < 10; i++)
+        {
+            StoredMessage storedMessage = mock(StoredMessage.class);
+            // every other message has been flowed to disk
+            when(storedMessage.isInMemory()).thenReturn(i % 2 == 0);
+            ServerMessage message = mock(ServerMessage.class);
+            when(message.getMessageNumber()).thenReturn((long) i);
+            when(message.getStoredMessage()).thenReturn(storedMessage);
+            MessageReference ref = mock(MessageReference.class);
+            when(ref.getMessage()).thenReturn(message);
+            when(message.newReference()).thenReturn(ref);
+            when(message.newReference(any(TransactionLogResource.class))).thenReturn(ref);
+
+            _entries.add(_queue.getEntries().add(message));
+            _storedMessages.add(storedMessage);
+        }
+    }
+
+    public void testPrefetchesBatchesAheadOfConsumer()
+    {
+        MessageContentPrefetcher prefetcher = new MessageContentPrefetcher(_queue, _virtualHost, BATCH_SIZE);
+        QueueContext context = new QueueContext(_queue.getEntries().getHead());
+        ArgumentCaptor<Collection> batchCaptor = ArgumentCaptor.forClass(Collection.class);
+
+        prefetcher.consumerAt(context, _entries.get(0));
+        verify(_messageStore).prefetchContent(batchCaptor.capture());
+        assertEquals(Arrays.asList(_storedMessages.get(1), _storedMessages.get(3)), batchCaptor.getValue());
+
+        // not yet half way through the batch
+        prefetcher.consumerAt(context, _entries.get(1));
+        verify(_messageStore, times(1)).prefetchContent(any(Collection.class));
+
+        prefetcher.consumerAt(context, _entries.get(2));
+        verify(_messageStore, times(2)).prefetchContent(batchCaptor.capture());
+        assertEquals(Arrays.asList(_storedMessages.get(5), _storedMessages.get(7)), batchCaptor.getValue());
+    }
+
+    public void testNothingPrefetchedWhenAllContentInMemory()
+    {
+        MessageContentPrefetcher prefetcher = new MessageContentPrefetcher(_queue, _virtualHost, 1);
+        QueueContext context = new QueueContext(_queue.getEntries().getHead());
+
+        prefetcher.consumerAt(context, _entries.get(0));
+
+        verify(_messageStore, never()).prefetchContent(any(Collection.class));
+    }
+
+    public void testNothingPrefetchedWhenStoreHasContentCached()
+    {
+        when(_messageStore.isContentInMemory(any(StoredMessage.class))).thenReturn(true);
+        MessageContentPrefetcher prefetcher = new MessageContentPrefetcher(_queue, _virtualHost, BATCH_SIZE);
+        QueueContext context = new QueueContext(_queue.getEntries().getHead());
+
+        prefetcher.consumerAt(context, _entries.get(0));
+
+        verify(_messageStore, never()).prefetchContent(any(Collection.class));
+        verify(_virtualHost, never()).scheduleTask(anyLong(), any(Runnable.class));
+    }
+
+    public void testStoreFailureIsNotPropagated()
+    {
+        when(_virtualHost.getMessageStore()).thenThrow(new IllegalStateException("Store closed"));
+        MessageContentPrefetcher prefetcher = new MessageContentPrefetcher(_queue, _virtualHost, BATCH_SIZE);
+        QueueContext context = new QueueContext(_queue.getEntries().getHead());
+
+        prefetcher.consumerAt(context, _entries.get(0));
+    }
+}
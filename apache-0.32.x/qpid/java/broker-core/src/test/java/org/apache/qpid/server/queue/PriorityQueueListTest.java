@@ -158,4 +158,35 @@ public class PriorityQueueListTest extends QpidTestCase
         assertEquals("second message with priority 4 should be 'later' than second message of priority 5",
                 1, _priority4message2.compareTo(_priority5message2));
     }
+
+    public void testLevelDepths()
+    {
+        PriorityQueueList.PriorityQueueMasterList list = (PriorityQueueList.PriorityQueueMasterList) _list;
+        assertEquals("Unexpected depth of priority 5", 2, list.getLevelDepth(5));
+        assertEquals("Unexpected depth of priority 4", 2, list.getLevelDepth(4));
+        assertEquals("Unexpected depth of priority 3", 0, list.getLevelDepth(3));
+
+        _priority5message1.acquire();
+        _priority5message1.delete();
+
+        assertEquals("Unexpected depth of priority 5 after delete", 1, list.getLevelDepth(5));
+    }
+
+    public void testNextSkipsEmptiedLevels()
+    {
+        _priority5message1.acquire();
+        _priority5message1.delete();
+        _priority5message2.acquire();
+        _priority5message2.delete();
+
+        assertSame("Unexpected first entry", _priority4message1, _list.next(_list.getHead()));
+
+        QueueEntryIterator iterator = _list.iterator();
+        assertTrue("Iterator should not be at tail", iterator.advance());
+        assertSame("Unexpected first entry from iterator", _priority4message1, iterator.getNode());
+        assertTrue("Iterator should not be at tail", iterator.advance());
+        assertSame("Unexpected second entry from iterator", _priority4message2, iterator.getNode());
+        assertTrue("Iterator should be at tail", iterator.atTail());
+        assertFalse("Iterator should not advance beyond the tail", iterator.advance());
+    }
 }
@@ -20,6 +20,9 @@
  */
 package org.apache.qpid.server.queue;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
@@ -32,6 +35,8 @@ import org.apache.qpid.server.consumer.ConsumerImpl;
 import org.apache.qpid.server.message.AMQMessageHeader;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.store.StoredMessage;
 
 public class PriorityQueueTest extends AbstractQueueTestBase
 {
@@ -96,6 +101,55 @@ public class PriorityQueueTest extends AbstractQueueTestBase
 
     }
 
+    public void testEntriesInsertedAheadOfFlowedEntriesCountedOrFlowed() throws Exception
+    {
+        long footprint = Queue.DEFAULT_ESTIMATED_MESSAGE_MEMORY_OVERHEAD + 100l;
+        AbstractQueue queue = (AbstractQueue) getQueue();
+        StoredMessage[] storedMessages = new StoredMessage[7];
+        queue.setTargetSize(2 * footprint);
+        for (int i = 0; i < 4; i++)
+        {
+            storedMessages[i] = enqueueStoredMessage(queue, i, (byte) 0);
+        }
+        queue.checkMessageStatus();
+
+        verify(storedMessages[0], never()).flowToDisk();
+        verify(storedMessages[1], never()).flowToDisk();
+        verify(storedMessages[2]).flowToDisk();
+        verify(storedMessages[3]).flowToDisk();
+
+        // inserted ahead of the resident window, pushing the last of it out
+        storedMessages[4] = enqueueStoredMessage(queue, 4, (byte) 10);
+        queue.checkMessageStatus();
+
+        verify(storedMessages[4], never()).flowToDisk();
+        verify(storedMessages[0], never()).flowToDisk();
+        verify(storedMessages[1]).flowToDisk();
+
+        storedMessages[5] = enqueueStoredMessage(queue, 5, (byte) 10);
+        queue.checkMessageStatus();
+
+        verify(storedMessages[5], never()).flowToDisk();
+        verify(storedMessages[0]).flowToDisk();
+
+        // inserted beyond the resident window but ahead of the entries already flowed to disk
+        storedMessages[6] = enqueueStoredMessage(queue, 6, (byte) 4);
+        queue.checkMessageStatus();
+
+        verify(storedMessages[6]).flowToDisk();
+    }
+
+    private StoredMessage enqueueStoredMessage(AbstractQueue queue, long id, byte priority)
+    {
+        ServerMessage message = createMessage(id, priority);
+        when(message.getSize()).thenReturn(100l);
+        StoredMessage storedMessage = mock(StoredMessage.class);
+        when(storedMessage.isInMemory()).thenReturn(true);
+        when(message.getStoredMessage()).thenReturn(storedMessage);
+        queue.enqueue(message, null);
+        return storedMessage;
+    }
+
     protected ServerMessage createMessage(Long id, byte i)
     {
 
@@ -22,7 +22,6 @@ package org.apache.qpid.server.queue;
 import org.junit.Assert;
 
 import org.apache.qpid.server.message.ServerMessage;
-import org.apache.qpid.server.queue.SortedQueueEntry.Colour;
 
 /**
  * Test extension of SortedQueueEntryList that provides data structure validation tests.
@@ -60,108 +59,36 @@ public class SelfValidatingSortedQueueEntryList extends SortedQueueEntryList
 
     public void assertQueueProperties()
     {
-        assertRootIsBlack();
-        assertTreeIntegrity();
-        assertChildrenOfRedAreBlack();
-        assertLeavesSameBlackPath();
+        assertEntriesInOrder();
+        assertNextValidEntryConsistent();
     }
 
-    public void assertRootIsBlack()
+    public void assertEntriesInOrder()
     {
-        if(!isNodeColour(getRoot(), Colour.BLACK))
+        SortedQueueEntry previous = getHead();
+        SortedQueueEntry node = next(previous);
+        while(node != null)
         {
-            Assert.fail("Root Not Black");
-        }
-    }
-
-    public void assertTreeIntegrity()
-    {
-        assertTreeIntegrity(getRoot());
-    }
-
-    public void assertTreeIntegrity(final SortedQueueEntry node)
-    {
-        if(node == null)
-        {
-            return;
-        }
-        if(node.getLeft() != null)
-        {
-            if(node.getLeft().getParent() == node)
+            if(previous.compareTo(node) >= 0 || node.compareTo(previous) <= 0)
             {
-                assertTreeIntegrity(node.getLeft());
+                Assert.fail("Entries out of order");
             }
-            else
-            {
-                Assert.fail("Tree integrity compromised");
-            }
-        }
-        if(node.getRight() != null)
-        {
-            if(node.getRight().getParent() == node)
-            {
-                assertTreeIntegrity(node.getRight());
-            }
-            else
-            {
-                Assert.fail("Tree integrity compromised");
-            }
-
-        }
-    }
-
-    public void assertLeavesSameBlackPath()
-    {
-        assertLeavesSameBlackPath(getRoot());
-    }
-
-    public int assertLeavesSameBlackPath(final SortedQueueEntry node)
-    {
-        if(node == null)
-        {
-            return 1;
-        }
-        final int left = assertLeavesSameBlackPath(node.getLeft());
-        final int right = assertLeavesSameBlackPath(node.getLeft());
-        if(left == right)
-        {
-            return isNodeColour(node, Colour.BLACK) ? 1 + left : left;
-        }
-        else
-        {
-            Assert.fail("Unequal paths to leaves");
-            return 1; //compiler
+            previous = node;
+            node = next(node);
         }
     }
 
-    public void assertChildrenOfRedAreBlack()
+    public void assertNextValidEntryConsistent()
     {
-        assertChildrenOfRedAreBlack(getRoot());
-    }
-
-    public void assertChildrenOfRedAreBlack(final SortedQueueEntry node)
-    {
-        if(node == null)
-        {
-            return;
-        }
-        else if(node.getColour() == Colour.BLACK)
-        {
-            assertChildrenOfRedAreBlack(node.getLeft());
-            assertChildrenOfRedAreBlack(node.getRight());
-        }
-        else
+        SortedQueueEntry node = next(getHead());
+        while(node != null)
         {
-            if(isNodeColour(node.getLeft(), Colour.BLACK)
-                    && isNodeColour(node.getRight(), Colour.BLACK))
-            {
-                assertChildrenOfRedAreBlack(node.getLeft());
-                assertChildrenOfRedAreBlack(node.getRight());
-            }
-            else
+            final SortedQueueEntry next = next(node);
+            if(node.getNextValidEntry() != next)
             {
-                Assert.fail("Children of Red are not both black");
+                Assert.fail("Next entry not consistent with list");
             }
+            node = next;
         }
     }
 }
@@ -418,6 +418,48 @@ public class SortedQueueEntryListTest extends QueueEntryListTestBase
         validateEntry(entry, "D", 2);
     }
 
+    public void testConcurrentAdds() throws Exception
+    {
+        final SortedQueueEntryList list = new SortedQueueEntryList(_testQueue);
+        final int threadCount = 4;
+        final Thread[] threads = new Thread[threadCount];
+        for(int t = 0; t < threadCount; t++)
+        {
+            final long firstId = t * keys.length;
+            threads[t] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    long messageId = firstId;
+                    for(final String key : keys)
+                    {
+                        list.add(generateTestMessage(messageId++, key));
+                    }
+                }
+            });
+        }
+        for(Thread thread : threads)
+        {
+            thread.start();
+        }
+        for(Thread thread : threads)
+        {
+            thread.join(10000l);
+        }
+
+        final QueueEntryIterator iter = list.iterator();
+        QueueEntry previous = list.getHead();
+        int count = 0;
+        while(iter.advance())
+        {
+            assertTrue("Entries out of order", previous.compareTo(iter.getNode()) < 0);
+            previous = iter.getNode();
+            count++;
+        }
+        assertEquals("Unexpected number of entries", threadCount * keys.length, count);
+    }
+
     private void validateEntry(final SortedQueueEntry entry, final String expectedSortKey, final long expectedMessageId)
     {
         assertEquals("Sorted queue entry value is not as expected",
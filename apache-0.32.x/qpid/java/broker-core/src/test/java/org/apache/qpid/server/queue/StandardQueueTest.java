@@ -20,22 +20,38 @@
  */
 package org.apache.qpid.server.queue;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
 import org.apache.qpid.server.consumer.ConsumerImpl;
 import org.apache.qpid.server.consumer.ConsumerTarget;
 import org.apache.qpid.server.consumer.MockConsumer;
+import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.BrokerModel;
+import org.apache.qpid.server.model.ConfiguredObjectFactoryImpl;
 import org.apache.qpid.server.model.LifetimePolicy;
 import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.model.State;
+import org.apache.qpid.server.security.SecurityManager;
+import org.apache.qpid.server.virtualhost.DeliveryScheduler;
 import org.apache.qpid.server.virtualhost.VirtualHostImpl;
 
 public class StandardQueueTest extends AbstractQueueTestBase
@@ -241,6 +257,148 @@ public class StandardQueueTest extends AbstractQueueTestBase
     }
 
 
+    /**
+     * Tests that a backlog is drained by the queue runners in parallel, each delivering to its own share of the
+     * consumers whatever consumer numbers they were given, and that every message is still delivered to exactly
+     * one consumer
+     */
+    public void testBacklogDrainedByParallelQueueRunners() throws Exception
+    {
+        final int runners = 4;
+        int messageNumber = 100;
+
+        Map<String,Object> queueAttributes = new HashMap<String, Object>();
+        queueAttributes.put(Queue.ID, UUID.randomUUID());
+        queueAttributes.put(Queue.NAME, "testBacklogDrainedByParallelQueueRunners");
+        queueAttributes.put(Queue.CONTEXT, Collections.singletonMap(Queue.DELIVERY_RUNNERS, String.valueOf(runners)));
+        final StandardQueueImpl testQueue = new StandardQueueImpl(queueAttributes, getVirtualHost());
+        testQueue.open();
+
+        final AtomicBoolean creditAvailable = new AtomicBoolean();
+        // a consumer is held in its first delivery until every consumer is in one, which can only happen if each
+        // is being delivered to by a different runner
+        final CountDownLatch allConsumersDelivering = new CountDownLatch(runners);
+        final AtomicBoolean deliveredInParallel = new AtomicBoolean(true);
+        final CountDownLatch latch = new CountDownLatch(messageNumber);
+        List<MockConsumer> consumers = new ArrayList<MockConsumer>();
+        for (int i = 0; i < runners; i++)
+        {
+            MockConsumer consumer = new MockConsumer()
+            {
+                @Override
+                public boolean allocateCredit(final ServerMessage msg)
+                {
+                    return creditAvailable.get();
+                }
+
+                @Override
+                public long send(final ConsumerImpl consumer, MessageInstance entry, boolean batch)
+                {
+                    if (getMessages().isEmpty())
+                    {
+                        allConsumersDelivering.countDown();
+                        try
+                        {
+                            if (!allConsumersDelivering.await(10, TimeUnit.SECONDS))
+                            {
+                                deliveredInParallel.set(false);
+                            }
+                        }
+                        catch (InterruptedException e)
+                        {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    long size = super.send(consumer, entry, batch);
+                    latch.countDown();
+                    return size;
+                }
+            };
+            testQueue.addConsumer(consumer,
+                                  null,
+                                  createMessage(-1l).getClass(),
+                                  "test" + i,
+                                  EnumSet.of(ConsumerImpl.Option.ACQUIRES,
+                                             ConsumerImpl.Option.SEES_REQUEUES));
+            // consumers of other queues take every other consumer number
+            getQueue().addConsumer(new MockConsumer(), null, createMessage(-1l).getClass(), "other" + i,
+                                   EnumSet.of(ConsumerImpl.Option.ACQUIRES, ConsumerImpl.Option.SEES_REQUEUES));
+            consumers.add(consumer);
+        }
+
+        // without credit the messages cannot be delivered straight through, so back up on the queue
+        enqueueGivenNumberOfMessages(testQueue, messageNumber);
+        assertEquals("Messages should have backed up", messageNumber, testQueue.getQueueDepthMessages());
+
+        creditAvailable.set(true);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < runners; i++)
+        {
+            final QueueRunner runner = new QueueRunner(testQueue, i);
+            Thread thread = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    testQueue.processQueue(runner);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads)
+        {
+            thread.join(20000);
+        }
+
+        assertTrue("Not all messages were delivered", latch.await(10, TimeUnit.SECONDS));
+        assertTrue("Consumers were not delivered to in parallel", deliveredInParallel.get());
+
+        Set<Long> delivered = new HashSet<Long>();
+        for (MockConsumer consumer : consumers)
+        {
+            assertFalse("Consumer was not delivered to", consumer.getMessages().isEmpty());
+            for (MessageInstance instance : consumer.getMessages())
+            {
+                assertTrue("Message delivered more than once",
+                           delivered.add(instance.getMessage().getMessageNumber()));
+            }
+        }
+        assertEquals("Unexpected number of messages delivered", messageNumber, delivered.size());
+    }
+
+    /**
+     * Tests that a queue created before its virtual host has a delivery scheduler, as queues recovered from the
+     * store are, delivers on the scheduler once it exists
+     */
+    public void testDeliverySchedulerCreatedAfterQueue() throws Exception
+    {
+        final VirtualHostImpl virtualHost = mock(VirtualHostImpl.class);
+        when(virtualHost.getSecurityManager()).thenReturn(mock(SecurityManager.class));
+        when(virtualHost.getEventLogger()).thenReturn(new EventLogger());
+        ConfiguredObjectFactoryImpl factory = new ConfiguredObjectFactoryImpl(BrokerModel.getInstance());
+        when(virtualHost.getObjectFactory()).thenReturn(factory);
+        when(virtualHost.getModel()).thenReturn(factory.getModel());
+        when(virtualHost.getTaskExecutor()).thenReturn(CurrentThreadTaskExecutor.newStartedInstance());
+
+        Map<String,Object> queueAttributes = new HashMap<String, Object>();
+        queueAttributes.put(Queue.ID, UUID.randomUUID());
+        queueAttributes.put(Queue.NAME, "testDeliverySchedulerCreatedAfterQueue");
+        StandardQueueImpl testQueue = new StandardQueueImpl(queueAttributes, virtualHost);
+        testQueue.open();
+
+        DeliveryScheduler deliveryScheduler = mock(DeliveryScheduler.class);
+        when(virtualHost.getDeliveryScheduler()).thenReturn(deliveryScheduler);
+        when(virtualHost.getState()).thenReturn(State.ACTIVE);
+
+        Runnable task = mock(Runnable.class);
+        testQueue.execute(task);
+
+        verify(deliveryScheduler).execute(task);
+        assertSame("Queue should deliver on the virtual host's scheduler",
+                   deliveryScheduler, testQueue.getAsyncDelivery());
+    }
+
     private static class DequeuedQueue extends AbstractQueue
     {
 
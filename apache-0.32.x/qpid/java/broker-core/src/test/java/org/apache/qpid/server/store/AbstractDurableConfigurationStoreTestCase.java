@@ -187,6 +187,57 @@ public abstract class AbstractDurableConfigurationStoreTestCase extends QpidTest
         verify(_handler, never()).handle(any(ConfiguredObjectRecord.class));
     }
 
+    public void testBatchedChanges() throws Exception
+    {
+        ExchangeImpl exchange = createTestExchange();
+        AMQQueue queue = createTestQueue(QUEUE_NAME, "queueOwner", false, null);
+        _configStore.create(queue.asObjectRecord());
+
+        ConfigurationChangeBatch batch = ConfigurationChangeBatch.start();
+        try
+        {
+            _configStore.create(exchange.asObjectRecord());
+            _configStore.update(false, exchange.asObjectRecord());
+            _configStore.remove(queue.asObjectRecord());
+        }
+        finally
+        {
+            batch.finish();
+        }
+
+        reopenStore();
+        _configStore.visitConfiguredObjectRecords(_handler);
+
+        verify(_handler).handle(matchesRecord(_exchangeId, EXCHANGE,
+                map( org.apache.qpid.server.model.Exchange.NAME, getName(),
+                        org.apache.qpid.server.model.Exchange.TYPE, getName()+"Type",
+                        org.apache.qpid.server.model.Exchange.LIFETIME_POLICY, LifetimePolicy.DELETE_ON_NO_OUTBOUND_LINKS.name())));
+        verify(_handler, never()).handle(matchesRecord(_queueId, QUEUE, ANY_MAP));
+    }
+
+    public void testBatchedChangesWrittenWhenStoreClosed() throws Exception
+    {
+        ExchangeImpl exchange = createTestExchange();
+
+        ConfigurationChangeBatch batch = ConfigurationChangeBatch.start();
+        try
+        {
+            _configStore.create(exchange.asObjectRecord());
+            reopenStore();
+        }
+        finally
+        {
+            batch.finish();
+        }
+
+        _configStore.visitConfiguredObjectRecords(_handler);
+
+        verify(_handler).handle(matchesRecord(_exchangeId, EXCHANGE,
+                map( org.apache.qpid.server.model.Exchange.NAME, getName(),
+                        org.apache.qpid.server.model.Exchange.TYPE, getName()+"Type",
+                        org.apache.qpid.server.model.Exchange.LIFETIME_POLICY, LifetimePolicy.DELETE_ON_NO_OUTBOUND_LINKS.name())));
+    }
+
     public void testBindQueue() throws Exception
     {
         ExchangeImpl<?> exchange = createTestExchange();
@@ -24,6 +24,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -474,6 +475,12 @@ public class BrokerStoreUpgraderAndRecovererTest extends QpidTestCase
         {
         }
 
+        @Override
+        public void applyChanges(final Collection<ConfiguredObjectRecord> updates,
+                                 final Collection<ConfiguredObjectRecord> removals) throws StoreException
+        {
+        }
+
         @Override
         public void closeConfigurationStore() throws StoreException
         {
@@ -24,13 +24,17 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -228,6 +232,109 @@ public class JsonFileConfigStoreTest extends QpidTestCase
         _store.closeConfigurationStore();
     }
 
+    public void testChangesRecoveredFromJournal() throws Exception
+    {
+        _store.openConfigurationStore(_parent, false);
+        createRootRecord();
+
+        final UUID queueId = new UUID(0, 1);
+        final UUID queue2Id = new UUID(0, 2);
+        final String queueType = Queue.class.getSimpleName();
+        Map<String,Object> queueAttr = Collections.singletonMap("name", (Object) "q1");
+
+        _store.create(new ConfiguredObjectRecordImpl(queueId, queueType, queueAttr, getRootAsParentMap()));
+        final ConfiguredObjectRecordImpl queue2Record =
+                new ConfiguredObjectRecordImpl(queue2Id, queueType,
+                                               Collections.singletonMap("name", (Object) "q2"),
+                                               getRootAsParentMap());
+        _store.create(queue2Record);
+
+        queueAttr = new HashMap<String,Object>(queueAttr);
+        queueAttr.put("owner", "theowner");
+        _store.update(false, new ConfiguredObjectRecordImpl(queueId, queueType, queueAttr, getRootAsParentMap()));
+        _store.remove(queue2Record);
+
+        File journalFile = new File(_storeLocation, getName() + ".journal");
+        assertTrue("Journal should exist while the store is open", journalFile.exists());
+
+        // take a copy of the files as they would be left were the broker to stop without closing the store
+        File copyLocation = TestFileUtils.createTestDirectory("jsoncopy", true);
+        try
+        {
+            for(String suffix : new String[] { ".json", ".journal" })
+            {
+                Files.copy(new File(_storeLocation, getName() + suffix).toPath(),
+                           new File(copyLocation, getName() + suffix).toPath());
+            }
+
+            _store.closeConfigurationStore();
+            assertFalse("Journal should be compacted when the store is closed", journalFile.exists());
+
+            when(_parent.getStorePath()).thenReturn(copyLocation.getAbsolutePath());
+            _store.openConfigurationStore(_parent, false);
+            assertFalse("Journal should be compacted on recovery",
+                        new File(copyLocation, getName() + ".journal").exists());
+
+            _store.visitConfiguredObjectRecords(_handler);
+            verify(_handler).handle(matchesRecord(queueId, queueType, queueAttr));
+            verify(_handler, never()).handle(matchesRecord(queue2Id, queueType, ANY_MAP));
+            verify(_handler).handle(matchesRecord(ANY_UUID, VIRTUAL_HOST_TYPE, ANY_MAP));
+            _store.closeConfigurationStore();
+        }
+        finally
+        {
+            FileUtils.delete(copyLocation, true);
+        }
+    }
+
+    public void testAppliedChangesJournalledAndRecoveredAsOneEntry() throws Exception
+    {
+        _store.openConfigurationStore(_parent, false);
+        createRootRecord();
+
+        final String queueType = Queue.class.getSimpleName();
+        final ConfiguredObjectRecordImpl queueRecord =
+                new ConfiguredObjectRecordImpl(new UUID(0, 1), queueType,
+                                               Collections.singletonMap("name", (Object) "q1"),
+                                               getRootAsParentMap());
+        _store.create(queueRecord);
+
+        File journalFile = new File(_storeLocation, getName() + ".journal");
+        int linesBefore = Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8).size();
+
+        final ConfiguredObjectRecordImpl queue2Record =
+                new ConfiguredObjectRecordImpl(new UUID(0, 2), queueType,
+                                               Collections.singletonMap("name", (Object) "q2"),
+                                               getRootAsParentMap());
+        _store.applyChanges(Collections.<ConfiguredObjectRecord>singletonList(queue2Record),
+                            Collections.<ConfiguredObjectRecord>singletonList(queueRecord));
+
+        List<String> lines = Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals("Applied changes should be journalled as one entry", linesBefore + 1, lines.size());
+
+        File copyLocation = TestFileUtils.createTestDirectory("jsoncopy", true);
+        try
+        {
+            for(String suffix : new String[] { ".json", ".journal" })
+            {
+                Files.copy(new File(_storeLocation, getName() + suffix).toPath(),
+                           new File(copyLocation, getName() + suffix).toPath());
+            }
+            _store.closeConfigurationStore();
+
+            when(_parent.getStorePath()).thenReturn(copyLocation.getAbsolutePath());
+            _store.openConfigurationStore(_parent, false);
+            _store.visitConfiguredObjectRecords(_handler);
+            verify(_handler).handle(matchesRecord(queue2Record.getId(), queueType, ANY_MAP));
+            verify(_handler, never()).handle(matchesRecord(queueRecord.getId(), queueType, ANY_MAP));
+            _store.closeConfigurationStore();
+        }
+        finally
+        {
+            FileUtils.delete(copyLocation, true);
+        }
+    }
+
     public void testCreateUnknownObjectType() throws Exception
     {
         _store.openConfigurationStore(_parent, false);
@@ -28,7 +28,9 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
@@ -341,6 +343,41 @@ public abstract class MessageStoreTestCase extends QpidTestCase
         assertTrue("Message with id " + messageId3 + " is not found", enqueuedIds.contains(messageId3));
     }
 
+    public void testCommitTransactionsAsynchronously() throws Exception
+    {
+        final UUID mockQueueId = UUIDGenerator.generateRandomUUID();
+        TransactionLogResource mockQueue = createTransactionLogResource(mockQueueId);
+
+        final EnqueueableMessage dequeuedMessage = createEnqueueableMessage(40L);
+        Transaction txn = getStore().newTransaction();
+        txn.enqueueMessage(mockQueue, dequeuedMessage);
+        txn.commitTran();
+
+        List<StoreFuture> futures = new ArrayList<StoreFuture>();
+        txn = getStore().newTransaction();
+        txn.dequeueMessage(mockQueue, dequeuedMessage);
+        futures.add(txn.commitTranAsync());
+        for (long messageId = 41L; messageId <= 50L; messageId++)
+        {
+            txn = getStore().newTransaction();
+            txn.enqueueMessage(mockQueue, createEnqueueableMessage(messageId));
+            futures.add(txn.commitTranAsync());
+        }
+
+        for (StoreFuture future : futures)
+        {
+            future.waitForCompletion();
+            assertTrue("Commit is not complete", future.isComplete());
+        }
+
+        QueueFilteringMessageInstanceHandler filter = new QueueFilteringMessageInstanceHandler(mockQueueId);
+        getStore().visitMessageInstances(filter);
+        Set<Long> enqueuedIds = filter.getEnqueuedIds();
+
+        assertEquals("Number of enqueued messages is incorrect", 10, enqueuedIds.size());
+        assertFalse("Dequeued message is found", enqueuedIds.contains(40L));
+    }
+
     public void testStoreIgnoresTransientMessage() throws Exception
     {
         long messageId = 1;
@@ -393,7 +430,7 @@ public abstract class MessageStoreTestCase extends QpidTestCase
     }
 
 
-    private TransactionLogResource createTransactionLogResource(UUID queueId)
+    protected TransactionLogResource createTransactionLogResource(UUID queueId)
     {
         TransactionLogResource queue = mock(TransactionLogResource.class);
         when(queue.getId()).thenReturn(queueId);
@@ -426,7 +463,7 @@ public abstract class MessageStoreTestCase extends QpidTestCase
         return enqueueRecord;
     }
 
-    private EnqueueableMessage createEnqueueableMessage(long messageId1)
+    protected EnqueueableMessage createEnqueueableMessage(long messageId1)
     {
         final StoredMessage<TestMessageMetaData> message1 = _store.addMessage(new TestMessageMetaData(messageId1, 0));
         EnqueueableMessage enqueueableMessage1 = createMockEnqueueableMessage(messageId1, message1);
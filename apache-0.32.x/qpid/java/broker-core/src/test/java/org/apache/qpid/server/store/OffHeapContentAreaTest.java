@@ -0,0 +1,224 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class OffHeapContentAreaTest extends QpidTestCase
+{
+    public void testDisabledAreaRefusesAllocation()
+    {
+        OffHeapContentArea area = new OffHeapContentArea(0L);
+        assertFalse("Area should be disabled", area.isEnabled());
+        assertNull("Unexpected allocation", area.allocate(100));
+    }
+
+    public void testContentSpanningBlocks()
+    {
+        OffHeapContentArea area = new OffHeapContentArea(4 * OffHeapContentArea.SLAB_SIZE);
+        int size = OffHeapContentArea.MAX_BLOCK_SIZE * 2 + 1000;
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            data[i] = (byte) i;
+        }
+
+        OffHeapContent content = area.allocate(size);
+        assertNotNull("Allocation failed", content);
+
+        // write in two parts, the second straddling a block boundary
+        int split = OffHeapContentArea.MAX_BLOCK_SIZE - 10;
+        content.write(0, ByteBuffer.wrap(data, 0, split));
+        content.write(split, ByteBuffer.wrap(data, split, size - split));
+
+        byte[] read = new byte[size];
+        assertEquals("Unexpected number of bytes read", size, content.read(0, ByteBuffer.wrap(read)));
+        assertTrue("Unexpected content", Arrays.equals(data, read));
+
+        ByteBuffer spanning = content.getContent(split, 20);
+        assertEquals("Unexpected size", 20, spanning.remaining());
+        for (int i = 0; i < 20; i++)
+        {
+            assertEquals("Unexpected byte at " + i, data[split + i], spanning.get());
+        }
+
+        ByteBuffer tail = content.getContent(size - 10, 100);
+        assertEquals("Unexpected size", 10, tail.remaining());
+    }
+
+    public void testViewSurvivesReleaseAndReuse()
+    {
+        OffHeapContentArea area = new OffHeapContentArea(OffHeapContentArea.SLAB_SIZE);
+        byte[] data = new byte[100];
+        Arrays.fill(data, (byte) 1);
+        OffHeapContent content = area.allocate(data.length);
+        content.write(0, ByteBuffer.wrap(data));
+
+        ByteBuffer view = content.getContent(0, data.length);
+        content.release();
+
+        OffHeapContent reused = area.allocate(data.length);
+        byte[] garbage = new byte[data.length];
+        Arrays.fill(garbage, (byte) -1);
+        reused.write(0, ByteBuffer.wrap(garbage));
+
+        byte[] viewed = new byte[view.remaining()];
+        view.get(viewed);
+        assertTrue("View should not be affected by reuse of the released blocks", Arrays.equals(data, viewed));
+
+        assertEquals("Read of released content should report nothing available",
+                     -1, content.read(0, ByteBuffer.allocate(data.length)));
+        assertNull("Released content should offer no view", content.getContent(0, data.length));
+    }
+
+    public void testViewOfSingleBlockSharesDirectMemory()
+    {
+        OffHeapContentArea area = new OffHeapContentArea(OffHeapContentArea.SLAB_SIZE);
+        OffHeapContent content = area.allocate(100);
+        content.write(0, ByteBuffer.wrap(new byte[100]));
+
+        ByteBuffer view = content.getContent(10, 50);
+        assertTrue("View should not be a copy on the heap", view.isDirect());
+        assertTrue("View should be read-only", view.isReadOnly());
+        assertEquals("Unexpected size", 50, view.remaining());
+    }
+
+    public void testBlocksReusedOnceViewUnreachable() throws Exception
+    {
+        OffHeapContentArea area = new OffHeapContentArea(OffHeapContentArea.SLAB_SIZE);
+        OffHeapContent content = area.allocate(OffHeapContentArea.SLAB_SIZE);
+        assertNotNull("Allocation failed", content);
+
+        ByteBuffer view = content.getContent(0, 10);
+        content.release();
+        assertNull("Blocks should not be reused whilst the view is reachable", area.allocate(1));
+
+        view = null;
+        OffHeapContent reused = null;
+        for (int i = 0; i < 100 && reused == null; i++)
+        {
+            System.gc();
+            Thread.sleep(10);
+            reused = area.allocate(OffHeapContentArea.SLAB_SIZE);
+        }
+        assertNotNull("Blocks should be reused once the view is unreachable", reused);
+    }
+
+    public void testSlabFreedBySizeClassUsedByAnother()
+    {
+        OffHeapContentArea area = new OffHeapContentArea(2 * OffHeapContentArea.SLAB_SIZE);
+        int largeBlocks = 2 * OffHeapContentArea.SLAB_SIZE / OffHeapContentArea.MAX_BLOCK_SIZE;
+        OffHeapContent[] contents = new OffHeapContent[largeBlocks];
+        for (int i = 0; i < largeBlocks; i++)
+        {
+            contents[i] = area.allocate(OffHeapContentArea.MAX_BLOCK_SIZE);
+            assertNotNull("Allocation " + i + " failed", contents[i]);
+        }
+        for (OffHeapContent content : contents)
+        {
+            content.release();
+        }
+
+        int smallBlocks = 2 * OffHeapContentArea.SLAB_SIZE / OffHeapContentArea.MIN_BLOCK_SIZE;
+        for (int i = 0; i < smallBlocks; i++)
+        {
+            assertNotNull("Allocation " + i + " of freed memory failed", area.allocate(1));
+        }
+        assertEquals("Unexpected allocated size", 2 * OffHeapContentArea.SLAB_SIZE, area.getAllocatedSize());
+        assertNull("Allocation beyond budget should be refused", area.allocate(1));
+    }
+
+    public void testBlocksNotReusedWhilstReadInProgress() throws Exception
+    {
+        final OffHeapContentArea area = new OffHeapContentArea(OffHeapContentArea.SLAB_SIZE);
+        final byte[] data = new byte[OffHeapContentArea.MAX_BLOCK_SIZE];
+        Arrays.fill(data, (byte) 1);
+        final byte[] garbage = new byte[data.length];
+        Arrays.fill(garbage, (byte) -1);
+
+        for (int i = 0; i < 100; i++)
+        {
+            final OffHeapContent content = area.allocate(data.length);
+            content.write(0, ByteBuffer.wrap(data));
+
+            final AtomicReference<String> failure = new AtomicReference<>();
+            Thread reader = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    byte[] read = new byte[data.length];
+                    int length;
+                    while ((length = content.read(0, ByteBuffer.wrap(read))) != -1)
+                    {
+                        if (length != data.length || !Arrays.equals(data, read))
+                        {
+                            failure.set("Read saw content written after release");
+                            return;
+                        }
+                    }
+                }
+            });
+            reader.start();
+
+            Thread.yield();
+            content.release();
+            OffHeapContent reused = area.allocate(data.length);
+            reused.write(0, ByteBuffer.wrap(garbage));
+
+            reader.join(5000);
+            assertFalse("Reader did not finish", reader.isAlive());
+            assertNull(failure.get(), failure.get());
+            reused.release();
+        }
+    }
+
+    public void testBudgetIsEnforcedAndReleasedBlocksReused()
+    {
+        OffHeapContentArea area = new OffHeapContentArea(OffHeapContentArea.SLAB_SIZE);
+        int blocksPerSlab = OffHeapContentArea.SLAB_SIZE / OffHeapContentArea.MAX_BLOCK_SIZE;
+        OffHeapContent[] contents = new OffHeapContent[blocksPerSlab];
+        for (int i = 0; i < blocksPerSlab; i++)
+        {
+            contents[i] = area.allocate(OffHeapContentArea.MAX_BLOCK_SIZE);
+            assertNotNull("Allocation " + i + " failed", contents[i]);
+        }
+        assertEquals("Unexpected allocated size", OffHeapContentArea.SLAB_SIZE, area.getAllocatedSize());
+        assertFalse("Area should not yet be exhausted", area.isExhausted());
+
+        assertNull("Allocation beyond budget should be refused", area.allocate(1));
+        assertTrue("Area should be exhausted", area.isExhausted());
+
+        contents[0].release();
+        contents[0].release();
+        assertFalse("Area should no longer be exhausted", area.isExhausted());
+        assertEquals("Unexpected used size",
+                     (blocksPerSlab - 1) * OffHeapContentArea.MAX_BLOCK_SIZE,
+                     area.getUsedSize());
+
+        assertNotNull("Released block should be reused", area.allocate(OffHeapContentArea.MAX_BLOCK_SIZE));
+        assertEquals("Unexpected allocated size", OffHeapContentArea.SLAB_SIZE, area.getAllocatedSize());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.nio.ByteBuffer;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class DirectByteBufferPoolTest extends QpidTestCase
+{
+    public void testReturnedBufferIsReusedCleared()
+    {
+        DirectByteBufferPool pool = new DirectByteBufferPool(64, 2);
+
+        ByteBuffer buffer = pool.getBuffer();
+        assertTrue("Expected direct buffer", buffer.isDirect());
+        assertEquals("Unexpected capacity", 64, buffer.capacity());
+        buffer.put((byte) 1);
+
+        pool.returnBuffer(buffer);
+        assertEquals("Unexpected pooled count", 1, pool.getPooledCount());
+
+        ByteBuffer reused = pool.getBuffer();
+        assertSame("Expected pooled buffer to be reused", buffer, reused);
+        assertEquals("Expected buffer to be cleared", 0, reused.position());
+        assertEquals("Unexpected pooled count", 0, pool.getPooledCount());
+    }
+
+    public void testPoolIsBounded()
+    {
+        DirectByteBufferPool pool = new DirectByteBufferPool(64, 2);
+        ByteBuffer first = pool.getBuffer();
+        ByteBuffer second = pool.getBuffer();
+        ByteBuffer third = pool.getBuffer();
+
+        pool.returnBuffer(first);
+        pool.returnBuffer(second);
+        pool.returnBuffer(third);
+
+        assertEquals("Unexpected pooled count", 2, pool.getPooledCount());
+    }
+
+    public void testForeignBuffersAreNotPooled()
+    {
+        DirectByteBufferPool pool = new DirectByteBufferPool(64, 2);
+
+        pool.returnBuffer(ByteBuffer.allocate(64));
+        pool.returnBuffer(ByteBuffer.allocateDirect(128));
+
+        assertEquals("Unexpected pooled count", 0, pool.getPooledCount());
+    }
+}
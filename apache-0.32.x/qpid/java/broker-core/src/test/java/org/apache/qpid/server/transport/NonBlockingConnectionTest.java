@@ -0,0 +1,135 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import static org.mockito.Mockito.mock;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+
+import org.apache.qpid.protocol.ProtocolEngine;
+import org.apache.qpid.server.model.Transport;
+import org.apache.qpid.test.utils.QpidTestCase;
+import org.apache.qpid.transport.network.Ticker;
+
+public class NonBlockingConnectionTest extends QpidTestCase
+{
+    private static final int HIGH_WATER_MARK = 64 * 1024;
+
+    private ServerSocketChannel _serverSocket;
+    private SocketChannel _client;
+    private SocketChannel _accepted;
+    private NonBlockingConnection _connection;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _serverSocket = ServerSocketChannel.open();
+        _serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        _client = SocketChannel.open(_serverSocket.getLocalAddress());
+        _accepted = _serverSocket.accept();
+        _accepted.configureBlocking(false);
+
+        _connection = new NonBlockingConnection(_accepted,
+                                                mock(ProtocolEngine.class),
+                                                8 * 1024,
+                                                1000L,
+                                                new IdleTicker(),
+                                                Collections.singleton(Transport.TCP),
+                                                null,
+                                                null,
+                                                HIGH_WATER_MARK);
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        try
+        {
+            _client.close();
+            _accepted.close();
+            _serverSocket.close();
+        }
+        finally
+        {
+            super.tearDown();
+        }
+    }
+
+    public void testReadsSuspendedWhilstOutboundDataExceedsHighWaterMark() throws Exception
+    {
+        int total = 0;
+        while (total < 64 * HIGH_WATER_MARK)
+        {
+            _connection.send(ByteBuffer.allocate(HIGH_WATER_MARK / 4));
+            total += HIGH_WATER_MARK / 4;
+        }
+        assertEquals("Unexpected queued byte count", total, _connection.getQueuedBytes());
+
+        assertTrue("Connection should remain open", _connection.doWork());
+        assertTrue("Peer is not reading so output should back up", _connection.getQueuedBytes() > HIGH_WATER_MARK);
+        assertTrue("Reads should be suspended", _connection.isReadSuspended());
+        assertFalse("Connection should not want to read", _connection.wantsRead());
+        assertTrue("Connection should want to write", _connection.wantsWrite());
+
+        ByteBuffer readBuffer = ByteBuffer.allocate(HIGH_WATER_MARK);
+        int read = 0;
+        while (read < total)
+        {
+            readBuffer.clear();
+            read += _client.read(readBuffer);
+            _connection.doWork();
+        }
+
+        assertEquals("All queued data should have been written", 0, _connection.getQueuedBytes());
+        assertFalse("Reads should have resumed", _connection.isReadSuspended());
+        assertTrue("Connection should want to read", _connection.wantsRead());
+    }
+
+    public void testReadsNotSuspendedBelowHighWaterMark() throws Exception
+    {
+        _connection.send(ByteBuffer.allocate(HIGH_WATER_MARK));
+
+        assertTrue("Connection should remain open", _connection.doWork());
+        assertFalse("Reads should not be suspended", _connection.isReadSuspended());
+        assertTrue("Connection should want to read", _connection.wantsRead());
+    }
+
+    private static class IdleTicker implements Ticker
+    {
+        @Override
+        public int getTimeToNextTick(final long currentTime)
+        {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public int tick(final long currentTime)
+        {
+            return Integer.MAX_VALUE;
+        }
+    }
+}
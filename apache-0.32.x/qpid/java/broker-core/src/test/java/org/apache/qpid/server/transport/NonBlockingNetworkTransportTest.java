@@ -0,0 +1,439 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.apache.qpid.protocol.ProtocolEngine;
+import org.apache.qpid.protocol.ProtocolEngineFactory;
+import org.apache.qpid.server.model.Transport;
+import org.apache.qpid.test.utils.QpidTestCase;
+import org.apache.qpid.transport.NetworkTransportConfiguration;
+import org.apache.qpid.transport.Sender;
+import org.apache.qpid.transport.network.NetworkConnection;
+
+public class NonBlockingNetworkTransportTest extends QpidTestCase
+{
+    private final List<EchoProtocolEngine> _engines = Collections.synchronizedList(new ArrayList<EchoProtocolEngine>());
+    private NonBlockingNetworkTransport _transport;
+    private ProtocolEngineFactory _factory;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _factory = new ProtocolEngineFactory()
+        {
+            @Override
+            public ProtocolEngine newProtocolEngine(final SocketAddress remoteSocketAddress)
+            {
+                EchoProtocolEngine engine = new EchoProtocolEngine();
+                _engines.add(engine);
+                return engine;
+            }
+        };
+        _transport = new NonBlockingNetworkTransport(new TestNetworkTransportConfiguration(),
+                                                     _factory,
+                                                     2,
+                                                     Collections.singleton(Transport.TCP),
+                                                     null,
+                                                     1,
+                                                     0);
+        _transport.start();
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        try
+        {
+            _transport.close();
+        }
+        finally
+        {
+            super.tearDown();
+        }
+    }
+
+    public void testManyConnectionsServicedBySmallThreadPool() throws Exception
+    {
+        final int connectionCount = 10;
+        List<Socket> sockets = new ArrayList<>();
+        try
+        {
+            for (int i = 0; i < connectionCount; i++)
+            {
+                sockets.add(new Socket(InetAddress.getLoopbackAddress(), _transport.getAcceptingPort()));
+            }
+
+            for (int i = 0; i < connectionCount; i++)
+            {
+                Socket socket = sockets.get(i);
+                socket.setSoTimeout(5000);
+                byte[] message = ("message" + i).getBytes();
+                socket.getOutputStream().write(message);
+                socket.getOutputStream().flush();
+
+                assertEquals("Unexpected echo", new String(message), new String(readFully(socket, message.length)));
+            }
+            assertEquals("Unexpected number of engines", connectionCount, _engines.size());
+        }
+        finally
+        {
+            for (Socket socket : sockets)
+            {
+                socket.close();
+            }
+        }
+    }
+
+    public void testPeerCloseNotifiesProtocolEngine() throws Exception
+    {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), _transport.getAcceptingPort());
+        socket.setSoTimeout(5000);
+        OutputStream out = socket.getOutputStream();
+        out.write(1);
+        out.flush();
+        readFully(socket, 1);
+
+        socket.close();
+
+        assertTrue("Protocol engine was not notified of close", _engines.get(0).awaitClosed());
+    }
+
+    public void testEngineCloseClosesSocketAfterPendingDataIsWritten() throws Exception
+    {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), _transport.getAcceptingPort());
+        try
+        {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(EchoProtocolEngine.CLOSE_REQUEST);
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            assertEquals("Expected echo before close", EchoProtocolEngine.CLOSE_REQUEST, in.read());
+            assertEquals("Expected end of stream", -1, in.read());
+            assertTrue("Protocol engine was not notified of close", _engines.get(0).awaitClosed());
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    public void testSharedBuffersWrittenInOrder() throws Exception
+    {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), _transport.getAcceptingPort());
+        try
+        {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            byte[] message = {EchoProtocolEngine.SHARED_ECHO_REQUEST, 1, 2, 3, 4, 5};
+            out.write(message);
+            out.flush();
+
+            byte[] echoed = readFully(socket, message.length);
+            for (int i = 0; i < message.length; i++)
+            {
+                assertEquals("Unexpected byte at " + i, message[i], echoed[i]);
+            }
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    public void testTlsHandshakeRenegotiationAndClose() throws Exception
+    {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        try (InputStream is = getClass().getResourceAsStream("/java_broker_keystore.jks"))
+        {
+            keyStore.load(is, "password".toCharArray());
+        }
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, "password".toCharArray());
+        serverContext.init(kmf.getKeyManagers(), null, null);
+
+        SSLContext clientContext = SSLContext.getInstance("TLS");
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore);
+        clientContext.init(null, tmf.getTrustManagers(), null);
+
+        NonBlockingNetworkTransport tlsTransport =
+                new NonBlockingNetworkTransport(new TestNetworkTransportConfiguration(),
+                                                _factory,
+                                                1,
+                                                Collections.singleton(Transport.SSL),
+                                                serverContext,
+                                                1,
+                                                2);
+        tlsTransport.start();
+        try
+        {
+            SSLSocket socket = (SSLSocket) clientContext.getSocketFactory()
+                    .createSocket(InetAddress.getLoopbackAddress(), tlsTransport.getAcceptingPort());
+            try
+            {
+                socket.setSoTimeout(5000);
+                socket.setEnabledProtocols(new String[]{"TLSv1.2"});
+                final CountDownLatch handshakes = new CountDownLatch(2);
+                socket.addHandshakeCompletedListener(new HandshakeCompletedListener()
+                {
+                    @Override
+                    public void handshakeCompleted(final HandshakeCompletedEvent event)
+                    {
+                        handshakes.countDown();
+                    }
+                });
+                socket.startHandshake();
+
+                OutputStream out = socket.getOutputStream();
+                byte[] message = new byte[100000];
+                for (int i = 0; i < message.length; i++)
+                {
+                    message[i] = (byte) (i % 100);
+                }
+                out.write(message);
+                out.flush();
+                assertTrue("Unexpected echo", Arrays.equals(message, readFully(socket, message.length)));
+
+                // renegotiate, then check that data still flows in both directions
+                socket.startHandshake();
+                out.write(message);
+                out.flush();
+                assertTrue("Unexpected echo after renegotiation",
+                           Arrays.equals(message, readFully(socket, message.length)));
+                assertTrue("Renegotiation did not complete", handshakes.await(5, TimeUnit.SECONDS));
+
+                out.write(EchoProtocolEngine.CLOSE_REQUEST);
+                out.flush();
+                InputStream in = socket.getInputStream();
+                assertEquals("Expected echo before close", EchoProtocolEngine.CLOSE_REQUEST, in.read());
+                assertEquals("Expected close_notify to end the stream", -1, in.read());
+                assertTrue("Protocol engine was not notified of close", _engines.get(0).awaitClosed());
+            }
+            finally
+            {
+                socket.close();
+            }
+        }
+        finally
+        {
+            tlsTransport.close();
+        }
+    }
+
+    private byte[] readFully(final Socket socket, final int length) throws Exception
+    {
+        byte[] result = new byte[length];
+        InputStream in = socket.getInputStream();
+        int read = 0;
+        while (read < length)
+        {
+            int count = in.read(result, read, length - read);
+            assertTrue("Unexpected end of stream", count != -1);
+            read += count;
+        }
+        return result;
+    }
+
+    private static class EchoProtocolEngine implements ProtocolEngine
+    {
+        private static final int CLOSE_REQUEST = 0x7F;
+        private static final byte SHARED_ECHO_REQUEST = 0x7E;
+
+        private final CountDownLatch _closed = new CountDownLatch(1);
+        private NetworkConnection _network;
+        private Sender<ByteBuffer> _sender;
+
+        @Override
+        public void received(final ByteBuffer msg)
+        {
+            boolean closeRequested = msg.get(msg.limit() - 1) == CLOSE_REQUEST;
+            if (msg.get(msg.position()) == SHARED_ECHO_REQUEST)
+            {
+                // echo the bytes back one at a time, each from its own buffer
+                ByteBufferSender sender = (ByteBufferSender) _sender;
+                ByteBuffer copy = ByteBuffer.allocate(msg.remaining());
+                copy.put(msg);
+                for (int i = 0; i < copy.capacity(); i++)
+                {
+                    copy.limit(i + 1);
+                    copy.position(i);
+                    sender.sendShared(copy);
+                }
+            }
+            else
+            {
+                _sender.send(msg);
+            }
+            _sender.flush();
+            if (closeRequested)
+            {
+                _network.close();
+            }
+        }
+
+        @Override
+        public void setNetworkConnection(final NetworkConnection network, final Sender<ByteBuffer> sender)
+        {
+            _network = network;
+            _sender = sender;
+        }
+
+        @Override
+        public void closed()
+        {
+            _closed.countDown();
+        }
+
+        boolean awaitClosed() throws InterruptedException
+        {
+            return _closed.await(5, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void exception(final Throwable t)
+        {
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress()
+        {
+            return _network.getRemoteAddress();
+        }
+
+        @Override
+        public SocketAddress getLocalAddress()
+        {
+            return _network.getLocalAddress();
+        }
+
+        @Override
+        public long getWrittenBytes()
+        {
+            return 0;
+        }
+
+        @Override
+        public long getReadBytes()
+        {
+            return 0;
+        }
+
+        @Override
+        public void writerIdle()
+        {
+        }
+
+        @Override
+        public void readerIdle()
+        {
+        }
+
+        @Override
+        public long getLastReadTime()
+        {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long getLastWriteTime()
+        {
+            return System.currentTimeMillis();
+        }
+    }
+
+    private static class TestNetworkTransportConfiguration implements NetworkTransportConfiguration
+    {
+        @Override
+        public boolean getTcpNoDelay()
+        {
+            return true;
+        }
+
+        @Override
+        public int getReceiveBufferSize()
+        {
+            return 64 * 1024;
+        }
+
+        @Override
+        public int getSendBufferSize()
+        {
+            return 64 * 1024;
+        }
+
+        @Override
+        public InetSocketAddress getAddress()
+        {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        }
+
+        @Override
+        public boolean needClientAuth()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean wantClientAuth()
+        {
+            return false;
+        }
+
+        @Override
+        public Collection<String> getEnabledCipherSuites()
+        {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Collection<String> getDisabledCipherSuites()
+        {
+            return Collections.emptyList();
+        }
+    }
+}
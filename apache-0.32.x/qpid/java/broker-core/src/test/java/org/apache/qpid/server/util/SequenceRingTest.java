@@ -0,0 +1,111 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class SequenceRingTest extends QpidTestCase
+{
+    private SequenceRing<String> _ring;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _ring = new SequenceRing<>(16);
+    }
+
+    public void testRemoveRange()
+    {
+        populate(1, 10);
+
+        assertEquals(Arrays.asList("3", "4", "5"), _ring.removeRange(3, 5));
+        assertEquals(7, _ring.size());
+        assertNull(_ring.get(4));
+        assertEquals("6", _ring.get(6));
+        assertEquals(Arrays.asList("1", "2", "6"), _ring.removeRange(Long.MIN_VALUE, 6));
+        assertEquals(Arrays.asList("7", "8", "9", "10"), _ring.removeAll());
+        assertTrue(_ring.isEmpty());
+    }
+
+    public void testVisitStopsWhenAsked()
+    {
+        populate(1, 10);
+
+        final List<Long> visited = new ArrayList<>();
+        _ring.visit(2, 8, new SequenceRing.Visitor<String>()
+        {
+            @Override
+            public boolean visit(final long sequenceNumber, final String value)
+            {
+                visited.add(sequenceNumber);
+                return sequenceNumber == 4;
+            }
+        });
+
+        assertEquals(Arrays.asList(2L, 3L, 4L), visited);
+        assertEquals("Visiting should not remove", 10, _ring.size());
+    }
+
+    public void testValueHeldWhilstLaterOnesRemoved()
+    {
+        _ring.put(0, "held");
+        for(int i = 1; i <= 10000; i++)
+        {
+            String value = String.valueOf(i);
+            _ring.put(i, value);
+            assertSame(value, _ring.remove(i));
+        }
+
+        assertEquals(1, _ring.size());
+        assertTrue("Ring should not grow to cover the held value, capacity: " + _ring.getCapacity(),
+                   _ring.getCapacity() <= 32);
+        assertEquals("held", _ring.get(0));
+
+        _ring.put(10001, "last");
+        assertEquals(Arrays.asList("held", "last"), _ring.removeRange(0, 10001));
+        assertTrue(_ring.isEmpty());
+    }
+
+    public void testWindowStartsAfreshOnceEmptied()
+    {
+        populate(1, 10);
+        _ring.removeAll();
+
+        populate(1000000, 10);
+
+        assertEquals(16, _ring.getCapacity());
+        assertEquals("1000000", _ring.get(1000000));
+        assertEquals(10, _ring.removeAll().size());
+    }
+
+    private void populate(long first, int count)
+    {
+        for(long i = first; i < first + count; i++)
+        {
+            _ring.put(i, String.valueOf(i));
+        }
+    }
+}
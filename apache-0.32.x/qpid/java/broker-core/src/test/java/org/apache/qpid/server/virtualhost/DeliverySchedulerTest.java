@@ -0,0 +1,117 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.virtualhost;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class DeliverySchedulerTest extends QpidTestCase
+{
+    private DeliveryScheduler _scheduler;
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        try
+        {
+            if (_scheduler != null)
+            {
+                _scheduler.shutdown();
+            }
+        }
+        finally
+        {
+            super.tearDown();
+        }
+    }
+
+    public void testTasksRunOnThreadsOfTheVirtualHost() throws Exception
+    {
+        _scheduler = new DeliveryScheduler("testvhost", 2);
+        final AtomicReference<String> threadName = new AtomicReference<String>();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        _scheduler.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                threadName.set(Thread.currentThread().getName());
+                latch.countDown();
+            }
+        });
+
+        assertTrue("Task did not run", latch.await(5, TimeUnit.SECONDS));
+        assertTrue("Unexpected thread name " + threadName.get(), threadName.get().startsWith("Delivery : testvhost"));
+        assertEquals("Unexpected thread count", 2, _scheduler.getThreadCount());
+    }
+
+    public void testQueueingDelayAndOccupancyAreMeasured() throws Exception
+    {
+        _scheduler = new DeliveryScheduler("testvhost", 1);
+        final CountDownLatch blockerStarted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch queuedTaskRun = new CountDownLatch(1);
+
+        _scheduler.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                blockerStarted.countDown();
+                try
+                {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue("Blocking task did not start", blockerStarted.await(5, TimeUnit.SECONDS));
+
+        _scheduler.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                queuedTaskRun.countDown();
+            }
+        });
+
+        assertEquals("Unexpected active thread count", 1, _scheduler.getActiveCount());
+        assertEquals("Unexpected pending task count", 1, _scheduler.getPendingCount());
+
+        Thread.sleep(50);
+        release.countDown();
+        assertTrue("Queued task did not run", queuedTaskRun.await(5, TimeUnit.SECONDS));
+
+        assertTrue("Maximum queueing delay should reflect the wait for the blocked thread, was "
+                   + _scheduler.getMaximumQueueingDelay(),
+                   _scheduler.getMaximumQueueingDelay() >= TimeUnit.MILLISECONDS.toMicros(50));
+        assertTrue("Average queueing delay should be non zero", _scheduler.getAverageQueueingDelay() > 0);
+        assertEquals("Unexpected pending task count", 0, _scheduler.getPendingCount());
+    }
+}
@@ -25,16 +25,22 @@ import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNull;
 import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
 import junit.framework.TestCase;
 import org.mockito.ArgumentMatcher;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.message.EnqueueableMessage;
@@ -105,6 +111,39 @@ public class SynchronousMessageStoreRecovererTest extends TestCase
 
         ServerMessage<?> message = storedMessage.getMetaData().getType().createMessage(storedMessage);
         verify(queue, times(1)).recover(eq(message));
+
+        assertEquals("Unexpected recovered entry count", 1L, recoverer.getRecoveredEntryCount());
+        assertEquals("Unexpected recovering queue count", 0, recoverer.getRecoveringQueueCount());
+    }
+
+    public void testRecoveringQueueCountDecreasesAsQueuesComplete()
+    {
+        final SynchronousMessageStoreRecoverer recoverer = new SynchronousMessageStoreRecoverer();
+        final List<Integer> countsSeen = new ArrayList<>();
+        Answer<Void> recordCount = new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation)
+            {
+                countsSeen.add(recoverer.getRecoveringQueueCount());
+                return null;
+            }
+        };
+
+        AMQQueue<?> queue1 = createRegisteredMockQueue();
+        AMQQueue<?> queue2 = mock(AMQQueue.class);
+        when(queue2.getName()).thenReturn("other-queue");
+        doAnswer(recordCount).when(queue1).completeRecovery();
+        doAnswer(recordCount).when(queue2).completeRecovery();
+        when(_virtualHost.getQueues()).thenReturn(Arrays.<AMQQueue>asList(queue1, queue2));
+        when(_virtualHost.getMessageStore()).thenReturn(new NullMessageStore()
+        {
+        });
+
+        recoverer.recover(_virtualHost);
+
+        assertEquals("Unexpected counts whilst queues completed recovery", Arrays.asList(2, 1), countsSeen);
+        assertEquals("Unexpected recovering queue count", 0, recoverer.getRecoveringQueueCount());
     }
 
     @SuppressWarnings("unchecked")
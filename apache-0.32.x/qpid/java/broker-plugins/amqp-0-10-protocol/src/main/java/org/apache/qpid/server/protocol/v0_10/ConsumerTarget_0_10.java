@@ -36,7 +36,6 @@ import org.apache.qpid.server.logging.messages.ChannelMessages;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.model.Exchange;
-import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.protocol.MessageConverterRegistry;
 import org.apache.qpid.server.queue.AMQQueue;
 import org.apache.qpid.server.queue.QueueConsumer;
@@ -211,11 +210,7 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget implements FlowC
         }
         else
         {
-            MessageConverter converter =
-                    MessageConverterRegistry.getConverter(serverMsg.getClass(), MessageTransferMessage.class);
-
-
-            msg = (MessageTransferMessage) converter.convert(serverMsg, _session.getVirtualHost());
+            msg = MessageConverterRegistry.convert(serverMsg, MessageTransferMessage.class, _session.getVirtualHost());
         }
         DeliveryProperties origDeliveryProps = msg.getHeader() == null ? null : msg.getHeader().getDeliveryProperties();
         messageProps = msg.getHeader() == null ? null : msg.getHeader().getMessageProperties();
@@ -269,6 +264,7 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget implements FlowC
             byte[] uncompressed = GZIPUtils.uncompressBufferToArray(body);
             if(uncompressed != null)
             {
+                messageProps = copyMessageProperties(messageProps);
                 messageProps.setContentEncoding(null);
                 body = ByteBuffer.wrap(uncompressed);
             }
@@ -282,10 +278,7 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget implements FlowC
             byte[] compressed = GZIPUtils.compressBufferToArray(body);
             if(compressed != null)
             {
-                if(messageProps == null)
-                {
-                    messageProps = new MessageProperties();
-                }
+                messageProps = messageProps == null ? new MessageProperties() : copyMessageProperties(messageProps);
                 messageProps.setContentEncoding(GZIPUtils.GZIP_CONTENT_ENCODING);
                 body = ByteBuffer.wrap(compressed);
             }
@@ -351,6 +344,28 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget implements FlowC
         _unacknowledgedBytes.addAndGet(entry.getMessage().getSize());
     }
 
+    /**
+     * The message header may be shared with deliveries to other consumers, so it must be copied before changing it
+     * for this one.
+     */
+    private static MessageProperties copyMessageProperties(final MessageProperties original)
+    {
+        MessageProperties copy = new MessageProperties(original.getContentLength(),
+                                                       original.getMessageId(),
+                                                       original.getCorrelationId(),
+                                                       original.getReplyTo(),
+                                                       original.getContentType(),
+                                                       original.getContentEncoding(),
+                                                       original.getUserId(),
+                                                       original.getAppId(),
+                                                       original.getApplicationHeaders());
+        if(!original.hasContentLength())
+        {
+            copy.clearContentLength();
+        }
+        return copy;
+    }
+
     private void deferredAddCredit(final int deferredMessageCredit, final long deferredSizeCredit)
     {
         _deferredMessageCredit += deferredMessageCredit;
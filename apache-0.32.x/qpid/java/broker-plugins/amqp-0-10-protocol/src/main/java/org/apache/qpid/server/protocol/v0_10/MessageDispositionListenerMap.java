@@ -0,0 +1,142 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.protocol.v0_10;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.qpid.server.util.SequenceRing;
+import org.apache.qpid.transport.Range;
+import org.apache.qpid.transport.RangeSet;
+
+/**
+ * Holds the disposition listeners of a session's unsettled message transfers in a {@link SequenceRing} indexed by
+ * command id, so that a range of a {@link RangeSet} is handled by walking straight through its slots rather than by
+ * searching for each id.  Listeners are added by the session while holding its command lock and may be removed
+ * concurrently by any thread without locking.
+ * <p>
+ * Command ids are serial numbers which wrap around, so each is held against its distance from the most recently
+ * added one, counted on from that one's position in the ring's unbounded sequence.
+ */
+class MessageDispositionListenerMap
+{
+    private static final int INITIAL_CAPACITY = 1024;
+
+    interface Visitor
+    {
+        void visit(int commandId, ServerSession.MessageDispositionChangeListener listener);
+    }
+
+    private final SequenceRing<ServerSession.MessageDispositionChangeListener> _listeners =
+            new SequenceRing<>(INITIAL_CAPACITY);
+    /** the position in the sequence of the most recently added command id */
+    private volatile long _last;
+
+    /**
+     * Must not be called by more than one thread at a time, and should be called with increasing command ids.
+     */
+    void put(int commandId, ServerSession.MessageDispositionChangeListener listener)
+    {
+        // once nothing is held the next id may be anywhere in the serial number space
+        long sequenceNumber = _listeners.isEmpty() ? commandId : toSequenceNumber(commandId);
+        _last = sequenceNumber;
+        _listeners.put(sequenceNumber, listener);
+    }
+
+    ServerSession.MessageDispositionChangeListener get(int commandId)
+    {
+        return _listeners.get(toSequenceNumber(commandId));
+    }
+
+    ServerSession.MessageDispositionChangeListener remove(int commandId)
+    {
+        return _listeners.remove(toSequenceNumber(commandId));
+    }
+
+    /**
+     * Removes the listeners of all the transfers in the given ranges.
+     *
+     * @return the removed listeners, in command id order within each range
+     */
+    List<ServerSession.MessageDispositionChangeListener> removeAll(RangeSet ranges)
+    {
+        final List<ServerSession.MessageDispositionChangeListener> removed = new ArrayList<>();
+        for(Range range : ranges)
+        {
+            removed.addAll(_listeners.removeRange(toSequenceNumber(range.getLower()),
+                                                  toSequenceNumber(range.getUpper())));
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every listener.
+     *
+     * @return the removed listeners, in command id order
+     */
+    List<ServerSession.MessageDispositionChangeListener> removeAll()
+    {
+        return _listeners.removeAll();
+    }
+
+    /**
+     * Visits, without removing them, the listeners of all the transfers in the given ranges.
+     */
+    void visit(RangeSet ranges, final Visitor visitor)
+    {
+        SequenceRing.Visitor<ServerSession.MessageDispositionChangeListener> ringVisitor =
+                new SequenceRing.Visitor<ServerSession.MessageDispositionChangeListener>()
+                {
+                    @Override
+                    public boolean visit(final long sequenceNumber,
+                                         final ServerSession.MessageDispositionChangeListener listener)
+                    {
+                        visitor.visit((int) sequenceNumber, listener);
+                        return false;
+                    }
+                };
+        for(Range range : ranges)
+        {
+            _listeners.visit(toSequenceNumber(range.getLower()), toSequenceNumber(range.getUpper()), ringVisitor);
+        }
+    }
+
+    int size()
+    {
+        return _listeners.size();
+    }
+
+    boolean isEmpty()
+    {
+        return _listeners.isEmpty();
+    }
+
+    int getCapacity()
+    {
+        return _listeners.getCapacity();
+    }
+
+    private long toSequenceNumber(int commandId)
+    {
+        long last = _last;
+        return last + (commandId - (int) last);
+    }
+}
@@ -246,4 +246,10 @@ public class ProtocolEngine_0_10  extends InputHandler implements ServerProtocol
     {
         return _connection.getAuthorizedSubject();
     }
+
+    @Override
+    public void encryptedTransport()
+    {
+        // the transport is decided before the protocol engine is created
+    }
 }
@@ -21,7 +21,6 @@
 package org.apache.qpid.server.protocol.v0_10;
 
 import static org.apache.qpid.server.logging.subjects.LogSubjectFormat.CHANNEL_FORMAT;
-import static org.apache.qpid.util.Serial.gt;
 
 import java.security.AccessController;
 import java.security.Principal;
@@ -31,15 +30,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -102,7 +98,6 @@ import org.apache.qpid.transport.MessageSetFlowMode;
 import org.apache.qpid.transport.MessageStop;
 import org.apache.qpid.transport.MessageTransfer;
 import org.apache.qpid.transport.Method;
-import org.apache.qpid.transport.Range;
 import org.apache.qpid.transport.RangeSet;
 import org.apache.qpid.transport.RangeSetFactory;
 import org.apache.qpid.transport.Session;
@@ -150,8 +145,8 @@ public class ServerSession extends Session
 
     }
 
-    private final SortedMap<Integer, MessageDispositionChangeListener> _messageDispositionListenerMap =
-            new ConcurrentSkipListMap<Integer, MessageDispositionChangeListener>();
+    private final MessageDispositionListenerMap _messageDispositionListenerMap = new MessageDispositionListenerMap();
+    private AcceptBatch _acceptBatch;
 
     private ServerTransaction _transaction;
 
@@ -327,13 +322,24 @@ public class ServerSession extends Session
 
     public void accept(RangeSet ranges)
     {
-        dispositionChange(ranges, new MessageDispositionAction()
+        // gather the dequeues of all the accepted messages so they reach the store as one transaction
+        AcceptBatch batch = new AcceptBatch();
+        _acceptBatch = batch;
+        try
         {
-            public void performAction(MessageDispositionChangeListener listener)
+            dispositionChange(ranges, new MessageDispositionAction()
             {
-                listener.onAccept();
-            }
-        });
+                public void performAction(MessageDispositionChangeListener listener)
+                {
+                    listener.onAccept();
+                }
+            });
+        }
+        finally
+        {
+            _acceptBatch = null;
+        }
+        batch.dequeue();
     }
 
 
@@ -361,47 +367,20 @@ public class ServerSession extends Session
 
     public RangeSet acquire(RangeSet transfers)
     {
-        RangeSet acquired = RangeSetFactory.createRangeSet();
+        final RangeSet acquired = RangeSetFactory.createRangeSet();
 
         if(!_messageDispositionListenerMap.isEmpty())
         {
-            Iterator<Integer> unacceptedMessages = _messageDispositionListenerMap.keySet().iterator();
-            Iterator<Range> rangeIter = transfers.iterator();
-
-            if(rangeIter.hasNext())
+            _messageDispositionListenerMap.visit(transfers, new MessageDispositionListenerMap.Visitor()
             {
-                Range range = rangeIter.next();
-
-                while(range != null && unacceptedMessages.hasNext())
+                public void visit(final int commandId, final MessageDispositionChangeListener listener)
                 {
-                    int next = unacceptedMessages.next();
-                    while(gt(next, range.getUpper()))
-                    {
-                        if(rangeIter.hasNext())
-                        {
-                            range = rangeIter.next();
-                        }
-                        else
-                        {
-                            range = null;
-                            break;
-                        }
-                    }
-                    if(range != null && range.includes(next))
+                    if(listener.acquire())
                     {
-                        MessageDispositionChangeListener changeListener = _messageDispositionListenerMap.get(next);
-                        if(changeListener != null && changeListener.acquire())
-                        {
-                            acquired.add(next);
-                        }
+                        acquired.add(commandId);
                     }
-
-
                 }
-
-            }
-
-
+            });
         }
 
         return acquired;
@@ -409,55 +388,11 @@ public class ServerSession extends Session
 
     public void dispositionChange(RangeSet ranges, MessageDispositionAction action)
     {
-        if(ranges != null)
+        if(ranges != null && !_messageDispositionListenerMap.isEmpty())
         {
-
-            if(ranges.size() == 1)
-            {
-                Range r = ranges.getFirst();
-                for(int i = r.getLower(); i <= r.getUpper(); i++)
-                {
-                    MessageDispositionChangeListener changeListener = _messageDispositionListenerMap.remove(i);
-                    if(changeListener != null)
-                    {
-                        action.performAction(changeListener);
-                    }
-                }
-            }
-            else if(!_messageDispositionListenerMap.isEmpty())
+            for(MessageDispositionChangeListener changeListener : _messageDispositionListenerMap.removeAll(ranges))
             {
-                Iterator<Integer> unacceptedMessages = _messageDispositionListenerMap.keySet().iterator();
-                Iterator<Range> rangeIter = ranges.iterator();
-
-                if(rangeIter.hasNext())
-                {
-                    Range range = rangeIter.next();
-
-                    while(range != null && unacceptedMessages.hasNext())
-                    {
-                        int next = unacceptedMessages.next();
-                        while(gt(next, range.getUpper()))
-                        {
-                            if(rangeIter.hasNext())
-                            {
-                                range = rangeIter.next();
-                            }
-                            else
-                            {
-                                range = null;
-                                break;
-                            }
-                        }
-                        if(range != null && range.includes(next))
-                        {
-                            MessageDispositionChangeListener changeListener = _messageDispositionListenerMap.remove(next);
-                            action.performAction(changeListener);
-                        }
-
-
-                    }
-
-                }
+                action.performAction(changeListener);
             }
         }
     }
@@ -478,11 +413,10 @@ public class ServerSession extends Session
             getVirtualHost().getDtxRegistry().endAssociations(this);
         }
 
-        for(MessageDispositionChangeListener listener : _messageDispositionListenerMap.values())
+        for(MessageDispositionChangeListener listener : _messageDispositionListenerMap.removeAll())
         {
             listener.onRelease(true);
         }
-        _messageDispositionListenerMap.clear();
 
         for (Action<? super ServerSession> task : _taskList)
         {
@@ -505,6 +439,13 @@ public class ServerSession extends Session
 
     public void acknowledge(final ConsumerTarget_0_10 sub, final MessageInstance entry)
     {
+        AcceptBatch batch = _acceptBatch;
+        if(batch != null && batch.isOwnedByCurrentThread())
+        {
+            batch.add(sub, entry);
+            return;
+        }
+
         _transaction.dequeue(entry.getOwningResource(), entry.getMessage(),
                              new ServerTransaction.Action()
                              {
@@ -524,6 +465,58 @@ public class ServerSession extends Session
                              });
     }
 
+    /**
+     * The messages acknowledged while a message.accept is processed, dequeued together once it has been.
+     * Acknowledgements made by any thread other than the one processing the accept are not batched.
+     */
+    private final class AcceptBatch
+    {
+        private final Thread _owner = Thread.currentThread();
+        private final List<ConsumerTarget_0_10> _targets = new ArrayList<>();
+        private final List<MessageInstance> _entries = new ArrayList<>();
+
+        private boolean isOwnedByCurrentThread()
+        {
+            return _owner == Thread.currentThread();
+        }
+
+        private void add(ConsumerTarget_0_10 target, MessageInstance entry)
+        {
+            _targets.add(target);
+            _entries.add(entry);
+        }
+
+        private void dequeue()
+        {
+            if(_entries.isEmpty())
+            {
+                return;
+            }
+
+            _transaction.dequeue(_entries, new ServerTransaction.Action()
+            {
+                public void postCommit()
+                {
+                    for(int i = 0; i < _entries.size(); i++)
+                    {
+                        _targets.get(i).deleteAcquired(_entries.get(i));
+                    }
+                }
+
+                public void onRollback()
+                {
+                    // The client has acknowledged the messages and therefore has seen them.
+                    // In the event of rollback, the messages must be marked as redelivered.
+                    for(MessageInstance entry : _entries)
+                    {
+                        entry.setRedelivered();
+                        entry.release();
+                    }
+                }
+            });
+        }
+    }
+
     public Collection<ConsumerTarget_0_10> getSubscriptions()
     {
         return _subscriptions.values();
@@ -0,0 +1,182 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.protocol.v0_10;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+import org.apache.qpid.transport.RangeSet;
+import org.apache.qpid.transport.RangeSetFactory;
+
+public class MessageDispositionListenerMapTest extends QpidTestCase
+{
+    private MessageDispositionListenerMap _map;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        _map = new MessageDispositionListenerMap();
+    }
+
+    public void testRemoveRanges()
+    {
+        TestListener[] listeners = populate(0, 10, 1);
+
+        RangeSet ranges = RangeSetFactory.createRangeSet();
+        ranges.add(2, 4);
+        ranges.add(7);
+        ranges.add(20, 30);
+        List<ServerSession.MessageDispositionChangeListener> removed = _map.removeAll(ranges);
+
+        assertEquals("Unexpected number of listeners removed", 4, removed.size());
+        assertSame(listeners[2], removed.get(0));
+        assertSame(listeners[4], removed.get(2));
+        assertSame(listeners[7], removed.get(3));
+        assertEquals("Unexpected number of remaining listeners", 6, _map.size());
+        for(int i = 0; i < 10; i++)
+        {
+            boolean expectRemoved = (i >= 2 && i <= 4) || i == 7;
+            assertEquals("Unexpected listener for command " + i, expectRemoved ? null : listeners[i], _map.get(i));
+        }
+    }
+
+    public void testCommandIdsWrappingAround()
+    {
+        int first = Integer.MAX_VALUE - 4;
+        TestListener[] listeners = populate(first, 10, 1);
+
+        RangeSet ranges = RangeSetFactory.createRangeSet();
+        ranges.add(Integer.MAX_VALUE - 1, Integer.MIN_VALUE + 1);
+        List<ServerSession.MessageDispositionChangeListener> removed = _map.removeAll(ranges);
+
+        assertEquals("Unexpected number of listeners removed", 4, removed.size());
+        assertSame(listeners[3], removed.get(0));
+        assertSame(listeners[6], removed.get(3));
+        assertEquals("Unexpected number of remaining listeners", 6, _map.size());
+        assertEquals("Unexpected number of listeners removed on close", 6, _map.removeAll().size());
+        assertTrue("Map should be empty", _map.isEmpty());
+    }
+
+    public void testUnsettledWindowLargerThanInitialCapacity()
+    {
+        final int count = 5000;
+        TestListener[] listeners = populate(100, count, 3);
+        assertEquals(count, _map.size());
+
+        assertSame(listeners[0], _map.remove(100));
+        assertNull("Listener should already have been removed", _map.remove(100));
+
+        final List<Integer> visited = new ArrayList<>();
+        RangeSet ranges = RangeSetFactory.createRangeSet();
+        ranges.add(0, 100 + 3 * count);
+        _map.visit(ranges, new MessageDispositionListenerMap.Visitor()
+        {
+            @Override
+            public void visit(final int commandId, final ServerSession.MessageDispositionChangeListener listener)
+            {
+                visited.add(commandId);
+            }
+        });
+        assertEquals("Unexpected number of listeners visited", count - 1, visited.size());
+        assertEquals("Unexpected first command visited", Integer.valueOf(103), visited.get(0));
+
+        assertEquals("Unexpected number of listeners removed", count - 1, _map.removeAll(ranges).size());
+        assertTrue("Map should be empty", _map.isEmpty());
+    }
+
+    public void testTransferUnsettledWhilstLaterOnesSettled()
+    {
+        TestListener held = new TestListener();
+        _map.put(0, held);
+        final int count = 100000;
+        for(int i = 1; i <= count; i++)
+        {
+            TestListener listener = new TestListener();
+            _map.put(i, listener);
+            assertSame(listener, _map.remove(i));
+        }
+
+        assertEquals(1, _map.size());
+        assertTrue("Ring should not grow to cover the unsettled transfer, capacity: " + _map.getCapacity(),
+                   _map.getCapacity() <= 2048);
+        assertSame(held, _map.get(0));
+
+        RangeSet ranges = RangeSetFactory.createRangeSet();
+        ranges.add(0, count);
+        List<ServerSession.MessageDispositionChangeListener> removed = _map.removeAll(ranges);
+        assertEquals("Unexpected number of listeners removed", 1, removed.size());
+        assertSame(held, removed.get(0));
+        assertTrue("Map should be empty", _map.isEmpty());
+    }
+
+    public void testCommandIdsRestartAfterMapEmptied()
+    {
+        TestListener[] listeners = populate(0, 10, 1);
+        assertEquals("Unexpected number of listeners removed", 10, _map.removeAll().size());
+
+        int first = Integer.MIN_VALUE + 100;
+        listeners = populate(first, 10, 1);
+        assertEquals("Ring should not grow when the map is refilled", 1024, _map.getCapacity());
+        assertSame(listeners[0], _map.get(first));
+
+        _map.put(first + 5000, new TestListener());
+        assertSame(listeners[1], _map.get(first + 1));
+        assertEquals("Unexpected number of listeners removed on close", 11, _map.removeAll().size());
+        assertTrue("Map should be empty", _map.isEmpty());
+    }
+
+    private TestListener[] populate(int firstCommandId, int count, int step)
+    {
+        TestListener[] listeners = new TestListener[count];
+        for(int i = 0; i < count; i++)
+        {
+            listeners[i] = new TestListener();
+            _map.put(firstCommandId + i * step, listeners[i]);
+        }
+        return listeners;
+    }
+
+    private static class TestListener implements ServerSession.MessageDispositionChangeListener
+    {
+        @Override
+        public void onAccept()
+        {
+        }
+
+        @Override
+        public void onRelease(final boolean setRedelivered)
+        {
+        }
+
+        @Override
+        public void onReject()
+        {
+        }
+
+        @Override
+        public boolean acquire()
+        {
+            return true;
+        }
+    }
+}
@@ -609,7 +609,13 @@ public class AMQChannel
             }
             else
             {
-
+                if(_confirmOnPublish)
+                {
+                    // the message has been dealt with, so confirm it to keep the publisher's window moving
+                    BasicAckBody responseBody = _connection.getMethodRegistry()
+                            .createBasicAckBody(_confirmedMessageCounter, false);
+                    _connection.writeFrame(responseBody.generateFrame(_channelId));
+                }
                 getVirtualHost().getEventLogger().message(ExchangeMessages.DISCARDMSG(exchangeName, routingKey));
             }
         }
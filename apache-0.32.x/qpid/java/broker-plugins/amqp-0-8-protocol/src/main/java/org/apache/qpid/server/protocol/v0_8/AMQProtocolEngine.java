@@ -81,6 +81,7 @@ import org.apache.qpid.server.security.auth.AuthenticatedPrincipal;
 import org.apache.qpid.server.security.auth.SubjectAuthenticationResult;
 import org.apache.qpid.server.stats.StatisticsCounter;
 import org.apache.qpid.server.store.StoreException;
+import org.apache.qpid.server.transport.ByteBufferSender;
 import org.apache.qpid.server.util.Action;
 import org.apache.qpid.server.util.ConnectionScopedRuntimeException;
 import org.apache.qpid.server.util.ServerScopedRuntimeException;
@@ -112,6 +113,8 @@ public class AMQProtocolEngine implements ServerProtocolEngine,
     // channels.  This value must be of the form 2^x - 1.
     private static final int CHANNEL_CACHE_SIZE = 0xff;
     private static final int REUSABLE_BYTE_BUFFER_CAPACITY = 65 * 1024;
+    private static final int CONTENT_FRAME_HEADER_SIZE = 1 + 2 + 4;
+    private static final ByteBuffer FRAME_END = ByteBuffer.wrap(new byte[] { AMQFrame.FRAME_END_BYTE }).asReadOnlyBuffer();
     public static final String BROKER_DEBUG_BINARY_DATA_LENGTH = "broker.debug.binaryDataLength";
     public static final int DEFAULT_DEBUG_BINARY_DATA_LENGTH = 80;
     private static final long AWAIT_CLOSED_TIMEOUT = 60000;
@@ -262,6 +265,12 @@ public class AMQProtocolEngine implements ServerProtocolEngine,
         return _authorizedSubject;
     }
 
+    @Override
+    public void encryptedTransport()
+    {
+        // the transport is decided before the protocol engine is created
+    }
+
     public void setNetworkConnection(NetworkConnection network)
     {
         setNetworkConnection(network, network.getSender());
@@ -550,7 +559,43 @@ public class AMQProtocolEngine implements ServerProtocolEngine,
      */
     public synchronized void writeFrame(AMQDataBlock frame)
     {
+        sendDataBlock(frame);
+        writeCompleted();
+    }
+
+    /**
+     * Writes a block carrying the method and content header frames of a message, followed by a content frame for
+     * each of the given content chunks.  The chunks, whether heap copies or read-only views of the stored
+     * content, are handed to the sender without being copied, so their bytes must not change once the message
+     * is complete.
+     */
+    public synchronized void writeMessageFrames(AMQDataBlock methodAndHeader, int channelId, List<ByteBuffer> contentChunks)
+    {
+        sendDataBlock(methodAndHeader);
+        for(ByteBuffer chunk : contentChunks)
+        {
+            final int size = chunk.remaining();
+            ByteBuffer frameHeader = ByteBuffer.allocate(CONTENT_FRAME_HEADER_SIZE);
+            frameHeader.put(ContentBody.TYPE);
+            frameHeader.putShort((short) channelId);
+            frameHeader.putInt(size);
+            frameHeader.flip();
+
+            if(_logger.isDebugEnabled())
+            {
+                _logger.debug("SEND: [ContentBody channel: " + channelId + ", size: " + size + "]");
+            }
+
+            sendShared(frameHeader);
+            sendShared(chunk);
+            sendShared(FRAME_END);
+            _writtenBytes += CONTENT_FRAME_HEADER_SIZE + size + 1;
+        }
+        writeCompleted();
+    }
 
+    private void sendDataBlock(AMQDataBlock frame)
+    {
         final ByteBuffer buf = asByteBuffer(frame);
         _writtenBytes += buf.remaining();
 
@@ -560,6 +605,22 @@ public class AMQProtocolEngine implements ServerProtocolEngine,
         }
 
         _sender.send(buf);
+    }
+
+    private void sendShared(ByteBuffer buf)
+    {
+        if(_sender instanceof ByteBufferSender)
+        {
+            ((ByteBufferSender) _sender).sendShared(buf);
+        }
+        else
+        {
+            _sender.send(buf.duplicate());
+        }
+    }
+
+    private void writeCompleted()
+    {
         final long time = System.currentTimeMillis();
         _lastIoTime = time;
         _lastWriteTime.set(time);
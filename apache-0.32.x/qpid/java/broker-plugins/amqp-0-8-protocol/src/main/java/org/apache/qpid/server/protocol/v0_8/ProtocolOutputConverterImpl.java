@@ -23,6 +23,8 @@ package org.apache.qpid.server.protocol.v0_8;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.qpid.AMQException;
 import org.apache.qpid.framing.AMQBody;
@@ -40,7 +42,6 @@ import org.apache.qpid.protocol.AMQVersionAwareProtocolSession;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.MessageContentSource;
 import org.apache.qpid.server.message.ServerMessage;
-import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.protocol.MessageConverterRegistry;
 import org.apache.qpid.util.GZIPUtils;
 
@@ -76,16 +77,10 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
         }
         else
         {
-            return getMessageConverter(serverMessage).convert(serverMessage, _connection.getVirtualHost());
+            return MessageConverterRegistry.convert(serverMessage, AMQMessage.class, _connection.getVirtualHost());
         }
     }
 
-    private <M extends ServerMessage> MessageConverter<M, AMQMessage> getMessageConverter(M message)
-    {
-        Class<M> clazz = (Class<M>) message.getClass();
-        return MessageConverterRegistry.getConverter(clazz, AMQMessage.class);
-    }
-
     private long writeMessageDelivery(AMQMessage message, int channelId, AMQBody deliverBody)
     {
         return writeMessageDelivery(message, message.getContentHeaderBody(), channelId, deliverBody);
@@ -173,37 +168,27 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
                                                final ContentHeaderBody contentHeaderBody,
                                                final int channelId, final AMQBody deliverBody, final int bodySize)
     {
+        SmallCompositeAMQBodyBlock compositeBlock = new SmallCompositeAMQBodyBlock(channelId, deliverBody,
+                                                                                   contentHeaderBody);
         if (bodySize == 0)
         {
-            SmallCompositeAMQBodyBlock compositeBlock = new SmallCompositeAMQBodyBlock(channelId, deliverBody,
-                                                                                       contentHeaderBody);
-
             writeFrame(compositeBlock);
         }
         else
         {
             int maxBodySize = (int) _connection.getMaxFrameSize() - AMQFrame.getFrameOverhead();
 
-
-            int capacity = bodySize > maxBodySize ? maxBodySize : bodySize;
-
-            int writtenSize = capacity;
-
-            AMQBody firstContentBody = new MessageContentSourceBody(message, 0, capacity);
-
-            CompositeAMQBodyBlock
-                    compositeBlock =
-                    new CompositeAMQBodyBlock(channelId, deliverBody, contentHeaderBody, firstContentBody);
-            writeFrame(compositeBlock);
-
+            // the content frames reference the message content directly rather than copies of it
+            List<ByteBuffer> contentChunks = new ArrayList<>(1 + (bodySize - 1) / maxBodySize);
+            int writtenSize = 0;
             while (writtenSize < bodySize)
             {
-                capacity = bodySize - writtenSize > maxBodySize ? maxBodySize : bodySize - writtenSize;
-                MessageContentSourceBody body = new MessageContentSourceBody(message, writtenSize, capacity);
+                int capacity = bodySize - writtenSize > maxBodySize ? maxBodySize : bodySize - writtenSize;
+                contentChunks.add(message.getContent(writtenSize, capacity));
                 writtenSize += capacity;
-
-                writeFrame(new AMQFrame(channelId, body));
             }
+
+            _connection.writeMessageFrames(compositeBlock, channelId, contentChunks);
         }
     }
 
@@ -212,62 +197,6 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
         return GZIP_ENCODING.equals(contentHeaderBody.getProperties().getEncoding());
     }
 
-    private class MessageContentSourceBody implements AMQBody
-    {
-        public static final byte TYPE = 3;
-        private final int _length;
-        private final MessageContentSource _message;
-        private final int _offset;
-
-        public MessageContentSourceBody(MessageContentSource message, int offset, int length)
-        {
-            _message = message;
-            _offset = offset;
-            _length = length;
-        }
-
-        public byte getFrameType()
-        {
-            return TYPE;
-        }
-
-        public int getSize()
-        {
-            return _length;
-        }
-
-        public void writePayload(DataOutput buffer) throws IOException
-        {
-            ByteBuffer buf = _message.getContent(_offset, _length);
-
-            if(buf.hasArray())
-            {
-                buffer.write(buf.array(), buf.arrayOffset()+buf.position(), buf.remaining());
-            }
-            else
-            {
-
-                byte[] data = new byte[_length];
-
-                buf.get(data);
-
-                buffer.write(data);
-            }
-        }
-
-        public void handle(int channelId, AMQVersionAwareProtocolSession amqProtocolSession) throws AMQException
-        {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public String toString()
-        {
-            return "[" + getClass().getSimpleName() + " offset: " + _offset + ", length: " + _length + "]";
-        }
-
-    }
-
     public long writeGetOk(final ServerMessage msg,
                            final InstanceProperties props,
                            int channelId,
@@ -420,48 +349,6 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
     }
 
 
-    public static final class CompositeAMQBodyBlock extends AMQDataBlock
-    {
-        public static final int OVERHEAD = 3 * AMQFrame.getFrameOverhead();
-
-        private final AMQBody _methodBody;
-        private final AMQBody _headerBody;
-        private final AMQBody _contentBody;
-        private final int _channel;
-
-
-        public CompositeAMQBodyBlock(int channel, AMQBody methodBody, AMQBody headerBody, AMQBody contentBody)
-        {
-            _channel = channel;
-            _methodBody = methodBody;
-            _headerBody = headerBody;
-            _contentBody = contentBody;
-        }
-
-        public long getSize()
-        {
-            return OVERHEAD + _methodBody.getSize() + _headerBody.getSize() + _contentBody.getSize();
-        }
-
-        public void writePayload(DataOutput buffer) throws IOException
-        {
-            AMQFrame.writeFrames(buffer, _channel, _methodBody, _headerBody, _contentBody);
-        }
-
-        @Override
-        public String toString()
-        {
-            StringBuilder builder = new StringBuilder();
-            builder.append("[").append(getClass().getSimpleName())
-                .append(" methodBody=").append(_methodBody)
-                .append(", headerBody=").append(_headerBody)
-                .append(", contentBody=").append(_contentBody)
-                .append(", channel=").append(_channel).append("]");
-            return builder.toString();
-        }
-
-    }
-
     public static final class SmallCompositeAMQBodyBlock extends AMQDataBlock
     {
         public static final int OVERHEAD = 2 * AMQFrame.getFrameOverhead();
@@ -22,32 +22,40 @@ package org.apache.qpid.server.protocol.v0_8;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.qpid.server.message.MessageInstance;
+import org.apache.qpid.server.util.SequenceRing;
 
+/**
+ * Holds the unacknowledged messages of a channel in a {@link SequenceRing} indexed by delivery tag.  Messages are
+ * added by the channel while holding its lock and may be acknowledged concurrently by any thread without locking.
+ */
 public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
 {
-    private final Object _lock = new Object();
-
-    private Map<Long, MessageInstance> _map;
-
-    private final int _prefetchLimit;
+    private final SequenceRing<MessageInstance> _messages;
 
     public UnacknowledgedMessageMapImpl(int prefetchLimit)
     {
-        _prefetchLimit = prefetchLimit;
-        _map = new LinkedHashMap<>(prefetchLimit);
+        _messages = new SequenceRing<>(prefetchLimit);
     }
 
-    public void collect(long deliveryTag, boolean multiple, Map<Long, MessageInstance> msgs)
+    public void collect(long deliveryTag, boolean multiple, final Map<Long, MessageInstance> msgs)
     {
         if (multiple)
         {
-            collect(deliveryTag, msgs);
+            _messages.visit(Long.MIN_VALUE, lastTagCovered(deliveryTag), new SequenceRing.Visitor<MessageInstance>()
+            {
+                @Override
+                public boolean visit(final long tag, final MessageInstance message)
+                {
+                    msgs.put(tag, message);
+                    return false;
+                }
+            });
         }
         else
         {
@@ -60,99 +68,84 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
 
     }
 
-    public void remove(Map<Long,MessageInstance> msgs)
-    {
-        synchronized (_lock)
-        {
-            for (Long deliveryTag : msgs.keySet())
-            {
-                remove(deliveryTag);
-            }
-        }
-    }
-
     public MessageInstance remove(long deliveryTag)
     {
-        synchronized (_lock)
-        {
-
-            MessageInstance message = _map.remove(deliveryTag);
-            return message;
-        }
+        return _messages.remove(deliveryTag);
     }
 
-    public void visit(Visitor visitor)
+    public void visit(final Visitor visitor)
     {
-        synchronized (_lock)
+        _messages.visit(Long.MIN_VALUE, Long.MAX_VALUE, new SequenceRing.Visitor<MessageInstance>()
         {
-            Set<Map.Entry<Long, MessageInstance>> currentEntries = _map.entrySet();
-            for (Map.Entry<Long, MessageInstance> entry : currentEntries)
+            @Override
+            public boolean visit(final long deliveryTag, final MessageInstance message)
             {
-                visitor.callback(entry.getKey().longValue(), entry.getValue());
+                return visitor.callback(deliveryTag, message);
             }
-            visitor.visitComplete();
-        }
+        });
+        visitor.visitComplete();
     }
 
+    /**
+     * Must not be called by more than one thread at a time, and should be called with increasing delivery tags.
+     */
     public void add(long deliveryTag, MessageInstance message)
     {
-        synchronized (_lock)
-        {
-            _map.put(deliveryTag, message);
-        }
+        _messages.put(deliveryTag, message);
     }
 
     public Collection<MessageInstance> cancelAllMessages()
     {
-        synchronized (_lock)
-        {
-            Collection<MessageInstance> currentEntries = _map.values();
-            _map = new LinkedHashMap<>(_prefetchLimit);
-            return currentEntries;
-        }
+        return _messages.removeAll();
     }
 
     public int size()
     {
-        synchronized (_lock)
-        {
-            return _map.size();
-        }
+        return _messages.size();
     }
 
     public void clear()
     {
-        synchronized (_lock)
-        {
-            _map.clear();
-        }
+        _messages.removeAll();
     }
 
     public MessageInstance get(long key)
     {
-        synchronized (_lock)
-        {
-            return _map.get(key);
-        }
+        return _messages.get(key);
     }
 
     public Set<Long> getDeliveryTags()
     {
-        synchronized (_lock)
+        final Set<Long> deliveryTags = new LinkedHashSet<>();
+        _messages.visit(Long.MIN_VALUE, Long.MAX_VALUE, new SequenceRing.Visitor<MessageInstance>()
         {
-            return _map.keySet();
-        }
+            @Override
+            public boolean visit(final long deliveryTag, final MessageInstance message)
+            {
+                deliveryTags.add(deliveryTag);
+                return false;
+            }
+        });
+        return deliveryTags;
     }
 
     public Collection<MessageInstance> acknowledge(long deliveryTag, boolean multiple)
     {
-        Map<Long, MessageInstance> ackedMessageMap = new LinkedHashMap<Long,MessageInstance>();
-        collect(deliveryTag, multiple, ackedMessageMap);
-        remove(ackedMessageMap);
         List<MessageInstance> acknowledged = new ArrayList<>();
-        for(MessageInstance instance : ackedMessageMap.values())
+        if(multiple)
+        {
+            for(MessageInstance instance : _messages.removeRange(Long.MIN_VALUE, lastTagCovered(deliveryTag)))
+            {
+                if(instance.lockAcquisition())
+                {
+                    acknowledged.add(instance);
+                }
+            }
+        }
+        else
         {
-            if(instance.lockAcquisition())
+            MessageInstance instance = remove(deliveryTag);
+            if(instance != null && instance.lockAcquisition())
             {
                 acknowledged.add(instance);
             }
@@ -160,19 +153,17 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
         return acknowledged;
     }
 
-    private void collect(long key, Map<Long, MessageInstance> msgs)
+    /**
+     * @return the last delivery tag covered by a multiple acknowledgement or rejection of the given tag, a tag of
+     * zero covering every message outstanding
+     */
+    private static long lastTagCovered(long deliveryTag)
     {
-        synchronized (_lock)
-        {
-            for (Map.Entry<Long, MessageInstance> entry : _map.entrySet())
-            {
-                msgs.put(entry.getKey(),entry.getValue());
-                if (entry.getKey() == key)
-                {
-                    break;
-                }
-            }
-        }
+        return deliveryTag == 0L ? Long.MAX_VALUE : deliveryTag;
     }
 
+    int getCapacity()
+    {
+        return _messages.getCapacity();
+    }
 }
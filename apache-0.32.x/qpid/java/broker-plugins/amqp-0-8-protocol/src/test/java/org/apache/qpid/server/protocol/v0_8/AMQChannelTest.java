@@ -32,6 +32,7 @@ import java.util.Map;
 import org.apache.qpid.framing.AMQDataBlock;
 import org.apache.qpid.framing.AMQFrame;
 import org.apache.qpid.framing.AMQShortString;
+import org.apache.qpid.framing.BasicAckBody;
 import org.apache.qpid.framing.BasicContentHeaderProperties;
 import org.apache.qpid.framing.ChannelCloseBody;
 import org.apache.qpid.framing.ContentHeaderBody;
@@ -177,4 +178,30 @@ public class AMQChannelTest extends QpidTestCase
         assertEquals(AMQConstant.MESSAGE_TOO_LARGE.getCode(), ((ChannelCloseBody)((AMQFrame)frames.get(0)).getBodyFrame()).getReplyCode());
     }
 
+    public void testUnroutableMessageConfirmedInConfirmMode() throws Exception
+    {
+        AmqpPort port = mock(AmqpPort.class);
+        when(port.getContextValue(eq(Integer.class), eq(AmqpPort.PORT_MAX_MESSAGE_SIZE))).thenReturn(AmqpPort.DEFAULT_MAX_MESSAGE_SIZE);
+        final List<AMQDataBlock> frames = new ArrayList<>();
+        _protocolSession = new InternalTestProtocolSession(_virtualHost, _broker, port)
+        {
+            @Override
+            public synchronized void writeFrame(final AMQDataBlock frame)
+            {
+                frames.add(frame);
+            }
+        };
+
+        AMQChannel channel = new AMQChannel(_protocolSession, 1, _virtualHost.getMessageStore());
+        channel.receiveConfirmSelect(true);
+
+        channel.receiveBasicPublish(AMQShortString.EMPTY_STRING, new AMQShortString("unknown"), false, false);
+        channel.receiveMessageHeader(new BasicContentHeaderProperties(), 0l);
+
+        assertEquals(1, frames.size());
+        BasicAckBody ack = (BasicAckBody) ((AMQFrame) frames.get(0)).getBodyFrame();
+        assertEquals(1l, ack.getDeliveryTag());
+        assertFalse(ack.getMultiple());
+    }
+
 }
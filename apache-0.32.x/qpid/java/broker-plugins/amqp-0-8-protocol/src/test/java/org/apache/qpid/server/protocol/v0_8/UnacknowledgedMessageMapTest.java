@@ -23,6 +23,8 @@ package org.apache.qpid.server.protocol.v0_8;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 
 import junit.framework.TestCase;
@@ -64,6 +66,120 @@ public class UnacknowledgedMessageMapTest extends TestCase
 
     }
 
+    public void testMultipleAcknowledgementStopsAtDeliveryTag()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(100);
+        MessageInstance[] msgs = populateMap(map, 10);
+
+        Collection<MessageInstance> acknowledged = map.acknowledge(4, true);
+        assertEquals(5, acknowledged.size());
+        assertEquals(5, map.size());
+        for(int i = 0; i < 10; i++)
+        {
+            assertEquals("Unexpected acknowledgement of message " + i, i <= 4, acknowledged.contains(msgs[i]));
+            assertEquals("Unexpected message for tag " + i, i <= 4 ? null : msgs[i], map.get(i));
+        }
+        assertEquals(new ArrayList<>(Arrays.asList(5L, 6L, 7L, 8L, 9L)), new ArrayList<>(map.getDeliveryTags()));
+    }
+
+    public void testMultipleAcknowledgementOfTagZeroAcknowledgesAll()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(100);
+        MessageInstance[] msgs = new MessageInstance[5];
+        for(int i = 0; i < msgs.length; i++)
+        {
+            // channels hand out delivery tags from one
+            msgs[i] = createMessageInstance(i);
+            map.add(i + 1L, msgs[i]);
+        }
+
+        Collection<MessageInstance> acknowledged = map.acknowledge(0, true);
+        assertEquals(msgs.length, acknowledged.size());
+        assertTrue(acknowledged.containsAll(Arrays.asList(msgs)));
+        assertEquals(0, map.size());
+    }
+
+    public void testOutstandingMessagesBeyondPrefetchLimit()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(10);
+        final int size = 1000;
+        MessageInstance[] msgs = populateMap(map, size);
+        assertEquals(size, map.size());
+
+        for(int i = 0; i < size; i += 2)
+        {
+            assertSame(msgs[i], map.remove(i));
+        }
+        assertEquals(size / 2, map.size());
+        assertNull("Message should already have been removed", map.remove(0));
+
+        for(int i = 0; i < size; i++)
+        {
+            assertEquals("Unexpected message for tag " + i, i % 2 == 0 ? null : msgs[i], map.get(i));
+        }
+
+        Collection<MessageInstance> acknowledged = map.acknowledge(size, true);
+        assertEquals(size / 2, acknowledged.size());
+        assertEquals(0, map.size());
+    }
+
+    public void testDeliveryTagsWithGaps()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(10);
+        MessageInstance first = createMessageInstance(1);
+        MessageInstance second = createMessageInstance(2);
+        MessageInstance third = createMessageInstance(3);
+        map.add(1L, first);
+        map.add(500L, second);
+        assertSame(first, map.remove(1L));
+        map.add(100000L, third);
+
+        assertEquals(2, map.size());
+        assertEquals(new ArrayList<>(Arrays.asList(500L, 100000L)), new ArrayList<>(map.getDeliveryTags()));
+
+        Collection<MessageInstance> cancelled = map.cancelAllMessages();
+        assertEquals(2, cancelled.size());
+        assertTrue(cancelled.contains(second));
+        assertTrue(cancelled.contains(third));
+        assertEquals(0, map.size());
+    }
+
+    public void testMessageHeldWhilstLaterOnesAcknowledged()
+    {
+        UnacknowledgedMessageMapImpl map = new UnacknowledgedMessageMapImpl(10);
+        MessageInstance held = createMessageInstance(0);
+        map.add(0L, held);
+        final int count = 10000;
+        for(int i = 1; i <= count; i++)
+        {
+            MessageInstance instance = createMessageInstance(i);
+            map.add((long) i, instance);
+            if(i % 4 != 0)
+            {
+                assertSame(instance, map.remove(i));
+            }
+            else
+            {
+                assertEquals(1, map.acknowledge(i, false).size());
+            }
+        }
+
+        assertEquals(1, map.size());
+        assertTrue("Ring should not grow to cover the held message, capacity: " + map.getCapacity(),
+                   map.getCapacity() <= 64);
+        assertSame(held, map.get(0L));
+        assertEquals(new ArrayList<>(Arrays.asList(0L)), new ArrayList<>(map.getDeliveryTags()));
+
+        MessageInstance last = createMessageInstance(count + 1);
+        map.add(count + 1L, last);
+        Collection<MessageInstance> acknowledged = map.acknowledge(count + 1L, true);
+        assertEquals(2, acknowledged.size());
+        assertTrue(acknowledged.contains(held));
+        assertTrue(acknowledged.contains(last));
+        assertEquals(0, map.size());
+        assertNull(map.get(0L));
+    }
+
     public MessageInstance[] populateMap(final UnacknowledgedMessageMap map, int size)
     {
         MessageInstance[] msgs = new MessageInstance[size];
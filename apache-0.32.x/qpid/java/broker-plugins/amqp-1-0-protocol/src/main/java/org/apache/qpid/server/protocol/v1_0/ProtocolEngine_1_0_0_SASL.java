@@ -545,6 +545,12 @@ public class ProtocolEngine_1_0_0_SASL implements ServerProtocolEngine, FrameOut
         return _connection.getSubject();
     }
 
+    @Override
+    public void encryptedTransport()
+    {
+        // the transport is decided before the protocol engine is created
+    }
+
     public long getLastReadTime()
     {
         return _lastReadTime;
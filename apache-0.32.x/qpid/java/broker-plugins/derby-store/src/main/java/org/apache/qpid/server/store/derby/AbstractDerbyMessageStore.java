@@ -67,6 +67,7 @@ public abstract class AbstractDerbyMessageStore extends AbstractJDBCMessageStore
             createOrOpenMessageStoreDatabase();
             setInitialSize();
             setMaximumMessageId();
+            startCommitThread(parent.getName());
         }
     }
 
@@ -85,7 +86,14 @@ public abstract class AbstractDerbyMessageStore extends AbstractJDBCMessageStore
     {
         if (_messageStoreOpen.compareAndSet(true,  false))
         {
-            doClose();
+            try
+            {
+                stopCommitThread();
+            }
+            finally
+            {
+                doClose();
+            }
         }
     }
 
@@ -100,6 +100,7 @@ public class DerbyConfigurationStore extends AbstractJDBCConfigurationStore
             throw new IllegalStateException("Cannot close the store as the provided message store is still open");
         }
 
+        ConfigurationChangeBatch.flush(this);
         if (_configurationStoreOpen.compareAndSet(true,  false))
         {
             try
@@ -22,10 +22,19 @@ package org.apache.qpid.server.store.derby;
 
 
 import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.apache.qpid.server.model.UUIDGenerator;
 import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.store.Event;
+import org.apache.qpid.server.store.EventListener;
 import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.MessageStoreTestCase;
+import org.apache.qpid.server.store.StoreException;
+import org.apache.qpid.server.store.StoreFuture;
+import org.apache.qpid.server.store.Transaction;
+import org.apache.qpid.server.store.TransactionLogResource;
 import org.apache.qpid.server.virtualhost.derby.DerbyVirtualHost;
 import org.apache.qpid.util.FileUtils;
 
@@ -64,6 +73,43 @@ public class DerbyMessageStoreTest extends MessageStoreTestCase
         assertFalse("Store exists at " + _storeLocation, location.exists());
     }
 
+    public void testFailedAsynchronousCommitIsReported() throws Exception
+    {
+        final List<Event> events = new CopyOnWriteArrayList<>();
+        getStore().addEventListener(new EventListener()
+        {
+            @Override
+            public void event(final Event event)
+            {
+                events.add(event);
+            }
+        }, Event.PERSISTENT_MESSAGE_STORE_FAILED);
+
+        TransactionLogResource queue = createTransactionLogResource(UUIDGenerator.generateRandomUUID());
+
+        Transaction txn = getStore().newTransaction();
+        txn.dequeueMessage(queue, createEnqueueableMessage(1L));
+        StoreFuture future = txn.commitTranAsync();
+
+        try
+        {
+            future.waitForCompletion();
+            fail("Dequeue of a message that was never enqueued should fail");
+        }
+        catch (StoreException e)
+        {
+            // pass
+        }
+        assertTrue("Failed commit is not complete", future.isComplete());
+
+        // only losing the database fails the store
+        txn = getStore().newTransaction();
+        txn.enqueueMessage(queue, createEnqueueableMessage(2L));
+        txn.commitTranAsync().waitForCompletion();
+
+        assertTrue("Unexpected events " + events, events.isEmpty());
+    }
+
     @Override
     protected VirtualHost createVirtualHost()
     {
@@ -46,6 +46,7 @@ public abstract class GenericAbstractJDBCMessageStore extends org.apache.qpid.se
 
             createOrOpenMessageStoreDatabase();
             setMaximumMessageId();
+            startCommitThread(parent.getName());
         }
     }
 
@@ -75,6 +76,7 @@ public abstract class GenericAbstractJDBCMessageStore extends org.apache.qpid.se
             }
             finally
             {
+                stopCommitThread();
                 doClose();
             }
 
@@ -40,6 +40,7 @@ import org.apache.qpid.server.model.ConfiguredObject;
 import org.apache.qpid.server.plugin.JDBCConnectionProviderFactory;
 import org.apache.qpid.server.security.SecurityManager;
 import org.apache.qpid.server.store.AbstractJDBCConfigurationStore;
+import org.apache.qpid.server.store.ConfigurationChangeBatch;
 import org.apache.qpid.server.store.ConfiguredObjectRecord;
 import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.MessageStoreProvider;
@@ -161,6 +162,7 @@ public class GenericJDBCConfigurationStore extends AbstractJDBCConfigurationStor
     @Override
     public void closeConfigurationStore() throws StoreException
     {
+        ConfigurationChangeBatch.flush(this);
         if (_configurationStoreOpen.compareAndSet(true, false))
         {
             try
@@ -42,8 +42,11 @@ import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.map.SerializationConfig;
 
 import org.apache.qpid.server.configuration.IllegalConfigurationException;
+import org.apache.qpid.server.configuration.updater.Task;
+import org.apache.qpid.server.configuration.updater.VoidTask;
 import org.apache.qpid.server.model.Broker;
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.store.ConfigurationChangeBatch;
 import org.apache.qpid.server.util.urlstreamhandler.data.Handler;
 import org.apache.qpid.util.DataUrlUtils;
 
@@ -480,76 +483,209 @@ public class RestServlet extends AbstractServlet
 
         providedObject.put("name", names.get(names.size() - 1));
 
-        @SuppressWarnings("unchecked")
-        Collection<ConfiguredObject>[] objects = new Collection[_hierarchy.length];
         if (_hierarchy.length == 1)
         {
             createOrUpdate(providedObject, _hierarchy[0], getBroker(), null, request, response);
         }
         else
         {
-            for (int i = 0; i < _hierarchy.length - 1; i++)
+            List<ConfiguredObject> parents = getParents(names);
+            ConfiguredObject theParent = parents.remove(0);
+            ConfiguredObject[] otherParents = parents.toArray(new ConfiguredObject[parents.size()]);
+
+            createOrUpdate(providedObject, getConfiguredClass(), theParent, otherParents, request, response);
+        }
+
+    }
+
+    /**
+     * Creates or updates each of the objects in the JSON list that is the body of the request, as for a PUT of each
+     * one in turn, with their durable configuration written to the store in a single transaction.  The path identifies
+     * the parent of the objects.  Should any of the objects fail to be created or updated, or the store fail to be
+     * written, the objects already created are deleted and those already updated are given back their attributes.
+     */
+    @Override
+    protected void doPostWithSubjectAndActor(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+    {
+        response.setContentType("application/json");
+
+        String[] pathInfoElements = getPathInfoElements(request);
+        final List<String> names = pathInfoElements == null
+                ? Collections.<String>emptyList()
+                : Arrays.asList(pathInfoElements);
+        if (_hierarchy.length == 0 || names.size() != _hierarchy.length - 1)
+        {
+            throw new IllegalArgumentException("Path to parent of objects to create must be fully specified. "
+                                               + "Found "
+                                               + names
+                                               + " of size "
+                                               + names.size()
+                                               + " expecting "
+                                               + (_hierarchy.length - 1));
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        @SuppressWarnings("unchecked")
+        final List<Map<String, Object>> providedObjects = mapper.readValue(request.getInputStream(), List.class);
+
+        try
+        {
+            boolean created = getBroker().getTaskExecutor().run(new Task<Boolean>()
             {
-                objects[i] = new HashSet<ConfiguredObject>();
-                if (i == 0)
+                @Override
+                public Boolean execute()
                 {
-                    for (ConfiguredObject object : getBroker().getChildren(_hierarchy[0]))
+                    final Class<? extends ConfiguredObject> objClass = getConfiguredClass();
+                    final ConfiguredObject theParent;
+                    final ConfiguredObject[] otherParents;
+                    if (_hierarchy.length == 1)
+                    {
+                        theParent = getBroker();
+                        otherParents = null;
+                    }
+                    else
                     {
-                        if (object.getName().equals(names.get(0)))
+                        List<ConfiguredObject> parents = getParents(names);
+                        theParent = parents.remove(0);
+                        otherParents = parents.toArray(new ConfiguredObject[parents.size()]);
+                    }
+
+                    List<ConfiguredObject> createdObjects = new ArrayList<ConfiguredObject>();
+                    Map<ConfiguredObject, Map<String, Object>> originalAttributes =
+                            new LinkedHashMap<ConfiguredObject, Map<String, Object>>();
+
+                    ConfigurationChangeBatch batch = ConfigurationChangeBatch.start();
+                    try
+                    {
+                        for (Map<String, Object> providedObject : providedObjects)
                         {
-                            objects[0].add(object);
-                            break;
+                            ConfiguredObject obj = findExisting(providedObject, objClass, theParent, otherParents);
+                            if (obj == null)
+                            {
+                                createdObjects.add(theParent.createChild(objClass, providedObject, otherParents));
+                            }
+                            else
+                            {
+                                rememberOriginalAttributes(obj, providedObject.keySet(), originalAttributes);
+                                doUpdate(obj, providedObject);
+                            }
                         }
                     }
-                }
-                else
-                {
-                    for (int j = i - 1; j >= 0; j--)
+                    catch (RuntimeException e)
                     {
-                        if (getBroker().getModel().getChildTypes(_hierarchy[j]).contains(_hierarchy[i]))
+                        // undone within the batch, so nothing of the changes reaches the store
+                        try
+                        {
+                            undoChanges(createdObjects, originalAttributes);
+                        }
+                        finally
                         {
-                            for (ConfiguredObject<?> parent : objects[j])
+                            batch.finish();
+                        }
+                        throw e;
+                    }
+
+                    try
+                    {
+                        batch.finish();
+                    }
+                    catch (RuntimeException e)
+                    {
+                        // the changes may have been written to some of the stores, so their undoing is written too
+                        ConfigurationChangeBatch undoBatch = ConfigurationChangeBatch.start();
+                        try
+                        {
+                            try
                             {
-                                for (ConfiguredObject<?> object : parent.getChildren(_hierarchy[i]))
-                                {
-                                    if (object.getName().equals(names.get(i)))
-                                    {
-                                        objects[i].add(object);
-                                    }
-                                }
+                                undoChanges(createdObjects, originalAttributes);
                             }
-                            break;
+                            finally
+                            {
+                                undoBatch.finish();
+                            }
+                        }
+                        catch (RuntimeException undoFailure)
+                        {
+                            LOGGER.warn("Failed to write the undoing of changes that could not be stored", undoFailure);
                         }
+                        throw e;
                     }
+                    return !createdObjects.isEmpty();
                 }
+            });
+            response.setStatus(created ? HttpServletResponse.SC_CREATED : HttpServletResponse.SC_OK);
+        }
+        catch (RuntimeException e)
+        {
+            setResponseStatus(request, response, e);
+        }
+    }
 
-            }
-            List<ConfiguredObject> parents = new ArrayList<ConfiguredObject>();
-            Class<? extends ConfiguredObject> objClass = getConfiguredClass();
-            Collection<Class<? extends ConfiguredObject>> parentClasses =
-                    getBroker().getModel().getParentTypes(objClass);
-            for (int i = _hierarchy.length - 2; i >= 0; i--)
+    /**
+     * @return the parents of the object named by the given path, with the parent given by the structure of the
+     * hierarchy first
+     */
+    private List<ConfiguredObject> getParents(final List<String> names)
+    {
+        @SuppressWarnings("unchecked")
+        Collection<ConfiguredObject>[] objects = new Collection[_hierarchy.length];
+        for (int i = 0; i < _hierarchy.length - 1; i++)
+        {
+            objects[i] = new HashSet<ConfiguredObject>();
+            if (i == 0)
             {
-                if (parentClasses.contains(_hierarchy[i]))
+                for (ConfiguredObject object : getBroker().getChildren(_hierarchy[0]))
                 {
-                    if (objects[i].size() == 1)
+                    if (object.getName().equals(names.get(0)))
                     {
-                        parents.add(objects[i].iterator().next());
+                        objects[0].add(object);
+                        break;
                     }
-                    else
+                }
+            }
+            else
+            {
+                for (int j = i - 1; j >= 0; j--)
+                {
+                    if (getBroker().getModel().getChildTypes(_hierarchy[j]).contains(_hierarchy[i]))
                     {
-                        throw new IllegalArgumentException("Cannot deduce parent of class "
-                                                           + _hierarchy[i].getSimpleName());
+                        for (ConfiguredObject<?> parent : objects[j])
+                        {
+                            for (ConfiguredObject<?> object : parent.getChildren(_hierarchy[i]))
+                            {
+                                if (object.getName().equals(names.get(i)))
+                                {
+                                    objects[i].add(object);
+                                }
+                            }
+                        }
+                        break;
                     }
                 }
-
             }
-            ConfiguredObject theParent = parents.remove(0);
-            ConfiguredObject[] otherParents = parents.toArray(new ConfiguredObject[parents.size()]);
 
-            createOrUpdate(providedObject, objClass, theParent, otherParents, request, response);
         }
+        List<ConfiguredObject> parents = new ArrayList<ConfiguredObject>();
+        Class<? extends ConfiguredObject> objClass = getConfiguredClass();
+        Collection<Class<? extends ConfiguredObject>> parentClasses =
+                getBroker().getModel().getParentTypes(objClass);
+        for (int i = _hierarchy.length - 2; i >= 0; i--)
+        {
+            if (parentClasses.contains(_hierarchy[i]))
+            {
+                if (objects[i].size() == 1)
+                {
+                    parents.add(objects[i].iterator().next());
+                }
+                else
+                {
+                    throw new IllegalArgumentException("Cannot deduce parent of class "
+                                                       + _hierarchy[i].getSimpleName());
+                }
+            }
 
+        }
+        return parents;
     }
 
     private void createOrUpdate(Map<String, Object> providedObject, Class<? extends ConfiguredObject> objClass,
@@ -558,20 +694,14 @@ public class RestServlet extends AbstractServlet
     {
         try
         {
-            Collection<? extends ConfiguredObject> existingChildren = theParent.getChildren(objClass);
-            for(ConfiguredObject obj: existingChildren)
+            if (createOrUpdate(providedObject, objClass, theParent, otherParents))
             {
-                if((providedObject.containsKey("id") && String.valueOf(providedObject.get("id")).equals(obj.getId().toString()))
-                   || (obj.getName().equals(providedObject.get("name")) && equalParents(obj, otherParents, objClass)))
-                {
-                    doUpdate(obj, providedObject);
-                    response.setStatus(HttpServletResponse.SC_OK);
-                    return;
-                }
+                response.setStatus(HttpServletResponse.SC_CREATED);
+            }
+            else
+            {
+                response.setStatus(HttpServletResponse.SC_OK);
             }
-
-            theParent.createChild(objClass, providedObject, otherParents);
-            response.setStatus(HttpServletResponse.SC_CREATED);
         }
         catch (RuntimeException e)
         {
@@ -579,6 +709,90 @@ public class RestServlet extends AbstractServlet
         }
     }
 
+    /**
+     * @return true if the object was created, false if an existing object was updated
+     */
+    private boolean createOrUpdate(Map<String, Object> providedObject, Class<? extends ConfiguredObject> objClass,
+            ConfiguredObject theParent, ConfiguredObject[] otherParents)
+    {
+        ConfiguredObject obj = findExisting(providedObject, objClass, theParent, otherParents);
+        if (obj != null)
+        {
+            doUpdate(obj, providedObject);
+            return false;
+        }
+
+        theParent.createChild(objClass, providedObject, otherParents);
+        return true;
+    }
+
+    /**
+     * @return the existing object with the id or name of the provided object, or null if there is none
+     */
+    private ConfiguredObject findExisting(Map<String, Object> providedObject, Class<? extends ConfiguredObject> objClass,
+            ConfiguredObject theParent, ConfiguredObject[] otherParents)
+    {
+        Collection<? extends ConfiguredObject> existingChildren = theParent.getChildren(objClass);
+        for(ConfiguredObject obj: existingChildren)
+        {
+            if((providedObject.containsKey("id") && String.valueOf(providedObject.get("id")).equals(obj.getId().toString()))
+               || (obj.getName().equals(providedObject.get("name")) && equalParents(obj, otherParents, objClass)))
+            {
+                return obj;
+            }
+        }
+        return null;
+    }
+
+    private void rememberOriginalAttributes(ConfiguredObject obj, Collection<String> names,
+                                            Map<ConfiguredObject, Map<String, Object>> originalAttributes)
+    {
+        Map<String, Object> original = originalAttributes.get(obj);
+        if (original == null)
+        {
+            original = new HashMap<String, Object>();
+            originalAttributes.put(obj, original);
+        }
+        Map<String, Object> actualAttributes = obj.getActualAttributes();
+        for (String name : names)
+        {
+            if (!original.containsKey(name))
+            {
+                original.put(name, actualAttributes.get(name));
+            }
+        }
+    }
+
+    /**
+     * Deletes the objects created and restores the attributes of those updated, carrying on should any of them fail
+     */
+    private void undoChanges(List<ConfiguredObject> created,
+                             Map<ConfiguredObject, Map<String, Object>> originalAttributes)
+    {
+        for (int i = created.size() - 1; i >= 0; i--)
+        {
+            try
+            {
+                created.get(i).delete();
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.warn("Failed to delete " + created.get(i) + " when undoing its creation", e);
+            }
+        }
+        for (Map.Entry<ConfiguredObject, Map<String, Object>> entry : originalAttributes.entrySet())
+        {
+            try
+            {
+                entry.getKey().setAttributes(entry.getValue());
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.warn("Failed to restore the attributes of " + entry.getKey() + " when undoing their update", e);
+            }
+        }
+    }
+
     private void doUpdate(ConfiguredObject obj, Map<String, Object> providedObject)
     {
         obj.setAttributes(providedObject);
@@ -664,11 +878,20 @@ public class RestServlet extends AbstractServlet
         setCachingHeadersOnResponse(response);
         try
         {
-            Collection<ConfiguredObject<?>> allObjects = getObjects(request);
-            for(ConfiguredObject o : allObjects)
+            final Collection<ConfiguredObject<?>> allObjects = getObjects(request);
+            getBroker().getTaskExecutor().run(new VoidTask()
             {
-                o.delete();
-            }
+                @Override
+                public void execute()
+                {
+                    // each object is removed from the store as it is deleted rather than in one batch, as a deleted
+                    // object cannot be restored should the batch fail to be written
+                    for(ConfiguredObject o : allObjects)
+                    {
+                        o.delete();
+                    }
+                }
+            });
 
             response.setStatus(HttpServletResponse.SC_OK);
         }
@@ -272,6 +272,7 @@ public class AMQConnectionDelegate_8_0 implements AMQConnectionDelegate
                         try
                         {
                             createChannelOverWire(channelId, transacted);
+                            selectConfirmModeIfRequired(session);
                             session.setPrefetchLimits(prefetchHigh, 0);
                             success = true;
                         }
@@ -336,18 +337,32 @@ public class AMQConnectionDelegate_8_0 implements AMQConnectionDelegate
 
             _conn.getProtocolHandler().syncWrite(body.generateFrame(channelId), TxSelectOkBody.class);
         }
-        boolean useConfirms = (_confirmedPublishSupported || (!transacted && _confirmedPublishNonTransactionalSupported))
-                              && "all".equals(_conn.getSyncPublish());
-        if(useConfirms)
+    }
+
+    /**
+     * Selects publisher confirms on a newly opened channel if either the session was already using them before
+     * fail-over, or every publish is to be confirmed.
+     */
+    private void selectConfirmModeIfRequired(AMQSession_0_8 session) throws AMQException, FailoverException
+    {
+        if (session.isPublishConfirmsSelected()
+            || (isConfirmedPublishSupported(session.isTransacted()) && "all".equals(_conn.getSyncPublish())))
         {
-            if (_logger.isDebugEnabled())
-            {
-                _logger.debug("Issuing ConfirmSelect for " + channelId);
-            }
-            ConfirmSelectBody body = new ConfirmSelectBody(false);
+            selectConfirmMode(session);
+        }
+    }
 
-            _conn.getProtocolHandler().syncWrite(body.generateFrame(channelId), ConfirmSelectOkBody.class);
+    void selectConfirmMode(AMQSession_0_8 session) throws AMQException, FailoverException
+    {
+        int channelId = session.getChannelId();
+        if (_logger.isDebugEnabled())
+        {
+            _logger.debug("Issuing ConfirmSelect for " + channelId);
         }
+        ConfirmSelectBody body = new ConfirmSelectBody(false);
+
+        _conn.getProtocolHandler().syncWrite(body.generateFrame(channelId), ConfirmSelectOkBody.class);
+        session.publishConfirmsSelected();
     }
 
     /**
@@ -368,6 +383,7 @@ public class AMQConnectionDelegate_8_0 implements AMQConnectionDelegate
             // that's why we need to reset the flow control flag
             s.setFlowControl(true);
             reopenChannel(s.getChannelId(), s.getDefaultPrefetchHigh(), s.getDefaultPrefetchLow(), s.isTransacted());
+            selectConfirmModeIfRequired(s);
             s.setPrefetchLimits(s.getDefaultPrefetchHigh(), 0);
             s.resubscribe();
         }
@@ -521,6 +537,11 @@ public class AMQConnectionDelegate_8_0 implements AMQConnectionDelegate
         return _confirmedPublishNonTransactionalSupported;
     }
 
+    public boolean isConfirmedPublishSupported(boolean transacted)
+    {
+        return _confirmedPublishSupported || (!transacted && _confirmedPublishNonTransactionalSupported);
+    }
+
 
     private static class ReceiverClosedWaiter implements Receiver<ByteBuffer>
     {
@@ -33,6 +33,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -100,6 +101,30 @@ public class AMQSession_0_8 extends AMQSession<BasicMessageConsumer_0_8, BasicMe
     private FlowControlIndicator _flowControl = new FlowControlIndicator();
     private final AtomicBoolean _creditChanged = new AtomicBoolean();
 
+    /** Non-null once publisher confirms have been selected on the channel */
+    private volatile PublishConfirmTracker _publishConfirmTracker;
+
+    /**
+     * Notifies the outcome of publishes using the connection's task pool, or directly once the connection is closing
+     * and the pool may no longer accept tasks.
+     */
+    private final Executor _publishConfirmExecutor = new Executor()
+    {
+        @Override
+        public void execute(final Runnable command)
+        {
+            AMQConnection connection = getAMQConnection();
+            if (connection.isClosed() || connection.isClosing())
+            {
+                command.run();
+            }
+            else
+            {
+                connection.performConnectionTask(command);
+            }
+        }
+    };
+
     /**
      * Creates a new session on a connection.
      *
@@ -239,6 +264,18 @@ public class AMQSession_0_8 extends AMQSession<BasicMessageConsumer_0_8, BasicMe
     }
 
     public void sendClose(long timeout) throws AMQException, FailoverException
+    {
+        try
+        {
+            sendChannelClose(timeout);
+        }
+        finally
+        {
+            stopPublishConfirms(null);
+        }
+    }
+
+    private void sendChannelClose(long timeout) throws AMQException, FailoverException
     {
         // we also need to check the state manager for 08/09 as the
         // _connection variable may not be updated in time by the error receiving
@@ -1496,6 +1533,78 @@ public class AMQSession_0_8 extends AMQSession<BasicMessageConsumer_0_8, BasicMe
 
 
 
+    @Override
+    public void closed(Throwable e) throws JMSException
+    {
+        try
+        {
+            super.closed(e);
+        }
+        finally
+        {
+            stopPublishConfirms(e);
+        }
+    }
+
+    @Override
+    void markClosed()
+    {
+        super.markClosed();
+        stopPublishConfirms(null);
+    }
+
+    boolean isPublishConfirmsSelected()
+    {
+        return _publishConfirmTracker != null;
+    }
+
+    PublishConfirmTracker getPublishConfirmTracker()
+    {
+        return _publishConfirmTracker;
+    }
+
+    /**
+     * Puts the channel into publisher confirm mode, if it is not already.
+     * <p>
+     * The caller of this method must hold the failover mutex.
+     */
+    void selectPublishConfirms() throws AMQException, FailoverException
+    {
+        if (_publishConfirmTracker == null)
+        {
+            ((AMQConnectionDelegate_8_0) getAMQConnection().getDelegate()).selectConfirmMode(this);
+        }
+    }
+
+    /**
+     * Called once confirm mode has been selected on the channel, either for the first time or after fail-over
+     * has reopened the channel.
+     */
+    void publishConfirmsSelected()
+    {
+        if (_publishConfirmTracker == null)
+        {
+            _publishConfirmTracker = new PublishConfirmTracker(getChannelId(), getProtocolHandler(),
+                                                               _publishConfirmExecutor);
+            getProtocolHandler().addFrameListener(_publishConfirmTracker);
+        }
+        else
+        {
+            _publishConfirmTracker.reset(new AMQException("Channel reopened before the broker confirmed the message"));
+        }
+    }
+
+    private void stopPublishConfirms(Throwable cause)
+    {
+        PublishConfirmTracker tracker = _publishConfirmTracker;
+        if (tracker != null)
+        {
+            _publishConfirmTracker = null;
+            getProtocolHandler().removeFrameListener(tracker);
+            tracker.close(new AMQException("Session closed before the broker confirmed the message", cause));
+        }
+    }
+
     public abstract static class DestinationCache<T extends AMQDestination>
     {
         private final Map<AMQShortString, Map<AMQShortString, T>> cache = new HashMap<AMQShortString, Map<AMQShortString, T>>();
@@ -39,6 +39,8 @@ import org.slf4j.Logger;
 import org.apache.qpid.AMQException;
 import org.apache.qpid.client.message.AbstractJMSMessage;
 import org.apache.qpid.client.message.MessageConverter;
+import org.apache.qpid.configuration.ClientProperties;
+import org.apache.qpid.jms.CompletionListener;
 import org.apache.qpid.transport.TransportException;
 import org.apache.qpid.util.UUIDGen;
 import org.apache.qpid.util.UUIDs;
@@ -124,6 +126,15 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
 
     private PublishMode _publishMode = PublishMode.ASYNC_PUBLISH_ALL;
 
+    /**
+     * Messages sent with a completion listener that the broker has yet to confirm.
+     */
+    private final PublishCompletionWindow _completionWindow =
+            new PublishCompletionWindow(Integer.getInteger(ClientProperties.QPID_PUBLISH_WINDOW,
+                                                           ClientProperties.DEFAULT_PUBLISH_WINDOW),
+                                        Long.getLong(ClientProperties.QPID_SYNC_OP_TIMEOUT,
+                                                     ClientProperties.DEFAULT_SYNC_OPERATION_TIMEOUT));
+
     protected BasicMessageProducer(Logger logger,AMQConnection connection, AMQDestination destination, boolean transacted, int channelId,
                                    AMQSession session, long producerId, Boolean immediate, Boolean mandatory) throws AMQException
     {
@@ -288,6 +299,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
     public void close() throws JMSException
     {
         setClosed();
+        closeCompletionWindow();
         _session.deregisterProducer(_producerId);
         AMQDestination dest = getAMQDestination();
         AMQSession ssn = getSession();
@@ -393,6 +405,45 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
         }
     }
 
+    public void send(Message message, CompletionListener completionListener) throws JMSException
+    {
+        checkPreConditions();
+        checkInitialDestination();
+        checkCompletionListener(completionListener);
+        synchronized (_connection.getFailoverMutex())
+        {
+            sendImpl(_destination, message, _deliveryMode, _messagePriority, _timeToLive, _mandatory, _immediate,
+                     completionListener);
+        }
+    }
+
+    public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive,
+                     CompletionListener completionListener) throws JMSException
+    {
+        checkPreConditions();
+        checkDestination(destination);
+        checkCompletionListener(completionListener);
+        synchronized (_connection.getFailoverMutex())
+        {
+            validateDestination(destination);
+            sendImpl((AMQDestination) destination, message, deliveryMode, priority, timeToLive,
+                    _mandatory == null
+                            ? destination instanceof Topic
+                                ? _defaultMandatoryTopicValue
+                                : _defaultMandatoryValue
+                            : _mandatory,
+                    _immediate, completionListener);
+        }
+    }
+
+    private void checkCompletionListener(CompletionListener completionListener)
+    {
+        if (completionListener == null)
+        {
+            throw new IllegalArgumentException("Completion listener must not be null");
+        }
+    }
+
     public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive,
                      boolean mandatory) throws JMSException
     {
@@ -506,6 +557,19 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
      */
     protected void sendImpl(AMQDestination destination, Message origMessage, int deliveryMode, int priority, long timeToLive,
                             boolean mandatory, boolean immediate) throws JMSException
+    {
+        sendImpl(destination, origMessage, deliveryMode, priority, timeToLive, mandatory, immediate, null);
+    }
+
+    /**
+     * The caller of this method must hold the failover mutex.
+     *
+     * @param completionListener if not null, the send does not wait for the broker and the listener is notified
+     * once the broker has confirmed the message
+     */
+    protected void sendImpl(AMQDestination destination, Message origMessage, int deliveryMode, int priority, long timeToLive,
+                            boolean mandatory, boolean immediate, CompletionListener completionListener)
+            throws JMSException
     {
         checkTemporaryDestination(destination);
         origMessage.setJMSDestination(destination);
@@ -525,7 +589,8 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
 
         try
         {
-            sendMessage(destination, origMessage, message, messageId, deliveryMode, priority, timeToLive, mandatory, immediate);
+            sendMessage(destination, origMessage, message, messageId, deliveryMode, priority, timeToLive, mandatory, immediate,
+                        completionListener);
         }
         catch (TransportException e)
         {
@@ -553,7 +618,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
 
     abstract void sendMessage(AMQDestination destination, Message origMessage, AbstractJMSMessage message,
                               UUID messageId, int deliveryMode, int priority, long timeToLive, boolean mandatory,
-                              boolean immediate) throws JMSException;
+                              boolean immediate, CompletionListener completionListener) throws JMSException;
 
     private void checkTemporaryDestination(AMQDestination destination) throws InvalidDestinationException
     {
@@ -733,4 +798,30 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
         return _logger;
     }
 
+    protected PublishCompletionWindow getCompletionWindow()
+    {
+        return _completionWindow;
+    }
+
+    /**
+     * Gives the broker a chance to confirm any messages still outstanding, then fails those it has not.
+     */
+    private void closeCompletionWindow()
+    {
+        // if the session is being torn down because of an error there is no point waiting for the broker
+        if (_completionWindow.getOutstandingCount() != 0 && (!_session.isClosed() || _session.isClosing()))
+        {
+            try
+            {
+                _completionWindow.awaitEmpty(Long.getLong(ClientProperties.QPID_SYNC_OP_TIMEOUT,
+                                                          ClientProperties.DEFAULT_SYNC_OPERATION_TIMEOUT));
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        _completionWindow.close(new JMSException("Producer closed before the broker confirmed the message"));
+    }
+
 }
@@ -39,6 +39,7 @@ import org.apache.qpid.client.message.AMQMessageDelegate_0_10;
 import org.apache.qpid.client.message.AbstractJMSMessage;
 import org.apache.qpid.client.message.QpidMessageProperties;
 import org.apache.qpid.client.messaging.address.Link.Reliability;
+import org.apache.qpid.jms.CompletionListener;
 import org.apache.qpid.transport.DeliveryProperties;
 import org.apache.qpid.transport.Header;
 import org.apache.qpid.transport.MessageAcceptMode;
@@ -46,6 +47,8 @@ import org.apache.qpid.transport.MessageAcquireMode;
 import org.apache.qpid.transport.MessageDeliveryMode;
 import org.apache.qpid.transport.MessageDeliveryPriority;
 import org.apache.qpid.transport.MessageProperties;
+import org.apache.qpid.transport.MessageTransfer;
+import org.apache.qpid.transport.Method;
 import org.apache.qpid.transport.Option;
 import org.apache.qpid.util.GZIPUtils;
 import org.apache.qpid.util.Strings;
@@ -106,7 +109,7 @@ public class BasicMessageProducer_0_10 extends BasicMessageProducer
      */
     void sendMessage(AMQDestination destination, Message origMessage, AbstractJMSMessage message,
                      UUID messageId, int deliveryMode, int priority, long timeToLive, boolean mandatory,
-                     boolean immediate) throws JMSException
+                     boolean immediate, CompletionListener completionListener) throws JMSException
     {
         message.prepareForSending();
 
@@ -224,6 +227,7 @@ public class BasicMessageProducer_0_10 extends BasicMessageProducer
         messageProps.setContentLength(data == null ? 0 : data.remaining());
 
         // send the message
+        PublishCompletionWindow.PendingPublish pending = null;
         try
         {
             org.apache.qpid.transport.Session ssn = (org.apache.qpid.transport.Session)
@@ -242,21 +246,49 @@ public class BasicMessageProducer_0_10 extends BasicMessageProducer
             
 
             ByteBuffer buffer = data == null ? ByteBuffer.allocate(0) : data.slice();
-            
-            ssn.messageTransfer(destination.getExchangeName() == null ? "" : destination.getExchangeName().toString(), 
-                                MessageAcceptMode.NONE,
-                                MessageAcquireMode.PRE_ACQUIRED,
-                                new Header(deliveryProp, messageProps),
-                    buffer, sync ? SYNC : NONE, unreliable ? UNRELIABLE : NONE);
-            if (sync)
+
+            // With a completion listener the transfer is flagged sync so that the broker reports its completion
+            // promptly, but we don't wait for it; the session fires the listener when session.completed arrives.
+            MessageTransfer transfer =
+                    new MessageTransfer(destination.getExchangeName() == null ? "" : destination.getExchangeName().toString(),
+                                        MessageAcceptMode.NONE,
+                                        MessageAcquireMode.PRE_ACQUIRED,
+                                        new Header(deliveryProp, messageProps),
+                                        buffer, sync || completionListener != null ? SYNC : NONE,
+                                        unreliable ? UNRELIABLE : NONE);
+            if (completionListener != null)
+            {
+                final PublishCompletionWindow.PendingPublish publish =
+                        getCompletionWindow().add(origMessage, completionListener);
+                pending = publish;
+                transfer.setCompletionListener(new Method.CompletionListener()
+                {
+                    @Override
+                    public void onComplete(final Method method)
+                    {
+                        publish.completed();
+                    }
+                });
+            }
+
+            ssn.invoke(transfer);
+            if (sync && completionListener == null)
             {
                 ssn.sync();
                 ((AMQSession_0_10) getSession()).getCurrentException();
             }
             
         }
+        catch (JMSException e)
+        {
+            throw e;
+        }
         catch (Exception e)
         {
+            if (pending != null)
+            {
+                pending.cancel();
+            }
             JMSException jmse = new JMSException("Exception when sending message:" + e.getMessage());
             jmse.setLinkedException(e);
             jmse.initCause(e);
@@ -37,14 +37,10 @@ import org.apache.qpid.client.message.AMQMessageDelegate_0_8;
 import org.apache.qpid.client.message.AbstractJMSMessage;
 import org.apache.qpid.client.message.QpidMessageProperties;
 import org.apache.qpid.client.protocol.AMQProtocolHandler;
-import org.apache.qpid.client.protocol.BlockingMethodFrameListener;
 import org.apache.qpid.configuration.ClientProperties;
 import org.apache.qpid.framing.AMQFrame;
-import org.apache.qpid.framing.AMQMethodBody;
 import org.apache.qpid.framing.AMQShortString;
-import org.apache.qpid.framing.BasicAckBody;
 import org.apache.qpid.framing.BasicContentHeaderProperties;
-import org.apache.qpid.framing.BasicNackBody;
 import org.apache.qpid.framing.BasicPublishBody;
 import org.apache.qpid.framing.CompositeAMQDataBlock;
 import org.apache.qpid.framing.ContentBody;
@@ -52,12 +48,19 @@ import org.apache.qpid.framing.ContentHeaderBody;
 import org.apache.qpid.framing.ExchangeDeclareBody;
 import org.apache.qpid.framing.FieldTable;
 import org.apache.qpid.framing.MethodRegistry;
+import org.apache.qpid.jms.CompletionListener;
 import org.apache.qpid.util.GZIPUtils;
 
 public class BasicMessageProducer_0_8 extends BasicMessageProducer
 {
     private static final Logger _logger = LoggerFactory.getLogger(BasicMessageProducer_0_8.class);
     private static final boolean SET_EXPIRATION_AS_TTL = Boolean.getBoolean(ClientProperties.SET_EXPIRATION_AS_TTL);
+    private static final String REJECTED_MESSAGE =
+            "The message was not accepted by the server (e.g. because the address was no longer valid)";
+
+    private final long _syncTimeout = Long.getLong(ClientProperties.QPID_SYNC_OP_TIMEOUT,
+                                                   Long.getLong(ClientProperties.AMQJ_DEFAULT_SYNCWRITE_TIMEOUT,
+                                                                ClientProperties.DEFAULT_SYNC_OPERATION_TIMEOUT));
 
     BasicMessageProducer_0_8(AMQConnection connection, AMQDestination destination, boolean transacted, int channelId,
             AMQSession session, AMQProtocolHandler protocolHandler, long producerId, Boolean immediate, Boolean mandatory) throws AMQException
@@ -101,11 +104,8 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
 
     void sendMessage(AMQDestination destination, Message origMessage, AbstractJMSMessage message,
                      UUID messageId, int deliveryMode,int priority, long timeToLive, boolean mandatory,
-                     boolean immediate) throws JMSException
+                     boolean immediate, CompletionListener completionListener) throws JMSException
     {
-
-
-
         AMQMessageDelegate_0_8 delegate = (AMQMessageDelegate_0_8) message.getDelegate();
         BasicContentHeaderProperties contentHeaderProperties = delegate.getContentHeaderProperties();
 
@@ -251,36 +251,95 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
         AMQConnectionDelegate_8_0 connectionDelegate80 = (AMQConnectionDelegate_8_0) (getConnection().getDelegate());
 
         boolean useConfirms = getPublishMode() == PublishMode.SYNC_PUBLISH_ALL
-                              && (connectionDelegate80.isConfirmedPublishSupported()
-                               || (!getSession().isTransacted() && connectionDelegate80.isConfirmedPublishNonTransactionalSupported()));
+                              && connectionDelegate80.isConfirmedPublishSupported(getSession().isTransacted());
 
-        if(!useConfirms)
+        if (completionListener != null)
+        {
+            if (!connectionDelegate80.isConfirmedPublishSupported(getSession().isTransacted()))
+            {
+                throw new JMSException("Unable to send with a completion listener as the broker does not support "
+                                       + "publisher confirms" + (getSession().isTransacted() ? " on transacted sessions" : ""));
+            }
+            selectPublishConfirms();
+        }
+        else if (useConfirms)
+        {
+            selectPublishConfirms();
+        }
+
+        // once the channel is in confirm mode every publish must go through the tracker to keep the broker's
+        // numbering of the messages in step, even those whose outcome we aren't interested in
+        PublishConfirmTracker confirmTracker = getSession().getPublishConfirmTracker();
+        if (confirmTracker == null)
         {
             getConnection().getProtocolHandler().writeFrame(compositeFrame);
         }
-        else
+        else if (completionListener != null)
         {
-            final PublishConfirmMessageListener frameListener = new PublishConfirmMessageListener(getChannelId());
+            final PublishCompletionWindow.PendingPublish pending =
+                    getCompletionWindow().add(origMessage, completionListener);
             try
             {
-
-                getConnection().getProtocolHandler().writeCommandFrameAndWaitForReply(compositeFrame,
-                                                                                      frameListener);
-
-                if(frameListener.isRejected())
+                confirmTracker.publish(compositeFrame, new PublishConfirmTracker.Confirmation()
                 {
-                    throw new JMSException("The message was not accepted by the server (e.g. because the address was no longer valid)");
-                }
+                    @Override
+                    public void confirmed()
+                    {
+                        pending.completed();
+                    }
+
+                    @Override
+                    public void rejected()
+                    {
+                        pending.failed(new JMSException(REJECTED_MESSAGE));
+                    }
+
+                    @Override
+                    public void failed(final Exception cause)
+                    {
+                        pending.failed(cause);
+                    }
+                });
             }
-            catch (AMQException e)
+            catch (RuntimeException e)
             {
-                throw new JMSAMQException(e);
+                pending.cancel();
+                throw e;
             }
-            catch (FailoverException e)
+        }
+        else if (useConfirms)
+        {
+            BlockingConfirmation confirmation = new BlockingConfirmation();
+            long deliveryTag = confirmTracker.publish(compositeFrame, confirmation);
+            try
             {
-                throw new JMSAMQException("Fail-over interrupted send. Status of the send is uncertain.", e);
-
+                confirmation.await(_syncTimeout);
             }
+            finally
+            {
+                // no-one is left waiting should the confirmation have timed out or been interrupted
+                confirmTracker.forget(deliveryTag, confirmation);
+            }
+        }
+        else
+        {
+            confirmTracker.publish(compositeFrame, null);
+        }
+    }
+
+    private void selectPublishConfirms() throws JMSException
+    {
+        try
+        {
+            getSession().selectPublishConfirms();
+        }
+        catch (AMQException e)
+        {
+            throw new JMSAMQException("Unable to select publisher confirms on the session", e);
+        }
+        catch (FailoverException e)
+        {
+            throw new JMSAMQException("Fail-over interrupted selecting publisher confirms on the session", e);
         }
     }
 
@@ -349,41 +408,72 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
         return (AMQSession_0_8) super.getSession();
     }
 
-    private static class PublishConfirmMessageListener extends BlockingMethodFrameListener
+    /**
+     * Waits for the confirmation of a message sent with {@link PublishMode#SYNC_PUBLISH_ALL}.
+     */
+    private static class BlockingConfirmation implements PublishConfirmTracker.Confirmation
     {
+        private boolean _done;
         private boolean _rejected;
+        private Exception _failure;
 
-        /**
-         * Creates a new method listener, that filters incoming method to just those that match the specified channel id.
-         *
-         * @param channelId The channel id to filter incoming methods with.
-         */
-        public PublishConfirmMessageListener(final int channelId)
+        @Override
+        public synchronized void confirmed()
         {
-            super(channelId);
+            _done = true;
+            notifyAll();
         }
 
         @Override
-        public boolean processMethod(final int channelId, final AMQMethodBody frame)
+        public synchronized void rejected()
+        {
+            _rejected = true;
+            _done = true;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void failed(final Exception cause)
+        {
+            _failure = cause;
+            _done = true;
+            notifyAll();
+        }
+
+        synchronized void await(long timeout) throws JMSException
         {
-            if (frame instanceof BasicAckBody)
+            long deadline = System.currentTimeMillis() + timeout;
+            long remaining = timeout;
+            try
             {
-                return true;
+                while (!_done && remaining > 0)
+                {
+                    wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
             }
-            else if (frame instanceof BasicNackBody)
+            catch (InterruptedException e)
             {
-                _rejected = true;
-                return true;
+                Thread.currentThread().interrupt();
+                throw new JMSAMQException("Interrupted whilst waiting for the broker to confirm the message", e);
             }
-            else
+
+            if (!_done)
             {
-                return false;
+                throw new JMSException("Timed out after " + timeout + "ms waiting for the broker to confirm the message");
+            }
+            else if (_rejected)
+            {
+                throw new JMSException(REJECTED_MESSAGE);
+            }
+            else if (_failure instanceof FailoverException)
+            {
+                throw new JMSAMQException("Fail-over interrupted send. Status of the send is uncertain.", _failure);
+            }
+            else if (_failure != null)
+            {
+                throw new JMSAMQException("Exception whilst waiting for the broker to confirm the message", _failure);
             }
-        }
-
-        public boolean isRejected()
-        {
-            return _rejected;
         }
     }
 }
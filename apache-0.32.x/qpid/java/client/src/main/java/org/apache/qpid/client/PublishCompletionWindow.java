@@ -0,0 +1,215 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.jms.CompletionListener;
+
+/**
+ * Tracks the messages a producer has sent with a {@link CompletionListener} that the broker has not yet
+ * confirmed.  At most <code>size</code> messages may be outstanding at once; adding another blocks until the
+ * broker confirms an earlier one.
+ */
+class PublishCompletionWindow
+{
+    private static final Logger _logger = LoggerFactory.getLogger(PublishCompletionWindow.class);
+
+    private final Object _lock = new Object();
+    private final Set<PendingPublish> _outstanding = new LinkedHashSet<PendingPublish>();
+    private final int _size;
+    private final long _timeout;
+    private boolean _closed;
+
+    PublishCompletionWindow(int size, long timeout)
+    {
+        if (size < 1)
+        {
+            throw new IllegalArgumentException("Publish window size must be at least 1 but was " + size);
+        }
+        _size = size;
+        _timeout = timeout;
+    }
+
+    /**
+     * Reserves a place in the window for a message about to be sent, waiting for space if the window is full.
+     *
+     * @throws JMSException if no space becomes available within the timeout or the window has been closed
+     */
+    PendingPublish add(Message message, CompletionListener listener) throws JMSException
+    {
+        synchronized (_lock)
+        {
+            long deadline = System.currentTimeMillis() + _timeout;
+            while (!_closed && _outstanding.size() >= _size)
+            {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0)
+                {
+                    throw new JMSException("Timed out after " + _timeout + "ms waiting for the broker to confirm "
+                                           + _outstanding.size() + " outstanding message(s)");
+                }
+                try
+                {
+                    _lock.wait(remaining);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    JMSException jmse = new JMSException("Interrupted while waiting for space in the publish window");
+                    jmse.setLinkedException(e);
+                    jmse.initCause(e);
+                    throw jmse;
+                }
+            }
+            if (_closed)
+            {
+                throw new IllegalStateException("Producer is closed");
+            }
+            PendingPublish pending = new PendingPublish(message, listener);
+            _outstanding.add(pending);
+            return pending;
+        }
+    }
+
+    int getOutstandingCount()
+    {
+        synchronized (_lock)
+        {
+            return _outstanding.size();
+        }
+    }
+
+    /**
+     * Waits for every outstanding message to be confirmed or failed.
+     *
+     * @return true if nothing remains outstanding
+     */
+    boolean awaitEmpty(long timeout) throws InterruptedException
+    {
+        synchronized (_lock)
+        {
+            long deadline = System.currentTimeMillis() + timeout;
+            long remaining = timeout;
+            while (!_outstanding.isEmpty() && remaining > 0)
+            {
+                _lock.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            return _outstanding.isEmpty();
+        }
+    }
+
+    /**
+     * Stops the window accepting new messages and fails any that remain outstanding with the given cause.
+     */
+    void close(Exception cause)
+    {
+        List<PendingPublish> failed;
+        synchronized (_lock)
+        {
+            _closed = true;
+            failed = new ArrayList<PendingPublish>(_outstanding);
+            _lock.notifyAll();
+        }
+        for (PendingPublish pending : failed)
+        {
+            pending.failed(cause);
+        }
+    }
+
+    private boolean remove(PendingPublish pending)
+    {
+        synchronized (_lock)
+        {
+            boolean removed = _outstanding.remove(pending);
+            if (removed)
+            {
+                _lock.notifyAll();
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * A message occupying a place in the window.  Exactly one of {@link #completed()}, {@link #failed(Exception)}
+     * and {@link #cancel()} takes effect; later calls are ignored.
+     */
+    class PendingPublish
+    {
+        private final Message _message;
+        private final CompletionListener _listener;
+
+        private PendingPublish(Message message, CompletionListener listener)
+        {
+            _message = message;
+            _listener = listener;
+        }
+
+        void completed()
+        {
+            if (remove(this))
+            {
+                try
+                {
+                    _listener.onCompletion(_message);
+                }
+                catch (RuntimeException e)
+                {
+                    _logger.warn("Completion listener threw an exception", e);
+                }
+            }
+        }
+
+        void failed(Exception cause)
+        {
+            if (remove(this))
+            {
+                try
+                {
+                    _listener.onException(_message, cause);
+                }
+                catch (RuntimeException e)
+                {
+                    _logger.warn("Completion listener threw an exception", e);
+                }
+            }
+        }
+
+        /**
+         * Releases the place in the window without notifying the listener, used when the send itself failed.
+         */
+        void cancel()
+        {
+            remove(this);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.client.failover.FailoverException;
+import org.apache.qpid.client.protocol.AMQProtocolHandler;
+import org.apache.qpid.framing.AMQDataBlock;
+import org.apache.qpid.framing.AMQMethodBody;
+import org.apache.qpid.framing.BasicAckBody;
+import org.apache.qpid.framing.BasicNackBody;
+import org.apache.qpid.protocol.AMQMethodEvent;
+import org.apache.qpid.protocol.AMQMethodListener;
+
+/**
+ * Tracks the messages published on a channel that is in publisher confirm mode.
+ * <p>
+ * Once confirm mode is selected the broker numbers every message published on the channel from one, and
+ * acknowledges (or rejects) each by that number, possibly several at once.  Every publish on the channel must
+ * therefore go through {@link #publish(AMQDataBlock, Confirmation)} so that the numbering stays in step, whether
+ * or not the publisher is interested in the outcome.
+ * <p>
+ * Acknowledgements arrive on the connection's I/O thread whilst the protocol handler holds its frame listener lock,
+ * so confirmations are notified by the given executor instead, one at a time and in the order they arose.
+ */
+class PublishConfirmTracker implements AMQMethodListener
+{
+    private static final Logger _logger = LoggerFactory.getLogger(PublishConfirmTracker.class);
+
+    /**
+     * Receives the outcome of a single publish.  Callbacks are made by the tracker's executor.
+     */
+    interface Confirmation
+    {
+        void confirmed();
+
+        void rejected();
+
+        void failed(Exception cause);
+    }
+
+    private final int _channelId;
+    private final AMQProtocolHandler _protocolHandler;
+
+    /** Held while numbering and writing a publish so that the broker sees publishes in numbering order. */
+    private final Object _publishLock = new Object();
+    private final Object _lock = new Object();
+    private final NavigableMap<Long, Confirmation> _unconfirmed = new TreeMap<Long, Confirmation>();
+    private long _nextDeliveryTag = 1L;
+
+    private final Executor _executor;
+    private final Queue<Runnable> _notifications = new ConcurrentLinkedQueue<Runnable>();
+    private final AtomicBoolean _notifying = new AtomicBoolean();
+    private final Runnable _notifier = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            runNotifications();
+        }
+    };
+
+    PublishConfirmTracker(int channelId, AMQProtocolHandler protocolHandler, Executor executor)
+    {
+        _channelId = channelId;
+        _protocolHandler = protocolHandler;
+        _executor = executor;
+    }
+
+    /**
+     * Writes a publish to the channel.
+     *
+     * @param confirmation notified of the outcome, may be null if the publisher is not interested
+     * @return the number the broker will confirm the publish by
+     */
+    long publish(AMQDataBlock frame, Confirmation confirmation)
+    {
+        synchronized (_publishLock)
+        {
+            long deliveryTag;
+            synchronized (_lock)
+            {
+                deliveryTag = _nextDeliveryTag++;
+                if (confirmation != null)
+                {
+                    _unconfirmed.put(deliveryTag, confirmation);
+                }
+            }
+
+            boolean written = false;
+            try
+            {
+                _protocolHandler.writeFrame(frame);
+                written = true;
+            }
+            finally
+            {
+                if (!written && confirmation != null)
+                {
+                    synchronized (_lock)
+                    {
+                        _unconfirmed.remove(deliveryTag);
+                    }
+                }
+            }
+            return deliveryTag;
+        }
+    }
+
+    /**
+     * Stops tracking a publish whose publisher has given up waiting for its outcome.
+     */
+    void forget(long deliveryTag, Confirmation confirmation)
+    {
+        synchronized (_lock)
+        {
+            // the numbering restarts if the channel is reopened, so the tag may now belong to another publish
+            if (_unconfirmed.get(deliveryTag) == confirmation)
+            {
+                _unconfirmed.remove(deliveryTag);
+            }
+        }
+    }
+
+    int getUnconfirmedCount()
+    {
+        synchronized (_lock)
+        {
+            return _unconfirmed.size();
+        }
+    }
+
+    /**
+     * Restarts the numbering after confirm mode has been selected on a freshly opened channel, failing anything
+     * still outstanding from before.
+     */
+    void reset(Exception cause)
+    {
+        synchronized (_publishLock)
+        {
+            List<Confirmation> failed;
+            synchronized (_lock)
+            {
+                failed = new ArrayList<Confirmation>(_unconfirmed.values());
+                _unconfirmed.clear();
+                _nextDeliveryTag = 1L;
+            }
+            fail(failed, cause);
+        }
+    }
+
+    @Override
+    public <B extends AMQMethodBody> boolean methodReceived(final AMQMethodEvent<B> evt)
+    {
+        if (evt.getChannelId() != _channelId)
+        {
+            return false;
+        }
+
+        B method = evt.getMethod();
+        if (method instanceof BasicAckBody)
+        {
+            BasicAckBody ack = (BasicAckBody) method;
+            confirm(ack.getDeliveryTag(), ack.getMultiple(), false);
+            return true;
+        }
+        else if (method instanceof BasicNackBody)
+        {
+            BasicNackBody nack = (BasicNackBody) method;
+            confirm(nack.getDeliveryTag(), nack.getMultiple(), true);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Errors are propagated to every frame listener on the connection, whichever channel they concern.  Only the
+     * start of fail-over affects this channel's publishes, which are then failed; the loss of the connection or the
+     * close of this channel reach the tracker through {@link #close(Exception)} as the session is closed.
+     */
+    @Override
+    public void error(final Exception e)
+    {
+        if (e instanceof FailoverException)
+        {
+            failOutstanding(e);
+        }
+        else if (_logger.isDebugEnabled())
+        {
+            _logger.debug("Ignoring exception not affecting publishes on channel " + _channelId + ": " + e);
+        }
+    }
+
+    /**
+     * Fails everything outstanding as the session is closed.
+     */
+    void close(Exception cause)
+    {
+        failOutstanding(cause);
+    }
+
+    private void failOutstanding(Exception cause)
+    {
+        List<Confirmation> failed;
+        synchronized (_lock)
+        {
+            failed = new ArrayList<Confirmation>(_unconfirmed.values());
+            _unconfirmed.clear();
+        }
+        fail(failed, cause);
+    }
+
+    private void confirm(long deliveryTag, boolean multiple, final boolean rejected)
+    {
+        List<Confirmation> confirmed;
+        synchronized (_lock)
+        {
+            if (multiple)
+            {
+                Map<Long, Confirmation> upTo = _unconfirmed.headMap(deliveryTag, true);
+                confirmed = new ArrayList<Confirmation>(upTo.values());
+                upTo.clear();
+            }
+            else
+            {
+                Confirmation confirmation = _unconfirmed.remove(deliveryTag);
+                confirmed = new ArrayList<Confirmation>(1);
+                if (confirmation != null)
+                {
+                    confirmed.add(confirmation);
+                }
+            }
+        }
+
+        for (final Confirmation confirmation : confirmed)
+        {
+            notifyLater(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if (rejected)
+                    {
+                        confirmation.rejected();
+                    }
+                    else
+                    {
+                        confirmation.confirmed();
+                    }
+                }
+            });
+        }
+    }
+
+    private void fail(List<Confirmation> failed, final Exception cause)
+    {
+        for (final Confirmation confirmation : failed)
+        {
+            notifyLater(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    confirmation.failed(cause);
+                }
+            });
+        }
+    }
+
+    private void notifyLater(Runnable notification)
+    {
+        _notifications.add(notification);
+        if (_notifying.compareAndSet(false, true))
+        {
+            try
+            {
+                _executor.execute(_notifier);
+            }
+            catch (RejectedExecutionException e)
+            {
+                runNotifications();
+            }
+        }
+    }
+
+    private void runNotifications()
+    {
+        do
+        {
+            Runnable notification;
+            while ((notification = _notifications.poll()) != null)
+            {
+                try
+                {
+                    notification.run();
+                }
+                catch (RuntimeException e)
+                {
+                    _logger.warn("Exception notifying publish outcome on channel " + _channelId, e);
+                }
+            }
+            _notifying.set(false);
+        }
+        while (!_notifications.isEmpty() && _notifying.compareAndSet(false, true));
+    }
+}
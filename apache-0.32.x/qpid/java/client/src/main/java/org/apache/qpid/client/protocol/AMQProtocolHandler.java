@@ -436,6 +436,26 @@ public class AMQProtocolHandler implements ProtocolEngine
         }
     }
 
+    /**
+     * Registers a listener that receives every method frame, and any error propagated to frame listeners, until
+     * it is removed.
+     */
+    public void addFrameListener(AMQMethodListener listener)
+    {
+        synchronized (_frameListeners)
+        {
+            _frameListeners.add(listener);
+        }
+    }
+
+    public void removeFrameListener(AMQMethodListener listener)
+    {
+        synchronized (_frameListeners)
+        {
+            _frameListeners.remove(listener);
+        }
+    }
+
     public void notifyFailoverStarting()
     {
         // Set the last exception in the sync block to ensure the ordering with add.
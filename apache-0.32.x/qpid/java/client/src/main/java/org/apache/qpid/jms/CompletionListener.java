@@ -0,0 +1,49 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.jms;
+
+import javax.jms.Message;
+
+/**
+ * Receives notification of the outcome of a message sent asynchronously using
+ * {@link MessageProducer#send(javax.jms.Destination, Message, int, int, long, CompletionListener)}.
+ * <p>
+ * Callbacks are made from the connection's I/O thread, so implementations must not block and must not send
+ * further messages using the producer that sent the message.
+ */
+public interface CompletionListener
+{
+    /**
+     * Called once the broker has confirmed that it has taken responsibility for the message.  On a transacted
+     * session this means only that the broker has received the message: it is not delivered until the
+     * transaction is committed, and is discarded should the transaction be rolled back.
+     * @param message the message that was sent
+     */
+    void onCompletion(Message message);
+
+    /**
+     * Called if the message could not be confirmed, for instance because the session was closed before
+     * the broker completed it.  The message may or may not have been received by the broker.
+     * @param message the message that was sent
+     * @param exception the reason the send could not be confirmed
+     */
+    void onException(Message message, Exception exception);
+}
@@ -36,4 +36,16 @@ public interface MessageProducer extends javax.jms.MessageProducer
                      int priority, long timeToLive, boolean mandatory, boolean immediate)
             throws JMSException;
 
+    /**
+     * Sends a message without waiting for the broker to confirm it.  The listener is notified once the broker
+     * has completed the message.  The number of unconfirmed messages a producer may have outstanding is bounded
+     * by the <code>qpid.publish_window</code> system property; once the window is full, sends block.  On a
+     * transacted session completion does not mean the message has been committed.
+     */
+    void send(Message message, CompletionListener completionListener) throws JMSException;
+
+    void send(Destination destination, Message message, int deliveryMode,
+              int priority, long timeToLive, CompletionListener completionListener)
+            throws JMSException;
+
 }
@@ -20,6 +20,7 @@ package org.apache.qpid.client;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.jms.JMSException;
 import javax.jms.Message;
@@ -29,6 +30,7 @@ import javax.jms.StreamMessage;
 
 import org.apache.qpid.client.message.AMQPEncodedListMessage;
 import org.apache.qpid.framing.AMQShortString;
+import org.apache.qpid.jms.CompletionListener;
 import org.apache.qpid.test.utils.QpidTestCase;
 import org.apache.qpid.transport.*;
 import org.apache.qpid.transport.Connection.SessionFactory;
@@ -428,6 +430,65 @@ public class AMQSession_0_10Test extends QpidTestCase
         assertNotNull("ExchangeDeclare event was not sent", event);
     }
 
+    public void testMessageProducerSendWithCompletionListener() throws Exception
+    {
+        AMQSession_0_10 session = createAMQSession_0_10(javax.jms.Session.AUTO_ACKNOWLEDGE);
+        final Session qpidSession = session.getQpidSession();
+        org.apache.qpid.jms.MessageProducer producer =
+                (org.apache.qpid.jms.MessageProducer) session.createProducer(createQueue());
+
+        final List<Message> completed = new ArrayList<Message>();
+        final AtomicBoolean sessionUsableFromListener = new AtomicBoolean();
+        Message message = session.createTextMessage("Test");
+        producer.send(message, new CompletionListener()
+        {
+            @Override
+            public void onCompletion(final Message message)
+            {
+                completed.add(message);
+
+                // another thread must be able to use the session whilst the listener runs
+                Thread thread = new Thread(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        qpidSession.setAutoSync(false);
+                    }
+                });
+                thread.start();
+                try
+                {
+                    thread.join(2000);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                sessionUsableFromListener.set(!thread.isAlive());
+            }
+
+            @Override
+            public void onException(final Message message, final Exception exception)
+            {
+                fail("Unexpected exception " + exception);
+            }
+        });
+
+        MessageTransfer transfer = (MessageTransfer) findSentProtocolEventOfClass(session, MessageTransfer.class, false);
+        assertNotNull("MessageTransfer event was not sent", transfer);
+        assertTrue("MessageTransfer should ask the broker for its completion", transfer.isSync());
+        assertTrue("Listener notified before the broker completed the message", completed.isEmpty());
+
+        RangeSet commands = RangeSetFactory.createRangeSet();
+        commands.add(transfer.getId());
+        new SessionDelegate().sessionCompleted(qpidSession, new SessionCompleted(commands));
+
+        assertEquals("Unexpected number of completions", 1, completed.size());
+        assertSame("Unexpected message completed", message, completed.get(0));
+        assertTrue("Session was locked whilst the completion listener ran", sessionUsableFromListener.get());
+    }
+
     public void testCreateStreamMessage() throws Exception
     {
         AMQSession_0_10 session = createAMQSession_0_10();
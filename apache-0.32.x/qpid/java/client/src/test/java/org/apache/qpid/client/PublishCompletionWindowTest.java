@@ -0,0 +1,150 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.client;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.apache.qpid.jms.CompletionListener;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class PublishCompletionWindowTest extends QpidTestCase
+{
+    private final List<Message> _completed = new ArrayList<Message>();
+    private final List<Message> _failed = new ArrayList<Message>();
+    private final CompletionListener _listener = new CompletionListener()
+    {
+        @Override
+        public void onCompletion(final Message message)
+        {
+            _completed.add(message);
+        }
+
+        @Override
+        public void onException(final Message message, final Exception exception)
+        {
+            _failed.add(message);
+        }
+    };
+
+    public void testCompletionNotifiesListenerOnce() throws Exception
+    {
+        PublishCompletionWindow window = new PublishCompletionWindow(2, 1000);
+        Message message = mock(Message.class);
+
+        PublishCompletionWindow.PendingPublish pending = window.add(message, _listener);
+        assertEquals(1, window.getOutstandingCount());
+
+        pending.completed();
+        pending.completed();
+        pending.failed(new JMSException("too late"));
+
+        assertEquals(0, window.getOutstandingCount());
+        assertEquals(1, _completed.size());
+        assertSame(message, _completed.get(0));
+        assertTrue(_failed.isEmpty());
+    }
+
+    public void testAddTimesOutWhenWindowFull() throws Exception
+    {
+        PublishCompletionWindow window = new PublishCompletionWindow(1, 50);
+        window.add(mock(Message.class), _listener);
+
+        try
+        {
+            window.add(mock(Message.class), _listener);
+            fail("Exception not thrown");
+        }
+        catch (JMSException e)
+        {
+            // pass
+        }
+        assertEquals(1, window.getOutstandingCount());
+    }
+
+    public void testAddProceedsOnceSpaceIsFreed() throws Exception
+    {
+        PublishCompletionWindow window = new PublishCompletionWindow(1, 5000);
+        final PublishCompletionWindow.PendingPublish first = window.add(mock(Message.class), _listener);
+
+        Thread completer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(50);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                first.completed();
+            }
+        });
+        completer.start();
+
+        window.add(mock(Message.class), _listener);
+        completer.join();
+
+        assertEquals(1, _completed.size());
+        assertEquals(1, window.getOutstandingCount());
+    }
+
+    public void testCancelDoesNotNotifyListener() throws Exception
+    {
+        PublishCompletionWindow window = new PublishCompletionWindow(1, 1000);
+        window.add(mock(Message.class), _listener).cancel();
+
+        assertEquals(0, window.getOutstandingCount());
+        assertTrue(_completed.isEmpty());
+        assertTrue(_failed.isEmpty());
+    }
+
+    public void testCloseFailsOutstandingAndRejectsNewMessages() throws Exception
+    {
+        PublishCompletionWindow window = new PublishCompletionWindow(2, 1000);
+        window.add(mock(Message.class), _listener);
+        window.add(mock(Message.class), _listener);
+
+        window.close(new JMSException("closed"));
+
+        assertEquals(2, _failed.size());
+        assertEquals(0, window.getOutstandingCount());
+        assertTrue(window.awaitEmpty(0));
+
+        try
+        {
+            window.add(mock(Message.class), _listener);
+            fail("Exception not thrown");
+        }
+        catch (javax.jms.IllegalStateException e)
+        {
+            // pass
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.client;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.apache.qpid.AMQException;
+import org.apache.qpid.client.failover.FailoverException;
+import org.apache.qpid.client.protocol.AMQProtocolHandler;
+import org.apache.qpid.framing.AMQDataBlock;
+import org.apache.qpid.framing.AMQMethodBody;
+import org.apache.qpid.framing.BasicAckBody;
+import org.apache.qpid.framing.BasicNackBody;
+import org.apache.qpid.protocol.AMQMethodEvent;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class PublishConfirmTrackerTest extends QpidTestCase
+{
+    private static final int CHANNEL_ID = 3;
+
+    private final List<String> _outcomes = new ArrayList<String>();
+    private final List<Runnable> _tasks = new ArrayList<Runnable>();
+    private AMQProtocolHandler _protocolHandler;
+    private PublishConfirmTracker _tracker;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _protocolHandler = mock(AMQProtocolHandler.class);
+        _tracker = new PublishConfirmTracker(CHANNEL_ID, _protocolHandler, new Executor()
+        {
+            @Override
+            public void execute(final Runnable command)
+            {
+                _tasks.add(command);
+            }
+        });
+    }
+
+    public void testMultipleAckConfirmsAllUpToDeliveryTag() throws Exception
+    {
+        AMQDataBlock frame = mock(AMQDataBlock.class);
+        _tracker.publish(frame, new RecordingConfirmation("1"));
+        _tracker.publish(frame, new RecordingConfirmation("2"));
+        _tracker.publish(frame, new RecordingConfirmation("3"));
+        verify(_protocolHandler, times(3)).writeFrame(frame);
+
+        assertTrue(receive(new BasicAckBody(2l, true)));
+
+        assertEquals("[1 confirmed, 2 confirmed]", _outcomes.toString());
+        assertEquals(1, _tracker.getUnconfirmedCount());
+    }
+
+    public void testNackRejectsSingleMessage() throws Exception
+    {
+        _tracker.publish(mock(AMQDataBlock.class), new RecordingConfirmation("1"));
+        _tracker.publish(mock(AMQDataBlock.class), new RecordingConfirmation("2"));
+
+        assertTrue(receive(new BasicNackBody(2l, false, false)));
+        assertTrue(receive(new BasicAckBody(1l, false)));
+
+        assertEquals("[2 rejected, 1 confirmed]", _outcomes.toString());
+        assertEquals(0, _tracker.getUnconfirmedCount());
+    }
+
+    public void testUntrackedPublishStillNumbered() throws Exception
+    {
+        _tracker.publish(mock(AMQDataBlock.class), null);
+        _tracker.publish(mock(AMQDataBlock.class), new RecordingConfirmation("2"));
+
+        receive(new BasicAckBody(1l, false));
+        assertTrue(_outcomes.isEmpty());
+
+        receive(new BasicAckBody(2l, false));
+        assertEquals("[2 confirmed]", _outcomes.toString());
+    }
+
+    public void testMethodsForOtherChannelsIgnored() throws Exception
+    {
+        _tracker.publish(mock(AMQDataBlock.class), new RecordingConfirmation("1"));
+
+        assertFalse(_tracker.methodReceived(new AMQMethodEvent<AMQMethodBody>(CHANNEL_ID + 1,
+                                                                                 new BasicAckBody(1l, false))));
+        assertTrue(_outcomes.isEmpty());
+        assertEquals(1, _tracker.getUnconfirmedCount());
+    }
+
+    public void testFailoverFailsOutstandingAndResetRestartsNumbering() throws Exception
+    {
+        _tracker.publish(mock(AMQDataBlock.class), new RecordingConfirmation("1"));
+        _tracker.error(new FailoverException("failover"));
+        runTasks();
+        assertEquals("[1 failed]", _outcomes.toString());
+
+        _tracker.publish(mock(AMQDataBlock.class), new RecordingConfirmation("2"));
+        _tracker.reset(new Exception("reopened"));
+        _tracker.publish(mock(AMQDataBlock.class), new RecordingConfirmation("3"));
+
+        receive(new BasicAckBody(1l, false));
+        assertEquals("[1 failed, 2 failed, 3 confirmed]", _outcomes.toString());
+    }
+
+    public void testErrorsOtherThanFailoverIgnored() throws Exception
+    {
+        _tracker.publish(mock(AMQDataBlock.class), new RecordingConfirmation("1"));
+        _tracker.error(new AMQException("channel 7 closed"));
+        runTasks();
+        assertTrue(_outcomes.isEmpty());
+        assertEquals(1, _tracker.getUnconfirmedCount());
+
+        receive(new BasicAckBody(1l, false));
+        assertEquals("[1 confirmed]", _outcomes.toString());
+    }
+
+    public void testCloseFailsOutstanding() throws Exception
+    {
+        _tracker.publish(mock(AMQDataBlock.class), new RecordingConfirmation("1"));
+        _tracker.close(new AMQException("session closed"));
+        runTasks();
+        assertEquals("[1 failed]", _outcomes.toString());
+        assertEquals(0, _tracker.getUnconfirmedCount());
+    }
+
+    public void testConfirmationsNotifiedByExecutorInOrder() throws Exception
+    {
+        _tracker.publish(mock(AMQDataBlock.class), new RecordingConfirmation("1"));
+        _tracker.publish(mock(AMQDataBlock.class), new RecordingConfirmation("2"));
+
+        assertTrue(_tracker.methodReceived(new AMQMethodEvent<AMQMethodBody>(CHANNEL_ID, new BasicAckBody(1l, false))));
+        assertTrue(_tracker.methodReceived(new AMQMethodEvent<AMQMethodBody>(CHANNEL_ID, new BasicAckBody(2l, false))));
+        assertTrue("Confirmations should not be notified on the receiving thread", _outcomes.isEmpty());
+        assertEquals("A single task should notify the confirmations in turn", 1, _tasks.size());
+
+        runTasks();
+        assertEquals("[1 confirmed, 2 confirmed]", _outcomes.toString());
+    }
+
+    public void testForgottenPublishNoLongerTracked() throws Exception
+    {
+        RecordingConfirmation confirmation = new RecordingConfirmation("1");
+        long deliveryTag = _tracker.publish(mock(AMQDataBlock.class), confirmation);
+        assertEquals(1l, deliveryTag);
+
+        _tracker.forget(deliveryTag, new RecordingConfirmation("other"));
+        assertEquals("Publish forgotten by another confirmation", 1, _tracker.getUnconfirmedCount());
+
+        _tracker.forget(deliveryTag, confirmation);
+        assertEquals(0, _tracker.getUnconfirmedCount());
+
+        receive(new BasicAckBody(1l, false));
+        assertTrue(_outcomes.isEmpty());
+    }
+
+    private boolean receive(AMQMethodBody body)
+    {
+        boolean received = _tracker.methodReceived(new AMQMethodEvent<AMQMethodBody>(CHANNEL_ID, body));
+        runTasks();
+        return received;
+    }
+
+    private void runTasks()
+    {
+        while (!_tasks.isEmpty())
+        {
+            _tasks.remove(0).run();
+        }
+    }
+
+    private class RecordingConfirmation implements PublishConfirmTracker.Confirmation
+    {
+        private final String _name;
+
+        private RecordingConfirmation(final String name)
+        {
+            _name = name;
+        }
+
+        @Override
+        public void confirmed()
+        {
+            _outcomes.add(_name + " confirmed");
+        }
+
+        @Override
+        public void rejected()
+        {
+            _outcomes.add(_name + " rejected");
+        }
+
+        @Override
+        public void failed(final Exception cause)
+        {
+            _outcomes.add(_name + " failed");
+        }
+    }
+}
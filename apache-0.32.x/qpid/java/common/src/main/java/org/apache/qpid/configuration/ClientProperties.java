@@ -244,6 +244,17 @@ public class ClientProperties
      */
     public static final long DEFAULT_FLOW_CONTROL_WAIT_NOTIFY_PERIOD = 5000L;
 
+    /**
+     * System property to set the maximum number of messages a producer may have sent with a
+     * completion listener and not yet had confirmed by the broker.
+     */
+    public static final String QPID_PUBLISH_WINDOW = "qpid.publish_window";
+
+    /**
+     * Default maximum number of unconfirmed messages per producer.
+     */
+    public static final int DEFAULT_PUBLISH_WINDOW = 1000;
+
     /**
      * System property to control whether the client will declare queues during
      * consumer creation when using BindingURLs.
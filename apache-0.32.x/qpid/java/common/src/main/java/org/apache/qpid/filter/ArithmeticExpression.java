@@ -37,7 +37,7 @@ public abstract class ArithmeticExpression extends BinaryExpression
 
     public static Expression createPlus(Expression left, Expression right)
     {
-        return new ArithmeticExpression(left, right)
+        return foldConstants(new ArithmeticExpression(left, right)
             {
                 protected Object evaluate(Object lvalue, Object rvalue)
                 {
@@ -60,12 +60,12 @@ public abstract class ArithmeticExpression extends BinaryExpression
                 {
                     return "+";
                 }
-            };
+            });
     }
 
     public static Expression createMinus(Expression left, Expression right)
     {
-        return new ArithmeticExpression(left, right)
+        return foldConstants(new ArithmeticExpression(left, right)
             {
                 protected Object evaluate(Object lvalue, Object rvalue)
                 {
@@ -81,12 +81,12 @@ public abstract class ArithmeticExpression extends BinaryExpression
                 {
                     return "-";
                 }
-            };
+            });
     }
 
     public static Expression createMultiply(Expression left, Expression right)
     {
-        return new ArithmeticExpression(left, right)
+        return foldConstants(new ArithmeticExpression(left, right)
             {
 
                 protected Object evaluate(Object lvalue, Object rvalue)
@@ -103,12 +103,12 @@ public abstract class ArithmeticExpression extends BinaryExpression
                 {
                     return "*";
                 }
-            };
+            });
     }
 
     public static Expression createDivide(Expression left, Expression right)
     {
-        return new ArithmeticExpression(left, right)
+        return foldConstants(new ArithmeticExpression(left, right)
             {
 
                 protected Object evaluate(Object lvalue, Object rvalue)
@@ -125,12 +125,12 @@ public abstract class ArithmeticExpression extends BinaryExpression
                 {
                     return "/";
                 }
-            };
+            });
     }
 
     public static Expression createMod(Expression left, Expression right)
     {
-        return new ArithmeticExpression(left, right)
+        return foldConstants(new ArithmeticExpression(left, right)
             {
 
                 protected Object evaluate(Object lvalue, Object rvalue)
@@ -147,7 +147,30 @@ public abstract class ArithmeticExpression extends BinaryExpression
                 {
                     return "%";
                 }
-            };
+            });
+    }
+
+    /**
+     * Replaces an operation on two numeric constants by its result.  An operation which fails, such as an
+     * integer division by zero, is left as it is so that it fails when evaluated against a message, just as
+     * it would have done without folding, rather than when the selector is parsed.
+     */
+    private static Expression foldConstants(ArithmeticExpression expression)
+    {
+        if (expression.getLeft() instanceof ConstantExpression && expression.getRight() instanceof ConstantExpression
+            && ((ConstantExpression) expression.getLeft()).getValue() instanceof Number
+            && ((ConstantExpression) expression.getRight()).getValue() instanceof Number)
+        {
+            try
+            {
+                return new ConstantExpression(expression.evaluate(null));
+            }
+            catch (RuntimeException e)
+            {
+                return expression;
+            }
+        }
+        return expression;
     }
 
     protected Number plus(Number left, Number right)
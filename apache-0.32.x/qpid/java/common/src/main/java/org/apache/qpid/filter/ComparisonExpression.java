@@ -71,13 +71,72 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
 
     static class LikeExpression extends UnaryExpression implements BooleanExpression
     {
+        /**
+         * How a value is matched.  Patterns which only have wildcards at either end, and no escaped characters,
+         * are matched with plain String operations rather than a regular expression.
+         */
+        private static enum MatchType
+        {
+            EQUALS(1), STARTS_WITH(1), ENDS_WITH(1), CONTAINS(2), PATTERN(8);
+
+            private final int _cost;
+
+            private MatchType(int cost)
+            {
+                _cost = cost;
+            }
+        }
 
-        private Pattern likePattern;
+        private final MatchType _matchType;
+        private final String _literal;
+        private final Pattern likePattern;
 
         public LikeExpression(Expression right, String like, int escape)
         {
             super(right);
 
+            boolean simple = like.indexOf('_') == -1 && (escape == -1 || like.indexOf(escape) == -1);
+            String literal = like.replace("%", "");
+            int leadingWildcards = 0;
+            while (leadingWildcards < like.length() && like.charAt(leadingWildcards) == '%')
+            {
+                leadingWildcards++;
+            }
+            int trailingWildcards = 0;
+            while (trailingWildcards < like.length() - leadingWildcards
+                   && like.charAt(like.length() - 1 - trailingWildcards) == '%')
+            {
+                trailingWildcards++;
+            }
+
+            if (!simple || leadingWildcards + literal.length() + trailingWildcards != like.length())
+            {
+                // wildcards in the middle of the pattern
+                _matchType = MatchType.PATTERN;
+            }
+            else if (leadingWildcards == 0 && trailingWildcards == 0)
+            {
+                _matchType = MatchType.EQUALS;
+            }
+            else if (leadingWildcards == 0)
+            {
+                _matchType = MatchType.STARTS_WITH;
+            }
+            else if (trailingWildcards == 0)
+            {
+                _matchType = MatchType.ENDS_WITH;
+            }
+            else
+            {
+                _matchType = MatchType.CONTAINS;
+            }
+            _literal = literal;
+
+            likePattern = _matchType == MatchType.PATTERN ? createPattern(like, escape) : null;
+        }
+
+        private static Pattern createPattern(String like, int escape)
+        {
             StringBuffer regexp = new StringBuffer(like.length() * 2);
             regexp.append("\\A"); // The beginning of the input
             for (int i = 0; i < like.length(); i++)
@@ -117,7 +176,7 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
 
             regexp.append("\\z"); // The end of the input
 
-            likePattern = Pattern.compile(regexp.toString(), Pattern.DOTALL);
+            return Pattern.compile(regexp.toString(), Pattern.DOTALL);
         }
 
         /**
@@ -147,7 +206,29 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
                     Boolean.FALSE;
             }
 
-            return likePattern.matcher((String) rv).matches() ? Boolean.TRUE : Boolean.FALSE;
+            return matches((String) rv) ? Boolean.TRUE : Boolean.FALSE;
+        }
+
+        private boolean matches(String value)
+        {
+            switch (_matchType)
+            {
+                case EQUALS:
+                    return value.equals(_literal);
+                case STARTS_WITH:
+                    return value.startsWith(_literal);
+                case ENDS_WITH:
+                    return value.endsWith(_literal);
+                case CONTAINS:
+                    return value.contains(_literal);
+                default:
+                    return likePattern.matcher(value).matches();
+            }
+        }
+
+        int getMatchCost()
+        {
+            return _matchType._cost;
         }
 
         public boolean matches(FilterableMessage message)
@@ -172,7 +253,7 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
             c = 0xFFFF & escape.charAt(0);
         }
 
-        return new LikeExpression(left, right, c);
+        return foldConstants(new LikeExpression(left, right, c));
     }
 
     public static BooleanExpression createNotLike(Expression left, String right, String escape)
@@ -230,7 +311,37 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
 
     private static BooleanExpression doCreateEqual(Expression left, Expression right)
     {
-        return new EqualExpression(left, right);
+        return foldConstants(new EqualExpression(left, right));
+    }
+
+    /**
+     * Replaces a comparison of two constants, which does not depend on the message, by its result.  As for
+     * arithmetic, a comparison which fails is left to fail when evaluated.
+     */
+    private static BooleanExpression foldConstants(BooleanExpression expression)
+    {
+        boolean constant;
+        if (expression instanceof UnaryExpression)
+        {
+            constant = ((UnaryExpression) expression).getRight() instanceof ConstantExpression;
+        }
+        else
+        {
+            BinaryExpression binary = (BinaryExpression) expression;
+            constant = binary.getLeft() instanceof ConstantExpression && binary.getRight() instanceof ConstantExpression;
+        }
+        if (constant)
+        {
+            try
+            {
+                return ConstantExpression.createBoolean(expression.evaluate(null));
+            }
+            catch (RuntimeException e)
+            {
+                return expression;
+            }
+        }
+        return expression;
     }
 
     public static BooleanExpression createGreaterThan(final Expression left, final Expression right)
@@ -238,7 +349,7 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
         checkLessThanOperand(left);
         checkLessThanOperand(right);
 
-        return new ComparisonExpression(left, right)
+        return foldConstants(new ComparisonExpression(left, right)
             {
                 protected boolean asBoolean(int answer)
                 {
@@ -249,7 +360,7 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
                 {
                     return ">";
                 }
-            };
+            });
     }
 
     public static BooleanExpression createGreaterThanEqual(final Expression left, final Expression right)
@@ -257,7 +368,7 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
         checkLessThanOperand(left);
         checkLessThanOperand(right);
 
-        return new ComparisonExpression(left, right)
+        return foldConstants(new ComparisonExpression(left, right)
             {
                 protected boolean asBoolean(int answer)
                 {
@@ -268,7 +379,7 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
                 {
                     return ">=";
                 }
-            };
+            });
     }
 
     public static BooleanExpression createLessThan(final Expression left, final Expression right)
@@ -276,7 +387,7 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
         checkLessThanOperand(left);
         checkLessThanOperand(right);
 
-        return new ComparisonExpression(left, right)
+        return foldConstants(new ComparisonExpression(left, right)
             {
 
                 protected boolean asBoolean(int answer)
@@ -289,7 +400,7 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
                     return "<";
                 }
 
-            };
+            });
     }
 
     public static BooleanExpression createLessThanEqual(final Expression left, final Expression right)
@@ -297,7 +408,7 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
         checkLessThanOperand(left);
         checkLessThanOperand(right);
 
-        return new ComparisonExpression(left, right)
+        return foldConstants(new ComparisonExpression(left, right)
             {
 
                 protected boolean asBoolean(int answer)
@@ -309,7 +420,7 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
                 {
                     return "<=";
                 }
-            };
+            });
     }
 
     /**
@@ -397,6 +508,23 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
     {
         Class lc = lv.getClass();
         Class rc = rv.getClass();
+
+        // Compare the most common combinations of numeric types without boxing
+        if ((lc == Integer.class || lc == Long.class) && (rc == Integer.class || rc == Long.class))
+        {
+            long l = ((Number) lv).longValue();
+            long r = ((Number) rv).longValue();
+            return asBoolean(l < r ? -1 : (l == r ? 0 : 1)) ? Boolean.TRUE : Boolean.FALSE;
+        }
+        else if ((lc == Double.class && (rc == Double.class || rc == Float.class || rc == Integer.class || rc == Long.class))
+                 || (rc == Double.class && (lc == Float.class || lc == Integer.class || lc == Long.class
+                                            || lc == Short.class || lc == Byte.class)))
+        {
+            return asBoolean(Double.compare(((Number) lv).doubleValue(), ((Number) rv).doubleValue()))
+                    ? Boolean.TRUE
+                    : Boolean.FALSE;
+        }
+
         // If the the objects are not of the same type,
         // try to convert up to allow the comparison.
         if (lc != rc)
@@ -545,7 +673,7 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
         return (object != null) && (object == Boolean.TRUE);
     }
 
-    private static class EqualExpression extends ComparisonExpression
+    static class EqualExpression extends ComparisonExpression
     {
         public EqualExpression(final Expression left, final Expression right)
         {
@@ -52,6 +52,15 @@ public class ConstantExpression implements Expression
 
     private Object _value;
 
+    static BooleanConstantExpression createBoolean(Object value)
+    {
+        if (value == null)
+        {
+            return NULL;
+        }
+        return Boolean.TRUE.equals(value) ? TRUE : FALSE;
+    }
+
     public static ConstantExpression createFromDecimal(String text)
     {
 
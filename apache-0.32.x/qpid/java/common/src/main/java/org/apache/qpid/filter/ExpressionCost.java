@@ -0,0 +1,67 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.filter;
+
+/**
+ * Estimates the relative cost of evaluating an expression against a message, so that the cheaper operand of
+ * an AND or OR can be evaluated first and the other skipped whenever the first decides the result.
+ */
+final class ExpressionCost
+{
+    private static final int CONSTANT = 0;
+    private static final int PROPERTY = 1;
+    private static final int OPERATOR = 1;
+    private static final int UNKNOWN = 4;
+
+    private ExpressionCost()
+    {
+    }
+
+    static int of(Expression expression)
+    {
+        if (expression instanceof ConstantExpression)
+        {
+            return CONSTANT;
+        }
+        else if (expression instanceof PropertyExpression)
+        {
+            return PROPERTY;
+        }
+        else if (expression instanceof ComparisonExpression.LikeExpression)
+        {
+            ComparisonExpression.LikeExpression like = (ComparisonExpression.LikeExpression) expression;
+            return like.getMatchCost() + of(like.getRight());
+        }
+        else if (expression instanceof UnaryExpression)
+        {
+            return OPERATOR + of(((UnaryExpression) expression).getRight());
+        }
+        else if (expression instanceof BinaryExpression)
+        {
+            BinaryExpression binary = (BinaryExpression) expression;
+            return OPERATOR + of(binary.getLeft()) + of(binary.getRight());
+        }
+        else
+        {
+            return UNKNOWN;
+        }
+    }
+}
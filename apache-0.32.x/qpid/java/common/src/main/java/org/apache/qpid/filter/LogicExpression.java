@@ -28,12 +28,43 @@ public abstract class LogicExpression extends BinaryExpression implements Boolea
 
     public static BooleanExpression createOR(BooleanExpression lvalue, BooleanExpression rvalue)
     {
-        return new OrExpression(lvalue, rvalue);
+        if (lvalue == ConstantExpression.TRUE || rvalue == ConstantExpression.TRUE)
+        {
+            return ConstantExpression.TRUE;
+        }
+        else if (lvalue == ConstantExpression.FALSE)
+        {
+            return rvalue;
+        }
+        else if (rvalue == ConstantExpression.FALSE)
+        {
+            return lvalue;
+        }
+
+        // the result does not depend on the order of the operands, so evaluate the cheaper first
+        return ExpressionCost.of(rvalue) < ExpressionCost.of(lvalue)
+                ? new OrExpression(rvalue, lvalue)
+                : new OrExpression(lvalue, rvalue);
     }
 
     public static BooleanExpression createAND(BooleanExpression lvalue, BooleanExpression rvalue)
     {
-        return new AndExpression(lvalue, rvalue);
+        if (lvalue == ConstantExpression.FALSE || rvalue == ConstantExpression.FALSE)
+        {
+            return ConstantExpression.FALSE;
+        }
+        else if (lvalue == ConstantExpression.TRUE)
+        {
+            return rvalue;
+        }
+        else if (rvalue == ConstantExpression.TRUE)
+        {
+            return lvalue;
+        }
+
+        return ExpressionCost.of(rvalue) < ExpressionCost.of(lvalue)
+                ? new AndExpression(rvalue, lvalue)
+                : new AndExpression(lvalue, rvalue);
     }
 
     public LogicExpression(BooleanExpression left, BooleanExpression right)
@@ -68,8 +99,13 @@ public abstract class LogicExpression extends BinaryExpression implements Boolea
             }
 
             Boolean rv = (Boolean) getRight().evaluate(message);
+            if ((rv != null) && rv.booleanValue())
+            {
+                return Boolean.TRUE;
+            }
 
-            return (rv == null) ? null : rv;
+            // as in SQL, unknown OR false is unknown
+            return (lv == null || rv == null) ? null : Boolean.FALSE;
         }
 
         public String getExpressionSymbol()
@@ -91,19 +127,19 @@ public abstract class LogicExpression extends BinaryExpression implements Boolea
             Boolean lv = (Boolean) getLeft().evaluate(message);
 
             // Can we do an AND shortcut??
-            if (lv == null)
+            if ((lv != null) && !lv.booleanValue())
             {
-                return null;
+                return Boolean.FALSE;
             }
 
-            if (!lv.booleanValue())
+            Boolean rv = (Boolean) getRight().evaluate(message);
+            if ((rv != null) && !rv.booleanValue())
             {
                 return Boolean.FALSE;
             }
 
-            Boolean rv = (Boolean) getRight().evaluate(message);
-
-            return (rv == null) ? null : rv;
+            // as in SQL, unknown AND false is false, whichever operand is unknown
+            return (lv == null || rv == null) ? null : Boolean.TRUE;
         }
 
         public String getExpressionSymbol()
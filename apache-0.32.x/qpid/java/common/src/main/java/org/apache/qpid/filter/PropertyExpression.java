@@ -43,6 +43,7 @@ public class PropertyExpression implements Expression
 
     private static final HashMap<String, Expression> JMS_PROPERTY_EXPRESSIONS = new HashMap<String, Expression>();
 
+    static
     {
         JMS_PROPERTY_EXPRESSIONS.put("JMSDestination", new Expression()
                                      {
@@ -0,0 +1,121 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.filter;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Describes a selector which is true exactly when a single property has one of a set of string values, such as
+ * <code>region = 'EU'</code>, <code>region IN ('EU', 'US')</code> or <code>region = 'EU' OR region = 'US'</code>.
+ * Whether a message matches such a selector can be decided by looking the value of the property up in the set,
+ * and the value need only be read once however many selectors test it.
+ */
+public final class PropertyValueTest
+{
+    private final PropertyExpression _property;
+    private final Set<String> _values;
+
+    private PropertyValueTest(final PropertyExpression property, final Set<String> values)
+    {
+        _property = property;
+        _values = Collections.unmodifiableSet(values);
+    }
+
+    /**
+     * @return a description of the given selector, or null if it is not a test of a single property against a set
+     * of string values
+     */
+    public static PropertyValueTest create(BooleanExpression selector)
+    {
+        if (selector instanceof ComparisonExpression.EqualExpression)
+        {
+            ComparisonExpression.EqualExpression equal = (ComparisonExpression.EqualExpression) selector;
+            if (equal.getLeft() instanceof PropertyExpression)
+            {
+                return create((PropertyExpression) equal.getLeft(), equal.getRight());
+            }
+            else if (equal.getRight() instanceof PropertyExpression)
+            {
+                return create((PropertyExpression) equal.getRight(), equal.getLeft());
+            }
+        }
+        else if (selector instanceof UnaryExpression.InExpression)
+        {
+            UnaryExpression.InExpression in = (UnaryExpression.InExpression) selector;
+            if (!in.isNot() && in.getInList() != null)
+            {
+                Set<String> values = new HashSet<String>();
+                for (Object value : in.getInList())
+                {
+                    if (!(value instanceof String))
+                    {
+                        return null;
+                    }
+                    values.add((String) value);
+                }
+                return new PropertyValueTest((PropertyExpression) in.getRight(), values);
+            }
+        }
+        else if (selector instanceof LogicExpression && "OR".equals(((LogicExpression) selector).getExpressionSymbol()))
+        {
+            LogicExpression or = (LogicExpression) selector;
+            PropertyValueTest left = create((BooleanExpression) or.getLeft());
+            PropertyValueTest right = create((BooleanExpression) or.getRight());
+            if (left != null && right != null && left._property.equals(right._property))
+            {
+                Set<String> values = new HashSet<String>(left._values);
+                values.addAll(right._values);
+                return new PropertyValueTest(left._property, values);
+            }
+        }
+        return null;
+    }
+
+    private static PropertyValueTest create(PropertyExpression property, Expression value)
+    {
+        if (value instanceof ConstantExpression && ((ConstantExpression) value).getValue() instanceof String)
+        {
+            return new PropertyValueTest(property, Collections.singleton((String) ((ConstantExpression) value).getValue()));
+        }
+        return null;
+    }
+
+    public PropertyExpression getProperty()
+    {
+        return _property;
+    }
+
+    public Set<String> getValues()
+    {
+        return _values;
+    }
+
+    /**
+     * @param value the value of the property in a message
+     * @return true if the selector matches a message in which the property has the given value
+     */
+    public boolean matches(Object value)
+    {
+        return value instanceof String && _values.contains(value);
+    }
+}
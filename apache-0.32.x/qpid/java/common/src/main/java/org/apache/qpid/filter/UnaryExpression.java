@@ -39,6 +39,10 @@ public abstract class UnaryExpression implements Expression
 
     public static Expression createNegate(Expression left)
     {
+        if (left instanceof ConstantExpression && ((ConstantExpression) left).getValue() instanceof Number)
+        {
+            return new ConstantExpression(negate((Number) ((ConstantExpression) left).getValue()));
+        }
         return new NegativeExpression(left);
     }
 
@@ -82,6 +86,10 @@ public abstract class UnaryExpression implements Expression
 
     public static BooleanExpression createNOT(BooleanExpression left)
     {
+        if (left instanceof ConstantExpression.BooleanConstantExpression)
+        {
+            return ConstantExpression.createBoolean(new NotExpression(left).evaluate(null));
+        }
         return new NotExpression(left);
     }
 
@@ -206,7 +214,7 @@ public abstract class UnaryExpression implements Expression
         }
     }
 
-    private static class InExpression extends BooleanUnaryExpression
+    static class InExpression extends BooleanUnaryExpression
     {
         private final Collection _inList;
         private final boolean _not;
@@ -218,6 +226,16 @@ public abstract class UnaryExpression implements Expression
             _not = not;
         }
 
+        Collection getInList()
+        {
+            return _inList;
+        }
+
+        boolean isNot()
+        {
+            return _not;
+        }
+
         public Object evaluate(FilterableMessage message)
         {
 
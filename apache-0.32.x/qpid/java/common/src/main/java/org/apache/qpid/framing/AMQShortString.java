@@ -510,6 +510,27 @@ public final class AMQShortString implements CharSequence, Comparable<AMQShortSt
 
     }
 
+    /**
+     * Compares this string against octets held in a buffer, without creating a string for them.
+     */
+    boolean equalsBytes(final byte[] otherData, final int otherOffset, final int length)
+    {
+        if(length != _length)
+        {
+            return false;
+        }
+        int thisIdx = _offset;
+        int otherIdx = otherOffset;
+        for(int i = length;  i-- != 0; )
+        {
+            if(_data[thisIdx++] != otherData[otherIdx++])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public boolean equalsCharSequence(CharSequence s)
     {
         if(s instanceof AMQShortString)
@@ -55,7 +55,13 @@ public class FieldTable
     private long _encodedSize;
     private static final int INITIAL_HASHMAP_CAPACITY = 16;
     private static final int INITIAL_ENCODED_FORM_SIZE = 256;
+    /**
+     * Lookups made against a table that has not yet been decoded scan its encoded form in place; once this many
+     * have been made the table is decoded into a map, as further scans would cost more than decoding.
+     */
+    private static final int MAX_ENCODED_LOOKUPS = 8;
     private final boolean _strictAMQP;
+    private int _encodedLookups;
 
     public FieldTable()
     {
@@ -92,6 +98,30 @@ public class FieldTable
         _encodedSize = length;
     }
 
+    /**
+     * Construct a copy of another field table.  Where the other table is still in its encoded form the bytes are
+     * shared rather than copied; an encoded form is never written to, a table being modified discards it instead.
+     *
+     * @param other the table to copy
+     */
+    FieldTable(FieldTable other)
+    {
+        this();
+        synchronized (other)
+        {
+            if (other._encodedForm != null)
+            {
+                _encodedForm = other._encodedForm;
+                _encodedFormOffset = other._encodedFormOffset;
+                _encodedSize = other._encodedSize;
+            }
+            else
+            {
+                _encodedForm = other.getDataAsBytes();
+                _encodedSize = _encodedForm.length;
+            }
+        }
+    }
 
     public boolean isClean()
     {
@@ -110,6 +140,10 @@ public class FieldTable
                 {
                     return null;
                 }
+                else if (_encodedLookups++ < MAX_ENCODED_LOOKUPS)
+                {
+                    return findEncodedProperty(string);
+                }
                 else
                 {
                     populateFromBuffer();
@@ -146,6 +180,99 @@ public class FieldTable
         }
     }
 
+    /**
+     * Whether a lookup should be answered by scanning the encoded form rather than from the decoded map.  Must be
+     * called holding the lock on this table.
+     */
+    private boolean lookupInEncodedForm()
+    {
+        return _properties == null && _encodedForm != null && _encodedLookups++ < MAX_ENCODED_LOOKUPS;
+    }
+
+    private AMQTypedValue findEncodedProperty(AMQShortString key)
+    {
+        int position = findEncodedValue(key);
+        if (position == -1)
+        {
+            return null;
+        }
+
+        try
+        {
+            return AMQTypedValue.readFromBuffer(new ByteArrayDataInput(_encodedForm,
+                                                                       position,
+                                                                       _encodedFormOffset + (int) _encodedSize - position));
+        }
+        catch (IOException e)
+        {
+            _logger.error("Unexpected IO exception decoding field table value");
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Scans the encoded form for the given key without decoding any of the values.  As with the decoded map, where
+     * a key appears more than once its last value is the one found.
+     *
+     * @return the position of the type octet of the key's value, or -1 if the key is not present
+     */
+    private int findEncodedValue(AMQShortString key)
+    {
+        final byte[] data = _encodedForm;
+        final int end = _encodedFormOffset + (int) _encodedSize;
+        int position = _encodedFormOffset;
+        int found = -1;
+
+        while (position < end)
+        {
+            int keyLength = data[position++] & 0xFF;
+            if (key.equalsBytes(data, position, keyLength))
+            {
+                found = position + keyLength;
+            }
+            position = skipEncodedValue(data, position + keyLength);
+        }
+
+        if (position != end)
+        {
+            throw new IllegalArgumentException("Field table encoded form overruns its length of " + _encodedSize);
+        }
+        return found;
+    }
+
+    private static int skipEncodedValue(byte[] data, int position)
+    {
+        AMQType type = AMQTypeMap.getType(data[position++]);
+        switch (type)
+        {
+            case VOID:
+                return position;
+            case BOOLEAN:
+            case ASCII_CHARACTER:
+            case BYTE:
+                return position + 1;
+            case SHORT:
+                return position + 2;
+            case INTEGER:
+            case INT:
+            case FLOAT:
+                return position + 4;
+            case DECIMAL:
+                return position + 5;
+            case TIMESTAMP:
+            case LONG:
+            case DOUBLE:
+                return position + 8;
+            default:
+                // the remaining types are all preceded by a four octet length
+                long length = ((data[position] & 0xFFL) << 24)
+                              | ((data[position + 1] & 0xFFL) << 16)
+                              | ((data[position + 2] & 0xFFL) << 8)
+                              | (data[position + 3] & 0xFFL);
+                return position + 4 + (int) length;
+        }
+    }
+
     private AMQTypedValue setProperty(AMQShortString key, AMQTypedValue val)
     {
         checkPropertyName(key);
@@ -761,6 +888,13 @@ public class FieldTable
     public boolean itemExists(AMQShortString propertyName)
     {
         checkPropertyName(propertyName);
+        synchronized (this)
+        {
+            if (lookupInEncodedForm())
+            {
+                return findEncodedValue(propertyName) != -1;
+            }
+        }
         initMapIfNecessary();
 
         return _properties.containsKey(propertyName);
@@ -978,6 +1112,16 @@ public class FieldTable
 
     public boolean containsKey(AMQShortString key)
     {
+        if (key != null)
+        {
+            synchronized (this)
+            {
+                if (lookupInEncodedForm())
+                {
+                    return findEncodedValue(key) != -1;
+                }
+            }
+        }
         initMapIfNecessary();
 
         return _properties.containsKey(key);
@@ -30,4 +30,10 @@ public interface ServerProtocolEngine extends ProtocolEngine
     long getConnectionId();
 
     Subject getSubject();
+
+    /**
+     * Called by the network layer when it discovers, after the engine has been created, that the peer is
+     * using TLS.
+     */
+    void encryptedTransport();
 }
@@ -42,7 +42,9 @@ import static org.apache.qpid.util.Serial.max;
 import static org.apache.qpid.util.Strings.toUTF8;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.Semaphore;
@@ -564,6 +566,8 @@ public class Session extends SessionInvoker
         {
             log.debug("%s complete(%d, %d)", this, lower, upper);
         }
+        List<Method> completed = null;
+        boolean advanced;
         synchronized (commandsLock)
         {
             int old = maxComplete;
@@ -573,7 +577,14 @@ public class Session extends SessionInvoker
                 if (m != null)
                 {
                     commandBytes -= m.getBodySize();
-                    m.complete();
+                    if (m.hasCompletionListener())
+                    {
+                        if (completed == null)
+                        {
+                            completed = new ArrayList<Method>();
+                        }
+                        completed.add(m);
+                    }
                 }
             }
             if (le(lower, maxComplete + 1))
@@ -587,8 +598,19 @@ public class Session extends SessionInvoker
             }
 
             commandsLock.notifyAll();
-            return gt(maxComplete, old);
+            advanced = gt(maxComplete, old);
+        }
+
+        // completion listeners are notified without the lock held, so that they neither stall other users of the
+        // session nor risk deadlock by taking locks of their own
+        if (completed != null)
+        {
+            for (Method m : completed)
+            {
+                m.complete();
+            }
         }
+        return advanced;
     }
 
     void received(Method m)
@@ -59,6 +59,7 @@ public class SSLUtil
     private static final Logger log = Logger.get(SSLUtil.class);
     private static final Integer DNS_NAME_TYPE = 2;
     public static final String SSLV3_PROTOCOL = "SSLv3";
+    public static final int MINIMUM_SSL_DETECTION_BYTES = 6;
 
     private SSLUtil()
     {
@@ -368,4 +369,30 @@ public class SSLUtil
     {
         updateEnabledCipherSuites(asSSLEntity(socket, SSLSocket.class), enabledCipherSuites, disabledCipherSuites);
     }
+
+    public static boolean looksLikeSSL(byte[] headerBytes)
+    {
+        return looksLikeSSLv3ClientHello(headerBytes) || looksLikeSSLv2ClientHello(headerBytes);
+    }
+
+    private static boolean looksLikeSSLv3ClientHello(byte[] headerBytes)
+    {
+        return headerBytes[0] == 22 && // SSL Handshake
+               (headerBytes[1] == 3 && // SSL 3.0 / TLS 1.x
+                (headerBytes[2] == 0 || // SSL 3.0
+                 headerBytes[2] == 1 || // TLS 1.0
+                 headerBytes[2] == 2 || // TLS 1.1
+                 headerBytes[2] == 3)) && // TLS1.2
+               (headerBytes[5] == 1); // client_hello
+    }
+
+    private static boolean looksLikeSSLv2ClientHello(byte[] headerBytes)
+    {
+        return headerBytes[0] == -128 &&
+               headerBytes[3] == 3 && // SSL 3.0 / TLS 1.x
+                (headerBytes[4] == 0 || // SSL 3.0
+                 headerBytes[4] == 1 || // TLS 1.0
+                 headerBytes[4] == 2 || // TLS 1.1
+                 headerBytes[4] == 3);
+    }
 }
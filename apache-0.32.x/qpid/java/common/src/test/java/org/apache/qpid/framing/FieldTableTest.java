@@ -25,6 +25,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -931,6 +932,87 @@ public class FieldTableTest extends TestCase
         assertTrue("unexpected property value", destinationTable.getBoolean(myBooleanTestProperty));
     }
 
+    /**
+     * Test that values of every type can be looked up in a table that is still in its encoded form, both before and
+     * after enough lookups have been made for the table to be decoded
+     */
+    public void testLookupsAgainstEncodedForm()
+    {
+        FieldTable nested = new FieldTable();
+        nested.setString("inner", "value");
+
+        FieldTable encodeTable = new FieldTable();
+        encodeTable.setVoid(new AMQShortString("void"));
+        encodeTable.setBoolean("boolean", true);
+        encodeTable.setByte("byte", Byte.MAX_VALUE);
+        encodeTable.setChar("char", 'c');
+        encodeTable.setShort("short", Short.MAX_VALUE);
+        encodeTable.setInteger("int", Integer.MAX_VALUE);
+        encodeTable.setFloat("float", 1.5f);
+        encodeTable.setLong("long", Long.MAX_VALUE);
+        encodeTable.setDouble("double", 2.5d);
+        encodeTable.setBytes("bytes", new byte[] { 1, 2, 3 });
+        encodeTable.setString("string", "hello");
+        encodeTable.setFieldTable("table", nested);
+        encodeTable.setObject("decimal", new BigDecimal("12.00"));
+        encodeTable.setString("last", "end");
+
+        byte[] data = encodeTable.getDataAsBytes();
+        byte[] padded = new byte[data.length + 6];
+        System.arraycopy(data, 0, padded, 3, data.length);
+
+        for (int i = 0; i < 3; i++)
+        {
+            FieldTable table = new FieldTable(padded, 3, data.length);
+            for (int lookup = 0; lookup < 3; lookup++)
+            {
+                assertTrue("void not found", table.containsKey("void"));
+                assertEquals(Boolean.TRUE, table.getBoolean("boolean"));
+                assertEquals(Byte.valueOf(Byte.MAX_VALUE), table.getByte("byte"));
+                assertEquals(Character.valueOf('c'), table.getCharacter("char"));
+                assertEquals(Short.valueOf(Short.MAX_VALUE), table.getShort("short"));
+                assertEquals(Integer.valueOf(Integer.MAX_VALUE), table.getInteger("int"));
+                assertEquals(1.5f, table.getFloat("float"));
+                assertEquals(Long.valueOf(Long.MAX_VALUE), table.getLong("long"));
+                assertEquals(2.5d, table.getDouble("double"));
+                assertTrue(Arrays.equals(new byte[] { 1, 2, 3 }, table.getBytes("bytes")));
+                assertEquals("hello", table.getString("string"));
+                assertEquals("value", table.getFieldTable("table").getString("inner"));
+                assertEquals(new BigDecimal("12.00"), table.getObject("decimal"));
+                assertEquals("end", table.getString("last"));
+                assertTrue("property not found", table.propertyExists("last"));
+                assertFalse("unexpected property found", table.containsKey("missing"));
+                assertNull("unexpected value", table.getString("missing"));
+            }
+            assertTrue("encoded form should have been kept", table.isClean());
+            assertBytesEqual(data, table.getDataAsBytes());
+        }
+    }
+
+    /**
+     * Test that a copy of an encoded table shares its encoded form, and that modifying the copy leaves the original
+     * unchanged
+     */
+    public void testCopySharesEncodedForm()
+    {
+        FieldTable encodeTable = new FieldTable();
+        encodeTable.setString("key", "value");
+        byte[] data = encodeTable.getDataAsBytes();
+
+        FieldTable original = new FieldTable(data, 0, data.length);
+        FieldTable copy = new FieldTable(original);
+        assertTrue("copy should be in encoded form", copy.isClean());
+        assertBytesEqual(data, copy.getDataAsBytes());
+
+        copy.setString("key", "changed");
+        copy.setString("other", "added");
+
+        assertEquals("changed", copy.getString("key"));
+        assertEquals("value", original.getString("key"));
+        assertFalse("original should be unchanged", original.containsKey("other"));
+        assertBytesEqual(data, original.getDataAsBytes());
+    }
+
     private void assertBytesEqual(byte[] expected, byte[] actual)
     {
         Assert.assertEquals(expected.length, actual.length);
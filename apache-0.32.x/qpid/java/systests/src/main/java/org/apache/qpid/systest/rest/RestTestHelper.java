@@ -229,7 +229,7 @@ public class RestTestHelper
         return baos.toByteArray();
     }
 
-    private void writeJsonRequest(HttpURLConnection connection, Map<String, Object> data) throws JsonGenerationException,
+    private void writeJsonRequest(HttpURLConnection connection, Object data) throws JsonGenerationException,
             JsonMappingException, IOException
     {
         ObjectMapper mapper = new ObjectMapper();
@@ -514,6 +514,16 @@ public class RestTestHelper
         return responseCode;
     }
 
+    public int submitRequest(String url, String method, List<Map<String, Object>> objects) throws IOException,
+            JsonGenerationException, JsonMappingException
+    {
+        HttpURLConnection connection = openManagementConnection(url, method);
+        writeJsonRequest(connection, objects);
+        int responseCode = connection.getResponseCode();
+        connection.disconnect();
+        return responseCode;
+    }
+
     public int submitRequest(String url, String method) throws IOException
     {
         return submitRequest(url, method, (byte[])null);
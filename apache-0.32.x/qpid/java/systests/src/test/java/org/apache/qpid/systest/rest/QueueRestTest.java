@@ -22,6 +22,8 @@ package org.apache.qpid.systest.rest;
 
 import java.io.IOException;
 import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -190,6 +192,64 @@ public class QueueRestTest extends QpidRestTestCase
         }
     }
 
+    public void testCreateQueuesFromList() throws Exception
+    {
+        String queueName1 = getTestName() + "1";
+        String queueName2 = getTestName() + "2";
+
+        List<Map<String, Object>> queues = new ArrayList<Map<String, Object>>();
+        queues.add(Collections.<String, Object>singletonMap(Queue.NAME, queueName1));
+        queues.add(Collections.<String, Object>singletonMap(Queue.NAME, queueName2));
+
+        int responseCode = getRestTestHelper().submitRequest("queue/test/test", "POST", queues);
+        assertEquals("Queues were not created", 201, responseCode);
+
+        Asserts.assertQueue(queueName1, "standard", getRestTestHelper().getJsonAsSingletonList("queue/test/test/" + queueName1));
+        Asserts.assertQueue(queueName2, "standard", getRestTestHelper().getJsonAsSingletonList("queue/test/test/" + queueName2));
+    }
+
+    public void testCreateQueuesFromListUndoneWhenOneFails() throws Exception
+    {
+        String queueName1 = getTestName() + "1";
+        String queueName2 = getTestName() + "2";
+
+        Map<String, Object> invalidQueue = new HashMap<String, Object>();
+        invalidQueue.put(Queue.NAME, queueName2);
+        invalidQueue.put(Queue.MAXIMUM_DELIVERY_ATTEMPTS, "notANumber");
+
+        List<Map<String, Object>> queues = new ArrayList<Map<String, Object>>();
+        queues.add(Collections.<String, Object>singletonMap(Queue.NAME, queueName1));
+        queues.add(invalidQueue);
+
+        int responseCode = getRestTestHelper().submitRequest("queue/test/test", "POST", queues);
+        assertEquals("Unexpected response code", 409, responseCode);
+
+        assertEquals("Queue created from the list should have been deleted",
+                     0, getRestTestHelper().getJsonAsList("queue/test/test/" + queueName1).size());
+        assertEquals("Invalid queue should not exist",
+                     0, getRestTestHelper().getJsonAsList("queue/test/test/" + queueName2).size());
+    }
+
+    public void testDeleteQueues() throws Exception
+    {
+        String queueName1 = getTestName() + "1";
+        String queueName2 = getTestName() + "2";
+        for (String queueName : new String[]{queueName1, queueName2})
+        {
+            getRestTestHelper().submitRequest("queue/test/test/" + queueName, "PUT",
+                                              Collections.<String, Object>singletonMap(Queue.NAME, queueName), 201);
+        }
+
+        int responseCode = getRestTestHelper().submitRequest("queue/test/test?name=" + queueName1 + "&name=" + queueName2,
+                                                             "DELETE");
+        assertEquals("Unexpected response code", 200, responseCode);
+
+        assertEquals("Queue should be deleted", 0, getRestTestHelper().getJsonAsList("queue/test/test/" + queueName1).size());
+        assertEquals("Queue should be deleted", 0, getRestTestHelper().getJsonAsList("queue/test/test/" + queueName2).size());
+        assertNotNull("Queue not in the delete should remain",
+                      getRestTestHelper().getJsonAsSingletonList("queue/test/test/" + getTestQueueName()));
+    }
+
     private void createBinding(String bindingName, String exchangeName, String queueName) throws IOException
     {
         Map<String, Object> bindingData = new HashMap<String, Object>();
@@ -82,6 +82,20 @@ public class VirtualHostNodeRestTest  extends QpidRestTestCase
         assertEquals("Host should be deleted", 0, virtualHostNodes.size());
     }
 
+    public void testDeleteVirtualHostNodeWithVirtualHost() throws Exception
+    {
+        String restUrl = "virtualhostnode/" + TEST3_VIRTUALHOST;
+        assertNotNull("Virtualhostnode should have a virtualhost",
+                      getRestTestHelper().getJsonAsSingletonList(restUrl).get("virtualhosts"));
+
+        getRestTestHelper().submitRequest(restUrl, "DELETE", HttpServletResponse.SC_OK);
+
+        List<Map<String, Object>> virtualHostNodes = getRestTestHelper().getJsonAsList(restUrl);
+        assertEquals("Node should be deleted", 0, virtualHostNodes.size());
+        List<Map<String, Object>> virtualHosts = getRestTestHelper().getJsonAsList("virtualhost/" + TEST3_VIRTUALHOST);
+        assertEquals("Host should be deleted", 0, virtualHosts.size());
+    }
+
     public void testRecoverVirtualHostNodeWithDesiredStateStopped() throws Exception
     {
         stopBroker();